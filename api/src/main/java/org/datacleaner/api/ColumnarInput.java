@@ -0,0 +1,58 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.api;
+
+/**
+ * Represents a number of rows handed to a {@link VectorizedTransformer} in one
+ * go. Values are exposed per column, as an array holding a value for each row
+ * of the batch, so that a transformer can process a whole column in a tight
+ * loop.
+ *
+ * @see VectorizedTransformer
+ */
+public interface ColumnarInput {
+
+    /**
+     * Gets the number of rows in this batch.
+     *
+     * @return
+     */
+    int getRowCount();
+
+    /**
+     * Gets the values of a column for all rows in this batch. The returned
+     * array has a length of {@link #getRowCount()} and is shared, so it should
+     * not be modified by the caller.
+     *
+     * @param column
+     * @return
+     */
+    Object[] getValues(InputColumn<?> column);
+
+    /**
+     * Gets a single row of this batch, eg. for handling a row which cannot be
+     * transformed in a columnar fashion.
+     *
+     * @param index
+     *            the index of the row, between 0 and {@link #getRowCount()}
+     * @return
+     */
+    InputRow getRow(int index);
+}
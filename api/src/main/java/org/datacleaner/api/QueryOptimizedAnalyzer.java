@@ -0,0 +1,61 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.api;
+
+/**
+ * An {@link Analyzer} which can, under certain circumstances, be optimized by
+ * using a "push down" technique, where the rows of the data stream are grouped
+ * and counted by the query that feeds the job, instead of being streamed one
+ * by one.
+ *
+ * Such analyzers will receive each distinct combination of their input values
+ * just once, with the number of records that hold those values passed as the
+ * distinct count of {@link #run(InputRow, int)}. The rows will contain only
+ * the input values of the analyzer. This is only valid for analyzers whose
+ * result depends solely on the values and their counts, not on the identity or
+ * the order of the records.
+ *
+ * Optimized analyzers with the same input columns share a single GROUP BY
+ * query.
+ *
+ * There is no guarantee that the analyzer will be optimized. It is only
+ * considered when the analyzer consumes physical columns of a source table
+ * which support query optimization, without any requirements or output data
+ * streams.
+ *
+ * @param <R>
+ *            the {@link AnalyzerResult} type of this analyzer.
+ */
+public interface QueryOptimizedAnalyzer<R extends AnalyzerResult> extends Analyzer<R> {
+
+    /**
+     * Determines if the analyzer, in its current configuration, can be fed
+     * with grouped and counted rows. Analyzers which keep track of the
+     * individual records, eg. for drill-down purposes, should return false
+     * when configured to do so. This includes analyzers whose annotated rows
+     * are presented to the user: grouped rows only hold the input values of
+     * the analyzer, not the other values (such as primary keys) of the records
+     * they represent.
+     *
+     * @return a boolean indicating whether or not the analyzer is query
+     *         optimizable.
+     */
+    boolean isOptimizable();
+}
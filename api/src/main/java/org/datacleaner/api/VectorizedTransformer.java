@@ -0,0 +1,61 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.api;
+
+/**
+ * A {@link Transformer} which can transform a batch of rows in one go. When
+ * running a job, the runner will group the records of a data stream into
+ * batches and hand them to the transformer as {@link ColumnarInput}, which is
+ * useful for transformers that have a considerable per-invocation overhead
+ * (eg. evaluating scripts or regular expressions).
+ *
+ * Vectorized transformers should implement BOTH the regular
+ * {@link #transform(InputRow)} method and {@link #transformBatch(ColumnarInput)}.
+ * There is no guarantee that the batch method will be used, eg. when the
+ * transformer is used outside of a job or when the job runs row by row.
+ *
+ * Note that the batch method has no support for an {@link OutputRowCollector}
+ * - transformers that may output multiple records per row should return false
+ * from {@link #isVectorized()} when configured to do so.
+ */
+public interface VectorizedTransformer extends Transformer {
+
+    /**
+     * Determines if the transformer, in its current configuration, can be
+     * invoked with batches of rows.
+     *
+     * @return
+     */
+    default boolean isVectorized() {
+        return true;
+    }
+
+    /**
+     * Transforms a batch of rows.
+     *
+     * @param input
+     *            the values of the rows to transform
+     * @return an array with the transformed values of each row, in the same
+     *         order as the rows of the input. An element may be null to
+     *         indicate that no output should be produced for the row, just
+     *         like a null return value of {@link #transform(InputRow)}.
+     */
+    Object[][] transformBatch(ColumnarInput input);
+}
@@ -39,6 +39,17 @@ public interface RowAnnotationSampleContainer {
      */
     boolean hasSampleRows(RowAnnotation annotation);
 
+    /**
+     * Determines if sample rows are stored at all. If not, the annotated rows
+     * cannot be presented to the user (eg. for drill-down purposes), only their
+     * counts.
+     *
+     * @return
+     */
+    default boolean isStoringSampleRows() {
+        return true;
+    }
+
     /**
      * Gets all the available sample rows with a given annotation.
      *
@@ -28,13 +28,13 @@ import java.util.TreeSet;
 
 import javax.inject.Named;
 
-import org.datacleaner.api.Analyzer;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.Initialize;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.Provided;
+import org.datacleaner.api.QueryOptimizedAnalyzer;
 import org.datacleaner.result.AnnotatedRowsResult;
 import org.datacleaner.result.Crosstab;
 import org.datacleaner.result.CrosstabDimension;
@@ -46,7 +46,7 @@ import org.datacleaner.util.ValueCombination;
 
 @Named("BooleanAnalyzer.name")
 @Description("BooleanAnalyzer.Description")
-public class BooleanAnalyzer implements Analyzer<BooleanAnalyzerResult> {
+public class BooleanAnalyzer implements QueryOptimizedAnalyzer<BooleanAnalyzerResult> {
 
     public static final String MEASURE_LEAST_FREQUENT = "Least frequent";
     public static final String MEASURE_MOST_FREQUENT = "Most frequent";
@@ -118,6 +118,12 @@ public class BooleanAnalyzer implements Analyzer<BooleanAnalyzerResult> {
         }
     }
 
+    @Override
+    public boolean isOptimizable() {
+        // annotated rows that are shown to the user would not be complete
+        return !_annotationFactory.isStoringSampleRows();
+    }
+
     @Override
     public BooleanAnalyzerResult getResult() {
         CrosstabDimension measureDimension = new CrosstabDimension(DIMENSION_MEASURE);
@@ -0,0 +1,284 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.math.stat.descriptive.rank.Percentile;
+
+/**
+ * A fixed-memory, mergeable alternative to commons-math's
+ * DescriptiveStatistics for the measures of the {@link NumberAnalyzer} that
+ * would otherwise require all values to be kept in memory.
+ *
+ * Percentiles are estimated using a KLL quantile sketch: values are kept in a
+ * hierarchy of levels where an item on level h represents 2^h values, and a
+ * level is compacted (sorted, and every other item promoted to the next level)
+ * once it reaches its capacity. The accuracy parameter (k) controls the
+ * capacity of the top level; the rank error is roughly proportional to 1/k and
+ * the memory footprint is roughly 3 * k values, regardless of the number of
+ * values added.
+ *
+ * Skewness and kurtosis are computed from the exact central moments, which are
+ * updated and merged using the pairwise formulas of Pébay (2008).
+ *
+ * Sketches can be merged, which makes it possible to reduce the results of
+ * concurrent and distributed executions.
+ */
+public final class DescriptiveStatisticsSketch implements Serializable {
+
+    public static final int DEFAULT_ACCURACY = 200;
+
+    private static final long serialVersionUID = 1L;
+    private static final int MIN_ACCURACY = 8;
+    private static final double CAPACITY_DECAY = 2d / 3d;
+
+    // compactions use a fixed seed, so that the same values added (or merged)
+    // in the same order always give the same percentiles
+    private static final long RANDOM_SEED = 0x2545F4914F6CDD1DL;
+
+    private final int _accuracy;
+    private final Random _random;
+    private double[][] _levels;
+    private int[] _levelSizes;
+
+    private long _n;
+    private double _mean;
+    private double _m2;
+    private double _m3;
+    private double _m4;
+
+    public DescriptiveStatisticsSketch() {
+        this(DEFAULT_ACCURACY);
+    }
+
+    /**
+     * Creates a sketch.
+     *
+     * @param accuracy
+     *            the accuracy parameter (k) of the sketch. Higher values give
+     *            more accurate percentiles at the cost of memory.
+     */
+    public DescriptiveStatisticsSketch(final int accuracy) {
+        _accuracy = Math.max(MIN_ACCURACY, accuracy);
+        _random = new Random(RANDOM_SEED);
+        _levels = new double[][] { new double[_accuracy] };
+        _levelSizes = new int[1];
+    }
+
+    public void addValue(final double value) {
+        // update the central moments with a single value
+        final double n1 = _n;
+        _n++;
+        final double n = _n;
+        final double delta = value - _mean;
+        final double deltaN = delta / n;
+        final double deltaN2 = deltaN * deltaN;
+        final double term1 = delta * deltaN * n1;
+        _mean += deltaN;
+        _m4 += term1 * deltaN2 * (n * n - 3 * n + 3) + 6 * deltaN2 * _m2 - 4 * deltaN * _m3;
+        _m3 += term1 * deltaN * (n - 2) - 3 * deltaN * _m2;
+        _m2 += term1;
+
+        append(0, value);
+        compact();
+    }
+
+    /**
+     * Merges another sketch into this sketch. The other sketch is not
+     * modified.
+     *
+     * @param other
+     */
+    public void merge(final DescriptiveStatisticsSketch other) {
+        if (other._n == 0) {
+            return;
+        }
+
+        final double na = _n;
+        final double nb = other._n;
+        final double n = na + nb;
+        final double delta = other._mean - _mean;
+        final double delta2 = delta * delta;
+
+        final double m2 = _m2 + other._m2 + delta2 * na * nb / n;
+        final double m3 = _m3 + other._m3 + delta2 * delta * na * nb * (na - nb) / (n * n)
+                + 3 * delta * (na * other._m2 - nb * _m2) / n;
+        final double m4 = _m4 + other._m4 + delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (n * n * n)
+                + 6 * delta2 * (na * na * other._m2 + nb * nb * _m2) / (n * n)
+                + 4 * delta * (na * other._m3 - nb * _m3) / n;
+
+        _mean += delta * nb / n;
+        _m2 = m2;
+        _m3 = m3;
+        _m4 = m4;
+        _n += other._n;
+
+        for (int level = 0; level < other._levels.length; level++) {
+            for (int i = 0; i < other._levelSizes[level]; i++) {
+                append(level, other._levels[level][i]);
+            }
+        }
+        compact();
+    }
+
+    public long getN() {
+        return _n;
+    }
+
+    public int getAccuracy() {
+        return _accuracy;
+    }
+
+    /**
+     * Gets an estimate of the p'th percentile, using the same scale as
+     * commons-math's DescriptiveStatistics.getPercentile(double).
+     *
+     * @param p
+     *            the requested percentile, in the range (0, 100]
+     * @return
+     */
+    public double getPercentile(final double p) {
+        if (_n == 0) {
+            return Double.NaN;
+        }
+
+        if (_levels.length == 1) {
+            // no compaction has happened, so the result can be exact
+            return new Percentile().evaluate(_levels[0], 0, _levelSizes[0], p);
+        }
+
+        int numItems = 0;
+        for (final int size : _levelSizes) {
+            numItems += size;
+        }
+
+        // pack value and level into sortable pairs
+        final double[] values = new double[numItems];
+        final int[] levels = new int[numItems];
+        final Integer[] order = new Integer[numItems];
+        int index = 0;
+        for (int level = 0; level < _levels.length; level++) {
+            for (int i = 0; i < _levelSizes[level]; i++) {
+                values[index] = _levels[level][i];
+                levels[index] = level;
+                order[index] = index;
+                index++;
+            }
+        }
+        Arrays.sort(order, (o1, o2) -> Double.compare(values[o1], values[o2]));
+
+        final double targetWeight = p / 100d * _n;
+        long cumulativeWeight = 0;
+        for (final Integer i : order) {
+            cumulativeWeight += 1L << levels[i];
+            if (cumulativeWeight >= targetWeight) {
+                return values[i];
+            }
+        }
+        return values[order[numItems - 1]];
+    }
+
+    /**
+     * Gets the skewness, bias-corrected in the same way as commons-math's
+     * Skewness statistic.
+     *
+     * @return
+     */
+    public double getSkewness() {
+        if (_n < 3) {
+            return Double.NaN;
+        }
+        final double n = _n;
+        final double variance = _m2 / (n - 1);
+        if (variance < 10E-20) {
+            return 0d;
+        }
+        return (n * _m3) / ((n - 1) * (n - 2) * Math.sqrt(variance) * variance);
+    }
+
+    /**
+     * Gets the kurtosis, bias-corrected in the same way as commons-math's
+     * Kurtosis statistic.
+     *
+     * @return
+     */
+    public double getKurtosis() {
+        if (_n <= 3) {
+            return Double.NaN;
+        }
+        final double n = _n;
+        final double variance = _m2 / (n - 1);
+        if (variance < 10E-20) {
+            return 0d;
+        }
+        return (n * (n + 1) * _m4 - 3 * _m2 * _m2 * (n - 1)) / ((n - 1) * (n - 2) * (n - 3) * variance * variance);
+    }
+
+    private int getCapacity(final int level) {
+        final int depth = _levels.length - 1 - level;
+        return Math.max(2, (int) Math.ceil(_accuracy * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private void append(final int level, final double value) {
+        if (level >= _levels.length) {
+            final int oldLength = _levels.length;
+            _levels = Arrays.copyOf(_levels, level + 1);
+            _levelSizes = Arrays.copyOf(_levelSizes, level + 1);
+            for (int i = oldLength; i <= level; i++) {
+                _levels[i] = new double[2];
+            }
+        }
+        final int size = _levelSizes[level];
+        if (size == _levels[level].length) {
+            _levels[level] = Arrays.copyOf(_levels[level], Math.max(2, size * 2));
+        }
+        _levels[level][size] = value;
+        _levelSizes[level] = size + 1;
+    }
+
+    private void compact() {
+        for (int level = 0; level < _levels.length; level++) {
+            if (_levelSizes[level] >= getCapacity(level)) {
+                compactLevel(level);
+            }
+        }
+    }
+
+    private void compactLevel(final int level) {
+        final double[] items = _levels[level];
+        final int size = _levelSizes[level];
+        Arrays.sort(items, 0, size);
+
+        // an odd item is left behind on this level to preserve the total weight
+        final int compactedSize = size - (size % 2);
+        final int offset = _random.nextBoolean() ? 1 : 0;
+        for (int i = offset; i < compactedSize; i += 2) {
+            append(level + 1, items[i]);
+        }
+
+        if (compactedSize < size) {
+            items[0] = items[size - 1];
+        }
+        _levelSizes[level] = size - compactedSize;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.storage.RowAnnotation;
+import org.datacleaner.storage.RowAnnotationFactory;
+
+/**
+ * Keeps track of the lowest and highest value of a measure and annotates the
+ * rows that hold them. Values that fall strictly between the current min and
+ * max (which is the vast majority after the first few rows) are rejected
+ * without taking any lock, so that concurrent analyzers only synchronize when
+ * a row may actually affect the min/max annotations.
+ */
+final class MinMaxAnnotationTracker {
+
+    private final RowAnnotationFactory _annotationFactory;
+    private final RowAnnotation _minAnnotation;
+    private final RowAnnotation _maxAnnotation;
+    private volatile double _min = Double.POSITIVE_INFINITY;
+    private volatile double _max = Double.NEGATIVE_INFINITY;
+
+    public MinMaxAnnotationTracker(final RowAnnotationFactory annotationFactory) {
+        _annotationFactory = annotationFactory;
+        _minAnnotation = annotationFactory.createAnnotation();
+        _maxAnnotation = annotationFactory.createAnnotation();
+    }
+
+    public void update(final InputRow row, final double value, final int distinctCount) {
+        if (value > _min && value < _max) {
+            return;
+        }
+
+        synchronized (this) {
+            if (value > _max) {
+                _annotationFactory.resetAnnotation(_maxAnnotation);
+                _max = value;
+            }
+            if (value == _max) {
+                _annotationFactory.annotate(row, distinctCount, _maxAnnotation);
+            }
+
+            if (value < _min) {
+                _annotationFactory.resetAnnotation(_minAnnotation);
+                _min = value;
+            }
+            if (value == _min) {
+                _annotationFactory.annotate(row, distinctCount, _minAnnotation);
+            }
+        }
+    }
+
+    /**
+     * Determines if any values have been registered yet.
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return _max == Double.NEGATIVE_INFINITY && _min == Double.POSITIVE_INFINITY;
+    }
+
+    public double getMin() {
+        return _min;
+    }
+
+    public double getMax() {
+        return _max;
+    }
+
+    public RowAnnotation getMinAnnotation() {
+        return _minAnnotation;
+    }
+
+    public RowAnnotation getMaxAnnotation() {
+        return _maxAnnotation;
+    }
+}
@@ -27,9 +27,6 @@ import javax.inject.Named;
 
 import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math.stat.descriptive.StatisticalSummary;
-import org.apache.commons.math.stat.descriptive.SummaryStatistics;
-import org.apache.commons.math.stat.descriptive.moment.SecondMoment;
-import org.datacleaner.api.Analyzer;
 import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
@@ -37,6 +34,7 @@ import org.datacleaner.api.Initialize;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.Provided;
+import org.datacleaner.api.QueryOptimizedAnalyzer;
 import org.datacleaner.result.AnnotatedRowsResult;
 import org.datacleaner.result.Crosstab;
 import org.datacleaner.result.CrosstabDimension;
@@ -61,7 +59,7 @@ import org.datacleaner.storage.RowAnnotations;
 @Named("NumberAnalyzer.name")
 @Description("NumberAnalyzer.Description")
 @Concurrent(true)
-public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
+public class NumberAnalyzer implements QueryOptimizedAnalyzer<NumberAnalyzerResult> {
 
     public static final String DIMENSION_COLUMN = "Column";
     public static final String DIMENSION_MEASURE = "Measure";
@@ -91,6 +89,16 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
             + "which have a larger memory-footprint.")
     boolean descriptiveStatistics = false;
     @Inject
+    @Configured(required = false)
+    @Description("Estimate the descriptive statistics using fixed-memory sketches instead of keeping all values "
+            + "in memory. Recommended for large datasets.")
+    boolean approximateDescriptiveStatistics = false;
+    @Inject
+    @Configured(required = false)
+    @Description("Accuracy of the sketches used for approximate descriptive statistics. Higher values give more "
+            + "accurate percentiles at the cost of memory.")
+    int sketchAccuracy = DescriptiveStatisticsSketch.DEFAULT_ACCURACY;
+    @Inject
     @Provided
     RowAnnotationFactory _annotationFactory;
     private Map<InputColumn<? extends Number>, NumberAnalyzerColumnDelegate> _columnDelegates = new HashMap<>();
@@ -109,7 +117,9 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
     @Initialize
     public void init() {
         for (final InputColumn<? extends Number> column : _columns) {
-            _columnDelegates.put(column, new NumberAnalyzerColumnDelegate(descriptiveStatistics, _annotationFactory));
+            _columnDelegates.put(column,
+                    new NumberAnalyzerColumnDelegate(descriptiveStatistics, approximateDescriptiveStatistics,
+                            sketchAccuracy, _annotationFactory));
         }
     }
 
@@ -123,6 +133,12 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
         }
     }
 
+    @Override
+    public boolean isOptimizable() {
+        // annotated rows that are shown to the user would not be complete
+        return !descriptiveStatistics && !_annotationFactory.isStoringSampleRows();
+    }
+
     @Override
     public NumberAnalyzerResult getResult() {
         final CrosstabDimension measureDimension = new CrosstabDimension(DIMENSION_MEASURE);
@@ -152,6 +168,7 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
         }
 
         final Crosstab<Number> crosstab = new Crosstab<>(Number.class, columnDimension, measureDimension);
+        final Map<String, DescriptiveStatisticsSketch> sketches = new HashMap<>();
         for (final InputColumn<? extends Number> column : _columns) {
             final CrosstabNavigator<Number> nav = crosstab.navigate().where(columnDimension, column.getName());
             final NumberAnalyzerColumnDelegate delegate = _columnDelegates.get(column);
@@ -178,20 +195,9 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
                 final double standardDeviation = s.getStandardDeviation();
                 final double variance = s.getVariance();
 
-                final double geometricMean;
-                final double secondMoment;
-                final double sumOfSquares;
-                if (descriptiveStatistics) {
-                    final DescriptiveStatistics descriptiveStats = (DescriptiveStatistics) s;
-                    geometricMean = descriptiveStats.getGeometricMean();
-                    sumOfSquares = descriptiveStats.getSumsq();
-                    secondMoment = new SecondMoment().evaluate(descriptiveStats.getValues());
-                } else {
-                    final SummaryStatistics summaryStats = (SummaryStatistics) s;
-                    geometricMean = summaryStats.getGeometricMean();
-                    secondMoment = summaryStats.getSecondMoment();
-                    sumOfSquares = summaryStats.getSumsq();
-                }
+                final double geometricMean = delegate.getGeometricMean(s);
+                final double secondMoment = delegate.getSecondMoment(s);
+                final double sumOfSquares = delegate.getSumOfSquares(s);
 
                 nav.where(measureDimension, MEASURE_HIGHEST_VALUE).put(highestValue);
                 addAttachment(nav, delegate.getMaxAnnotation(), column);
@@ -207,7 +213,11 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
                 nav.where(measureDimension, MEASURE_SUM_OF_SQUARES).put(sumOfSquares);
                 nav.where(measureDimension, MEASURE_SECOND_MOMENT).put(secondMoment);
 
-                if (descriptiveStatistics) {
+                final DescriptiveStatisticsSketch sketch = delegate.getSketch();
+                if (sketch != null) {
+                    sketches.put(column.getName(), sketch);
+                    putDescriptiveMeasures(nav, measureDimension, sketch);
+                } else if (descriptiveStatistics) {
                     final DescriptiveStatistics descriptiveStatistics = (DescriptiveStatistics) s;
                     final double kurtosis = descriptiveStatistics.getKurtosis();
                     final double skewness = descriptiveStatistics.getSkewness();
@@ -223,7 +233,16 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
                 }
             }
         }
-        return new NumberAnalyzerResult(_columns, crosstab);
+        return new NumberAnalyzerResult(_columns, crosstab, sketches);
+    }
+
+    private void putDescriptiveMeasures(final CrosstabNavigator<Number> nav, final CrosstabDimension measureDimension,
+            final DescriptiveStatisticsSketch sketch) {
+        nav.where(measureDimension, MEASURE_MEDIAN).put(sketch.getPercentile(50.0));
+        nav.where(measureDimension, MEASURE_PERCENTILE25).put(sketch.getPercentile(25.0));
+        nav.where(measureDimension, MEASURE_PERCENTILE75).put(sketch.getPercentile(75.0));
+        nav.where(measureDimension, MEASURE_SKEWNESS).put(sketch.getSkewness());
+        nav.where(measureDimension, MEASURE_KURTOSIS).put(sketch.getKurtosis());
     }
 
     private void addAttachment(final CrosstabNavigator<Number> nav, final RowAnnotation annotation,
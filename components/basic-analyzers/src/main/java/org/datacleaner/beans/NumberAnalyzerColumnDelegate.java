@@ -19,71 +19,110 @@
  */
 package org.datacleaner.beans;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.math.stat.descriptive.AggregateSummaryStatistics;
 import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math.stat.descriptive.StatisticalSummary;
 import org.apache.commons.math.stat.descriptive.SummaryStatistics;
+import org.apache.commons.math.stat.descriptive.moment.SecondMoment;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
 
 /**
- * Helper class for the number analyzer, which handles the processing of a
- * single column's values.
- * 数字分析器的帮助程序类，用于处理单列值的处理。
+ * Per-column state of the {@link NumberAnalyzer}. Statistics are accumulated
+ * in per-thread partial states (so that concurrent rows never contend on a
+ * lock) and merged when the result is requested.
+ *
+ * Descriptive statistics are either exact (keeping all values in memory) or
+ * approximate, in which case they are estimated using
+ * {@link DescriptiveStatisticsSketch}es with a fixed memory footprint.
  */
 final class NumberAnalyzerColumnDelegate {
 
     private final RowAnnotationFactory _annotationFactory;
-    private final StatisticalSummary _statistics;
+    private final boolean _descriptiveStatistics;
+    private final int _sketchAccuracy;
     private final RowAnnotation _nullAnnotation;
-    private final RowAnnotation _maxAnnotation;
-    private final RowAnnotation _minAnnotation;
-    private volatile int _numRows;
+    private final MinMaxAnnotationTracker _minMaxTracker;
+    private final LongAdder _numRows = new LongAdder();
+    // Plain maps (rather than ThreadLocals) are used so that the partial
+    // states are released together with the delegate, instead of lingering
+    // in the thread local maps of pooled threads. Each entry is only ever
+    // added by its own thread, so a plain get/put suffices.
+    private final Map<Thread, StatisticalSummary> _threadStatistics = new ConcurrentHashMap<>();
+    private final Map<Thread, DescriptiveStatisticsSketch> _threadSketches = new ConcurrentHashMap<>();
 
     public NumberAnalyzerColumnDelegate(final boolean descriptiveStatistics,
             final RowAnnotationFactory annotationFactory) {
+        this(descriptiveStatistics, false, DescriptiveStatisticsSketch.DEFAULT_ACCURACY, annotationFactory);
+    }
+
+    /**
+     * Creates a column delegate.
+     *
+     * @param descriptiveStatistics
+     *            whether or not to gather descriptive statistics
+     * @param approximate
+     *            whether descriptive statistics should be approximated using
+     *            sketches instead of keeping all values in memory
+     * @param sketchAccuracy
+     *            the accuracy parameter of the sketches, if approximate
+     * @param annotationFactory
+     */
+    public NumberAnalyzerColumnDelegate(final boolean descriptiveStatistics, final boolean approximate,
+            final int sketchAccuracy, final RowAnnotationFactory annotationFactory) {
         _annotationFactory = annotationFactory;
+        _descriptiveStatistics = descriptiveStatistics && !approximate;
+        _sketchAccuracy = descriptiveStatistics && approximate ? sketchAccuracy : 0;
         _nullAnnotation = _annotationFactory.createAnnotation();
-        _maxAnnotation = _annotationFactory.createAnnotation();
-        _minAnnotation = _annotationFactory.createAnnotation();
-        if (descriptiveStatistics) {
-            _statistics = new DescriptiveStatistics();
+        _minMaxTracker = new MinMaxAnnotationTracker(annotationFactory);
+    }
+
+    private StatisticalSummary createStatistics() {
+        if (_descriptiveStatistics) {
+            return new DescriptiveStatistics();
         } else {
-            _statistics = new SummaryStatistics();
+            return new SummaryStatistics();
         }
     }
 
-    public synchronized void run(final InputRow row, final Number value, final int distinctCount) {
-        _numRows += distinctCount;
+    public void run(final InputRow row, final Number value, final int distinctCount) {
+        _numRows.add(distinctCount);
         if (value != null) {
             final double doubleValue = value.doubleValue();
-            double max = _statistics.getMax();
-            double min = _statistics.getMin();
 
-            if (max < doubleValue) {
-                _annotationFactory.resetAnnotation(_maxAnnotation);
+            final Thread thread = Thread.currentThread();
+            StatisticalSummary statistics = _threadStatistics.get(thread);
+            if (statistics == null) {
+                statistics = createStatistics();
+                _threadStatistics.put(thread, statistics);
             }
-            if (min > doubleValue) {
-                _annotationFactory.resetAnnotation(_minAnnotation);
-            }
-
             for (int i = 0; i < distinctCount; i++) {
-                if (_statistics instanceof DescriptiveStatistics) {
-                    ((DescriptiveStatistics) _statistics).addValue(doubleValue);
+                if (statistics instanceof DescriptiveStatistics) {
+                    ((DescriptiveStatistics) statistics).addValue(doubleValue);
                 } else {
-                    ((SummaryStatistics) _statistics).addValue(doubleValue);
+                    ((SummaryStatistics) statistics).addValue(doubleValue);
                 }
             }
 
-            max = _statistics.getMax();
-            min = _statistics.getMin();
-
-            if (max == doubleValue) {
-                _annotationFactory.annotate(row, distinctCount, _maxAnnotation);
-            }
-            if (min == doubleValue) {
-                _annotationFactory.annotate(row, distinctCount, _minAnnotation);
+            if (_sketchAccuracy > 0) {
+                DescriptiveStatisticsSketch sketch = _threadSketches.get(thread);
+                if (sketch == null) {
+                    sketch = new DescriptiveStatisticsSketch(_sketchAccuracy);
+                    _threadSketches.put(thread, sketch);
+                }
+                for (int i = 0; i < distinctCount; i++) {
+                    sketch.addValue(doubleValue);
+                }
             }
+
+            _minMaxTracker.update(row, doubleValue, distinctCount);
         } else {
             _annotationFactory.annotate(row, distinctCount, _nullAnnotation);
         }
@@ -93,8 +132,120 @@ final class NumberAnalyzerColumnDelegate {
         return _nullAnnotation;
     }
 
+    /**
+     * Gets the statistics of all rows, merged from the per-thread partial
+     * statistics. Must not be invoked while rows are still being processed.
+     *
+     * @return
+     */
     public StatisticalSummary getStatistics() {
-        return _statistics;
+        final List<StatisticalSummary> partials = new ArrayList<>(_threadStatistics.values());
+        if (partials.size() == 1) {
+            return partials.get(0);
+        }
+
+        if (_descriptiveStatistics) {
+            final DescriptiveStatistics merged = new DescriptiveStatistics();
+            for (final StatisticalSummary partial : partials) {
+                for (final double value : ((DescriptiveStatistics) partial).getValues()) {
+                    merged.addValue(value);
+                }
+            }
+            return merged;
+        }
+
+        if (partials.isEmpty()) {
+            return new SummaryStatistics();
+        }
+
+        final List<SummaryStatistics> summaries = new ArrayList<>(partials.size());
+        for (final StatisticalSummary partial : partials) {
+            summaries.add((SummaryStatistics) partial);
+        }
+        return AggregateSummaryStatistics.aggregate(summaries);
+    }
+
+    /**
+     * Gets the approximate descriptive statistics of all rows, merged from the
+     * per-thread sketches. Must not be invoked while rows are still being
+     * processed.
+     *
+     * @return the merged sketch, or null if approximate descriptive statistics
+     *         are not gathered
+     */
+    public DescriptiveStatisticsSketch getSketch() {
+        if (_sketchAccuracy <= 0) {
+            return null;
+        }
+        final DescriptiveStatisticsSketch sketch = new DescriptiveStatisticsSketch(_sketchAccuracy);
+        for (final DescriptiveStatisticsSketch partial : _threadSketches.values()) {
+            sketch.merge(partial);
+        }
+        return sketch;
+    }
+
+    /**
+     * Gets the geometric mean of all rows.
+     *
+     * @param statistics
+     *            the merged statistics, as returned by {@link #getStatistics()}
+     * @return
+     */
+    public double getGeometricMean(final StatisticalSummary statistics) {
+        if (statistics instanceof DescriptiveStatistics) {
+            return ((DescriptiveStatistics) statistics).getGeometricMean();
+        }
+        if (statistics instanceof SummaryStatistics) {
+            return ((SummaryStatistics) statistics).getGeometricMean();
+        }
+        double sumOfLogs = 0;
+        for (final StatisticalSummary partial : _threadStatistics.values()) {
+            sumOfLogs += ((SummaryStatistics) partial).getSumOfLogs();
+        }
+        return Math.exp(sumOfLogs / statistics.getN());
+    }
+
+    /**
+     * Gets the sum of squares of all rows.
+     *
+     * @param statistics
+     *            the merged statistics, as returned by {@link #getStatistics()}
+     * @return
+     */
+    public double getSumOfSquares(final StatisticalSummary statistics) {
+        if (statistics instanceof DescriptiveStatistics) {
+            return ((DescriptiveStatistics) statistics).getSumsq();
+        }
+        if (statistics instanceof SummaryStatistics) {
+            return ((SummaryStatistics) statistics).getSumsq();
+        }
+        double sumOfSquares = 0;
+        for (final StatisticalSummary partial : _threadStatistics.values()) {
+            sumOfSquares += ((SummaryStatistics) partial).getSumsq();
+        }
+        return sumOfSquares;
+    }
+
+    /**
+     * Gets the second moment (sum of squared deviations from the mean) of all
+     * rows.
+     *
+     * @param statistics
+     *            the merged statistics, as returned by {@link #getStatistics()}
+     * @return
+     */
+    public double getSecondMoment(final StatisticalSummary statistics) {
+        if (statistics instanceof DescriptiveStatistics) {
+            return new SecondMoment().evaluate(((DescriptiveStatistics) statistics).getValues());
+        }
+        if (statistics instanceof SummaryStatistics) {
+            return ((SummaryStatistics) statistics).getSecondMoment();
+        }
+        if (statistics.getN() < 2) {
+            return 0d;
+        }
+        // the variance is bias-corrected, ie. secondMoment / (n - 1)
+        return statistics.getVariance() * (statistics.getN() - 1);
     }
 
     public int getNullCount() {
@@ -102,14 +253,14 @@ final class NumberAnalyzerColumnDelegate {
     }
 
     public RowAnnotation getMaxAnnotation() {
-        return _maxAnnotation;
+        return _minMaxTracker.getMaxAnnotation();
     }
 
     public RowAnnotation getMinAnnotation() {
-        return _minAnnotation;
+        return _minMaxTracker.getMinAnnotation();
     }
 
     public int getNumRows() {
-        return _numRows;
+        return _numRows.intValue();
     }
 }
@@ -19,6 +19,10 @@
  */
 package org.datacleaner.beans;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.datacleaner.api.Distributed;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.Metric;
@@ -31,10 +35,31 @@ public class NumberAnalyzerResult extends CrosstabResult {
     private static final long serialVersionUID = 1L;
 
     private final InputColumn<? extends Number>[] _columns;
+    private final Map<String, DescriptiveStatisticsSketch> _sketches;
 
     public NumberAnalyzerResult(final InputColumn<? extends Number>[] columns, final Crosstab<?> crosstab) {
+        this(columns, crosstab, null);
+    }
+
+    public NumberAnalyzerResult(final InputColumn<? extends Number>[] columns, final Crosstab<?> crosstab,
+            final Map<String, DescriptiveStatisticsSketch> sketches) {
         super(crosstab);
         _columns = columns;
+        _sketches = sketches == null || sketches.isEmpty() ? null : new HashMap<>(sketches);
+    }
+
+    /**
+     * Gets the sketches of approximate descriptive statistics, keyed by column
+     * name. These are retained so that the percentiles, skewness and kurtosis
+     * of several results can be reduced.
+     *
+     * @return
+     */
+    public Map<String, DescriptiveStatisticsSketch> getSketches() {
+        if (_sketches == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(_sketches);
     }
 
     public InputColumn<? extends Number>[] getColumns() {
@@ -23,8 +23,10 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.math.stat.descriptive.AggregateSummaryStatistics;
@@ -48,6 +50,10 @@ import org.slf4j.LoggerFactory;
  * 由于这些指标的包含始终是可选的（基于配置属性），因此我们采用了乐观的方法并减少了可以做的事情。
  * Warnings will be raised if non-reduceable metrics are encountered.
  * 如果遇到不可减少的度量标准，则会发出警告。
+ *
+ * Median, percentiles, skewness and kurtosis are reduceable when the results
+ * were produced with approximate descriptive statistics, by merging the
+ * {@link DescriptiveStatisticsSketch}es of the results.
  */
 public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<NumberAnalyzerResult> {
 
@@ -57,6 +63,25 @@ public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<N
             Arrays.asList(NumberAnalyzer.MEASURE_SUM, NumberAnalyzer.MEASURE_ROW_COUNT,
                     NumberAnalyzer.MEASURE_NULL_COUNT));
 
+    private static final Set<String> SKETCH_MEASURES = new HashSet<>(
+            Arrays.asList(NumberAnalyzer.MEASURE_MEDIAN, NumberAnalyzer.MEASURE_PERCENTILE25,
+                    NumberAnalyzer.MEASURE_PERCENTILE75, NumberAnalyzer.MEASURE_SKEWNESS,
+                    NumberAnalyzer.MEASURE_KURTOSIS));
+
+    // the merged sketches per column of the reduction in progress, so that the
+    // sketches are merged only once for all measures
+    private Map<String, DescriptiveStatisticsSketch> _mergedSketches;
+
+    @Override
+    public NumberAnalyzerResult reduce(final Collection<? extends NumberAnalyzerResult> results) {
+        _mergedSketches = new HashMap<>();
+        try {
+            return super.reduce(results);
+        } finally {
+            _mergedSketches = null;
+        }
+    }
+
     @Override
     protected Serializable reduceValues(final List<Object> slaveValues, final String column, final String measure,
             final Collection<? extends NumberAnalyzerResult> results, final Class<?> valueClass) {
@@ -76,12 +101,78 @@ public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<N
         } else if (NumberAnalyzer.MEASURE_VARIANCE.equals(measure)) {
             final StatisticalSummary summary = getSummary(column, results);
             return summary.getVariance();
+        } else if (SKETCH_MEASURES.contains(measure)) {
+            final DescriptiveStatisticsSketch sketch = getMergedSketch(column, results);
+            if (sketch != null) {
+                return getSketchMeasure(sketch, measure);
+            }
         }
 
         logger.warn("Encountered non-reduceable measure '{}'. Slave values are: {}", measure, slaveValues);
         return null;
     }
 
+    private static Double getSketchMeasure(final DescriptiveStatisticsSketch sketch, final String measure) {
+        switch (measure) {
+        case NumberAnalyzer.MEASURE_MEDIAN:
+            return sketch.getPercentile(50.0);
+        case NumberAnalyzer.MEASURE_PERCENTILE25:
+            return sketch.getPercentile(25.0);
+        case NumberAnalyzer.MEASURE_PERCENTILE75:
+            return sketch.getPercentile(75.0);
+        case NumberAnalyzer.MEASURE_SKEWNESS:
+            return sketch.getSkewness();
+        case NumberAnalyzer.MEASURE_KURTOSIS:
+            return sketch.getKurtosis();
+        default:
+            throw new IllegalArgumentException("Not a sketch measure: " + measure);
+        }
+    }
+
+    /**
+     * Gets the merged sketch of a column, merging the sketches of the results
+     * only the first time it is requested during a reduction.
+     *
+     * @param column
+     * @param results
+     * @return the merged sketch, or null if not all results carry a sketch for
+     *         the column
+     */
+    private DescriptiveStatisticsSketch getMergedSketch(final String column,
+            final Collection<? extends NumberAnalyzerResult> results) {
+        if (_mergedSketches == null) {
+            return mergeSketches(column, results);
+        }
+        if (!_mergedSketches.containsKey(column)) {
+            _mergedSketches.put(column, mergeSketches(column, results));
+        }
+        return _mergedSketches.get(column);
+    }
+
+    /**
+     * Merges the sketches of a column from all results.
+     *
+     * @param column
+     * @param results
+     * @return the merged sketch, or null if not all results carry a sketch for
+     *         the column
+     */
+    private DescriptiveStatisticsSketch mergeSketches(final String column,
+            final Collection<? extends NumberAnalyzerResult> results) {
+        DescriptiveStatisticsSketch merged = null;
+        for (final NumberAnalyzerResult result : results) {
+            final DescriptiveStatisticsSketch sketch = result.getSketches().get(column);
+            if (sketch == null) {
+                return null;
+            }
+            if (merged == null) {
+                merged = new DescriptiveStatisticsSketch(sketch.getAccuracy());
+            }
+            merged.merge(sketch);
+        }
+        return merged;
+    }
+
     private StatisticalSummary getSummary(final String column,
             final Collection<? extends NumberAnalyzerResult> results) {
         final List<SummaryStatistics> statistics = new ArrayList<>(results.size());
@@ -156,7 +247,17 @@ public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<N
         final NumberAnalyzerResult firstResult = results.iterator().next();
 
         final InputColumn<? extends Number>[] columns = firstResult.getColumns();
-        return new NumberAnalyzerResult(columns, crosstab);
+
+        // retain the merged sketches so that the reduced result can be reduced
+        // further
+        final Map<String, DescriptiveStatisticsSketch> sketches = new HashMap<>();
+        for (final String column : firstResult.getSketches().keySet()) {
+            final DescriptiveStatisticsSketch sketch = getMergedSketch(column, results);
+            if (sketch != null) {
+                sketches.put(column, sketch);
+            }
+        }
+        return new NumberAnalyzerResult(columns, crosstab, sketches);
     }
 
 }
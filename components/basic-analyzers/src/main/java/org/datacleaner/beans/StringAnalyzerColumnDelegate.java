@@ -20,6 +20,7 @@
 package org.datacleaner.beans;
 
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.datacleaner.api.InputRow;
 import org.datacleaner.storage.RowAnnotation;
@@ -33,42 +34,37 @@ import org.datacleaner.util.CharIterator;
  * delegates.
  *字符串分析器的帮助器类。此类收集单个列的所有统计信息。然后，字符串分析器由许多这些委托组成。
  *
+ * Counters are kept in {@link LongAdder}s and min/max values in
+ * {@link MinMaxAnnotationTracker}s, so that concurrent rows do not serialize on
+ * the delegate.
  */
 final class StringAnalyzerColumnDelegate {
 
     private final RowAnnotationFactory _annotationFactory;
-    private final AverageBuilder _charAverageBuilder = new AverageBuilder();
-    private final AverageBuilder _whitespaceAverageBuilder = new AverageBuilder();
     private final RowAnnotation _nullAnnotation;
     private final RowAnnotation _blankAnnotation;
     private final RowAnnotation _entirelyUppercaseAnnotation;
     private final RowAnnotation _entirelyLowercaseAnnotation;
-    private final RowAnnotation _maxCharsAnnotation;
-    private final RowAnnotation _minCharsAnnotation;
-    private final RowAnnotation _maxWhitespaceAnnotation;
-    private final RowAnnotation _minWhitespaceAnnotation;
     private final RowAnnotation _uppercaseExclFirstLetterAnnotation;
     private final RowAnnotation _digitAnnotation;
     private final RowAnnotation _diacriticAnnotation;
-    private final RowAnnotation _maxWordsAnnotation;
-    private final RowAnnotation _minWordsAnnotation;
-    private volatile int _numRows;
-    private volatile int _numEntirelyUppercase;
-    private volatile int _numEntirelyLowercase;
-    private volatile int _numChars;
-    private volatile Integer _minChars;
-    private volatile Integer _maxChars;
-    private volatile Integer _minWhitespace;
-    private volatile Integer _maxWhitespace;
-    private volatile int _numUppercase;
-    private volatile int _numUppercaseExclFirstLetter;
-    private volatile int _numLowercase;
-    private volatile int _numDigit;
-    private volatile int _numDiacritics;
-    private volatile int _numNonLetter;
-    private volatile int _numWords;
-    private volatile Integer _maxWords;
-    private volatile Integer _minWords;
+    private final MinMaxAnnotationTracker _charsTracker;
+    private final MinMaxAnnotationTracker _wordsTracker;
+    private final MinMaxAnnotationTracker _whitespaceTracker;
+    private final LongAdder _numRows = new LongAdder();
+    private final LongAdder _numEntirelyUppercase = new LongAdder();
+    private final LongAdder _numEntirelyLowercase = new LongAdder();
+    private final LongAdder _numChars = new LongAdder();
+    private final LongAdder _numUppercase = new LongAdder();
+    private final LongAdder _numUppercaseExclFirstLetter = new LongAdder();
+    private final LongAdder _numLowercase = new LongAdder();
+    private final LongAdder _numDigit = new LongAdder();
+    private final LongAdder _numDiacritics = new LongAdder();
+    private final LongAdder _numNonLetter = new LongAdder();
+    private final LongAdder _numWords = new LongAdder();
+    private final LongAdder _numNonNullValues = new LongAdder();
+    private final LongAdder _sumOfChars = new LongAdder();
+    private final LongAdder _sumOfWhitespace = new LongAdder();
 
     public StringAnalyzerColumnDelegate(final RowAnnotationFactory annotationFactory) {
         _annotationFactory = annotationFactory;
@@ -76,15 +72,12 @@ final class StringAnalyzerColumnDelegate {
         _blankAnnotation = annotationFactory.createAnnotation();
         _entirelyUppercaseAnnotation = annotationFactory.createAnnotation();
         _entirelyLowercaseAnnotation = annotationFactory.createAnnotation();
-        _maxCharsAnnotation = annotationFactory.createAnnotation();
-        _minCharsAnnotation = annotationFactory.createAnnotation();
-        _maxWhitespaceAnnotation = annotationFactory.createAnnotation();
-        _minWhitespaceAnnotation = annotationFactory.createAnnotation();
         _uppercaseExclFirstLetterAnnotation = annotationFactory.createAnnotation();
         _digitAnnotation = annotationFactory.createAnnotation();
         _diacriticAnnotation = annotationFactory.createAnnotation();
-        _maxWordsAnnotation = annotationFactory.createAnnotation();
-        _minWordsAnnotation = annotationFactory.createAnnotation();
+        _charsTracker = new MinMaxAnnotationTracker(annotationFactory);
+        _wordsTracker = new MinMaxAnnotationTracker(annotationFactory);
+        _whitespaceTracker = new MinMaxAnnotationTracker(annotationFactory);
     }
 
     protected static boolean isEntirelyLowerCase(final String value) {
@@ -95,8 +88,8 @@ final class StringAnalyzerColumnDelegate {
         return value.equals(value.toUpperCase());
     }
 
-    public synchronized void run(final InputRow row, final String value, final int distinctCount) {
-        _numRows += distinctCount;
+    public void run(final InputRow row, final String value, final int distinctCount) {
+        _numRows.add(distinctCount);
 
         if (value == null) {
             _annotationFactory.annotate(row, distinctCount, _nullAnnotation);
@@ -152,104 +145,51 @@ final class StringAnalyzerColumnDelegate {
                 }
             }
 
-            _numUppercase += +numUppercase;
+            _numUppercase.add(numUppercase);
             if (numUppercaseExclFirstLetter > 0) {
                 _annotationFactory.annotate(row, distinctCount, _uppercaseExclFirstLetterAnnotation);
-                _numUppercaseExclFirstLetter += numUppercaseExclFirstLetter;
-            }
-            _numLowercase += numLowercase;
-            _numNonLetter += numNonLetters;
-
-            if (_minChars == null) {
-                // This is the first time we encounter a non-null value, so
-                // we just set all counters
-                _minChars = numChars;
-                _maxChars = numChars;
-                _minWords = numWords;
-                _maxWords = numWords;
-                _minWhitespace = numWhitespace;
-                _maxWhitespace = numWhitespace;
+                _numUppercaseExclFirstLetter.add(numUppercaseExclFirstLetter);
             }
+            _numLowercase.add(numLowercase);
+            _numNonLetter.add(numNonLetters);
 
-            _numChars += totalChars;
-            _numWords += totalWords;
+            _numChars.add(totalChars);
+            _numWords.add(totalWords);
 
             if (numDiacritics > 0) {
-                _numDiacritics += numDiacritics;
+                _numDiacritics.add(numDiacritics);
                 _annotationFactory.annotate(row, distinctCount, _diacriticAnnotation);
             }
 
             if (numDigits > 0) {
-                _numDigit += numDigits;
+                _numDigit.add(numDigits);
                 _annotationFactory.annotate(row, distinctCount, _digitAnnotation);
             }
 
-            if (_maxChars < numChars) {
-                _annotationFactory.resetAnnotation(_maxCharsAnnotation);
-                _maxChars = numChars;
-            }
-            if (_maxChars == numChars) {
-                _annotationFactory.annotate(row, distinctCount, _maxCharsAnnotation);
-            }
-
-            if (_minChars > numChars) {
-                _annotationFactory.resetAnnotation(_minCharsAnnotation);
-                _minChars = numChars;
-            }
-            if (_minChars == numChars) {
-                _annotationFactory.annotate(row, distinctCount, _minCharsAnnotation);
-            }
-
-            if (_maxWords < numWords) {
-                _maxWords = numWords;
-                _annotationFactory.resetAnnotation(_maxWordsAnnotation);
-            }
-            if (_maxWords == numWords) {
-                _annotationFactory.annotate(row, distinctCount, _maxWordsAnnotation);
-            }
-            if (_minWords > numWords) {
-                _minWords = numWords;
-                _annotationFactory.resetAnnotation(_minWordsAnnotation);
-            }
-            if (_minWords == numWords) {
-                _annotationFactory.annotate(row, distinctCount, _minWordsAnnotation);
-            }
-
-            if (_maxWhitespace < numWhitespace) {
-                _maxWhitespace = numWhitespace;
-                _annotationFactory.resetAnnotation(_maxWhitespaceAnnotation);
-            }
-            if (_maxWhitespace == numWhitespace) {
-                _annotationFactory.annotate(row, distinctCount, _maxWhitespaceAnnotation);
-            }
-
-            if (_minWhitespace > numWhitespace) {
-                _minWhitespace = numWhitespace;
-                _annotationFactory.resetAnnotation(_minWhitespaceAnnotation);
-            }
-            if (_minWhitespace == numWhitespace) {
-                _annotationFactory.annotate(row, distinctCount, _minWhitespaceAnnotation);
-            }
+            _charsTracker.update(row, numChars, distinctCount);
+            _wordsTracker.update(row, numWords, distinctCount);
+            _whitespaceTracker.update(row, numWhitespace, distinctCount);
 
             if (numLetters > 0) {
                 if (isEntirelyUpperCase(value)) {
-                    _numEntirelyUppercase += distinctCount;
+                    _numEntirelyUppercase.add(distinctCount);
                     _annotationFactory.annotate(row, distinctCount, _entirelyUppercaseAnnotation);
                 }
 
                 if (isEntirelyLowerCase(value)) {
-                    _numEntirelyLowercase += distinctCount;
+                    _numEntirelyLowercase.add(distinctCount);
                     _annotationFactory.annotate(row, distinctCount, _entirelyLowercaseAnnotation);
                 }
             }
 
-            _charAverageBuilder.addValue(numChars);
-            _whitespaceAverageBuilder.addValue(numWhitespace);
+            _numNonNullValues.increment();
+            _sumOfChars.add(numChars);
+            _sumOfWhitespace.add(numWhitespace);
         }
     }
 
     public int getNumRows() {
-        return _numRows;
+        return _numRows.intValue();
     }
 
     public int getNumNull() {
@@ -257,75 +197,102 @@ final class StringAnalyzerColumnDelegate {
     }
 
     public int getNumEntirelyUppercase() {
-        return _numEntirelyUppercase;
+        return _numEntirelyUppercase.intValue();
     }
 
     public int getNumEntirelyLowercase() {
-        return _numEntirelyLowercase;
+        return _numEntirelyLowercase.intValue();
     }
 
     public int getNumChars() {
-        return _numChars;
+        return _numChars.intValue();
     }
 
     public Integer getMinChars() {
-        return _minChars;
+        if (_charsTracker.isEmpty()) {
+            return null;
+        }
+        return (int) _charsTracker.getMin();
     }
 
     public Integer getMaxChars() {
-        return _maxChars;
+        if (_charsTracker.isEmpty()) {
+            return null;
+        }
+        return (int) _charsTracker.getMax();
     }
 
     public Integer getMinWhitespace() {
-        return _minWhitespace;
+        if (_whitespaceTracker.isEmpty()) {
+            return null;
+        }
+        return (int) _whitespaceTracker.getMin();
     }
 
     public Integer getMaxWhitespace() {
-        return _maxWhitespace;
+        if (_whitespaceTracker.isEmpty()) {
+            return null;
+        }
+        return (int) _whitespaceTracker.getMax();
     }
 
     public int getNumUppercase() {
-        return _numUppercase;
+        return _numUppercase.intValue();
     }
 
     public int getNumUppercaseExclFirstLetter() {
-        return _numUppercaseExclFirstLetter;
+        return _numUppercaseExclFirstLetter.intValue();
     }
 
     public int getNumLowercase() {
-        return _numLowercase;
+        return _numLowercase.intValue();
     }
 
     public int getNumDigit() {
-        return _numDigit;
+        return _numDigit.intValue();
     }
 
     public int getNumDiacritics() {
-        return _numDiacritics;
+        return _numDiacritics.intValue();
     }
 
     public int getNumNonLetter() {
-        return _numNonLetter;
+        return _numNonLetter.intValue();
     }
 
     public int getNumWords() {
-        return _numWords;
+        return _numWords.intValue();
     }
 
     public Integer getMinWords() {
-        return _minWords;
+        if (_wordsTracker.isEmpty()) {
+            return null;
+        }
+        return (int) _wordsTracker.getMin();
     }
 
     public Integer getMaxWords() {
-        return _maxWords;
+        if (_wordsTracker.isEmpty()) {
+            return null;
+        }
+        return (int) _wordsTracker.getMax();
     }
 
     public AverageBuilder getCharAverageBuilder() {
-        return _charAverageBuilder;
+        return createAverageBuilder(_sumOfChars);
     }
 
     public AverageBuilder getWhitespaceAverageBuilder() {
-        return _whitespaceAverageBuilder;
+        return createAverageBuilder(_sumOfWhitespace);
+    }
+
+    private AverageBuilder createAverageBuilder(final LongAdder sum) {
+        final AverageBuilder averageBuilder = new AverageBuilder();
+        final int numValues = _numNonNullValues.intValue();
+        if (numValues > 0) {
+            averageBuilder.addValue(sum.doubleValue() / numValues, numValues);
+        }
+        return averageBuilder;
     }
 
     public RowAnnotation getNullAnnotation() {
@@ -345,19 +312,19 @@ final class StringAnalyzerColumnDelegate {
     }
 
     public RowAnnotation getMaxCharsAnnotation() {
-        return _maxCharsAnnotation;
+        return _charsTracker.getMaxAnnotation();
     }
 
     public RowAnnotation getMinCharsAnnotation() {
-        return _minCharsAnnotation;
+        return _charsTracker.getMinAnnotation();
     }
 
     public RowAnnotation getMaxWhitespaceAnnotation() {
-        return _maxWhitespaceAnnotation;
+        return _whitespaceTracker.getMaxAnnotation();
     }
 
     public RowAnnotation getMinWhitespaceAnnotation() {
-        return _minWhitespaceAnnotation;
+        return _whitespaceTracker.getMinAnnotation();
     }
 
     public RowAnnotation getUppercaseExclFirstLetterAnnotation() {
@@ -373,11 +340,11 @@ final class StringAnalyzerColumnDelegate {
     }
 
     public RowAnnotation getMaxWordsAnnotation() {
-        return _maxWordsAnnotation;
+        return _wordsTracker.getMaxAnnotation();
     }
 
     public RowAnnotation getMinWordsAnnotation() {
-        return _minWordsAnnotation;
+        return _wordsTracker.getMinAnnotation();
     }
 
     public Integer getNumBlank() {
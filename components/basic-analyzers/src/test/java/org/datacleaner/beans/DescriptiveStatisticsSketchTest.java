@@ -0,0 +1,130 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.util.Random;
+
+import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
+
+import junit.framework.TestCase;
+
+public class DescriptiveStatisticsSketchTest extends TestCase {
+
+    public void testExactForSmallInput() throws Exception {
+        final DescriptiveStatisticsSketch sketch = new DescriptiveStatisticsSketch();
+        final DescriptiveStatistics statistics = new DescriptiveStatistics();
+        for (int i = 1; i <= 10; i++) {
+            sketch.addValue(i * i);
+            statistics.addValue(i * i);
+        }
+
+        assertEquals(10, sketch.getN());
+        assertEquals(statistics.getPercentile(50.0), sketch.getPercentile(50.0), 0.0);
+        assertEquals(statistics.getPercentile(25.0), sketch.getPercentile(25.0), 0.0);
+        assertEquals(statistics.getPercentile(75.0), sketch.getPercentile(75.0), 0.0);
+        assertEquals(statistics.getSkewness(), sketch.getSkewness(), 0.000001);
+        assertEquals(statistics.getKurtosis(), sketch.getKurtosis(), 0.000001);
+    }
+
+    public void testSkewnessAndKurtosisOfFewValues() throws Exception {
+        final DescriptiveStatistics statistics = new DescriptiveStatistics();
+        final DescriptiveStatisticsSketch sketch = new DescriptiveStatisticsSketch(200);
+        final double[] values = { 3.0, 7.0, 4.0, 12.0 };
+        for (int n = 1; n <= values.length; n++) {
+            statistics.addValue(values[n - 1]);
+            sketch.addValue(values[n - 1]);
+            assertEquals("skewness of " + n + " values", statistics.getSkewness(), sketch.getSkewness(), 0.000001);
+            assertEquals("kurtosis of " + n + " values", statistics.getKurtosis(), sketch.getKurtosis(), 0.000001);
+            assertEquals("kurtosis of " + n + " values", n <= 3, Double.isNaN(sketch.getKurtosis()));
+        }
+    }
+
+    public void testEmpty() throws Exception {
+        final DescriptiveStatisticsSketch sketch = new DescriptiveStatisticsSketch();
+        assertEquals(0, sketch.getN());
+        assertTrue(Double.isNaN(sketch.getPercentile(50.0)));
+        assertTrue(Double.isNaN(sketch.getSkewness()));
+    }
+
+    public void testAccuracyAndMemoryOnLargeInput() throws Exception {
+        final int n = 1000000;
+        final DescriptiveStatisticsSketch sketch = new DescriptiveStatisticsSketch(200);
+        for (int i = 0; i < n; i++) {
+            // a permutation of 0..n-1, so that the true percentiles are known
+            sketch.addValue((i * 7919L) % n);
+        }
+        assertEquals(n, sketch.getN());
+        assertRankError(n, 0.5, sketch.getPercentile(50.0));
+        assertRankError(n, 0.25, sketch.getPercentile(25.0));
+        assertRankError(n, 0.75, sketch.getPercentile(75.0));
+        assertRankError(n, 0.99, sketch.getPercentile(99.0));
+
+        // uniform distribution
+        assertEquals(0.0, sketch.getSkewness(), 0.001);
+        assertEquals(-1.2, sketch.getKurtosis(), 0.001);
+    }
+
+    public void testMerge() throws Exception {
+        final DescriptiveStatistics expected = new DescriptiveStatistics();
+        final DescriptiveStatisticsSketch merged = new DescriptiveStatisticsSketch();
+        final Random random = new Random(1);
+        for (int part = 0; part < 10; part++) {
+            final DescriptiveStatisticsSketch sketch = new DescriptiveStatisticsSketch();
+            for (int i = 0; i < 50000; i++) {
+                final double value = random.nextGaussian() * (part + 1) + part * 10;
+                sketch.addValue(value);
+                expected.addValue(value);
+            }
+            merged.merge(sketch);
+        }
+
+        assertEquals(expected.getN(), merged.getN());
+        assertEquals(expected.getSkewness(), merged.getSkewness(), 0.000001);
+        assertEquals(expected.getKurtosis(), merged.getKurtosis(), 0.000001);
+
+        final double[] sorted = expected.getSortedValues();
+        for (final double p : new double[] { 25.0, 50.0, 75.0 }) {
+            final double estimate = merged.getPercentile(p);
+            int rank = 0;
+            while (rank < sorted.length && sorted[rank] < estimate) {
+                rank++;
+            }
+            assertEquals("Percentile " + p, p / 100, rank / (double) sorted.length, 0.02);
+        }
+    }
+
+    public void testSameValuesGiveSamePercentiles() throws Exception {
+        final DescriptiveStatisticsSketch sketch1 = new DescriptiveStatisticsSketch(50);
+        final DescriptiveStatisticsSketch sketch2 = new DescriptiveStatisticsSketch(50);
+        for (int i = 0; i < 100000; i++) {
+            final double value = (i * 7919L) % 100000;
+            sketch1.addValue(value);
+            sketch2.addValue(value);
+        }
+
+        for (final double p : new double[] { 1.0, 25.0, 50.0, 75.0, 99.0 }) {
+            assertEquals("Percentile " + p, sketch1.getPercentile(p), sketch2.getPercentile(p), 0.0);
+        }
+    }
+
+    private void assertRankError(final int n, final double quantile, final double estimate) {
+        assertEquals("Quantile " + quantile + ": " + estimate, quantile, estimate / n, 0.02);
+    }
+}
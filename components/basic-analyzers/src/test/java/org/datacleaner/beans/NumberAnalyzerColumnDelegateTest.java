@@ -0,0 +1,127 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.math.stat.descriptive.StatisticalSummary;
+import org.datacleaner.data.MockInputRow;
+import org.datacleaner.storage.RowAnnotationFactory;
+import org.datacleaner.storage.RowAnnotations;
+import org.datacleaner.test.TestHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import junit.framework.TestCase;
+
+public class NumberAnalyzerColumnDelegateTest extends TestCase {
+
+    private static final Logger logger = LoggerFactory.getLogger(NumberAnalyzerColumnDelegateTest.class);
+
+    private static final int ROWS_PER_THREAD = 100000;
+
+    public void testConcurrentSummaryStatistics() throws Exception {
+        runConcurrently(false, 8);
+    }
+
+    public void testConcurrentDescriptiveStatistics() throws Exception {
+        runConcurrently(true, 8);
+    }
+
+    public void testSingleThreadedDerivedMeasures() throws Exception {
+        final NumberAnalyzerColumnDelegate delegate =
+                new NumberAnalyzerColumnDelegate(false, RowAnnotations.getDefaultFactory());
+        for (int i = 1; i <= 5; i++) {
+            delegate.run(new MockInputRow(), i, 1);
+        }
+
+        final StatisticalSummary statistics = delegate.getStatistics();
+        assertEquals(15.0, statistics.getSum(), 0.0001);
+        assertEquals(55.0, delegate.getSumOfSquares(statistics), 0.0001);
+        assertEquals(10.0, delegate.getSecondMoment(statistics), 0.0001);
+        assertEquals(2.605, delegate.getGeometricMean(statistics), 0.001);
+    }
+
+    /**
+     * Measures how the throughput of a shared delegate scales with the number
+     * of threads. Only run when benchmarks are enabled, see
+     * {@link TestHelper#isBenchmarkEnabled()}.
+     */
+    public void testScalability() throws Exception {
+        if (!TestHelper.isBenchmarkEnabled()) {
+            return;
+        }
+
+        // warm up before measuring
+        runConcurrently(false, 4);
+
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            final long start = System.nanoTime();
+            runConcurrently(false, threads);
+            final long duration = System.nanoTime() - start;
+            logger.info("NumberAnalyzerColumnDelegate: {} threads, {} rows in {} ms", threads,
+                    threads * ROWS_PER_THREAD, duration / 1000000);
+        }
+    }
+
+    private void runConcurrently(final boolean descriptiveStatistics, final int threads) throws Exception {
+        final RowAnnotationFactory annotationFactory = RowAnnotations.getDefaultFactory();
+        final NumberAnalyzerColumnDelegate delegate =
+                new NumberAnalyzerColumnDelegate(descriptiveStatistics, annotationFactory);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executorService.submit(() -> {
+                    for (int i = 1; i <= ROWS_PER_THREAD; i++) {
+                        delegate.run(new MockInputRow(), i % 10 == 0 ? null : i, 1);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        final int expectedNulls = threads * ROWS_PER_THREAD / 10;
+        final int expectedValues = threads * ROWS_PER_THREAD - expectedNulls;
+
+        assertEquals(threads * ROWS_PER_THREAD, delegate.getNumRows());
+        assertEquals(expectedNulls, delegate.getNullCount());
+
+        final StatisticalSummary statistics = delegate.getStatistics();
+        assertEquals(expectedValues, statistics.getN());
+        assertEquals(1.0, statistics.getMin(), 0.0);
+        assertEquals(ROWS_PER_THREAD - 1, statistics.getMax(), 0.0);
+        assertEquals(threads, delegate.getMinAnnotation().getRowCount());
+        assertEquals(threads, delegate.getMaxAnnotation().getRowCount());
+
+        final double expectedSumPerThread = ROWS_PER_THREAD * (ROWS_PER_THREAD + 1L) / 2d
+                - 10 * (ROWS_PER_THREAD / 10) * (ROWS_PER_THREAD / 10 + 1L) / 2d;
+        assertEquals(threads * expectedSumPerThread, statistics.getSum(), 0.0001);
+    }
+}
@@ -19,10 +19,28 @@
  */
 package org.datacleaner.beans;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.Datastore;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
 import org.datacleaner.result.CrosstabResult;
 import org.datacleaner.result.renderer.CrosstabTextRenderer;
+import org.datacleaner.storage.DummyRowAnnotationFactory;
+import org.datacleaner.storage.InMemoryStorageProvider;
+import org.datacleaner.storage.RowAnnotations;
+import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
 
 import junit.framework.TestCase;
 
@@ -107,4 +125,101 @@ public class NumberAnalyzerTest extends TestCase {
         assertEquals("Sum of squares     337624.39 33762440   1300 ", resultLines[11]);
     }
 
+    public void testApproximateDescriptiveStatisticsAndReduce() throws Exception {
+        final List<NumberAnalyzerResult> partialResults = new ArrayList<>();
+        final DescriptiveStatistics expected = new DescriptiveStatistics();
+        for (int part = 0; part < 3; part++) {
+            final NumberAnalyzer analyzer = new NumberAnalyzer();
+            analyzer._columns = new MockInputColumn[] { col2 };
+            analyzer._annotationFactory = RowAnnotations.getDefaultFactory();
+            analyzer.descriptiveStatistics = true;
+            analyzer.approximateDescriptiveStatistics = true;
+            analyzer.init();
+
+            for (long i = 1; i <= 1000; i++) {
+                final long value = i * (part + 1);
+                analyzer.run(new MockInputRow().put(col2, value), 1);
+                expected.addValue(value);
+            }
+
+            final NumberAnalyzerResult result = analyzer.getResult();
+            assertEquals(500.5 * (part + 1), result.getMedian(col2).doubleValue(), 10.0 * (part + 1));
+            partialResults.add(result);
+        }
+
+        final NumberAnalyzerResult reducedResult = new NumberAnalyzerResultReducer().reduce(partialResults);
+        assertEquals(3000, reducedResult.getRowCount(col2).intValue());
+        assertEquals(expected.getPercentile(50.0), reducedResult.getMedian(col2).doubleValue(), 30.0);
+        assertEquals(expected.getPercentile(25.0), reducedResult.getPercentile25(col2).doubleValue(), 30.0);
+        assertEquals(expected.getPercentile(75.0), reducedResult.getPercentile75(col2).doubleValue(), 30.0);
+        assertEquals(expected.getSkewness(), reducedResult.getSkewness(col2).doubleValue(), 0.000001);
+        assertEquals(expected.getKurtosis(), reducedResult.getKurtosis(col2).doubleValue(), 0.000001);
+        assertEquals(1, reducedResult.getSketches().size());
+
+        // all measures come from the same merged sketch, which is retained in
+        // the reduced result, and reducing again gives the same percentiles
+        final DescriptiveStatisticsSketch mergedSketch = reducedResult.getSketches().get(col2.getName());
+        assertEquals(mergedSketch.getPercentile(50.0), reducedResult.getMedian(col2).doubleValue(), 0.0);
+        assertEquals(mergedSketch.getPercentile(25.0), reducedResult.getPercentile25(col2).doubleValue(), 0.0);
+        assertEquals(mergedSketch.getPercentile(75.0), reducedResult.getPercentile75(col2).doubleValue(), 0.0);
+
+        final NumberAnalyzerResult reducedAgain = new NumberAnalyzerResultReducer().reduce(partialResults);
+        assertEquals(reducedResult.getMedian(col2), reducedAgain.getMedian(col2));
+        assertEquals(reducedResult.getPercentile25(col2), reducedAgain.getPercentile25(col2));
+        assertEquals(reducedResult.getPercentile75(col2), reducedAgain.getPercentile75(col2));
+    }
+
+    public void testOptimizableOnlyWithoutSampleRows() throws Exception {
+        // annotated rows (eg. of the highest and lowest values) are shown to
+        // the user
+        assertFalse(numberAnalyzer.isOptimizable());
+
+        numberAnalyzer._annotationFactory = new DummyRowAnnotationFactory();
+        assertTrue(numberAnalyzer.isOptimizable());
+
+        numberAnalyzer.descriptiveStatistics = true;
+        assertFalse(numberAnalyzer.isOptimizable());
+    }
+
+    public void testAggregatePushDownGivesSameResult() throws Throwable {
+        final List<String> streamed = runOrderDetailsAnalysis();
+
+        System.setProperty(SystemProperties.QUERY_AGGREGATE_PUSHDOWN, "true");
+        final List<String> aggregated;
+        try {
+            aggregated = runOrderDetailsAnalysis();
+        } finally {
+            System.clearProperty(SystemProperties.QUERY_AGGREGATE_PUSHDOWN);
+        }
+
+        assertEquals(2, streamed.size());
+        assertTrue(streamed.get(0), streamed.get(0).contains("Row count                     2996            2996"));
+        assertEquals(streamed, aggregated);
+    }
+
+    private List<String> runOrderDetailsAnalysis() throws Throwable {
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        // without sample rows, so that the analyzers may be pushed down
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withStorageProvider(new InMemoryStorageProvider(0, 0)));
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder ajb = new AnalysisJobBuilder(configuration)) {
+            ajb.setDatastore(datastore);
+            ajb.addSourceColumns("PUBLIC.ORDERDETAILS.QUANTITYORDERED", "PUBLIC.ORDERDETAILS.PRICEEACH");
+            ajb.addAnalyzer(NumberAnalyzer.class).addInputColumns(ajb.getSourceColumns());
+            ajb.addAnalyzer(NumberAnalyzer.class).addInputColumn(ajb.getSourceColumnByName("QUANTITYORDERED"));
+            job = ajb.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+        final List<String> result = new ArrayList<>();
+        for (final AnalyzerResult analyzerResult : resultFuture.getResults()) {
+            result.add(new CrosstabTextRenderer().render((CrosstabResult) analyzerResult));
+        }
+        return result;
+    }
 }
@@ -27,6 +27,7 @@ import javax.inject.Named;
 import org.apache.metamodel.util.HasName;
 import org.datacleaner.api.Alias;
 import org.datacleaner.api.Categorized;
+import org.datacleaner.api.ColumnarInput;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.ExternalDocumentation;
@@ -37,7 +38,7 @@ import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputColumns;
 import org.datacleaner.api.OutputRowCollector;
 import org.datacleaner.api.Provided;
-import org.datacleaner.api.Transformer;
+import org.datacleaner.api.VectorizedTransformer;
 import org.datacleaner.components.categories.TextCategory;
 
 @Named("RegexParserTransformer.name")
@@ -57,7 +58,7 @@ import org.datacleaner.components.categories.TextCategory;
                 url = "https://docs.oracle.com/javase/tutorial/essential/regex/", type = DocumentationType.TECH,
                 version = "3.0") })
 @Categorized(TextCategory.class)
-public class RegexParserTransformer implements Transformer {
+public class RegexParserTransformer implements VectorizedTransformer {
 
     public enum Mode implements HasName {
         @Description("Find the first match within the value.")FIND_FIRST("Find first match"),
@@ -104,16 +105,50 @@ public class RegexParserTransformer implements Transformer {
         return new OutputColumns(String.class, column.getName() + " (matched part)", columns);
     }
 
+    @Override
+    public boolean isVectorized() {
+        // finding all matches may produce multiple records per row
+        return mode != Mode.FIND_ALL;
+    }
+
     @Override
     public String[] transform(final InputRow inputRow) {
         final String value = inputRow.getValue(column);
-        final Matcher matcher;
+        final Matcher matcher = pattern.matcher("");
+        final String[] result = parse(matcher, value);
+
+        if (mode == Mode.FIND_ALL) {
+            while (matcher.find()) {
+                final Object[] nextResult = new Object[matcher.groupCount() + 1];
+                for (int i = 0; i < nextResult.length; i++) {
+                    nextResult[i] = matcher.group(i);
+                }
+                outputRowCollector.putValues(nextResult);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public Object[][] transformBatch(final ColumnarInput input) {
+        final Object[] values = input.getValues(column);
+        // a single matcher is reused for all values of the batch
+        final Matcher matcher = pattern.matcher("");
+        final Object[][] result = new Object[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = parse(matcher, (String) values[i]);
+        }
+        return result;
+    }
+
+    private String[] parse(final Matcher matcher, final String value) {
         final boolean match;
         if (value == null) {
-            matcher = pattern.matcher("");
+            matcher.reset("");
             match = false;
         } else {
-            matcher = pattern.matcher(value);
+            matcher.reset(value);
             switch (mode) {
             case FULL_MATCH:
                 match = matcher.matches();
@@ -131,17 +166,6 @@ public class RegexParserTransformer implements Transformer {
         for (int i = 0; i < result.length; i++) {
             result[i] = match ? matcher.group(i) : null;
         }
-
-        if (mode == Mode.FIND_ALL) {
-            while (matcher.find()) {
-                final Object[] nextResult = new Object[matcher.groupCount() + 1];
-                for (int i = 0; i < nextResult.length; i++) {
-                    nextResult[i] = matcher.group(i);
-                }
-                outputRowCollector.putValues(nextResult);
-            }
-        }
-
         return result;
     }
 }
@@ -25,7 +25,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Pattern;
 
+import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputColumns;
+import org.datacleaner.data.ColumnarInputBatch;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
 import org.datacleaner.test.MockOutputRowCollector;
@@ -104,4 +106,26 @@ public class RegexParserTransformerTest extends TestCase {
         final List<Object[]> output1 = outputRowCollector.getOutput();
         assertEquals(0, output1.size());
     }
+
+    public void testTransformBatch() throws Exception {
+        final MockInputColumn<String> col = new MockInputColumn<>("foobar", String.class);
+
+        final RegexParserTransformer t = new RegexParserTransformer();
+        t.column = col;
+        t.pattern = Pattern.compile("(a+)(b+)|(c+)");
+        assertTrue(t.isVectorized());
+
+        final List<InputRow> rows = Arrays.<InputRow> asList(new MockInputRow().put(col, "aabb"),
+                new MockInputRow().put(col, null), new MockInputRow().put(col, "cccc"),
+                new MockInputRow().put(col, "dddd"));
+        final Object[][] result = t.transformBatch(new ColumnarInputBatch(rows));
+
+        assertEquals(4, result.length);
+        for (int i = 0; i < result.length; i++) {
+            assertArrayEquals(t.transform(rows.get(i)), result[i]);
+        }
+
+        t.mode = RegexParserTransformer.Mode.FIND_ALL;
+        assertFalse(t.isVectorized());
+    }
 }
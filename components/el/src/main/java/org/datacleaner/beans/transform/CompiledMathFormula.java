@@ -0,0 +1,454 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.transform;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A math formula compiled into a tree of arithmetic operations over the values
+ * of a row. Supports the arithmetic subset of EL (number literals, variables,
+ * unary minus, <code>+ - * / div % mod</code> and parentheses) and follows the
+ * EL coercion rules for it, so that evaluating the formula gives the same
+ * result as evaluating it as an EL expression:
+ *
+ * <ul>
+ * <li>null values count as zero, and an operation on two nulls gives zero</li>
+ * <li>+, -, * and % give a Long unless one of the operands is a floating point
+ * number</li>
+ * <li>/ and div always give a Double</li>
+ * </ul>
+ *
+ * Big numbers are not supported, see {@link #isSupported(Number[])}.
+ */
+final class CompiledMathFormula {
+
+    private static final int KIND_NULL = 0;
+    private static final int KIND_LONG = 1;
+    private static final int KIND_DOUBLE = 2;
+
+    /**
+     * The result of evaluating a node. Holds either a long or a double
+     * depending on the kind, so that evaluation does not box intermediate
+     * results.
+     */
+    private static final class Result {
+
+        private int _kind;
+        private long _long;
+        private double _double;
+
+        double getDouble() {
+            return _kind == KIND_DOUBLE ? _double : _long;
+        }
+
+        void setLong(final long value) {
+            _kind = KIND_LONG;
+            _long = value;
+        }
+
+        void setDouble(final double value) {
+            _kind = KIND_DOUBLE;
+            _double = value;
+        }
+    }
+
+    private abstract static class Node {
+
+        abstract void evaluate(Number[] values, Result result);
+    }
+
+    private static final class LiteralNode extends Node {
+
+        private final int _kind;
+        private final long _long;
+        private final double _double;
+
+        LiteralNode(final int kind, final long longValue, final double doubleValue) {
+            _kind = kind;
+            _long = longValue;
+            _double = doubleValue;
+        }
+
+        @Override
+        void evaluate(final Number[] values, final Result result) {
+            result._kind = _kind;
+            result._long = _long;
+            result._double = _double;
+        }
+    }
+
+    private static final class VariableNode extends Node {
+
+        private final int _index;
+
+        VariableNode(final int index) {
+            _index = index;
+        }
+
+        @Override
+        void evaluate(final Number[] values, final Result result) {
+            final Number value = values[_index];
+            if (value == null) {
+                result._kind = KIND_NULL;
+                result._long = 0;
+            } else if (value instanceof Double || value instanceof Float) {
+                result.setDouble(value.doubleValue());
+            } else {
+                result.setLong(value.longValue());
+            }
+        }
+    }
+
+    private static final class NegateNode extends Node {
+
+        private final Node _operand;
+
+        NegateNode(final Node operand) {
+            _operand = operand;
+        }
+
+        @Override
+        void evaluate(final Number[] values, final Result result) {
+            _operand.evaluate(values, result);
+            if (result._kind == KIND_DOUBLE) {
+                result._double = -result._double;
+            } else {
+                result.setLong(-result._long);
+            }
+        }
+    }
+
+    private static final class BinaryNode extends Node {
+
+        private final char _operator;
+        private final Node _left;
+        private final Node _right;
+
+        BinaryNode(final char operator, final Node left, final Node right) {
+            _operator = operator;
+            _left = left;
+            _right = right;
+        }
+
+        @Override
+        void evaluate(final Number[] values, final Result result) {
+            _left.evaluate(values, result);
+            final int leftKind = result._kind;
+            final long leftLong = result._long;
+            final double leftDouble = result.getDouble();
+
+            _right.evaluate(values, result);
+            final int rightKind = result._kind;
+
+            if (leftKind == KIND_NULL && rightKind == KIND_NULL) {
+                result.setLong(0);
+                return;
+            }
+
+            final boolean floatingPoint = leftKind == KIND_DOUBLE || rightKind == KIND_DOUBLE;
+            switch (_operator) {
+            case '+':
+                if (floatingPoint) {
+                    result.setDouble(leftDouble + result.getDouble());
+                } else {
+                    result.setLong(leftLong + result._long);
+                }
+                break;
+            case '-':
+                if (floatingPoint) {
+                    result.setDouble(leftDouble - result.getDouble());
+                } else {
+                    result.setLong(leftLong - result._long);
+                }
+                break;
+            case '*':
+                if (floatingPoint) {
+                    result.setDouble(leftDouble * result.getDouble());
+                } else {
+                    result.setLong(leftLong * result._long);
+                }
+                break;
+            case '/':
+                result.setDouble(leftDouble / result.getDouble());
+                break;
+            case '%':
+                if (floatingPoint) {
+                    result.setDouble(leftDouble % result.getDouble());
+                } else {
+                    // throws ArithmeticException on modulo zero, like EL
+                    result.setLong(leftLong % result._long);
+                }
+                break;
+            default:
+                throw new UnsupportedOperationException("Unsupported operator: " + _operator);
+            }
+        }
+    }
+
+    private static final Set<String> RESERVED_WORDS = new HashSet<>(
+            Arrays.asList("and", "or", "not", "eq", "ne", "lt", "gt", "le", "ge", "true", "false", "instanceof",
+                    "empty", "div", "mod"));
+
+    /**
+     * Recursive descent parser of the supported subset of EL
+     */
+    private static final class Parser {
+
+        private final String _formula;
+        private final Map<String, Integer> _variableIndexes;
+        private int _position;
+
+        Parser(final String formula, final Map<String, Integer> variableIndexes) {
+            _formula = formula;
+            _variableIndexes = variableIndexes;
+        }
+
+        /**
+         * @return the parsed formula, or null if the formula is not within the
+         *         supported subset
+         */
+        Node parse() {
+            final Node node = parseAdditive();
+            skipWhitespace();
+            if (node == null || _position != _formula.length()) {
+                return null;
+            }
+            return node;
+        }
+
+        private Node parseAdditive() {
+            Node node = parseMultiplicative();
+            while (node != null) {
+                skipWhitespace();
+                final char operator = peek();
+                if (operator != '+' && operator != '-') {
+                    break;
+                }
+                _position++;
+                final Node right = parseMultiplicative();
+                node = right == null ? null : new BinaryNode(operator, node, right);
+            }
+            return node;
+        }
+
+        private Node parseMultiplicative() {
+            Node node = parseUnary();
+            while (node != null) {
+                skipWhitespace();
+                final char operator;
+                if (peek() == '*' || peek() == '/' || peek() == '%') {
+                    operator = peek();
+                    _position++;
+                } else if (peekKeyword("div")) {
+                    operator = '/';
+                    _position += 3;
+                } else if (peekKeyword("mod")) {
+                    operator = '%';
+                    _position += 3;
+                } else {
+                    break;
+                }
+                final Node right = parseUnary();
+                node = right == null ? null : new BinaryNode(operator, node, right);
+            }
+            return node;
+        }
+
+        private Node parseUnary() {
+            skipWhitespace();
+            if (peek() == '-') {
+                _position++;
+                final Node operand = parseUnary();
+                return operand == null ? null : new NegateNode(operand);
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() {
+            skipWhitespace();
+            final char c = peek();
+            if (c == '(') {
+                _position++;
+                final Node node = parseAdditive();
+                skipWhitespace();
+                if (node == null || peek() != ')') {
+                    return null;
+                }
+                _position++;
+                return node;
+            }
+            if (Character.isDigit(c) || c == '.') {
+                return parseNumber();
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                return parseIdentifier();
+            }
+            return null;
+        }
+
+        private Node parseNumber() {
+            final int start = _position;
+            boolean floatingPoint = false;
+            while (Character.isDigit(peek())) {
+                _position++;
+            }
+            if (peek() == '.') {
+                floatingPoint = true;
+                _position++;
+                while (Character.isDigit(peek())) {
+                    _position++;
+                }
+            }
+            if (peek() == 'e') {
+                floatingPoint = true;
+                _position++;
+                if (peek() == '+' || peek() == '-') {
+                    _position++;
+                }
+                while (Character.isDigit(peek())) {
+                    _position++;
+                }
+            }
+            final String literal = _formula.substring(start, _position);
+            try {
+                if (floatingPoint) {
+                    return new LiteralNode(KIND_DOUBLE, 0, Double.parseDouble(literal));
+                }
+                return new LiteralNode(KIND_LONG, Long.parseLong(literal), 0);
+            } catch (final NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private Node parseIdentifier() {
+            final int start = _position;
+            while (_position < _formula.length() && Character.isJavaIdentifierPart(peek())) {
+                _position++;
+            }
+            final String identifier = _formula.substring(start, _position);
+            if ("null".equals(identifier)) {
+                return new LiteralNode(KIND_NULL, 0, 0);
+            }
+            if (RESERVED_WORDS.contains(identifier)) {
+                return null;
+            }
+            final Integer index = _variableIndexes.get(identifier);
+            if (index == null) {
+                // unknown identifiers, reserved words etc. are left to EL
+                return null;
+            }
+            skipWhitespace();
+            if (peek() == '.' || peek() == '[' || peek() == '(') {
+                // property access or function call
+                return null;
+            }
+            return new VariableNode(index);
+        }
+
+        private boolean peekKeyword(final String keyword) {
+            final int end = _position + keyword.length();
+            return _formula.startsWith(keyword, _position) && (end == _formula.length() || !Character
+                    .isJavaIdentifierPart(_formula.charAt(end)));
+        }
+
+        private char peek() {
+            return _position < _formula.length() ? _formula.charAt(_position) : 0;
+        }
+
+        private void skipWhitespace() {
+            while (Character.isWhitespace(peek())) {
+                _position++;
+            }
+        }
+    }
+
+    private final Node _root;
+
+    private CompiledMathFormula(final Node root) {
+        _root = root;
+    }
+
+    /**
+     * Compiles a formula.
+     *
+     * @param formula
+     *            the (lower case) formula
+     * @param variableIndexes
+     *            the index in the values array of each variable name
+     * @return the compiled formula, or null if the formula uses EL features
+     *         outside of the supported arithmetic subset
+     */
+    public static CompiledMathFormula compile(final String formula, final Map<String, Integer> variableIndexes) {
+        final Node root = new Parser(formula, variableIndexes).parse();
+        if (root == null || isPlainValue(root)) {
+            return null;
+        }
+        return new CompiledMathFormula(root);
+    }
+
+    /**
+     * Determines if a node is a (possibly negated) plain value, which EL
+     * returns with its own type rather than as a Long or Double.
+     */
+    private static boolean isPlainValue(final Node node) {
+        if (node instanceof NegateNode) {
+            return isPlainValue(((NegateNode) node)._operand);
+        }
+        return node instanceof VariableNode || node instanceof LiteralNode;
+    }
+
+    /**
+     * Determines if a row of values is supported by the compiled formula.
+     * Values that EL computes with arbitrary precision are not.
+     *
+     * @param values
+     * @return
+     */
+    public boolean isSupported(final Number[] values) {
+        for (final Number value : values) {
+            if (value instanceof BigDecimal || value instanceof BigInteger) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the formula
+     *
+     * @param values
+     * @return a Long or a Double, depending on the operations and operands
+     * @throws ArithmeticException
+     *             on integer modulo zero
+     */
+    public Number evaluate(final Number[] values) throws ArithmeticException {
+        final Result result = new Result();
+        _root.evaluate(values, result);
+        if (result._kind == KIND_DOUBLE) {
+            return result._double;
+        }
+        return result._long;
+    }
+}
@@ -19,9 +19,7 @@
  */
 package org.datacleaner.beans.transform;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import javax.el.ValueExpression;
@@ -37,6 +35,7 @@ import org.datacleaner.api.OutputColumns;
 import org.datacleaner.api.StringProperty;
 import org.datacleaner.api.Transformer;
 import org.datacleaner.components.categories.NumbersCategory;
+import org.datacleaner.data.IdentifierResolvingELContext;
 import org.datacleaner.util.StringUtils;
 
 import de.odysseus.el.ExpressionFactoryImpl;
@@ -55,7 +54,9 @@ public class MathFormulaTransformer implements Transformer {
     String _formula = "(col1 + col2) / col3";
 
     private ExpressionFactoryImpl _factory;
-    private Map<String, List<String>> _columnAliases;
+    private Map<String, Integer> _variableIndexes;
+    private ValueExpression _valueExpression;
+    private CompiledMathFormula _compiledFormula;
 
     @Override
     public OutputColumns getOutputColumns() {
@@ -66,39 +67,38 @@ public class MathFormulaTransformer implements Transformer {
     public void init() {
         _factory = new ExpressionFactoryImpl();
 
-        _columnAliases = new HashMap<>();
-        int i = 1;
-        for (final InputColumn<Number> inputColumn : _input) {
-            final String name = inputColumn.getName();
-            final List<String> list = new ArrayList<>(3);
+        _variableIndexes = new HashMap<>();
+        for (int i = 0; i < _input.length; i++) {
+            final String name = _input[i].getName();
             final String variableName1 = StringUtils.replaceWhitespaces(name.toLowerCase(), "_");
             final String variableName2 = StringUtils.replaceWhitespaces(name.toLowerCase(), "");
-            list.add(variableName1);
-            list.add(variableName2);
-            list.add("col" + i);
-            i++;
-            _columnAliases.put(name, list);
+            _variableIndexes.put(variableName1, i);
+            _variableIndexes.put(variableName2, i);
+            _variableIndexes.put("col" + (i + 1), i);
         }
+
+        // parse the formula once. Pure arithmetic is compiled into a
+        // CompiledMathFormula, everything else is evaluated by EL.
+        final String formula = _formula.toLowerCase();
+        _valueExpression =
+                _factory.createValueExpression(new SimpleContext(), "#{" + formula + "}", Number.class);
+        _compiledFormula = CompiledMathFormula.compile(formula, _variableIndexes);
     }
 
     @Override
     public Number[] transform(final InputRow inputRow) {
-        final SimpleContext context = new SimpleContext();
-
-        for (final InputColumn<Number> inputColumn : _input) {
-            final Number value = inputRow.getValue(inputColumn);
-            final ValueExpression valueExpression = _factory.createValueExpression(value, Number.class);
-            final List<String> aliases = _columnAliases.get(inputColumn.getName());
-            for (final String alias : aliases) {
-                context.setVariable(alias, valueExpression);
-            }
+        final Number[] values = new Number[_input.length];
+        for (int i = 0; i < _input.length; i++) {
+            values[i] = inputRow.getValue(_input[i]);
         }
 
-        final String expression = "#{" + _formula.toLowerCase() + "}";
-        final ValueExpression valueExpression = _factory.createValueExpression(context, expression, Number.class);
-
         try {
-            final Object value = valueExpression.getValue(context);
+            final Object value;
+            if (_compiledFormula != null && _compiledFormula.isSupported(values)) {
+                value = _compiledFormula.evaluate(values);
+            } else {
+                value = evaluateExpression(values);
+            }
             assert value instanceof Number;
 
             if (value instanceof Double) {
@@ -116,4 +116,17 @@ public class MathFormulaTransformer implements Transformer {
         }
     }
 
+    private Object evaluateExpression(final Number[] values) {
+        final IdentifierResolvingELContext context = new IdentifierResolvingELContext() {
+            @Override
+            protected Object resolveIdentifier(final String identifier) {
+                final Integer index = _variableIndexes.get(identifier);
+                if (index == null) {
+                    return UNRESOLVED;
+                }
+                return _factory.coerceToType(values[index], Number.class);
+            }
+        };
+        return _valueExpression.getValue(context);
+    }
 }
@@ -19,7 +19,9 @@
  */
 package org.datacleaner.data;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.el.ELException;
 import javax.el.ExpressionFactory;
@@ -50,6 +52,41 @@ public class ELInputColumn extends AbstractExpressionBasedInputColumn<String> {
 
     private final ExpressionFactory _factory;
     private final String _expression;
+    private transient volatile ValueExpression _valueExpression;
+    private transient volatile IdentifierColumns _identifierColumns;
+
+    /**
+     * The columns that identifiers resolve to, for a particular list of row
+     * columns.
+     */
+    private static final class IdentifierColumns {
+
+        private final InputColumn<?>[] _rowColumns;
+        private final Map<String, InputColumn<?>> _columns;
+
+        private IdentifierColumns(final List<InputColumn<?>> rowColumns) {
+            _rowColumns = rowColumns.toArray(new InputColumn<?>[rowColumns.size()]);
+            _columns = new HashMap<>();
+            for (final InputColumn<?> inputColumn : _rowColumns) {
+                if (!(inputColumn instanceof ExpressionBasedInputColumn)) {
+                    // the last column with a matching name wins
+                    _columns.put(StringUtils.replaceWhitespaces(inputColumn.getName(), "_"), inputColumn);
+                }
+            }
+        }
+
+        private boolean isFor(final List<InputColumn<?>> rowColumns) {
+            if (rowColumns.size() != _rowColumns.length) {
+                return false;
+            }
+            for (int i = 0; i < _rowColumns.length; i++) {
+                if (rowColumns.get(i) != _rowColumns[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 
     public ELInputColumn(final String expression) {
         _expression = expression;
@@ -58,28 +95,58 @@ public class ELInputColumn extends AbstractExpressionBasedInputColumn<String> {
 
     @Override
     public String evaluate(final InputRow row) {
-        final SimpleContext context = new SimpleContext();
-        final List<InputColumn<?>> inputColumns = row.getInputColumns();
-        for (final InputColumn<?> inputColumn : inputColumns) {
-            if (!(inputColumn instanceof ExpressionBasedInputColumn)) {
-                final Object value = row.getValue(inputColumn);
-                final Class<?> javaType = inputColumn.getDataType();
-                final ValueExpression valueExpression = _factory.createValueExpression(value, javaType);
-                String variableName = inputColumn.getName();
-                variableName = StringUtils.replaceWhitespaces(variableName, "_");
-                context.setVariable(variableName, valueExpression);
+        final Map<String, InputColumn<?>> columns = getIdentifierColumns(row.getInputColumns());
+        final IdentifierResolvingELContext context = new IdentifierResolvingELContext() {
+            @Override
+            protected Object resolveIdentifier(final String identifier) {
+                final InputColumn<?> inputColumn = columns.get(identifier);
+                if (inputColumn == null) {
+                    return UNRESOLVED;
+                }
+                return _factory.coerceToType(row.getValue(inputColumn), inputColumn.getDataType());
             }
-        }
+        };
 
         try {
-            final ValueExpression valueExpression = _factory.createValueExpression(context, _expression, String.class);
-            return (String) valueExpression.getValue(context);
+            return (String) getValueExpression().getValue(context);
         } catch (final ELException e) {
             logger.error("Could not evaluate EL expression", e);
             return null;
         }
     }
 
+    /**
+     * Gets the parsed expression. Identifiers are not bound when parsing, but
+     * resolved against the row when the expression is evaluated.
+     *
+     * @return
+     */
+    private ValueExpression getValueExpression() {
+        ValueExpression valueExpression = _valueExpression;
+        if (valueExpression == null) {
+            valueExpression = _factory.createValueExpression(new SimpleContext(), _expression, String.class);
+            _valueExpression = valueExpression;
+        }
+        return valueExpression;
+    }
+
+    /**
+     * Gets the columns that the identifiers of the expression resolve to. The
+     * mapping is only built again when the row has other columns than the
+     * previously evaluated row, which in a job is rarely the case.
+     *
+     * @param rowColumns
+     * @return
+     */
+    private Map<String, InputColumn<?>> getIdentifierColumns(final List<InputColumn<?>> rowColumns) {
+        IdentifierColumns identifierColumns = _identifierColumns;
+        if (identifierColumns == null || !identifierColumns.isFor(rowColumns)) {
+            identifierColumns = new IdentifierColumns(rowColumns);
+            _identifierColumns = identifierColumns;
+        }
+        return identifierColumns._columns;
+    }
+
     @Override
     public String getExpression() {
         return _expression;
@@ -0,0 +1,139 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.data;
+
+import java.beans.FeatureDescriptor;
+import java.util.Iterator;
+
+import javax.el.CompositeELResolver;
+import javax.el.ELContext;
+import javax.el.ELResolver;
+import javax.el.FunctionMapper;
+import javax.el.PropertyNotWritableException;
+import javax.el.VariableMapper;
+
+import de.odysseus.el.util.SimpleResolver;
+
+/**
+ * {@link ELContext} which resolves the identifiers of an expression when it is
+ * evaluated, instead of binding them as variables when the expression is
+ * created. This allows an expression to be parsed once and then evaluated for
+ * every row, with the identifiers pointing to the values of the current row.
+ */
+public abstract class IdentifierResolvingELContext extends ELContext {
+
+    /**
+     * Return value of {@link #resolveIdentifier(String)} for identifiers that
+     * are unknown to the context.
+     */
+    protected static final Object UNRESOLVED = new Object();
+
+    private static final class IdentifierResolver extends ELResolver {
+
+        private Object resolve(final ELContext context, final Object base, final Object property) {
+            if (base == null && property != null && context instanceof IdentifierResolvingELContext) {
+                return ((IdentifierResolvingELContext) context).resolveIdentifier(property.toString());
+            }
+            return UNRESOLVED;
+        }
+
+        @Override
+        public Object getValue(final ELContext context, final Object base, final Object property) {
+            final Object value = resolve(context, base, property);
+            if (value == UNRESOLVED) {
+                return null;
+            }
+            context.setPropertyResolved(true);
+            return value;
+        }
+
+        @Override
+        public Class<?> getType(final ELContext context, final Object base, final Object property) {
+            final Object value = resolve(context, base, property);
+            if (value == UNRESOLVED) {
+                return null;
+            }
+            context.setPropertyResolved(true);
+            return value == null ? Object.class : value.getClass();
+        }
+
+        @Override
+        public void setValue(final ELContext context, final Object base, final Object property, final Object value) {
+            if (resolve(context, base, property) != UNRESOLVED) {
+                throw new PropertyNotWritableException("Cannot write to identifier: " + property);
+            }
+        }
+
+        @Override
+        public boolean isReadOnly(final ELContext context, final Object base, final Object property) {
+            if (resolve(context, base, property) == UNRESOLVED) {
+                return false;
+            }
+            context.setPropertyResolved(true);
+            return true;
+        }
+
+        @Override
+        public Iterator<FeatureDescriptor> getFeatureDescriptors(final ELContext context, final Object base) {
+            return null;
+        }
+
+        @Override
+        public Class<?> getCommonPropertyType(final ELContext context, final Object base) {
+            return base == null ? String.class : null;
+        }
+    }
+
+    private static final ELResolver RESOLVER;
+
+    static {
+        final CompositeELResolver resolver = new CompositeELResolver();
+        resolver.add(new IdentifierResolver());
+        // the default resolvers (for eg. bean properties of the values)
+        resolver.add(new SimpleResolver(true));
+        RESOLVER = resolver;
+    }
+
+    /**
+     * Resolves the value of an identifier in the expression.
+     *
+     * @param identifier
+     * @return the value of the identifier, or {@link #UNRESOLVED} if the
+     *         identifier is unknown
+     */
+    protected abstract Object resolveIdentifier(String identifier);
+
+    @Override
+    public ELResolver getELResolver() {
+        return RESOLVER;
+    }
+
+    @Override
+    public FunctionMapper getFunctionMapper() {
+        // functions are bound when the expression is created
+        return null;
+    }
+
+    @Override
+    public VariableMapper getVariableMapper() {
+        // variables are bound when the expression is created
+        return null;
+    }
+}
@@ -19,18 +19,32 @@
  */
 package org.datacleaner.beans.transform;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import javax.el.ValueExpression;
+
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
+import org.datacleaner.test.TestHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import de.odysseus.el.ExpressionFactoryImpl;
+import de.odysseus.el.util.SimpleContext;
 import junit.framework.TestCase;
 
 public class MathFormulaTransformerTest extends TestCase {
 
+    private static final Logger logger = LoggerFactory.getLogger(MathFormulaTransformerTest.class);
+
     private MockInputColumn<Number> foo;
     private MockInputColumn<Number> bar;
     private MockInputColumn<Number> baz;
 
+    private final ExpressionFactoryImpl _factory = new ExpressionFactoryImpl();
+
     private MathFormulaTransformer trans;
 
     @Override
@@ -86,6 +100,133 @@ public class MathFormulaTransformerTest extends TestCase {
         assertFormulaResult(null, 0, 0, 0);
     }
 
+    public void testModuloByZero() throws Exception {
+        trans._formula = "(FOO + BAR) % baz";
+        trans.init();
+
+        assertFormulaResult(null, 10, 10, 0);
+    }
+
+    public void testExpressionFeaturesOutsideOfArithmetic() throws Exception {
+        trans._formula = "foo > bar ? foo * 2 : bar";
+        trans.init();
+
+        assertFormulaResult(20, 10, 5, 0);
+        assertFormulaResult(15, 10, 15, 0);
+    }
+
+    public void testSameResultsAsReparsedExpression() throws Exception {
+        final String[] formulas = { "(FOO + BAR) / baz", "foo * bar - baz", "foo % bar", "foo mod bar + baz",
+                "foo div bar", "-foo + bar * -baz", "foo + 1.5", "foo * 2e1 - .5", "(foo - (bar - baz)) * col1",
+                "foo + null", "-foo" };
+        final Number[][] rows = { { 10, 20, 3 }, { -7, 3, null }, { null, null, null }, { 2.5, 4, 1 },
+                { 1.5f, null, 2L }, { 5L, 0, 0 }, { Long.MAX_VALUE, 2, 1 }, { new BigDecimal("1.1"), 3, 4 } };
+
+        for (final String formula : formulas) {
+            trans._formula = formula;
+            trans.init();
+            for (final Number[] row : rows) {
+                final Number[] result =
+                        trans.transform(new MockInputRow().put(foo, row[0]).put(bar, row[1]).put(baz, row[2]));
+                final Number expected = evaluateByReparsing(formula, row);
+                final String message = formula + " with " + Arrays.toString(row);
+                assertEquals(message, expected, result[0]);
+            }
+        }
+    }
+
+    public void testCompiledExpressionIsReusedAcrossRows() throws Exception {
+        trans._formula = "(FOO + BAR) / baz";
+        trans.init();
+
+        for (int i = 0; i < 1000; i++) {
+            final Number[] values = { i, i * 2, i % 7 + 1 };
+            final Number[] result =
+                    trans.transform(new MockInputRow().put(foo, values[0]).put(bar, values[1]).put(baz, values[2]));
+            assertEquals(Arrays.toString(values), evaluateByReparsing(trans._formula, values), result[0]);
+        }
+    }
+
+    /**
+     * Compares the time it takes to evaluate the compiled formula against
+     * reparsing the expression for every row. Only run when benchmarks are
+     * enabled, see {@link TestHelper#isBenchmarkEnabled()}.
+     */
+    public void testBenchmarkAgainstReparsedExpression() throws Exception {
+        if (!TestHelper.isBenchmarkEnabled()) {
+            return;
+        }
+
+        trans._formula = "(FOO + BAR) / baz";
+        trans.init();
+
+        final int numRows = 200000;
+        final MockInputRow[] rows = new MockInputRow[1000];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new MockInputRow().put(foo, i).put(bar, i * 2).put(baz, i % 7 + 1);
+        }
+
+        // warm up both implementations before measuring
+        runReparsed(rows, numRows);
+        runCompiled(rows, numRows);
+
+        long time = System.nanoTime();
+        final double reparsedSum = runReparsed(rows, numRows);
+        final long reparsedTime = System.nanoTime() - time;
+
+        time = System.nanoTime();
+        final double compiledSum = runCompiled(rows, numRows);
+        final long compiledTime = System.nanoTime() - time;
+
+        logger.info("Evaluated '{}' for {} rows in {} ms (compiled) vs. {} ms (reparsed per row)", trans._formula,
+                numRows, compiledTime / 1000000, reparsedTime / 1000000);
+
+        assertEquals(reparsedSum, compiledSum);
+    }
+
+    private double runReparsed(final MockInputRow[] rows, final int numRows) {
+        double sum = 0;
+        for (int i = 0; i < numRows; i++) {
+            final MockInputRow row = rows[i % rows.length];
+            sum += evaluateByReparsing(trans._formula,
+                    new Number[] { row.getValue(foo), row.getValue(bar), row.getValue(baz) }).doubleValue();
+        }
+        return sum;
+    }
+
+    private double runCompiled(final MockInputRow[] rows, final int numRows) {
+        double sum = 0;
+        for (int i = 0; i < numRows; i++) {
+            sum += trans.transform(rows[i % rows.length])[0].doubleValue();
+        }
+        return sum;
+    }
+
+    /**
+     * Evaluates a formula the way it was done before the formula was compiled,
+     * ie. by creating a context and expression for every row.
+     */
+    private Number evaluateByReparsing(final String formula, final Number[] values) {
+        final SimpleContext context = new SimpleContext();
+        final String[] names = { "foo", "bar", "baz" };
+        for (int i = 0; i < values.length; i++) {
+            final ValueExpression valueExpression = _factory.createValueExpression(values[i], Number.class);
+            context.setVariable(names[i], valueExpression);
+            context.setVariable("col" + (i + 1), valueExpression);
+        }
+        try {
+            final Number value = (Number) _factory
+                    .createValueExpression(context, "#{" + formula.toLowerCase() + "}", Number.class)
+                    .getValue(context);
+            if (value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite())) {
+                return null;
+            }
+            return value;
+        } catch (final ArithmeticException e) {
+            return null;
+        }
+    }
+
     private void assertFormulaResult(final Number result, final Integer fo, final Integer br, final Integer bz) {
         final Number[] arr = trans.transform(new MockInputRow().put(foo, fo).put(bar, br).put(baz, bz));
         assertNotNull(arr);
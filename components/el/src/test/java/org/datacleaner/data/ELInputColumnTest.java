@@ -19,10 +19,27 @@
  */
 package org.datacleaner.data;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.el.ExpressionFactory;
+import javax.el.ValueExpression;
+
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.odysseus.el.ExpressionFactoryImpl;
+import de.odysseus.el.util.SimpleContext;
 import junit.framework.TestCase;
 
 public class ELInputColumnTest extends TestCase {
 
+    private static final Logger logger = LoggerFactory.getLogger(ELInputColumnTest.class);
+
     public void testPhysicalColumn() throws Exception {
         final ELInputColumn elCol = new ELInputColumn("Hello #{foo}");
         assertFalse(elCol.isPhysicalColumn());
@@ -41,4 +58,120 @@ public class ELInputColumnTest extends TestCase {
         final MockInputColumn<String> fooCol = new MockInputColumn<>("foo bar", String.class);
         assertEquals("Hello World", elCol.evaluate(new MockInputRow().put(fooCol, "World")));
     }
+
+    public void testExpressionReusedForRows() throws Exception {
+        final ELInputColumn elCol = new ELInputColumn("#{foo} is #{bar + 1} years old");
+
+        final MockInputColumn<String> fooCol = new MockInputColumn<>("foo", String.class);
+        final MockInputColumn<Integer> barCol = new MockInputColumn<>("bar", Integer.class);
+        assertEquals("John is 31 years old", elCol.evaluate(new MockInputRow().put(fooCol, "John").put(barCol, 30)));
+        assertEquals("Jane is 1 years old", elCol.evaluate(new MockInputRow().put(fooCol, "Jane").put(barCol, null)));
+        assertNull(elCol.evaluate(new MockInputRow().put(fooCol, "Nobody")));
+    }
+
+    public void testRowsWithOtherColumns() throws Exception {
+        final ELInputColumn elCol = new ELInputColumn("Hello #{foo}");
+
+        final MockInputColumn<String> fooCol1 = new MockInputColumn<>("foo", String.class);
+        final MockInputColumn<String> fooCol2 = new MockInputColumn<>("foo", String.class);
+        final MockInputColumn<String> barCol = new MockInputColumn<>("bar", String.class);
+        assertEquals("Hello World", elCol.evaluate(new MockInputRow().put(fooCol1, "World")));
+        assertEquals("Hello Mars", elCol.evaluate(new MockInputRow().put(fooCol2, "Mars")));
+        assertNull(elCol.evaluate(new MockInputRow().put(barCol, "Venus")));
+
+        // the last column with a matching name wins
+        assertEquals("Hello Mars", elCol.evaluate(new MockInputRow().put(fooCol1, "World").put(fooCol2, "Mars")));
+    }
+
+    /**
+     * Compares the time it takes to evaluate an expression with the identifier
+     * to column mapping built once, against the previous behaviour of scanning
+     * all columns of the row for every identifier. Only run when benchmarks are
+     * enabled, see {@link TestHelper#isBenchmarkEnabled()}.
+     */
+    public void testBenchmarkAgainstScanningColumns() throws Exception {
+        if (!TestHelper.isBenchmarkEnabled()) {
+            return;
+        }
+
+        final int numColumns = 30;
+        final int numRows = 200000;
+        final String expression = "#{col_0} and #{col_15} and #{col_29}";
+
+        final List<MockInputRow> rows = new ArrayList<>();
+        final List<MockInputColumn<String>> columns = new ArrayList<>();
+        for (int i = 0; i < numColumns; i++) {
+            columns.add(new MockInputColumn<>("col " + i, String.class));
+        }
+        for (int i = 0; i < 1000; i++) {
+            final MockInputRow row = new MockInputRow();
+            for (final MockInputColumn<String> column : columns) {
+                row.put(column, "value" + i);
+            }
+            rows.add(row);
+        }
+
+        final ELInputColumn elCol = new ELInputColumn(expression);
+        final ScanningEvaluator scanningEvaluator = new ScanningEvaluator(expression);
+
+        // warm up both implementations before measuring
+        runEvaluations(elCol, null, rows, numRows);
+        runEvaluations(null, scanningEvaluator, rows, numRows);
+
+        long time = System.nanoTime();
+        final long scanningChecksum = runEvaluations(null, scanningEvaluator, rows, numRows);
+        final long scanningTime = System.nanoTime() - time;
+
+        time = System.nanoTime();
+        final long mappedChecksum = runEvaluations(elCol, null, rows, numRows);
+        final long mappedTime = System.nanoTime() - time;
+
+        logger.info("Evaluated '{}' for {} rows of {} columns in {} ms (mapped identifiers) vs. {} ms "
+                + "(scanning columns)", expression, numRows, numColumns, mappedTime / 1000000,
+                scanningTime / 1000000);
+
+        assertEquals(scanningChecksum, mappedChecksum);
+    }
+
+    private long runEvaluations(final ELInputColumn elCol, final ScanningEvaluator scanningEvaluator,
+            final List<MockInputRow> rows, final int numRows) {
+        long checksum = 0;
+        for (int i = 0; i < numRows; i++) {
+            final MockInputRow row = rows.get(i % rows.size());
+            final String value = elCol == null ? scanningEvaluator.evaluate(row) : elCol.evaluate(row);
+            checksum += value.hashCode();
+        }
+        return checksum;
+    }
+
+    /**
+     * Evaluates an expression the way {@link ELInputColumn} did before the
+     * identifier to column mapping was kept, ie. by scanning the columns of the
+     * row for every identifier.
+     */
+    private static class ScanningEvaluator {
+
+        private final ExpressionFactory _factory = new ExpressionFactoryImpl();
+        private final ValueExpression _valueExpression;
+
+        ScanningEvaluator(final String expression) {
+            _valueExpression = _factory.createValueExpression(new SimpleContext(), expression, String.class);
+        }
+
+        String evaluate(final InputRow row) {
+            return (String) _valueExpression.getValue(new IdentifierResolvingELContext() {
+                @Override
+                protected Object resolveIdentifier(final String identifier) {
+                    Object result = UNRESOLVED;
+                    for (final InputColumn<?> inputColumn : row.getInputColumns()) {
+                        final String variableName = StringUtils.replaceWhitespaces(inputColumn.getName(), "_");
+                        if (identifier.equals(variableName)) {
+                            result = _factory.coerceToType(row.getValue(inputColumn), inputColumn.getDataType());
+                        }
+                    }
+                    return result;
+                }
+            });
+        }
+    }
 }
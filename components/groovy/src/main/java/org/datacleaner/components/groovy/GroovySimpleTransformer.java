@@ -22,13 +22,18 @@ package org.datacleaner.components.groovy;
 import groovy.lang.GroovyClassLoader;
 import groovy.lang.GroovyObject;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Named;
 
 import org.datacleaner.api.Categorized;
 import org.datacleaner.api.Close;
+import org.datacleaner.api.ColumnarInput;
+import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.Initialize;
@@ -36,7 +41,7 @@ import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputColumns;
 import org.datacleaner.api.StringProperty;
-import org.datacleaner.api.Transformer;
+import org.datacleaner.api.VectorizedTransformer;
 import org.datacleaner.components.categories.ScriptingCategory;
 import org.datacleaner.components.convert.ConvertToStringTransformer;
 import org.datacleaner.util.ReflectionUtils;
@@ -46,7 +51,8 @@ import org.slf4j.LoggerFactory;
 @Named("GroovySimpleTransformer.name")
 @Categorized(ScriptingCategory.class)
 @Description("GroovySimpleTransformer.Description")
-public class GroovySimpleTransformer implements Transformer {
+@Concurrent(true)
+public class GroovySimpleTransformer implements VectorizedTransformer {
 
     private static final Logger logger = LoggerFactory.getLogger(GroovySimpleTransformer.class);
 
@@ -60,21 +66,65 @@ public class GroovySimpleTransformer implements Transformer {
             + "\t\treturn \"Hello \" + map.find{\n\t\t\tit.key.toUpperCase().indexOf(\"NAME\")!=-1\n"
             + "\t\t}?.value\n\t}\n}";
 
-    private GroovyObject _groovyObject;
     private GroovyClassLoader _groovyClassLoader;
+    private Class<?> _groovyClass;
+    private Method _transformMethod;
+
+    /**
+     * Instances of the compiled Groovy class per thread, so that scripts that
+     * keep state in fields are never invoked concurrently. Unlike a
+     * {@link ThreadLocal}, the instances (and thereby the Groovy class loader)
+     * are released when the transformer is closed.
+     */
+    private Map<Thread, GroovyObject> _groovyObjects;
 
     @Initialize
     public void init() {
         final ClassLoader parent = getClass().getClassLoader();
         _groovyClassLoader = new GroovyClassLoader(parent);
         logger.debug("Compiling Groovy code:\n{}", code);
-        final Class<?> groovyClass = _groovyClassLoader.parseClass(code);
-        _groovyObject = (GroovyObject) ReflectionUtils.newInstance(groovyClass);
+        _groovyClass = _groovyClassLoader.parseClass(code);
+        _transformMethod = findTransformMethod(_groovyClass);
+
+        // the first instance is created eagerly to surface instantiation
+        // errors during initialization
+        _groovyObjects = new ConcurrentHashMap<>();
+        _groovyObjects.put(Thread.currentThread(), createGroovyObject(_groovyClass));
+    }
+
+    private static GroovyObject createGroovyObject(final Class<?> groovyClass) {
+        return (GroovyObject) ReflectionUtils.newInstance(groovyClass);
+    }
+
+    private GroovyObject getGroovyObject() {
+        return _groovyObjects.computeIfAbsent(Thread.currentThread(), thread -> createGroovyObject(_groovyClass));
+    }
+
+    /**
+     * Finds a single-argument transform method accepting the argument map, so
+     * that it can be invoked directly instead of being dispatched dynamically
+     * for every row.
+     *
+     * @param groovyClass
+     * @return the method, or null if the method is not statically declared
+     */
+    private static Method findTransformMethod(final Class<?> groovyClass) {
+        for (final Method method : groovyClass.getMethods()) {
+            if ("transform".equals(method.getName()) && method.getParameterTypes().length == 1
+                    && method.getParameterTypes()[0].isAssignableFrom(LinkedHashMap.class)) {
+                return method;
+            }
+        }
+        logger.debug("No transform(Map) method found on {}, using dynamic dispatch", groovyClass);
+        return null;
     }
 
     @Close
     public void close() {
-        _groovyObject = null;
+        _groovyObjects.clear();
+        _groovyObjects = null;
+        _transformMethod = null;
+        _groovyClass = null;
         _groovyClassLoader.clearCache();
         _groovyClassLoader = null;
     }
@@ -84,17 +134,60 @@ public class GroovySimpleTransformer implements Transformer {
     }
 
     public String[] transform(final InputRow inputRow) {
-        final Map<String, Object> map = new LinkedHashMap<String, Object>();
-        for (InputColumn<?> input : inputs) {
+        final Map<String, Object> map = new LinkedHashMap<>(inputs.length * 2);
+        for (final InputColumn<?> input : inputs) {
             map.put(input.getName(), inputRow.getValue(input));
         }
-        final Object[] args = new Object[] { map };
-        final Object result;
-        result = _groovyObject.invokeMethod("transform", args);
+        final Object result = invokeTransform(getGroovyObject(), map);
 
         logger.debug("Transformation result: {}", result);
         final String stringResult = ConvertToStringTransformer.transformValue(result);
         return new String[] { stringResult };
     }
 
+    @Override
+    public Object[][] transformBatch(final ColumnarInput input) {
+        final Object[][] columnValues = new Object[inputs.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            columnValues[i] = input.getValues(inputs[i]);
+        }
+
+        // a new argument map is passed for every row, since scripts may keep a
+        // reference to it
+        final GroovyObject groovyObject = getGroovyObject();
+        final int rowCount = input.getRowCount();
+        final Object[][] result = new Object[rowCount][];
+        for (int row = 0; row < rowCount; row++) {
+            final Map<String, Object> map = new LinkedHashMap<>(inputs.length * 2);
+            for (int i = 0; i < inputs.length; i++) {
+                map.put(inputs[i].getName(), columnValues[i][row]);
+            }
+            final Object transformed = invokeTransform(groovyObject, map);
+
+            logger.debug("Transformation result: {}", transformed);
+            result[row] = new String[] { ConvertToStringTransformer.transformValue(transformed) };
+        }
+        return result;
+    }
+
+    private Object invokeTransform(final GroovyObject groovyObject, final Map<String, Object> map) {
+        if (_transformMethod == null) {
+            return groovyObject.invokeMethod("transform", new Object[] { map });
+        }
+        try {
+            return _transformMethod.invoke(groovyObject, map);
+        } catch (final InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
 }
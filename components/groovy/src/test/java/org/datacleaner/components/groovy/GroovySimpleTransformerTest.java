@@ -19,10 +19,19 @@
  */
 package org.datacleaner.components.groovy;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import junit.framework.TestCase;
 
 import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
 import org.datacleaner.components.groovy.GroovySimpleTransformer;
+import org.datacleaner.data.ColumnarInputBatch;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
 
@@ -46,4 +55,83 @@ public class GroovySimpleTransformerTest extends TestCase {
 
         transformer.close();
     }
+
+    public void testTransformBatch() throws Exception {
+        final GroovySimpleTransformer transformer = new GroovySimpleTransformer();
+
+        final InputColumn<String> col1 = new MockInputColumn<String>("foo");
+        final InputColumn<String> col2 = new MockInputColumn<String>("bar");
+
+        transformer.inputs = new InputColumn[] { col1, col2 };
+        transformer.code = "class Transformer {\n" + "String transform(map){return map.foo + map.bar}\n" + "}";
+
+        transformer.init();
+
+        final List<InputRow> rows = Arrays.<InputRow> asList(new MockInputRow().put(col1, "a").put(col2, "b"),
+                new MockInputRow().put(col1, "c").put(col2, null));
+        final Object[][] result = transformer.transformBatch(new ColumnarInputBatch(rows));
+        assertEquals(2, result.length);
+        assertEquals("ab", result[0][0]);
+        assertEquals("cnull", result[1][0]);
+
+        transformer.close();
+    }
+
+    public void testScriptInstancesAreThreadConfined() throws Exception {
+        final GroovySimpleTransformer transformer = new GroovySimpleTransformer();
+
+        final InputColumn<String> col1 = new MockInputColumn<String>("foo");
+
+        transformer.inputs = new InputColumn[] { col1 };
+        transformer.code = "class Transformer {\n" + "int count = 0\n"
+                + "String transform(Map map){ count++; return map.foo + count }\n" + "}";
+
+        transformer.init();
+
+        final int threadCount = 4;
+        final int rowsPerThread = 1000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(() -> {
+                    String last = null;
+                    for (int row = 0; row < rowsPerThread; row++) {
+                        last = transformer.transform(new MockInputRow().put(col1, "x"))[0];
+                    }
+                    return last;
+                }));
+            }
+            for (final Future<String> future : futures) {
+                assertEquals("x" + rowsPerThread, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        transformer.close();
+    }
+
+    public void testArgumentMapIsNotReused() throws Exception {
+        final GroovySimpleTransformer transformer = new GroovySimpleTransformer();
+
+        final InputColumn<String> col1 = new MockInputColumn<String>("foo");
+
+        transformer.inputs = new InputColumn[] { col1 };
+        transformer.code = "class Transformer {\n" + "Map previous\n"
+                + "String transform(Map map){ def result = previous?.foo; previous = map; return result }\n" + "}";
+
+        transformer.init();
+
+        assertNull(transformer.transform(new MockInputRow().put(col1, "a"))[0]);
+        assertEquals("a", transformer.transform(new MockInputRow().put(col1, "b"))[0]);
+
+        final List<InputRow> rows = Arrays.<InputRow> asList(new MockInputRow().put(col1, "c"),
+                new MockInputRow().put(col1, "d"));
+        final Object[][] result = transformer.transformBatch(new ColumnarInputBatch(rows));
+        assertEquals("b", result[0][0]);
+        assertEquals("c", result[1][0]);
+
+        transformer.close();
+    }
 }
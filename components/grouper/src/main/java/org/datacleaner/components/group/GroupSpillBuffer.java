@@ -0,0 +1,298 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.components.group;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.metamodel.util.FileHelper;
+import org.datacleaner.util.sort.ExternalSorter;
+
+/**
+ * Disk-backed buffer of rows belonging to groups that did not fit in memory.
+ * Rows are written as runs sorted by group key (and row number within a
+ * group), so that all rows of a group can be read back consecutively when the
+ * groups are emitted.
+ *
+ * Group keys are ordered consistently with {@link Object#equals(Object)}, like
+ * the keys of the groups in memory: values of different types (eg. an
+ * {@link Integer} and a {@link Long} of the same value) are different keys.
+ */
+final class GroupSpillBuffer extends ExternalSorter<GroupSpillBuffer.SpilledRow> {
+
+    /**
+     * A row that has been spilled to disk, holding only what is needed to
+     * aggregate it later.
+     */
+    static final class SpilledRow implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object[] _keyValues;
+        private final long _rowNumber;
+        private final long _sequence;
+        private final Object[] _values;
+
+        SpilledRow(final Object[] keyValues, final long rowNumber, final long sequence, final Object[] values) {
+            _keyValues = keyValues;
+            _rowNumber = rowNumber;
+            _sequence = sequence;
+            _values = values;
+        }
+
+        public Object[] getKeyValues() {
+            return _keyValues;
+        }
+
+        public long getRowNumber() {
+            return _rowNumber;
+        }
+
+        public Object[] getValues() {
+            return _values;
+        }
+    }
+
+    /**
+     * Receiver of the spilled rows, in group key order.
+     */
+    interface SpilledRowHandler extends Closeable {
+
+        void handle(SpilledRow row) throws IOException;
+    }
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_LONG = 2;
+    private static final byte VALUE_INTEGER = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_BOOLEAN = 5;
+    private static final byte VALUE_DATE = 6;
+    private static final byte VALUE_SERIALIZED = 7;
+
+    private static final Comparator<SpilledRow> COMPARATOR = (row1, row2) -> {
+        final int diff = compareKeys(row1.getKeyValues(), row2.getKeyValues());
+        if (diff != 0) {
+            return diff;
+        }
+        final int rowNumberDiff = Long.compare(row1._rowNumber, row2._rowNumber);
+        if (rowNumberDiff != 0) {
+            return rowNumberDiff;
+        }
+        // rows are never considered equal, since they would be collapsed
+        return Long.compare(row1._sequence, row2._sequence);
+    };
+
+    private final AtomicLong _sequence = new AtomicLong();
+    private final int _keyCount;
+    private final int _valueCount;
+
+    GroupSpillBuffer(final int keyCount, final int valueCount) {
+        super(50000, COMPARATOR);
+        _keyCount = keyCount;
+        _valueCount = valueCount;
+    }
+
+    /**
+     * Compares group keys. Values of the same type are compared by their
+     * natural order (if comparable), values of different types by their type,
+     * so that only keys which are equal are considered the same group.
+     *
+     * @param keyValues1
+     * @param keyValues2
+     * @return
+     */
+    static int compareKeys(final Object[] keyValues1, final Object[] keyValues2) {
+        for (int i = 0; i < keyValues1.length; i++) {
+            final int diff = compareKeyValues(keyValues1[i], keyValues2[i]);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareKeyValues(final Object value1, final Object value2) {
+        if (value1 == value2) {
+            return 0;
+        }
+        if (value1 == null) {
+            return -1;
+        }
+        if (value2 == null) {
+            return 1;
+        }
+        final Class<?> type1 = value1.getClass();
+        final Class<?> type2 = value2.getClass();
+        if (type1 != type2) {
+            final int typeDiff = type1.getName().compareTo(type2.getName());
+            if (typeDiff != 0) {
+                return typeDiff;
+            }
+            // same name, different class loaders
+            return Integer.compare(System.identityHashCode(type1), System.identityHashCode(type2));
+        }
+        if (value1.equals(value2)) {
+            return 0;
+        }
+        if (value1 instanceof Comparable) {
+            final int diff = ((Comparable) value1).compareTo(value2);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        // not comparable, or compareTo(...) is inconsistent with equals (eg.
+        // BigDecimal scale)
+        final int hashDiff = Integer.compare(value1.hashCode(), value2.hashCode());
+        if (hashDiff != 0) {
+            return hashDiff;
+        }
+        return value1.toString().compareTo(value2.toString());
+    }
+
+    public void append(final Object[] keyValues, final long rowNumber, final Object[] values) {
+        append(new SpilledRow(keyValues, rowNumber, _sequence.incrementAndGet(), values));
+    }
+
+    /**
+     * Hands all spilled rows, ordered by group key, to a handler and closes it
+     * afterwards.
+     *
+     * @param handler
+     */
+    public void read(final SpilledRowHandler handler) {
+        try {
+            sort((row, count) -> {
+                for (int i = 0; i < count; i++) {
+                    handler.handle(row);
+                }
+            });
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            FileHelper.safeClose(handler);
+        }
+    }
+
+    /**
+     * Writes a spilled row as its row number and sequence, followed by the
+     * key values and the aggregated values, each prefixed with their type.
+     * Values of other types than the ones written natively are serialized into
+     * the object stream of the run file, so objects shared by several rows of a
+     * run are only written once.
+     */
+    @Override
+    protected void writeTempRow(final ObjectOutput out, final SpilledRow row) throws IOException {
+        out.writeLong(row._rowNumber);
+        out.writeLong(row._sequence);
+        for (final Object keyValue : row._keyValues) {
+            writeValue(out, keyValue);
+        }
+        for (final Object value : row._values) {
+            writeValue(out, value);
+        }
+    }
+
+    @Override
+    protected SpilledRow readTempRow(final ObjectInput in) throws IOException {
+        final long rowNumber = in.readLong();
+        final long sequence = in.readLong();
+        final Object[] keyValues = new Object[_keyCount];
+        for (int i = 0; i < keyValues.length; i++) {
+            keyValues[i] = readValue(in);
+        }
+        final Object[] values = new Object[_valueCount];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue(in);
+        }
+        return new SpilledRow(keyValues, rowNumber, sequence, values);
+    }
+
+    private void writeValue(final ObjectOutput out, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(VALUE_STRING);
+            final byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value.getClass() == Long.class) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong((Long) value);
+        } else if (value.getClass() == Integer.class) {
+            out.writeByte(VALUE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value.getClass() == Double.class) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value.getClass() == Boolean.class) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(VALUE_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            out.writeByte(VALUE_SERIALIZED);
+            out.writeObject(value);
+        }
+    }
+
+    private Object readValue(final ObjectInput in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+        case VALUE_NULL:
+            return null;
+        case VALUE_STRING:
+            return new String(readBytes(in), StandardCharsets.UTF_8);
+        case VALUE_LONG:
+            return in.readLong();
+        case VALUE_INTEGER:
+            return in.readInt();
+        case VALUE_DOUBLE:
+            return in.readDouble();
+        case VALUE_BOOLEAN:
+            return in.readBoolean();
+        case VALUE_DATE:
+            return new Date(in.readLong());
+        case VALUE_SERIALIZED:
+            try {
+                return in.readObject();
+            } catch (final ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        default:
+            throw new IllegalStateException("Unexpected value type in spilled row: " + type);
+        }
+    }
+
+    private byte[] readBytes(final ObjectInput in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -20,11 +20,12 @@
 package org.datacleaner.components.group;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Named;
 
@@ -48,6 +49,8 @@ import org.datacleaner.api.OutputRowCollector;
 import org.datacleaner.components.categories.CompositionCategory;
 import org.datacleaner.job.output.OutputDataStreamBuilder;
 import org.datacleaner.job.output.OutputDataStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @Named("GrouperTransformer.Name")
 @Description("GrouperTransformer.Description")
@@ -119,19 +122,93 @@ public class GrouperTransformer extends MultiStreamComponent {
     }
 
     public static final String PROPERTY_GROUP_KEY = "Group key";
+    public static final String PROPERTY_ADDITIONAL_GROUP_KEYS = "Additional group keys";
     public static final String PROPERTY_AGGREGATED_VALUES = "Aggregated values";
     public static final String PROPERTY_AGGREGATION_TYPES = "AggregationTypes";
     public static final String PROPERTY_VALUE_SORTATION = "Value sortation";
+    public static final int DEFAULT_MAX_GROUPS_IN_MEMORY = 1000000;
+
+    /**
+     * Number of independently locked stripes that the groups are distributed
+     * over. Must be a power of two.
+     */
+    private static final int STRIPES = 16;
     private static final Object NULL_KEY = new Object();
-    private final ConcurrentMap<Object, List<AggregateBuilder<?>>> _aggregateBuilders = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(GrouperTransformer.class);
+
+    /**
+     * The aggregation state of a subset of the groups, guarded by the stripe's
+     * own monitor so that rows of different stripes aggregate in parallel.
+     */
+    private static final class Stripe {
+
+        private final Map<Object, List<AggregateBuilder<?>>> _aggregateBuilders = new LinkedHashMap<>();
+    }
+
+    /**
+     * Group key made up of several column values
+     */
+    private static final class CompositeKey {
+
+        private final Object[] _keyValues;
+        private final int _hashCode;
+
+        CompositeKey(final Object[] keyValues) {
+            _keyValues = keyValues;
+            _hashCode = Arrays.hashCode(keyValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return _hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof CompositeKey && Arrays.equals(_keyValues, ((CompositeKey) obj)._keyValues);
+        }
+    }
+
+    /**
+     * Aggregates the spilled rows, which arrive ordered by group key, one group
+     * at a time.
+     */
+    private final class SpilledGroupAggregator implements GroupSpillBuffer.SpilledRowHandler {
+
+        private Object[] _keyValues;
+        private List<AggregateBuilder<?>> _aggregateBuilders;
+
+        @Override
+        public void handle(final GroupSpillBuffer.SpilledRow row) {
+            if (_keyValues == null || GroupSpillBuffer.compareKeys(_keyValues, row.getKeyValues()) != 0) {
+                close();
+                _keyValues = row.getKeyValues();
+                _aggregateBuilders = createAggregateBuilders();
+            }
+            aggregate(_aggregateBuilders, row.getRowNumber(), row.getValues());
+        }
+
+        @Override
+        public void close() {
+            if (_keyValues != null) {
+                emitGroup(_keyValues, _aggregateBuilders);
+                _keyValues = null;
+                _aggregateBuilders = null;
+            }
+        }
+    }
+
     @Configured(order = 1, value = PROPERTY_GROUP_KEY)
     InputColumn<?> groupKey;
-    @Configured(order = 2, value = PROPERTY_AGGREGATED_VALUES)
+    @Configured(order = 2, value = PROPERTY_ADDITIONAL_GROUP_KEYS, required = false)
+    @Description("Additional columns that together with the group key make up a composite key")
+    InputColumn<?>[] additionalGroupKeys;
+    @Configured(order = 3, value = PROPERTY_AGGREGATED_VALUES)
     InputColumn<?>[] aggregatedValues;
-    @Configured(order = 3, value = PROPERTY_AGGREGATION_TYPES)
+    @Configured(order = 4, value = PROPERTY_AGGREGATION_TYPES)
     @MappedProperty(PROPERTY_AGGREGATED_VALUES)
     AggregationType[] aggregationTypes;
-    @Configured(order = 4, value = PROPERTY_VALUE_SORTATION)
+    @Configured(order = 5, value = PROPERTY_VALUE_SORTATION)
     SortationType valueSortation = SortationType.NONE;
     @Configured
     String concatenationSeparator = ", ";
@@ -139,17 +216,31 @@ public class GrouperTransformer extends MultiStreamComponent {
     boolean skipNullGroupKeys = true;
     @Configured
     boolean skipNullValues = true;
+    @Configured(required = false)
+    @Description("The max number of groups to aggregate in memory. "
+            + "Rows of further groups are spilled to disk and aggregated when the output is produced.")
+    int maxGroupsInMemory = DEFAULT_MAX_GROUPS_IN_MEMORY;
     private OutputRowCollector _rowCollector;
+    private Stripe[] _stripes;
+    private AtomicInteger _groupCount;
+    private volatile GroupSpillBuffer _spillBuffer;
 
     @Initialize
     public void init() {
-        _aggregateBuilders.clear();
+        _stripes = new Stripe[STRIPES];
+        for (int i = 0; i < _stripes.length; i++) {
+            _stripes[i] = new Stripe();
+        }
+        _groupCount = new AtomicInteger();
+        _spillBuffer = null;
     }
 
     @Override
     public OutputDataStream[] getOutputDataStreams() {
         final OutputDataStreamBuilder outputDataStreamBuilder = OutputDataStreams.pushDataStream("output");
-        outputDataStreamBuilder.withColumnLike(groupKey);
+        for (final InputColumn<?> groupKeyColumn : getGroupKeys()) {
+            outputDataStreamBuilder.withColumnLike(groupKeyColumn);
+        }
         outputDataStreamBuilder.withColumn("row_count", ColumnType.INTEGER);
         for (int i = 0; i < aggregatedValues.length; i++) {
             final InputColumn<?> inputColumn = aggregatedValues[i];
@@ -165,6 +256,16 @@ public class GrouperTransformer extends MultiStreamComponent {
         return new OutputDataStream[] { stream };
     }
 
+    private InputColumn<?>[] getGroupKeys() {
+        if (additionalGroupKeys == null || additionalGroupKeys.length == 0) {
+            return new InputColumn<?>[] { groupKey };
+        }
+        final InputColumn<?>[] groupKeys = new InputColumn<?>[1 + additionalGroupKeys.length];
+        groupKeys[0] = groupKey;
+        System.arraycopy(additionalGroupKeys, 0, groupKeys, 1, additionalGroupKeys.length);
+        return groupKeys;
+    }
+
     @Override
     public void initializeOutputDataStream(final OutputDataStream stream, final Query q,
             final OutputRowCollector collector) {
@@ -178,77 +279,158 @@ public class GrouperTransformer extends MultiStreamComponent {
             return;
         }
 
-        Object key = row.getValue(groupKey);
-        if (key == null) {
-            if (skipNullGroupKeys) {
-                // skip it
+        final Object[] keyValues = getKeyValues(row);
+        if (keyValues == null) {
+            // skip it
+            return;
+        }
+
+        final Object key;
+        if (keyValues.length == 1) {
+            key = keyValues[0] == null ? NULL_KEY : keyValues[0];
+        } else {
+            key = new CompositeKey(keyValues);
+        }
+
+        final long rowId = row.getId();
+        final Object[] values = new Object[aggregatedValues.length];
+        for (int i = 0; i < aggregatedValues.length; i++) {
+            values[i] = row.getValue(aggregatedValues[i]);
+        }
+
+        final Stripe stripe = _stripes[getStripeIndex(key)];
+        synchronized (stripe) {
+            List<AggregateBuilder<?>> aggregateBuilders = stripe._aggregateBuilders.get(key);
+            if (aggregateBuilders == null && reserveGroupInMemory()) {
+                aggregateBuilders = createAggregateBuilders();
+                stripe._aggregateBuilders.put(key, aggregateBuilders);
+            }
+            if (aggregateBuilders != null) {
+                aggregate(aggregateBuilders, rowId, values);
                 return;
-            } else {
-                key = NULL_KEY;
             }
         }
 
-        synchronized (_aggregateBuilders) {
-            final List<AggregateBuilder<?>> aggregateBuilders = getAggregateBuilders(key);
-            final long rowId = row.getId();
+        // the max number of groups is reached and the group is not in memory
+        getSpillBuffer().append(keyValues, rowId, values);
+    }
 
-            // send rowId to COUNT function
-            aggregateBuilders.get(0).add(rowId);
+    private Object[] getKeyValues(final InputRow row) {
+        final Object[] keyValues = new Object[1 + (additionalGroupKeys == null ? 0 : additionalGroupKeys.length)];
+        keyValues[0] = row.getValue(groupKey);
+        for (int i = 1; i < keyValues.length; i++) {
+            keyValues[i] = row.getValue(additionalGroupKeys[i - 1]);
+        }
 
-            for (int i = 0; i < aggregatedValues.length; i++) {
-                final Object value = row.getValue(aggregatedValues[i]);
-                final AggregateBuilder<?> aggregateBuilder = aggregateBuilders.get(i + 1);
-                if (aggregateBuilder instanceof AbstractRowNumberAwareAggregateBuilder) {
-                    ((AbstractRowNumberAwareAggregateBuilder<?>) aggregateBuilder).add(value, rowId);
-                } else {
-                    aggregateBuilder.add(value);
+        if (skipNullGroupKeys) {
+            for (final Object keyValue : keyValues) {
+                if (keyValue == null) {
+                    return null;
                 }
             }
         }
+        return keyValues;
     }
 
-    private List<AggregateBuilder<?>> getAggregateBuilders(final Object key) {
-        List<AggregateBuilder<?>> collectionOfAggregateBuilders = _aggregateBuilders.get(key);
-        if (collectionOfAggregateBuilders == null) {
-            final List<AggregateBuilder<?>> newCollectionOfValues = new ArrayList<>(aggregationTypes.length);
+    /**
+     * Reserves room for a new group in memory. The limit applies to the groups
+     * of all stripes together, so it is exact regardless of the number of
+     * stripes or how evenly the keys hash over them.
+     *
+     * @return true if the group can be kept in memory
+     */
+    private boolean reserveGroupInMemory() {
+        while (true) {
+            final int groupCount = _groupCount.get();
+            if (groupCount >= maxGroupsInMemory) {
+                return false;
+            }
+            if (_groupCount.compareAndSet(groupCount, groupCount + 1)) {
+                return true;
+            }
+        }
+    }
 
-            // add COUNT aggregation as first
-            newCollectionOfValues.add(FunctionType.COUNT.createAggregateBuilder());
+    private static int getStripeIndex(final Object key) {
+        final int hashCode = key.hashCode();
+        return (hashCode ^ (hashCode >>> 16)) & (STRIPES - 1);
+    }
 
-            for (final AggregationType aggregationType : aggregationTypes) {
-                final AggregateBuilder<?> aggregateBuilder =
-                        aggregationType.createAggregateBuilder(valueSortation, skipNullValues, concatenationSeparator);
-                newCollectionOfValues.add(aggregateBuilder);
+    private GroupSpillBuffer getSpillBuffer() {
+        GroupSpillBuffer spillBuffer = _spillBuffer;
+        if (spillBuffer == null) {
+            synchronized (this) {
+                spillBuffer = _spillBuffer;
+                if (spillBuffer == null) {
+                    logger.info("More than {} groups, spilling rows of further groups to disk", maxGroupsInMemory);
+                    spillBuffer = new GroupSpillBuffer(getGroupKeys().length, aggregatedValues.length);
+                    _spillBuffer = spillBuffer;
+                }
             }
+        }
+        return spillBuffer;
+    }
+
+    private List<AggregateBuilder<?>> createAggregateBuilders() {
+        final List<AggregateBuilder<?>> aggregateBuilders = new ArrayList<>(aggregationTypes.length + 1);
+
+        // add COUNT aggregation as first
+        aggregateBuilders.add(FunctionType.COUNT.createAggregateBuilder());
+
+        for (final AggregationType aggregationType : aggregationTypes) {
+            final AggregateBuilder<?> aggregateBuilder =
+                    aggregationType.createAggregateBuilder(valueSortation, skipNullValues, concatenationSeparator);
+            aggregateBuilders.add(aggregateBuilder);
+        }
+        return aggregateBuilders;
+    }
+
+    private void aggregate(final List<AggregateBuilder<?>> aggregateBuilders, final long rowId,
+            final Object[] values) {
+        // send rowId to COUNT function
+        aggregateBuilders.get(0).add(rowId);
 
-            final List<AggregateBuilder<?>> previousCollectionOfValues =
-                    _aggregateBuilders.putIfAbsent(key, newCollectionOfValues);
-            if (previousCollectionOfValues == null) {
-                collectionOfAggregateBuilders = newCollectionOfValues;
+        for (int i = 0; i < values.length; i++) {
+            final AggregateBuilder<?> aggregateBuilder = aggregateBuilders.get(i + 1);
+            if (aggregateBuilder instanceof AbstractRowNumberAwareAggregateBuilder) {
+                ((AbstractRowNumberAwareAggregateBuilder<?>) aggregateBuilder).add(values[i], rowId);
             } else {
-                collectionOfAggregateBuilders = previousCollectionOfValues;
+                aggregateBuilder.add(values[i]);
             }
         }
-        return collectionOfAggregateBuilders;
+    }
+
+    private void emitGroup(final Object[] keyValues, final List<AggregateBuilder<?>> aggregateBuilders) {
+        final Object[] values = new Object[keyValues.length + aggregateBuilders.size()];
+        System.arraycopy(keyValues, 0, values, 0, keyValues.length);
+        for (int i = 0; i < aggregateBuilders.size(); i++) {
+            values[keyValues.length + i] = aggregateBuilders.get(i).getAggregate();
+        }
+        _rowCollector.putValues(values);
     }
 
     @Close
     public void close() {
-        final Set<Entry<Object, List<AggregateBuilder<?>>>> entrySet = _aggregateBuilders.entrySet();
-        for (final Entry<Object, List<AggregateBuilder<?>>> entry : entrySet) {
-            final Object key = entry.getKey();
-            final List<AggregateBuilder<?>> aggregateBuilders = entry.getValue();
-
-            final Object[] values = new Object[2 + aggregatedValues.length];
-            values[0] = key == NULL_KEY ? null : key;
-            values[1] = aggregateBuilders.get(0).getAggregate();
-
-            for (int i = 1; i < aggregateBuilders.size(); i++) {
-                final AggregateBuilder<?> aggregateBuilder = aggregateBuilders.get(i);
-                values[i + 1] = aggregateBuilder.getAggregate();
+        for (final Stripe stripe : _stripes) {
+            for (final Entry<Object, List<AggregateBuilder<?>>> entry : stripe._aggregateBuilders.entrySet()) {
+                final Object key = entry.getKey();
+                final Object[] keyValues;
+                if (key == NULL_KEY) {
+                    keyValues = new Object[] { null };
+                } else if (key instanceof CompositeKey) {
+                    keyValues = ((CompositeKey) key)._keyValues;
+                } else {
+                    keyValues = new Object[] { key };
+                }
+                emitGroup(keyValues, entry.getValue());
             }
+            stripe._aggregateBuilders.clear();
+        }
 
-            _rowCollector.putValues(values);
+        final GroupSpillBuffer spillBuffer = _spillBuffer;
+        if (spillBuffer != null) {
+            _spillBuffer = null;
+            spillBuffer.read(new SpilledGroupAggregator());
         }
     }
 }
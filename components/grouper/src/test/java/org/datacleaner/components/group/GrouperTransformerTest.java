@@ -20,9 +20,18 @@
 package org.datacleaner.components.group;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.data.MockInputColumn;
@@ -125,4 +134,185 @@ public class GrouperTransformerTest {
         assertEquals("[A, 4, world;there;hi;hello, D;C;B;A]", Arrays.toString(output.get(0)));
         assertEquals("[B, 1, hola, E]", Arrays.toString(output.get(1)));
     }
+
+    @Test
+    public void testCompositeGroupKey() throws Exception {
+        final GrouperTransformer grouper = new GrouperTransformer();
+        grouper.groupKey = groupKey;
+        grouper.additionalGroupKeys = new InputColumn[] { value2 };
+        grouper.aggregatedValues = new InputColumn[] { value1 };
+        grouper.aggregationTypes =
+                new GrouperTransformer.AggregationType[] { GrouperTransformer.AggregationType.CONCAT_VALUES };
+        grouper.valueSortation = SortationType.RECORD_ORDER;
+        grouper.concatenationSeparator = ";";
+
+        grouper.init();
+
+        final MockOutputRowCollector collector = new MockOutputRowCollector();
+        grouper.initializeOutputDataStream(null, null, collector);
+
+        grouper.transform(new MockInputRow(1).put(groupKey, "A").put(value1, "hello").put(value2, "X"));
+        grouper.transform(new MockInputRow(2).put(groupKey, "A").put(value1, "world").put(value2, "Y"));
+        grouper.transform(new MockInputRow(3).put(groupKey, "A").put(value1, "there").put(value2, "X"));
+        grouper.transform(new MockInputRow(4).put(groupKey, "B").put(value1, "hola").put(value2, null));
+
+        grouper.close();
+
+        final List<String> output = new ArrayList<>();
+        for (final Object[] row : collector.getOutput()) {
+            output.add(Arrays.toString(row));
+        }
+        Collections.sort(output);
+        assertEquals("[[A, X, 2, hello;there], [A, Y, 1, world]]", output.toString());
+    }
+
+    @Test
+    public void testSpillGroupsToDisk() throws Exception {
+        final GrouperTransformer grouper = new GrouperTransformer();
+        grouper.groupKey = groupKey;
+        grouper.aggregatedValues = new InputColumn[] { value1 };
+        grouper.aggregationTypes =
+                new GrouperTransformer.AggregationType[] { GrouperTransformer.AggregationType.CONCAT_VALUES };
+        grouper.valueSortation = SortationType.RECORD_ORDER;
+        grouper.concatenationSeparator = ";";
+        grouper.maxGroupsInMemory = 16;
+
+        grouper.init();
+
+        final MockOutputRowCollector collector = new MockOutputRowCollector();
+        grouper.initializeOutputDataStream(null, null, collector);
+
+        final int groups = 500;
+        for (int i = 0; i < 2000; i++) {
+            final String key = "key" + (i % groups);
+            grouper.transform(new MockInputRow(2000 - i).put(groupKey, key).put(value1, "v" + i));
+        }
+
+        grouper.close();
+
+        final List<Object[]> output = collector.getOutput();
+        assertEquals(groups, output.size());
+
+        final Set<Object> keys = new HashSet<>();
+        for (final Object[] row : output) {
+            keys.add(row[0]);
+            assertEquals(4, ((Number) row[1]).intValue());
+            if ("key7".equals(row[0])) {
+                // record order is by row number, ie. reversed order of insertion
+                assertEquals("v1507;v1007;v507;v7", row[2]);
+            }
+        }
+        assertEquals(groups, keys.size());
+    }
+
+    @Test
+    public void testSpilledGroupsDistinguishKeyTypes() throws Exception {
+        final MockInputColumn<Object> objectKey = new MockInputColumn<>("key", Object.class);
+
+        final GrouperTransformer grouper = new GrouperTransformer();
+        grouper.groupKey = objectKey;
+        grouper.aggregatedValues = new InputColumn[] { value1 };
+        grouper.aggregationTypes =
+                new GrouperTransformer.AggregationType[] { GrouperTransformer.AggregationType.CONCAT_VALUES };
+        grouper.valueSortation = SortationType.RECORD_ORDER;
+        grouper.concatenationSeparator = ";";
+        grouper.maxGroupsInMemory = 1;
+
+        grouper.init();
+
+        final MockOutputRowCollector collector = new MockOutputRowCollector();
+        grouper.initializeOutputDataStream(null, null, collector);
+
+        // the first group is kept in memory, the others are spilled
+        final Object[] keys = { "a", 1, 1L, "1", 1, 1L, new BigDecimal("1.0"), new BigDecimal("1.00") };
+        for (int i = 0; i < keys.length; i++) {
+            grouper.transform(new MockInputRow(i + 1).put(objectKey, keys[i]).put(value1, "v" + i));
+        }
+
+        grouper.close();
+
+        final List<Object[]> output = collector.getOutput();
+        assertEquals(6, output.size());
+        assertEquals("a", output.get(0)[0]);
+
+        final Map<String, String> valuesByTypedKey = new HashMap<>();
+        for (final Object[] row : output) {
+            valuesByTypedKey.put(row[0].getClass().getSimpleName() + ":" + row[0], (String) row[2]);
+        }
+        assertEquals("{BigDecimal:1.0=v6, BigDecimal:1.00=v7, Integer:1=v1;v4, Long:1=v2;v5, String:1=v3, "
+                + "String:a=v0}", new TreeMap<>(valuesByTypedKey).toString());
+    }
+
+    @Test
+    public void testSpilledSerializedKeysAcrossRuns() throws Exception {
+        final MockInputColumn<Object> objectKey = new MockInputColumn<>("key", Object.class);
+
+        final GrouperTransformer grouper = new GrouperTransformer();
+        grouper.groupKey = objectKey;
+        grouper.aggregatedValues = new InputColumn[] { value1 };
+        grouper.aggregationTypes =
+                new GrouperTransformer.AggregationType[] { GrouperTransformer.AggregationType.CONCAT_VALUES };
+        grouper.valueSortation = SortationType.RECORD_ORDER;
+        grouper.concatenationSeparator = ";";
+        grouper.maxGroupsInMemory = 1;
+
+        grouper.init();
+
+        final MockOutputRowCollector collector = new MockOutputRowCollector();
+        grouper.initializeOutputDataStream(null, null, collector);
+
+        // enough rows for several run files, each with several resets of its
+        // object stream
+        final int groups = 3000;
+        final int rows = 60000;
+        for (int i = 0; i < rows; i++) {
+            grouper.transform(
+                    new MockInputRow(i + 1).put(objectKey, new BigDecimal(i % groups).movePointLeft(2)).put(value1,
+                            "v" + i));
+        }
+
+        grouper.close();
+
+        final List<Object[]> output = collector.getOutput();
+        assertEquals(groups, output.size());
+        for (final Object[] row : output) {
+            assertEquals(BigDecimal.class, row[0].getClass());
+            assertEquals(rows / groups, ((Number) row[1]).intValue());
+            final int group = ((BigDecimal) row[0]).movePointRight(2).intValueExact();
+            assertTrue(row[0] + ": " + row[2], ((String) row[2]).startsWith("v" + group + ";v" + (group + groups)));
+        }
+    }
+
+    @Test
+    public void testMaxGroupsInMemoryBelowStripeCount() throws Exception {
+        final GrouperTransformer grouper = new GrouperTransformer();
+        grouper.groupKey = groupKey;
+        grouper.aggregatedValues = new InputColumn[] { value1 };
+        grouper.aggregationTypes =
+                new GrouperTransformer.AggregationType[] { GrouperTransformer.AggregationType.CONCAT_VALUES };
+        grouper.maxGroupsInMemory = 2;
+
+        grouper.init();
+
+        final MockOutputRowCollector collector = new MockOutputRowCollector();
+        grouper.initializeOutputDataStream(null, null, collector);
+
+        for (int i = 0; i < 20; i++) {
+            grouper.transform(new MockInputRow(i + 1).put(groupKey, "key" + (char) ('a' + i)).put(value1, "v" + i));
+        }
+
+        grouper.close();
+
+        // the in-memory groups are emitted first, then the spilled groups in
+        // key order
+        final List<Object[]> output = collector.getOutput();
+        assertEquals(20, output.size());
+        final Set<Object> inMemoryKeys = new HashSet<>();
+        inMemoryKeys.add(output.get(0)[0]);
+        inMemoryKeys.add(output.get(1)[0]);
+        assertEquals(new HashSet<>(Arrays.asList("keya", "keyb")), inMemoryKeys);
+        for (int i = 2; i < 20; i++) {
+            assertEquals("key" + (char) ('a' + i), output.get(i)[0]);
+        }
+    }
 }
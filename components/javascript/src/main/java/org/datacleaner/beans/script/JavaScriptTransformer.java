@@ -19,10 +19,16 @@
  */
 package org.datacleaner.beans.script;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.inject.Named;
 
 import org.datacleaner.api.Alias;
 import org.datacleaner.api.Categorized;
+import org.datacleaner.api.Close;
+import org.datacleaner.api.ColumnarInput;
+import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.Initialize;
@@ -30,10 +36,12 @@ import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputColumns;
 import org.datacleaner.api.StringProperty;
-import org.datacleaner.api.Transformer;
+import org.datacleaner.api.VectorizedTransformer;
 import org.datacleaner.components.categories.ScriptingCategory;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.NativeObject;
 import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
@@ -46,7 +54,8 @@ import org.mozilla.javascript.ScriptableObject;
 @Alias("JavaScript transformer")
 @Description("JavaScriptTransformer.Description")
 @Categorized(ScriptingCategory.class)
-public class JavaScriptTransformer implements Transformer {
+@Concurrent(true)
+public class JavaScriptTransformer implements VectorizedTransformer {
 
     public enum ReturnType {
         STRING, NUMBER, BOOLEAN
@@ -66,11 +75,39 @@ public class JavaScriptTransformer implements Transformer {
     @StringProperty(multiline = true, mimeType = { "text/javascript", "application/x-javascript" })
     String sourceCode = "function eval() {\n\treturn \"hello \" + values[0];\n}\n\neval();";
 
+    /**
+     * The Rhino context, standard objects and value holders used by a single
+     * thread. Confining these to a thread means that no scope is ever shared
+     * between concurrently executing rows.
+     */
+    private static final class ThreadState {
+
+        private final Context _context;
+        private final ScriptableObject _scope;
+        private final NativeArray _values;
+        private final Object[] _rowValues;
+
+        private ThreadState(final Context context, final ScriptableObject scope, final int columnCount) {
+            _context = context;
+            _scope = scope;
+            _values = new NativeArray(columnCount * 2);
+            _rowValues = new Object[columnCount];
+        }
+    }
+
+    private static final int OPTIMIZATION_LEVEL = 9;
+
     private ContextFactory _contextFactory;
+
+    // the compiled script holds no state and is shared between all threads
     private Script _script;
 
-    // this scope is shared between all threads
-    private ScriptableObject _sharedScope;
+    /**
+     * The state of each thread. Unlike a {@link ThreadLocal}, the states (and
+     * thereby the classes generated for the script) are released when the
+     * transformer is closed.
+     */
+    private Map<Thread, ThreadState> _threadStates;
 
     @Override
     public OutputColumns getOutputColumns() {
@@ -91,11 +128,37 @@ public class JavaScriptTransformer implements Transformer {
         final Context context = _contextFactory.enterContext();
 
         try {
+            context.setOptimizationLevel(OPTIMIZATION_LEVEL);
             _script = context.compileString(sourceCode, this.getClass().getSimpleName(), 1, null);
-            _sharedScope = context.initStandardObjects();
+        } finally {
+            Context.exit();
+        }
+
+        _threadStates = new ConcurrentHashMap<>();
+    }
+
+    @Close
+    public void close() {
+        _threadStates.clear();
+        _threadStates = null;
+        _script = null;
+        _contextFactory = null;
+    }
+
+    private ThreadState getThreadState() {
+        return _threadStates.computeIfAbsent(Thread.currentThread(), thread -> createThreadState());
+    }
+
+    private ThreadState createThreadState() {
+        final Context context = _contextFactory.enterContext();
+
+        try {
+            context.setOptimizationLevel(OPTIMIZATION_LEVEL);
+            final ScriptableObject scope = context.initStandardObjects();
 
-            JavaScriptUtils.addToScope(_sharedScope, new JavaScriptLogger(), "logger", "log");
-            JavaScriptUtils.addToScope(_sharedScope, System.out, "out");
+            JavaScriptUtils.addToScope(scope, new JavaScriptLogger(), "logger", "log");
+            JavaScriptUtils.addToScope(scope, System.out, "out");
+            return new ThreadState(context, scope, columns.length);
         } finally {
             Context.exit();
         }
@@ -103,35 +166,71 @@ public class JavaScriptTransformer implements Transformer {
 
     @Override
     public Object[] transform(final InputRow inputRow) {
-        final Context context = _contextFactory.enterContext();
+        final ThreadState threadState = getThreadState();
+        final Context context = _contextFactory.enterContext(threadState._context);
 
         try {
+            final Object[] rowValues = threadState._rowValues;
+            for (int i = 0; i < columns.length; i++) {
+                rowValues[i] = inputRow.getValue(columns[i]);
+            }
+            return new Object[] { convertResult(execute(context, threadState)) };
+        } finally {
+            Context.exit();
+        }
+    }
 
-            // this scope is local to the execution of a single row
-            final Scriptable scope = context.newObject(_sharedScope);
-            scope.setPrototype(_sharedScope);
-            scope.setParentScope(null);
-
-            JavaScriptUtils.addToScope(scope, inputRow, columns, "values");
+    @Override
+    public Object[][] transformBatch(final ColumnarInput input) {
+        final Object[][] columnValues = new Object[columns.length][];
+        for (int i = 0; i < columns.length; i++) {
+            columnValues[i] = input.getValues(columns[i]);
+        }
 
-            Object result = _script.exec(context, scope);
-            // String stringResult = Context.toString(result);
+        // enter the context just once for the whole batch
+        final ThreadState threadState = getThreadState();
+        final Context context = _contextFactory.enterContext(threadState._context);
 
-            if (result == null) {
-                result = null;
-            } else if (returnType == ReturnType.NUMBER) {
-                result = Context.toNumber(result);
-            } else if (returnType == ReturnType.BOOLEAN) {
-                result = Context.toBoolean(result);
-            } else {
-                result = Context.toString(result);
+        try {
+            final int rowCount = input.getRowCount();
+            final Object[][] result = new Object[rowCount][];
+            final Object[] rowValues = threadState._rowValues;
+            for (int row = 0; row < rowCount; row++) {
+                for (int i = 0; i < columns.length; i++) {
+                    rowValues[i] = columnValues[i][row];
+                }
+                result[row] = new Object[] { convertResult(execute(context, threadState)) };
             }
-            return new Object[] { result };
+            return result;
         } finally {
             Context.exit();
         }
     }
 
+    private Object execute(final Context context, final ThreadState threadState) {
+        // the row values are kept in the thread's scope, while variables
+        // declared by the script go into a scope local to the row
+        JavaScriptUtils.addValuesToScope(threadState._scope, threadState._values, threadState._rowValues, columns,
+                "values");
+
+        final Scriptable rowScope = new NativeObject();
+        rowScope.setPrototype(threadState._scope);
+        rowScope.setParentScope(null);
+        return _script.exec(context, rowScope);
+    }
+
+    private Object convertResult(final Object result) {
+        if (result == null) {
+            return null;
+        } else if (returnType == ReturnType.NUMBER) {
+            return Context.toNumber(result);
+        } else if (returnType == ReturnType.BOOLEAN) {
+            return Context.toBoolean(result);
+        } else {
+            return Context.toString(result);
+        }
+    }
+
     public void setSourceCode(final String sourceCode) {
         this.sourceCode = sourceCode;
     }
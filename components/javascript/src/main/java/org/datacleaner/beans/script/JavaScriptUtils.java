@@ -63,10 +63,44 @@ final class JavaScriptUtils {
      */
     public static void addToScope(final Scriptable scope, final InputRow inputRow, final InputColumn<?>[] columns,
             final String arrayName) {
-        final NativeArray values = new NativeArray(columns.length * 2);
+        final Object[] rowValues = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            rowValues[i] = inputRow.getValue(columns[i]);
+        }
+        addValuesToScope(scope, rowValues, columns, arrayName);
+    }
+
+    /**
+     * Adds the values of a row to the JavaScript scope
+     *
+     * @param scope
+     * @param rowValues
+     *            the values of the row, one for each of the columns
+     * @param columns
+     * @param arrayName
+     */
+    public static void addValuesToScope(final Scriptable scope, final Object[] rowValues,
+            final InputColumn<?>[] columns, final String arrayName) {
+        addValuesToScope(scope, new NativeArray(columns.length * 2), rowValues, columns, arrayName);
+    }
+
+    /**
+     * Adds the values of a row to the JavaScript scope, reusing an existing
+     * array to hold the values
+     *
+     * @param scope
+     * @param values
+     *            the array to (re)populate with the values of the row
+     * @param rowValues
+     *            the values of the row, one for each of the columns
+     * @param columns
+     * @param arrayName
+     */
+    public static void addValuesToScope(final Scriptable scope, final NativeArray values, final Object[] rowValues,
+            final InputColumn<?>[] columns, final String arrayName) {
         for (int i = 0; i < columns.length; i++) {
             final InputColumn<?> column = columns[i];
-            Object value = inputRow.getValue(column);
+            Object value = rowValues[i];
 
             if (value != null) {
                 final Class<?> dataType = column.getDataType();
@@ -21,8 +21,16 @@ package org.datacleaner.beans.script;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.data.ColumnarInputBatch;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
 
@@ -117,4 +125,80 @@ public class JavaScriptTransformerTest extends TestCase {
         //the Number cannot be parsed because it starts with letter 'O'
         assertEquals("NaN", t.transform(new MockInputRow().put(col, "O10"))[0]);
     }
+
+    public void testTransformBatch() throws Exception {
+        final InputColumn<String> col1 = new MockInputColumn<>("foo", String.class);
+        final InputColumn<Integer> col2 = new MockInputColumn<>("bar", Integer.class);
+
+        final JavaScriptTransformer t = new JavaScriptTransformer();
+        t.setSourceCode("function eval() {return values[0] + '-' + bar;}; eval();");
+        t.setColumns(new InputColumn[] { col1, col2 });
+        t.init();
+
+        final List<InputRow> rows = Arrays.<InputRow> asList(new MockInputRow().put(col1, "a").put(col2, 1),
+                new MockInputRow().put(col1, "b").put(col2, null), new MockInputRow().put(col1, null).put(col2, 3));
+        final Object[][] result = t.transformBatch(new ColumnarInputBatch(rows));
+
+        assertEquals(3, result.length);
+        assertEquals("a-1", result[0][0]);
+        assertEquals("b-null", result[1][0]);
+        assertEquals("null-3", result[2][0]);
+        for (int i = 0; i < result.length; i++) {
+            assertEquals(t.transform(rows.get(i))[0], result[i][0]);
+        }
+    }
+
+    public void testConcurrentTransformations() throws Exception {
+        final InputColumn<String> col1 = new MockInputColumn<>("foo", String.class);
+        final InputColumn<Integer> col2 = new MockInputColumn<>("bar", Integer.class);
+
+        final JavaScriptTransformer t = new JavaScriptTransformer();
+        t.setSourceCode("var counter = (typeof counter == 'undefined' ? 0 : counter) + 1;\n"
+                + "function eval() {return foo + '-' + values[1] + '-' + counter;}; eval();");
+        t.setColumns(new InputColumn[] { col1, col2 });
+        t.init();
+
+        final int threadCount = 4;
+        final int rowsPerThread = 2000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                final String threadValue = "thread" + i;
+                futures.add(executor.submit(() -> {
+                    int mismatches = 0;
+                    for (int row = 0; row < rowsPerThread; row++) {
+                        final Object result =
+                                t.transform(new MockInputRow().put(col1, threadValue).put(col2, row))[0];
+                        if (!(threadValue + "-" + row + "-1").equals(result)) {
+                            mismatches++;
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            for (final Future<Integer> future : futures) {
+                assertEquals(0, future.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        t.close();
+    }
+
+    public void testInitializeAfterClose() throws Exception {
+        final InputColumn<String> col1 = new MockInputColumn<>("foo", String.class);
+
+        final JavaScriptTransformer t = new JavaScriptTransformer();
+        t.setSourceCode("function eval() {return 'hello ' + foo;}; eval();");
+        t.setColumns(new InputColumn[] { col1 });
+        t.init();
+        assertEquals("hello a", t.transform(new MockInputRow().put(col1, "a"))[0]);
+        t.close();
+
+        t.init();
+        assertEquals("hello b", t.transform(new MockInputRow().put(col1, "b"))[0]);
+        t.close();
+    }
 }
@@ -85,6 +85,32 @@ public final class DefaultPatternFinder extends PatternFinder<InputRow> {
         _annotationFactory.annotate(row, distinctCount, annotation);
     }
 
+    /**
+     * Merges the patterns and annotated rows of another pattern finder into
+     * this one. Both pattern finders are expected to share configuration and
+     * row annotation factory, which is the case when they have been created
+     * for separate threads of the same analyzer.
+     *
+     * Patterns that are new to this pattern finder are adopted (and may be
+     * expanded by later matches), and the annotated rows of the other
+     * patterns are transferred. The other pattern finder should therefore be
+     * discarded after the merge.
+     *
+     * @param other
+     */
+    public void merge(final DefaultPatternFinder other) {
+        for (final Map.Entry<TokenPattern, RowAnnotation> entry : other.getAnnotations().entrySet()) {
+            final TokenPattern otherPattern = entry.getKey();
+            final RowAnnotation otherAnnotation = entry.getValue();
+            final TokenPattern pattern = mergePattern(otherPattern);
+            if (pattern == otherPattern) {
+                _annotations.put(pattern, otherAnnotation);
+            } else {
+                _annotationFactory.transferAnnotations(otherAnnotation, _annotations.get(pattern));
+            }
+        }
+    }
+
     public Map<TokenPattern, RowAnnotation> getAnnotations() {
         return _annotations;
     }
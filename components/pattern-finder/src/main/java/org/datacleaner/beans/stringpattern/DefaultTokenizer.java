@@ -22,11 +22,9 @@ package org.datacleaner.beans.stringpattern;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 
-import org.datacleaner.util.CharIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,7 +35,7 @@ public class DefaultTokenizer implements Serializable, Tokenizer {
     private static final Logger logger = LoggerFactory.getLogger(DefaultTokenizer.class);
 
     private final TokenizerConfiguration _configuration;
-    private final boolean _predefinedTokens;
+    private final PredefinedTokenTokenizer _predefinedTokenTokenizer;
 
     public DefaultTokenizer() {
         this(new TokenizerConfiguration());
@@ -50,113 +48,117 @@ public class DefaultTokenizer implements Serializable, Tokenizer {
         _configuration = configuration;
 
         final List<PredefinedTokenDefinition> predefinedTokens = _configuration.getPredefinedTokens();
-        _predefinedTokens = !predefinedTokens.isEmpty() && _configuration.isTokenTypeEnabled(TokenType.PREDEFINED);
-
-        if (_predefinedTokens) {
+        if (!predefinedTokens.isEmpty() && _configuration.isTokenTypeEnabled(TokenType.PREDEFINED)) {
             logger.debug("Predefined tokens are turned ON, using PredefinedTokenTokenizer");
+            _predefinedTokenTokenizer = new PredefinedTokenTokenizer(predefinedTokens);
         } else {
+            _predefinedTokenTokenizer = null;
             logger.debug("Predefined tokens are turned OFF, using tokenizeInternal");
         }
     }
 
     protected static List<SimpleToken> preliminaryTokenize(final String string,
             final TokenizerConfiguration configuration) {
-        final LinkedList<SimpleToken> result = new LinkedList<>();
-        SimpleToken lastToken = null;
-
-        final CharIterator ci = new CharIterator(string);
-        while (ci.hasNext()) {
-            final char c = ci.next();
-
-            if (ci.is(configuration.getThousandsSeparator()) || ci.is(configuration.getDecimalSeparator())) {
-                boolean treatAsSeparator = false;
-                if (lastToken != null && lastToken.getType() == TokenType.NUMBER) {
-                    // there's a previous NUMBER token
-
-                    if (ci.hasNext()) {
-                        final char next = ci.next();
-                        if (ci.isDigit()) {
-                            // the next token is also a NUMBER
-
-                            // now we're ready to assume that this is a
-                            // separator
-                            treatAsSeparator = true;
-                            lastToken = registerChar(result, lastToken, c, TokenType.NUMBER);
-                            lastToken = registerChar(result, lastToken, next, TokenType.NUMBER);
-                        } else {
-                            ci.previous();
-                        }
-                    }
-                }
+        final List<SimpleToken> result = new ArrayList<>();
+        tokenize(string, configuration, false, result);
+        return result;
+    }
 
-                if (!treatAsSeparator) {
-                    // the thousand separator is treated as a delim
-                    lastToken = registerChar(result, lastToken, c, TokenType.DELIM);
+    /**
+     * Tokenizes a string in a single pass over its characters. Tokens are only
+     * created once their end has been found, and mixed tokens are flattened
+     * along the way (if requested) instead of in a second pass over the token
+     * list.
+     *
+     * @param string
+     * @param configuration
+     * @param flattenMixedTokens
+     * @param result
+     */
+    private static void tokenize(final String string, final TokenizerConfiguration configuration,
+            final boolean flattenMixedTokens, final List<? super SimpleToken> result) {
+        final Character thousandsSeparator = configuration.getThousandsSeparator();
+        final Character decimalSeparator = configuration.getDecimalSeparator();
+        final Character minusSign = configuration.getMinusSign();
+        final boolean discriminateTextCase = configuration.isDiscriminateTextCase();
+        final int length = string.length();
+
+        // the token to be emitted, which may span several preliminary tokens
+        // when mixed tokens are flattened
+        TokenType tokenType = null;
+        int tokenStart = 0;
+
+        // the preliminary token, ie. the run of characters of the same type
+        TokenType preliminaryType = null;
+        int preliminaryStart = 0;
+
+        int index = 0;
+        while (index < length) {
+            final char c = string.charAt(index);
+            final boolean nextIsDigit = index + 1 < length && Character.isDigit(string.charAt(index + 1));
+
+            TokenType type;
+            int charCount = 1;
+            boolean newPreliminaryToken = false;
+
+            if (is(c, thousandsSeparator) || is(c, decimalSeparator)) {
+                if (preliminaryType == TokenType.NUMBER && nextIsDigit) {
+                    // a separator between digits is part of the number
+                    type = TokenType.NUMBER;
+                    charCount = 2;
+                } else {
+                    type = TokenType.DELIM;
                 }
-            } else if (ci.is(configuration.getMinusSign())) {
-                // the meaning of minus sign is dependent on the next token
+            } else if (is(c, minusSign)) {
+                // the meaning of minus sign is dependent on the next character
                 // (maybe it's the negative number operator)
-                boolean treatAsMinus = false;
-
-                if (lastToken == null || lastToken.getType() != TokenType.NUMBER) {
-                    if (ci.hasNext()) {
-                        final char next = ci.next();
-                        if (ci.isDigit()) {
-                            // the minus sign was the number operator
-                            treatAsMinus = true;
-                            lastToken = registerChar(result, null, c, TokenType.NUMBER);
-                            lastToken = registerChar(result, lastToken, next, TokenType.NUMBER);
-                        } else {
-                            ci.previous();
-                        }
-                    }
-                }
-
-                if (!treatAsMinus) {
-                    // the minus sign is treated as a delim
-                    lastToken = registerChar(result, lastToken, c, TokenType.DELIM);
+                if (preliminaryType != TokenType.NUMBER && nextIsDigit) {
+                    type = TokenType.NUMBER;
+                    charCount = 2;
+                } else {
+                    type = TokenType.DELIM;
                 }
-            } else if (ci.isDigit()) {
-                lastToken = registerChar(result, lastToken, c, TokenType.NUMBER);
-            } else if (ci.isLetter()) {
-                if (configuration.isDiscriminateTextCase()) {
-                    if (lastToken != null && lastToken.getType() == TokenType.TEXT) {
-                        // if we need to discriminate on case then we should
-                        // check the previous token and make sure that we only
-                        // append to that if they share the same case.
-                        final char charFromPreviousToken = lastToken.getString().charAt(0);
-                        if (Character.isUpperCase(charFromPreviousToken) != Character.isUpperCase(c)) {
-                            lastToken = null;
-                        }
-                    }
+            } else if (Character.isDigit(c)) {
+                type = TokenType.NUMBER;
+            } else if (Character.isLetter(c)) {
+                type = TokenType.TEXT;
+                if (discriminateTextCase && preliminaryType == TokenType.TEXT) {
+                    // only append to the previous token if they share the same
+                    // case
+                    newPreliminaryToken = Character.isUpperCase(string.charAt(preliminaryStart)) != Character
+                            .isUpperCase(c);
                 }
-                lastToken = registerChar(result, lastToken, c, TokenType.TEXT);
-            } else if (ci.isWhitespace()) {
-                lastToken = registerChar(result, lastToken, c, TokenType.WHITESPACE);
+            } else if (Character.isWhitespace(c)) {
+                type = TokenType.WHITESPACE;
             } else {
-                lastToken = registerChar(result, lastToken, c, TokenType.DELIM);
+                type = TokenType.DELIM;
             }
+
+            if (newPreliminaryToken || type != preliminaryType) {
+                if (tokenType == null) {
+                    tokenType = type;
+                } else if (flattenMixedTokens && tokenType != type && isMixedCandidate(tokenType)
+                        && isMixedCandidate(type)) {
+                    tokenType = TokenType.MIXED;
+                } else {
+                    result.add(new SimpleToken(tokenType, string, tokenStart, index));
+                    tokenType = type;
+                    tokenStart = index;
+                }
+                preliminaryType = type;
+                preliminaryStart = index;
+            }
+
+            index += charCount;
         }
 
-        return result;
+        if (tokenType != null) {
+            result.add(new SimpleToken(tokenType, string, tokenStart, length));
+        }
     }
 
-    private static SimpleToken registerChar(final List<SimpleToken> result, SimpleToken lastToken, final char c,
-            final TokenType tokenType) {
-        if (lastToken == null) {
-            logger.debug("Creating new {} token", tokenType);
-            lastToken = new SimpleToken(tokenType, c);
-            result.add(lastToken);
-        } else if (lastToken.getType() == tokenType) {
-            logger.debug("Appending to previous token", tokenType);
-            lastToken.appendChar(c);
-        } else {
-            logger.debug("Creating new {} token", tokenType);
-            lastToken = new SimpleToken(tokenType, c);
-            result.add(lastToken);
-        }
-        logger.debug("{} registered as {}", c, tokenType);
-        return lastToken;
+    private static boolean is(final char c, final Character character) {
+        return character != null && character.charValue() == c;
     }
 
     public static List<SimpleToken> flattenMixedTokens(final List<SimpleToken> tokens) {
@@ -200,46 +202,21 @@ public class DefaultTokenizer implements Serializable, Tokenizer {
             return Arrays.asList(BlankToken.INSTANCE);
         }
 
-        final List<Token> tokens;
+        final boolean flattenMixedTokens = _configuration.isTokenTypeEnabled(TokenType.MIXED);
+        final List<Token> tokens = new ArrayList<>();
 
-        if (_predefinedTokens) {
-            final List<PredefinedTokenDefinition> predefinedTokens = _configuration.getPredefinedTokens();
-            final PredefinedTokenTokenizer tokenizer = new PredefinedTokenTokenizer(predefinedTokens);
-            tokens = tokenizer.tokenize(pattern);
-            for (final ListIterator<Token> it = tokens.listIterator(); it.hasNext(); ) {
-                final Token token = it.next();
+        if (_predefinedTokenTokenizer != null) {
+            for (final Token token : _predefinedTokenTokenizer.tokenize(pattern)) {
                 final TokenType tokenType = token.getType();
                 logger.debug("Next token type is: {}", tokenType);
                 if (tokenType == TokenType.UNDEFINED) {
-                    final List<SimpleToken> replacementTokens = tokenizeInternal(token.getString());
-                    boolean replace = true;
-                    if (replacementTokens.size() == 1) {
-                        if (token.equals(replacementTokens.get(0))) {
-                            replace = false;
-                        }
-                    }
-
-                    if (replace) {
-                        it.remove();
-                        for (final SimpleToken replacementToken : replacementTokens) {
-                            it.add(replacementToken);
-                        }
-                    }
+                    tokenize(token.getString(), _configuration, flattenMixedTokens, tokens);
+                } else {
+                    tokens.add(token);
                 }
             }
         } else {
-            tokens = new ArrayList<>();
-            tokens.addAll(tokenizeInternal(pattern));
-        }
-
-        return tokens;
-    }
-
-    private List<SimpleToken> tokenizeInternal(final String string) {
-        List<SimpleToken> tokens = preliminaryTokenize(string, _configuration);
-
-        if (_configuration.isTokenTypeEnabled(TokenType.MIXED)) {
-            tokens = flattenMixedTokens(tokens);
+            tokenize(pattern, _configuration, flattenMixedTokens, tokens);
         }
 
         return tokens;
@@ -41,7 +41,7 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public abstract class PatternFinder<R> {
 
-    private final ConcurrentHashMap<String, Collection<TokenPattern>> _patterns;
+    private final ConcurrentHashMap<Long, Collection<TokenPattern>> _patterns;
     private final TokenizerConfiguration _configuration;
     private final Tokenizer _tokenizer;
 
@@ -77,33 +77,66 @@ public abstract class PatternFinder<R> {
             throw new IllegalStateException("Error occurred while tokenizing value: " + value, e);
         }
 
-        final String patternCode = getPatternCode(tokens);
-        final Collection<TokenPattern> patterns = getOrCreatePatterns(patternCode);
+        final Collection<TokenPattern> patterns = getOrCreatePatterns(getPatternCode(tokens));
 
         // lock on "patterns" since it is going to be the same collection for
         // all matching pattern codes.
         synchronized (patterns) {
-            boolean match = false;
-            for (final TokenPattern pattern : patterns) {
-                if (pattern.match(tokens)) {
-                    storeMatch(pattern, row, value, distinctCount);
-                    match = true;
-                    break;
-                }
+            final TokenPattern pattern = findMatch(patterns, tokens);
+            if (pattern != null) {
+                storeMatch(pattern, row, value, distinctCount);
+                return;
             }
 
-            if (!match) {
-                final TokenPattern pattern;
-                try {
-                    pattern = new TokenPatternImpl(value, tokens, _configuration);
-                } catch (final RuntimeException e) {
-                    throw new IllegalStateException("Error occurred while creating pattern for: " + tokens, e);
-                }
+            final TokenPattern newPattern;
+            try {
+                newPattern = new TokenPatternImpl(value, tokens, _configuration);
+            } catch (final RuntimeException e) {
+                throw new IllegalStateException("Error occurred while creating pattern for: " + tokens, e);
+            }
+
+            storeNewPattern(newPattern, row, value, distinctCount);
+            patterns.add(newPattern);
+        }
+    }
+
+    /**
+     * Merges a pattern that was found by another pattern finder (using the same
+     * configuration) into this pattern finder. If one of the known patterns
+     * matches it, that pattern is expanded as if the values of the other
+     * pattern had been run through this finder. Otherwise the pattern is
+     * adopted as a new pattern.
+     *
+     * @param otherPattern
+     *            the pattern to merge
+     * @return the known pattern that the other pattern was merged into, or the
+     *         other pattern itself if it was adopted as a new pattern
+     */
+    protected TokenPattern mergePattern(final TokenPattern otherPattern) {
+        final List<TokenPatternSymbol> symbols = otherPattern.getSymbols();
+        final List<Token> tokens = new ArrayList<>(symbols.size());
+        for (final TokenPatternSymbol symbol : symbols) {
+            tokens.add(new SimpleToken(symbol.getTokenType(), symbol.toSymbolicString()));
+        }
+
+        final Collection<TokenPattern> patterns = getOrCreatePatterns(getPatternCode(tokens));
+        synchronized (patterns) {
+            final TokenPattern pattern = findMatch(patterns, tokens);
+            if (pattern != null) {
+                return pattern;
+            }
+            patterns.add(otherPattern);
+            return otherPattern;
+        }
+    }
 
-                storeNewPattern(pattern, row, value, distinctCount);
-                patterns.add(pattern);
+    private TokenPattern findMatch(final Collection<TokenPattern> patterns, final List<Token> tokens) {
+        for (final TokenPattern pattern : patterns) {
+            if (pattern.match(tokens)) {
+                return pattern;
             }
         }
+        return null;
     }
 
     /**
@@ -113,7 +146,7 @@ public abstract class PatternFinder<R> {
      * @param patternCode
      * @return
      */
-    private Collection<TokenPattern> getOrCreatePatterns(final String patternCode) {
+    private Collection<TokenPattern> getOrCreatePatterns(final Long patternCode) {
         // first try the cheapest get(..) method
         final Collection<TokenPattern> patterns = _patterns.get(patternCode);
         if (patterns != null) {
@@ -130,19 +163,21 @@ public abstract class PatternFinder<R> {
     }
 
     /**
-     * Creates an almost unique String code for a list of tokens. This code is
-     * used to improve search time when looking for potential matching patterns.
+     * Creates an almost unique code for a list of tokens. This code is used to
+     * improve search time when looking for potential matching patterns. The
+     * code holds the token count followed by three bits per token type, so it
+     * is exact for up to 19 tokens. Longer token lists may share a code with
+     * other lists, which only means that a few more patterns are tried.
      *
      * @param tokens
      * @return
      */
-    private String getPatternCode(final List<Token> tokens) {
-        final StringBuilder sb = new StringBuilder();
-        sb.append(tokens.size());
+    private static long getPatternCode(final List<Token> tokens) {
+        long code = tokens.size();
         for (final Token token : tokens) {
-            sb.append(token.getType().ordinal());
+            code = (code << 3) | token.getType().ordinal();
         }
-        return sb.toString();
+        return code;
     }
 
     public Collection<TokenPattern> getPatterns() {
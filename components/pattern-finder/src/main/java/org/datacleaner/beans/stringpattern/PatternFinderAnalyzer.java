@@ -23,11 +23,13 @@ import java.io.Serializable;
 import java.text.DecimalFormatSymbols;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Named;
 
@@ -126,7 +128,8 @@ public class PatternFinderAnalyzer implements Analyzer<PatternFinderResult> {
 
     @Provided
     RowAnnotationFactory _rowAnnotationFactory;
-    private Map<String, DefaultPatternFinder> _patternFinders;
+    private Map<Thread, Map<String, DefaultPatternFinder>> _threadPatternFinders;
+    private Map<String, DefaultPatternFinder> _mergedPatternFinders;
     private TokenizerConfiguration _configuration;
 
     public static Crosstab<Serializable> createCrosstab() {
@@ -169,7 +172,12 @@ public class PatternFinderAnalyzer implements Analyzer<PatternFinderResult> {
             _configuration.getPredefinedTokens().add(new PredefinedTokenDefinition(predefinedTokenName, tokenRegexes));
         }
 
-        _patternFinders = new HashMap<>();
+        // each thread gets its own pattern finders, so that matching never
+        // contends on shared pattern buckets. They are merged in getResult().
+        // A plain map (rather than a ThreadLocal) is used so that the
+        // per-thread state can be released by the merge.
+        _threadPatternFinders = new ConcurrentHashMap<>();
+        _mergedPatternFinders = null;
     }
 
     @Override
@@ -186,32 +194,58 @@ public class PatternFinderAnalyzer implements Analyzer<PatternFinderResult> {
     }
 
     private void run(final String group, final String value, final InputRow row, final int distinctCount) {
-        final DefaultPatternFinder patternFinder = getPatternFinderForGroup(group);
+        final Map<String, DefaultPatternFinder> threadPatternFinders =
+                _threadPatternFinders.computeIfAbsent(Thread.currentThread(), thread -> new HashMap<>());
+        final DefaultPatternFinder patternFinder = getPatternFinderForGroup(threadPatternFinders, group);
         patternFinder.run(row, value, distinctCount);
     }
 
-    private DefaultPatternFinder getPatternFinderForGroup(final String group) {
-        DefaultPatternFinder patternFinder = _patternFinders.get(group);
+    private DefaultPatternFinder getPatternFinderForGroup(final Map<String, DefaultPatternFinder> patternFinders,
+            final String group) {
+        DefaultPatternFinder patternFinder = patternFinders.get(group);
         if (patternFinder == null) {
-            synchronized (this) {
-                patternFinder = _patternFinders.get(group);
-                if (patternFinder == null) {
-                    patternFinder = new DefaultPatternFinder(_configuration, _rowAnnotationFactory);
-                    _patternFinders.put(group, patternFinder);
+            patternFinder = new DefaultPatternFinder(_configuration, _rowAnnotationFactory);
+            patternFinders.put(group, patternFinder);
+        }
+        return patternFinder;
+    }
+
+    /**
+     * Merges the pattern finders of all threads. Merging moves patterns and
+     * annotated rows out of the per-thread pattern finders, so these are
+     * discarded once merged and the merged pattern finders are kept for
+     * subsequent calls (which only merge rows that have been added since).
+     *
+     * @return
+     */
+    private synchronized Map<String, DefaultPatternFinder> getMergedPatternFinders() {
+        final Iterator<Map<String, DefaultPatternFinder>> it = _threadPatternFinders.values().iterator();
+        while (it.hasNext()) {
+            final Map<String, DefaultPatternFinder> patternFinders = it.next();
+            it.remove();
+            if (_mergedPatternFinders == null) {
+                _mergedPatternFinders = patternFinders;
+            } else {
+                for (final Entry<String, DefaultPatternFinder> entry : patternFinders.entrySet()) {
+                    getPatternFinderForGroup(_mergedPatternFinders, entry.getKey()).merge(entry.getValue());
                 }
             }
         }
-        return patternFinder;
+        if (_mergedPatternFinders == null) {
+            _mergedPatternFinders = new HashMap<>();
+        }
+        return _mergedPatternFinders;
     }
 
     @Override
     public PatternFinderResult getResult() {
+        final Map<String, DefaultPatternFinder> patternFinders = getMergedPatternFinders();
         if (groupColumn == null) {
-            final Crosstab<?> crosstab = createCrosstab(getPatternFinderForGroup(null));
+            final Crosstab<?> crosstab = createCrosstab(getPatternFinderForGroup(patternFinders, null));
             return new PatternFinderResult(column, crosstab, _configuration);
         } else {
             final Map<String, Crosstab<?>> crosstabs = new TreeMap<>(NullTolerableComparator.get(String.class));
-            final Set<Entry<String, DefaultPatternFinder>> patternFinderEntries = _patternFinders.entrySet();
+            final Set<Entry<String, DefaultPatternFinder>> patternFinderEntries = patternFinders.entrySet();
             for (final Entry<String, DefaultPatternFinder> entry : patternFinderEntries) {
                 final DefaultPatternFinder patternFinder = entry.getValue();
                 final Crosstab<Serializable> crosstab = createCrosstab(patternFinder);
@@ -19,6 +19,7 @@
  */
 package org.datacleaner.beans.stringpattern;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -27,7 +28,9 @@ import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class PredefinedTokenTokenizer implements Tokenizer {
+public class PredefinedTokenTokenizer implements Serializable, Tokenizer {
+
+    private static final long serialVersionUID = 1L;
 
     private List<PredefinedTokenDefinition> _predefinedTokenDefitions;
 
@@ -42,29 +45,33 @@ public class PredefinedTokenTokenizer implements Tokenizer {
         _predefinedTokenDefitions = predefinedTokenDefinitions;
     }
 
-    protected static List<Token> tokenizeInternal(String string,
+    protected static List<Token> tokenizeInternal(final String string,
             final PredefinedTokenDefinition predefinedTokenDefinition, final Pattern pattern) {
-        final LinkedList<Token> result = new LinkedList<>();
-        result.add(new UndefinedToken(string));
-
-        for (Matcher matcher = pattern.matcher(string); matcher.find(); matcher = pattern.matcher(string)) {
-
+        final List<Token> result = new ArrayList<>();
+        final int length = string.length();
+
+        // a single matcher is moved along the string by narrowing its region,
+        // which gives the same anchoring behaviour as matching the remainder
+        // of the string, without creating substrings and matchers per match
+        final Matcher matcher = pattern.matcher(string);
+        int position = 0;
+        while (position < length && matcher.region(position, length).find()) {
             final int start = matcher.start();
             final int end = matcher.end();
-
-            result.removeLast();
-
-            if (start > 0) {
-                result.add(new UndefinedToken(string.substring(0, start)));
+            if (start == end) {
+                // an empty match can never consume the rest of the string
+                break;
             }
-            result.add(new PredefinedToken(predefinedTokenDefinition, string.substring(start, end)));
 
-            if (end == string.length()) {
-                break;
+            if (start > position) {
+                result.add(new UndefinedToken(string.substring(position, start)));
             }
+            result.add(new PredefinedToken(predefinedTokenDefinition, string.substring(start, end)));
+            position = end;
+        }
 
-            string = string.substring(end);
-            result.add(new UndefinedToken(string));
+        if (position < length || result.isEmpty()) {
+            result.add(new UndefinedToken(string.substring(position)));
         }
 
         return result;
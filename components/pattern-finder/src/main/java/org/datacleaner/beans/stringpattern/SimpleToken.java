@@ -34,6 +34,12 @@ public class SimpleToken implements Token {
         _stringBuilder = new StringBuilder(string);
     }
 
+    public SimpleToken(final TokenType type, final CharSequence charSequence, final int start, final int end) {
+        _type = type;
+        _stringBuilder = new StringBuilder(end - start);
+        _stringBuilder.append(charSequence, start, end);
+    }
+
     public SimpleToken(final TokenType type, final char c) {
         _type = type;
         _stringBuilder = new StringBuilder();
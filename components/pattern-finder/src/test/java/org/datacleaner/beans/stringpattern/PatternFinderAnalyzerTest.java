@@ -168,4 +168,47 @@ public class PatternFinderAnalyzerTest extends TestCase {
         assertEquals("aaaaaa.aaaaaaaa           1 kasper.sorensen ", resultLines[11]);
         assertEquals(12, resultLines.length);
     }
+
+    public void testConcurrentRunsAreMerged() throws Exception {
+        final String[] values = { "Sales director", "Key account manager", "Account manager", "Sales manager (EMEA)",
+                "Sales Manager, USA", "Account Manager (USA)", "1st on the phone", "CEO", null, "" };
+        final MockInputColumn<String> column = new MockInputColumn<>("title", String.class);
+
+        final PatternFinderAnalyzer singleThreaded = new PatternFinderAnalyzer();
+        singleThreaded.setRowAnnotationFactory(RowAnnotations.getDefaultFactory());
+        singleThreaded.setColumn(column);
+        singleThreaded.init();
+        for (final String value : values) {
+            singleThreaded.run(new MockInputRow().put(column, value), 1);
+        }
+
+        final PatternFinderAnalyzer multiThreaded = new PatternFinderAnalyzer();
+        multiThreaded.setRowAnnotationFactory(RowAnnotations.getDefaultFactory());
+        multiThreaded.setColumn(column);
+        multiThreaded.init();
+        // one thread per value, run one after the other so that the samples
+        // of the patterns are deterministic
+        for (final String value : values) {
+            runInNewThread(() -> multiThreaded.run(new MockInputRow().put(column, value), 1));
+        }
+
+        final PatternFinderResultTextRenderer renderer = new PatternFinderResultTextRenderer();
+        assertEquals(renderer.render(singleThreaded.getResult()), renderer.render(multiThreaded.getResult()));
+
+        // requesting the result again should not merge the threads twice
+        assertEquals(renderer.render(singleThreaded.getResult()), renderer.render(multiThreaded.getResult()));
+
+        // rows added after a merge are merged into the previous result
+        for (final String value : values) {
+            singleThreaded.run(new MockInputRow().put(column, value), 1);
+            runInNewThread(() -> multiThreaded.run(new MockInputRow().put(column, value), 1));
+        }
+        assertEquals(renderer.render(singleThreaded.getResult()), renderer.render(multiThreaded.getResult()));
+    }
+
+    private void runInNewThread(final Runnable runnable) throws InterruptedException {
+        final Thread thread = new Thread(runnable);
+        thread.start();
+        thread.join();
+    }
 }
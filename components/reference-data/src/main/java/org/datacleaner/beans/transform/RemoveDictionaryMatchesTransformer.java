@@ -20,13 +20,11 @@
 package org.datacleaner.beans.transform;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -50,6 +48,8 @@ import org.datacleaner.components.categories.ReferenceDataCategory;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.reference.Dictionary;
 import org.datacleaner.reference.DictionaryConnection;
+import org.datacleaner.util.MultiTermMatcher;
+import org.datacleaner.util.MultiTermMatcher.Match;
 import org.datacleaner.util.StringUtils;
 
 import com.google.common.base.Joiner;
@@ -99,7 +99,7 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
     DataCleanerConfiguration _configuration;
 
     private DictionaryConnection _dictionaryConnection;
-    private Map<String, Pattern> multiWordDictionaryPatterns;
+    private MultiTermMatcher<String> multiWordDictionaryMatcher;
 
     public RemoveDictionaryMatchesTransformer() {
     }
@@ -139,21 +139,16 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
     @Initialize
     public void init() {
         _dictionaryConnection = _dictionary.openConnection(_configuration);
-        multiWordDictionaryPatterns = new LinkedHashMap<>();
 
-        final Iterator<String> allValues = _dictionaryConnection.getLengthSortedValues();
+        final Map<String, String> multiWordValues = new HashMap<>();
+        final Iterator<String> allValues = _dictionaryConnection.getAllValues();
         while (allValues.hasNext()) {
             final String value = allValues.next();
             if (!StringUtils.isSingleWord(value)) {
-                final Pattern pattern;
-                if (_dictionary.isCaseSensitive()) {
-                    pattern = Pattern.compile("\\b" + Pattern.quote(value) + "\\b");
-                } else {
-                    pattern = Pattern.compile("\\b" + Pattern.quote(value.toLowerCase()) + "\\b");
-                }
-                multiWordDictionaryPatterns.put(value, pattern);
+                multiWordValues.put(value, value);
             }
         }
+        multiWordDictionaryMatcher = new MultiTermMatcher<>(multiWordValues, _dictionary.isCaseSensitive());
     }
 
     @Close
@@ -173,31 +168,27 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
     public Object[] transform(String value) {
         final List<String> removedParts = new ArrayList<>(2);
         if (!Strings.isNullOrEmpty(value)) {
-            for (final Entry<String, Pattern> entry : multiWordDictionaryPatterns.entrySet()) {
-                final Pattern pattern = entry.getValue();
-                final Matcher matcher;
-                if (_dictionary.isCaseSensitive()) {
-                    matcher = pattern.matcher(value);
-                } else {
-                    matcher = pattern.matcher(value.toLowerCase());
-                }
-                while (matcher.find()) {
-                    final int start;
-                    final int end;
-                    if (matcher.start() > 0 && value.charAt(matcher.start() - 1) == ' ') {
-                        start = matcher.start() - 1;
-                        end = matcher.end();
-                    } else if (matcher.end() < value.length() && value.charAt(matcher.end()) == ' ') {
-                        start = matcher.start();
-                        end = matcher.end() + 1;
-                    } else {
-                        start = matcher.start();
-                        end = matcher.end();
+            final List<Match<String>> matches = multiWordDictionaryMatcher.findMatches(value);
+            if (!matches.isEmpty()) {
+                // remove each match along with one adjacent space
+                final BitSet removed = new BitSet(value.length());
+                for (final Match<String> match : matches) {
+                    int start = match.getStart();
+                    int end = match.getEnd();
+                    if (start > 0 && value.charAt(start - 1) == ' ' && !removed.get(start - 1)) {
+                        start--;
+                    } else if (end < value.length() && value.charAt(end) == ' ' && !removed.get(end)) {
+                        end++;
                     }
+                    removed.set(start, end);
+                    removedParts.add(match.getTerm());
+                }
 
-                    value = value.substring(0, start) + value.substring(end);
-                    removedParts.add(entry.getKey());
+                final StringBuilder sb = new StringBuilder(value.length());
+                for (int i = removed.nextClearBit(0); i < value.length(); i = removed.nextClearBit(i + 1)) {
+                    sb.append(value.charAt(i));
                 }
+                value = sb.toString();
             }
 
             // do word-by-word dictionary lookups
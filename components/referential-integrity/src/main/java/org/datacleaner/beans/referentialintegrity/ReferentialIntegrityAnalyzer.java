@@ -26,6 +26,7 @@ import org.datacleaner.api.Alias;
 import org.datacleaner.api.Analyzer;
 import org.datacleaner.api.Close;
 import org.datacleaner.api.ColumnProperty;
+import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.Initialize;
@@ -36,12 +37,14 @@ import org.datacleaner.api.Provided;
 import org.datacleaner.api.SchemaProperty;
 import org.datacleaner.api.TableProperty;
 import org.datacleaner.components.tablelookup.TableLookupTransformer;
+import org.datacleaner.components.tablelookup.TableLookupTransformer.LookupStrategy;
 import org.datacleaner.connection.Datastore;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
 
 @Named("ReferentialIntegrityAnalyzer.name")
 @Description("ReferentialIntegrityAnalyzer.Description")
+@Concurrent(true)
 public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegrityAnalyzerResult> {
 
     private static final String PROPERTY_NAME_DATASTORE = "Datastore";
@@ -86,6 +89,17 @@ public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegri
     @Description("Ignore null values")
     boolean ignoreNullValues = true;
 
+    @Inject
+    @Configured(required = false)
+    @Description("How to look up keys: One query per record, one query per batch of distinct keys, or by loading "
+            + "the entire table into memory up front (for small reference tables).")
+    LookupStrategy lookupStrategy = LookupStrategy.ROW_BY_ROW;
+
+    @Inject
+    @Configured(required = false)
+    @Description("The max number of distinct keys to look up in a single query when using batched lookups.")
+    int batchSize = TableLookupTransformer.DEFAULT_BATCH_SIZE;
+
     @Inject
     @Provided
     RowAnnotation annotation;
@@ -100,6 +114,8 @@ public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegri
     public void init() {
         _tableLookup = new TableLookupTransformer(datastore, schemaName, tableName, new String[] { columnName },
                 new InputColumn<?>[] { foreignKey }, new String[] { columnName }, cacheLookups);
+        _tableLookup.setLookupStrategy(lookupStrategy);
+        _tableLookup.setBatchSize(batchSize);
         _tableLookup.init();
     }
 
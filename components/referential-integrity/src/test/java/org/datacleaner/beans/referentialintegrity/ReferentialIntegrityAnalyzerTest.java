@@ -23,6 +23,7 @@ import java.util.List;
 
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
+import org.datacleaner.components.tablelookup.TableLookupTransformer.LookupStrategy;
 import org.datacleaner.configuration.DataCleanerConfigurationImpl;
 import org.datacleaner.connection.Datastore;
 import org.datacleaner.connection.DatastoreCatalogImpl;
@@ -38,6 +39,18 @@ import junit.framework.TestCase;
 public class ReferentialIntegrityAnalyzerTest extends TestCase {
 
     public void testSimpleScenario() throws Throwable {
+        runScenario(LookupStrategy.ROW_BY_ROW);
+    }
+
+    public void testBatchedLookups() throws Throwable {
+        runScenario(LookupStrategy.BATCHED);
+    }
+
+    public void testPreloadTable() throws Throwable {
+        runScenario(LookupStrategy.PRELOAD_TABLE);
+    }
+
+    private void runScenario(final LookupStrategy lookupStrategy) throws Throwable {
         final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
 
         final DataCleanerConfigurationImpl configuration =
@@ -57,6 +70,7 @@ public class ReferentialIntegrityAnalyzerTest extends TestCase {
         referentialIntegrity.schemaName = "PUBLIC";
         referentialIntegrity.tableName = "employees";
         referentialIntegrity.columnName = "EMPLOYEENUMBER";
+        referentialIntegrity.lookupStrategy = lookupStrategy;
 
         final AnalysisJob analysisJob = jobBuilder.toAnalysisJob();
 
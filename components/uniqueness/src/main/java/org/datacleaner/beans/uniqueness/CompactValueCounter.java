@@ -0,0 +1,310 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.uniqueness;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A compact, concurrent counter of string values, used by the
+ * {@link UniqueKeyCheckAnalyzer} to count values in memory as long as they fit
+ * within a memory budget.
+ *
+ * Values are kept as UTF-8 bytes in per-stripe byte arenas and indexed by an
+ * open-addressed table of 64 bit hashes, so that an entry costs roughly the
+ * length of the value plus 16-24 bytes instead of the several hundred bytes
+ * of a String in a HashMap. Hash matches are verified by comparing the bytes,
+ * so counts are exact.
+ *
+ * Once the budget would be exceeded, {@link #add(String, int)} returns false
+ * and the caller is expected to {@link #drainTo(ObjIntConsumer)} the counted
+ * values to an external store.
+ */
+final class CompactValueCounter {
+
+    private static final int STRIPE_BITS = 6;
+    private static final int INITIAL_STRIPE_CAPACITY = 256;
+    private static final int INITIAL_ARENA_SIZE = 4 * 1024;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+
+    private final Stripe[] _stripes;
+    private final long _memoryBudget;
+    private final AtomicLong _memoryUsage;
+    private volatile boolean _closed;
+
+    public CompactValueCounter(final long memoryBudget) {
+        _memoryBudget = memoryBudget;
+        _memoryUsage = new AtomicLong();
+        _stripes = new Stripe[1 << STRIPE_BITS];
+        for (int i = 0; i < _stripes.length; i++) {
+            _stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Adds a value to the counter.
+     *
+     * @param value
+     * @param count
+     * @return true if the value was counted, or false if the counter has been
+     *         drained or the value does not fit within the memory budget
+     */
+    public boolean add(final String value, final int count) {
+        if (_closed) {
+            return false;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        final long hash = hash(bytes);
+        final Stripe stripe = _stripes[(int) (hash >>> (64 - STRIPE_BITS))];
+        return stripe.add(hash, bytes, count);
+    }
+
+    /**
+     * Visits all counted values. Must not be invoked concurrently with
+     * {@link #add(String, int)}.
+     *
+     * @param consumer
+     */
+    public void forEach(final ObjIntConsumer<String> consumer) {
+        for (final Stripe stripe : _stripes) {
+            stripe.forEach(consumer);
+        }
+    }
+
+    /**
+     * Closes the counter for further additions, passes all counted values to
+     * the consumer and releases the memory of the counter. This is safe to
+     * invoke concurrently with {@link #add(String, int)}: values are either
+     * drained or rejected.
+     *
+     * @param consumer
+     */
+    public void drainTo(final ObjIntConsumer<String> consumer) {
+        _closed = true;
+        for (final Stripe stripe : _stripes) {
+            stripe.drainTo(consumer);
+        }
+    }
+
+    public boolean isClosed() {
+        return _closed;
+    }
+
+    public long getMemoryUsage() {
+        return _memoryUsage.get();
+    }
+
+    public int size() {
+        int size = 0;
+        for (final Stripe stripe : _stripes) {
+            size += stripe._size;
+        }
+        return size;
+    }
+
+    private boolean reserveMemory(final long bytes) {
+        final long usage = _memoryUsage.addAndGet(bytes);
+        if (usage > _memoryBudget) {
+            _memoryUsage.addAndGet(-bytes);
+            return false;
+        }
+        return true;
+    }
+
+    private static long hash(final byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (final byte b : bytes) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        // 0 is reserved for empty slots
+        return hash == 0 ? 1 : hash;
+    }
+
+    private final class Stripe {
+
+        private long[] _hashes;
+        private int[] _offsets;
+        private int[] _counts;
+        private byte[] _arena;
+        private int _arenaSize;
+        private volatile int _size;
+        private boolean _initialized;
+
+        private boolean initialize() {
+            final long bytes = slotBytes(INITIAL_STRIPE_CAPACITY) + INITIAL_ARENA_SIZE;
+            if (!reserveMemory(bytes)) {
+                return false;
+            }
+            _hashes = new long[INITIAL_STRIPE_CAPACITY];
+            _offsets = new int[INITIAL_STRIPE_CAPACITY];
+            _counts = new int[INITIAL_STRIPE_CAPACITY];
+            _arena = new byte[INITIAL_ARENA_SIZE];
+            _initialized = true;
+            return true;
+        }
+
+        public synchronized boolean add(final long hash, final byte[] bytes, final int count) {
+            if (_closed) {
+                return false;
+            }
+            if (!_initialized && !initialize()) {
+                return false;
+            }
+
+            final int mask = _hashes.length - 1;
+            int slot = (int) hash & mask;
+            while (_hashes[slot] != 0) {
+                if (_hashes[slot] == hash && equalsArena(_offsets[slot], bytes)) {
+                    _counts[slot] += count;
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            // a new value
+            final int entryBytes = 4 + bytes.length;
+            if (_arenaSize + entryBytes > _arena.length && !growArena(entryBytes)) {
+                return false;
+            }
+            if (_size + 1 > _hashes.length * MAX_LOAD_FACTOR) {
+                if (!growTable()) {
+                    return false;
+                }
+                return add(hash, bytes, count);
+            }
+
+            final int offset = _arenaSize;
+            writeInt(_arena, offset, bytes.length);
+            System.arraycopy(bytes, 0, _arena, offset + 4, bytes.length);
+            _arenaSize += entryBytes;
+
+            _hashes[slot] = hash;
+            _offsets[slot] = offset;
+            _counts[slot] = count;
+            _size++;
+            return true;
+        }
+
+        public synchronized void forEach(final ObjIntConsumer<String> consumer) {
+            if (!_initialized) {
+                return;
+            }
+            for (int slot = 0; slot < _hashes.length; slot++) {
+                if (_hashes[slot] != 0) {
+                    consumer.accept(readValue(_offsets[slot]), _counts[slot]);
+                }
+            }
+        }
+
+        public synchronized void drainTo(final ObjIntConsumer<String> consumer) {
+            forEach(consumer);
+            if (_initialized) {
+                _memoryUsage.addAndGet(-(slotBytes(_hashes.length) + _arena.length));
+            }
+            _hashes = null;
+            _offsets = null;
+            _counts = null;
+            _arena = null;
+            _size = 0;
+            _initialized = false;
+        }
+
+        private boolean growArena(final int entryBytes) {
+            final int newLength = Math.max(_arena.length * 2, _arenaSize + entryBytes);
+            if (newLength < 0 || !reserveMemory(newLength - _arena.length)) {
+                return false;
+            }
+            _arena = Arrays.copyOf(_arena, newLength);
+            return true;
+        }
+
+        private boolean growTable() {
+            final int oldCapacity = _hashes.length;
+            final int newCapacity = oldCapacity * 2;
+            if (newCapacity < 0 || !reserveMemory(slotBytes(newCapacity) - slotBytes(oldCapacity))) {
+                return false;
+            }
+            final long[] oldHashes = _hashes;
+            final int[] oldOffsets = _offsets;
+            final int[] oldCounts = _counts;
+            _hashes = new long[newCapacity];
+            _offsets = new int[newCapacity];
+            _counts = new int[newCapacity];
+
+            final int mask = newCapacity - 1;
+            for (int i = 0; i < oldCapacity; i++) {
+                final long hash = oldHashes[i];
+                if (hash != 0) {
+                    int slot = (int) hash & mask;
+                    while (_hashes[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    _hashes[slot] = hash;
+                    _offsets[slot] = oldOffsets[i];
+                    _counts[slot] = oldCounts[i];
+                }
+            }
+            return true;
+        }
+
+        private boolean equalsArena(final int offset, final byte[] bytes) {
+            final int length = readInt(_arena, offset);
+            if (length != bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (_arena[offset + 4 + i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String readValue(final int offset) {
+            final int length = readInt(_arena, offset);
+            return new String(_arena, offset + 4, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static long slotBytes(final int capacity) {
+        // a long hash, an int offset and an int count per slot
+        return capacity * 16L;
+    }
+
+    private static void writeInt(final byte[] bytes, final int offset, final int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(final byte[] bytes, final int offset) {
+        return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16) | ((bytes[offset + 2] & 0xff) << 8)
+                | (bytes[offset + 3] & 0xff);
+    }
+}
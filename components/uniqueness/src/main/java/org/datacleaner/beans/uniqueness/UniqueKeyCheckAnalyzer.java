@@ -19,19 +19,24 @@
  */
 package org.datacleaner.beans.uniqueness;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Named;
 
-import org.apache.metamodel.csv.CsvConfiguration;
-import org.apache.metamodel.csv.CsvDataContext;
-import org.apache.metamodel.csv.CsvWriter;
-import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Resource;
 import org.apache.metamodel.util.ToStringComparator;
@@ -44,13 +49,25 @@ import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.util.WriteBuffer;
 import org.datacleaner.util.sort.SortMergeWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Analyzer that checks if the values of a column are unique.
+ *
+ * Values are counted in memory in a {@link CompactValueCounter} as long as
+ * they fit within the configured memory budget. If the budget is exceeded, the
+ * counted values are handed over to a {@link SortMergeWriter}, which sorts and
+ * deduplicates the values using temporary files on disk.
+ */
 @Named("UniqueKeyCheckAnalyzer.name")
 @Description("UniqueKeyCheckAnalyzer.Description")
 @Concurrent(true)
 public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerResult> {
 
-    private static final CsvConfiguration CSV_CONFIGURATION = new CsvConfiguration();
+    private static final Logger logger = LoggerFactory.getLogger(UniqueKeyCheckAnalyzer.class);
+
+    private static final int MAX_SAMPLES = 1000;
 
     @Configured
     InputColumn<?> column;
@@ -60,8 +77,14 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
             + "consider increasing the buffer to minimize the amount of open disk handles.")
     int _bufferSize = 20000;
 
+    @Configured(value = "In-memory budget (MB)", required = false)
+    @Description("How much memory (in megabytes) to use for checking the values in memory. If the values do not "
+            + "fit, they are sorted on disk instead. Set to 0 to always sort on disk.")
+    int _memoryBudget = 256;
+
+    private CompactValueCounter _counter;
     private WriteBuffer _writeBuffer;
-    private SortMergeWriter<String, Writer> _sorter;
+    private SortMergeWriter<String, DataOutputStream> _sorter;
     private AtomicInteger _rowCount;
     private AtomicInteger _nullCount;
 
@@ -72,31 +95,36 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
         _bufferSize = bufferSize;
     }
 
+    public UniqueKeyCheckAnalyzer(final int bufferSize, final int memoryBudget) {
+        _bufferSize = bufferSize;
+        _memoryBudget = memoryBudget;
+    }
+
     @Initialize
     public void init() {
         _rowCount = new AtomicInteger();
         _nullCount = new AtomicInteger();
-        _sorter = new SortMergeWriter<String, Writer>(_bufferSize, ToStringComparator.getComparator()) {
-            private final CsvWriter csvWriter = new CsvWriter(CSV_CONFIGURATION);
-
+        _counter = new CompactValueCounter(_memoryBudget * 1024L * 1024L);
+        _sorter = new SortMergeWriter<String, DataOutputStream>(_bufferSize, ToStringComparator.getComparator()) {
             @Override
-            protected void writeHeader(final Writer writer) throws IOException {
-                final String line = csvWriter.buildLine(new String[] { "text", "count" });
-                writer.write(line);
+            protected void writeHeader(final DataOutputStream writer) throws IOException {
+                // no header in the binary format
             }
 
             @Override
-            protected void writeRow(final Writer writer, final String row, final int count) throws IOException {
+            protected void writeRow(final DataOutputStream writer, final String row, final int count)
+                    throws IOException {
                 if (count > 1) {
-                    final String line = csvWriter.buildLine(new String[] { row, "" + count });
-                    writer.write(line);
-                    writer.write('\n');
+                    final byte[] bytes = row.getBytes(StandardCharsets.UTF_8);
+                    writer.writeInt(bytes.length);
+                    writer.write(bytes);
+                    writer.writeInt(count);
                 }
             }
 
             @Override
-            protected Writer createWriter(final Resource file) {
-                return FileHelper.getWriter(file.write(), FileHelper.DEFAULT_ENCODING);
+            protected DataOutputStream createWriter(final Resource file) {
+                return new DataOutputStream(new BufferedOutputStream(file.write()));
             }
         };
         _writeBuffer = new WriteBuffer(_bufferSize, rows -> {
@@ -118,55 +146,99 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
         } else {
             final String str = value.toString();
 
+            if (_counter.add(str, distinctCount)) {
+                return;
+            }
+            if (!_counter.isClosed()) {
+                spillToDisk();
+            }
+
             for (int i = 0; i < distinctCount; i++) {
                 _writeBuffer.addToBuffer(new Object[] { str });
             }
         }
     }
 
+    private void spillToDisk() {
+        logger.info("In-memory budget of {} MB exceeded after {} distinct values, sorting values on disk",
+                _memoryBudget, _counter.size());
+        _counter.drainTo(_sorter::append);
+    }
+
     @Override
     public UniqueKeyCheckAnalyzerResult getResult() {
-        _writeBuffer.flushBuffer();
+        final int nonUniqueCount;
+        final Map<String, Integer> samples;
+        if (_counter.isClosed()) {
+            _writeBuffer.flushBuffer();
+
+            final AtomicInteger nonUniques = new AtomicInteger();
+            samples = new LinkedHashMap<>();
+            readNonUniquesFromDisk(nonUniques, samples);
+            nonUniqueCount = nonUniques.get();
+        } else {
+            final List<String> nonUniqueValues = new ArrayList<>();
+            final Map<String, Integer> nonUniqueCounts = new HashMap<>();
+            final AtomicInteger nonUniques = new AtomicInteger();
+            _counter.forEach((value, count) -> {
+                if (count > 1) {
+                    nonUniques.addAndGet(count);
+                    nonUniqueValues.add(value);
+                    nonUniqueCounts.put(value, count);
+                }
+            });
+            nonUniqueValues.sort(ToStringComparator.getComparator());
 
+            samples = new LinkedHashMap<>();
+            for (int i = 0; i < nonUniqueValues.size() && i < MAX_SAMPLES; i++) {
+                final String value = nonUniqueValues.get(i);
+                samples.put(value, nonUniqueCounts.get(value));
+            }
+            nonUniqueCount = nonUniques.get();
+        }
+
+        final int rowCount = _rowCount.get();
+        final int nullCount = _nullCount.get();
+        final int uniqueCount = rowCount - nullCount - nonUniqueCount;
+
+        return new UniqueKeyCheckAnalyzerResult(rowCount, uniqueCount, nonUniqueCount, nullCount, samples);
+    }
+
+    private void readNonUniquesFromDisk(final AtomicInteger nonUniques, final Map<String, Integer> samples) {
         File file;
         try {
-            file = File.createTempFile("UniqueKeyCheckAnalyzer", ".txt");
+            file = File.createTempFile("UniqueKeyCheckAnalyzer", ".dat");
         } catch (final Exception e) {
             final File tempDir = FileHelper.getTempDir();
-            file = new File(tempDir, "UniqueKeyCheckAnalyzer-" + System.currentTimeMillis() + ".txt");
+            file = new File(tempDir, "UniqueKeyCheckAnalyzer-" + System.currentTimeMillis() + ".dat");
         }
 
         _sorter.write(file);
 
-        final AtomicInteger nonUniques = new AtomicInteger();
-
-        final Map<String, Integer> samples = new LinkedHashMap<>();
-
-        final CsvDataContext dataContext = new CsvDataContext(file, CSV_CONFIGURATION);
-        try (DataSet dataSet = dataContext.query().from(dataContext.getDefaultSchema().getTable(0))
-                .select("text", "count").execute()) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
             int i = 0;
-            while (dataSet.next()) {
-                final String text = (String) dataSet.getRow().getValue(0);
-                final String countStr = (String) dataSet.getRow().getValue(1);
-                final int count = Integer.parseInt(countStr);
-                if (i < 1000) {
+            while (true) {
+                final int length;
+                try {
+                    length = in.readInt();
+                } catch (final EOFException e) {
+                    break;
+                }
+                final byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                final int count = in.readInt();
+                if (i < MAX_SAMPLES) {
                     // only build up to 1000 records in the sample
-                    samples.put(text, count);
+                    samples.put(new String(bytes, StandardCharsets.UTF_8), count);
                 }
                 nonUniques.addAndGet(count);
                 i++;
             }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            // delete the temporary file
+            file.delete();
         }
-
-        final int nonUniqueCount = nonUniques.get();
-        final int rowCount = _rowCount.get();
-        final int nullCount = _nullCount.get();
-        final int uniqueCount = rowCount - nullCount - nonUniqueCount;
-
-        // delete the temporary file
-        file.delete();
-
-        return new UniqueKeyCheckAnalyzerResult(rowCount, uniqueCount, nonUniqueCount, nullCount, samples);
     }
 }
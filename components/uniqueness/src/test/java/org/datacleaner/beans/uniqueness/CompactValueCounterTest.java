@@ -0,0 +1,65 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.uniqueness;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class CompactValueCounterTest extends TestCase {
+
+    public void testCountValues() throws Exception {
+        final CompactValueCounter counter = new CompactValueCounter(64 * 1024 * 1024);
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(counter.add("value" + (i % 30000), 1));
+        }
+        assertTrue(counter.add("", 2));
+        assertTrue(counter.add("æøå", 1));
+        assertTrue(counter.add("æøå", 1));
+
+        assertEquals(30002, counter.size());
+
+        final Map<String, Integer> counts = new HashMap<>();
+        counter.forEach(counts::put);
+        assertEquals(30002, counts.size());
+        assertEquals(4, counts.get("value0").intValue());
+        assertEquals(3, counts.get("value29999").intValue());
+        assertEquals(2, counts.get("").intValue());
+        assertEquals(2, counts.get("æøå").intValue());
+    }
+
+    public void testBudgetExceededAndDrain() throws Exception {
+        final CompactValueCounter counter = new CompactValueCounter(1024 * 1024);
+        int added = 0;
+        while (counter.add("a somewhat longer value number " + added, 1)) {
+            added++;
+        }
+        assertTrue(added > 1000);
+        assertTrue(counter.getMemoryUsage() <= 1024 * 1024);
+
+        final Map<String, Integer> drained = new HashMap<>();
+        counter.drainTo(drained::put);
+        assertEquals(added, drained.size());
+        assertTrue(counter.isClosed());
+        assertEquals(0, counter.getMemoryUsage());
+        assertFalse(counter.add("foo", 1));
+    }
+}
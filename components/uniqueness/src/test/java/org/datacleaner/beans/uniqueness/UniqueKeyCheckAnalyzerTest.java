@@ -69,4 +69,70 @@ public class UniqueKeyCheckAnalyzerTest extends TestCase {
                 "Unique key check result:\n" + " - Row count: 73\n" + " - Null count: 0\n" + " - Unique count: 60\n"
                         + " - Non-unique count: 13", result.toString());
     }
+
+    @Test
+    public void testSortOnDiskOnly() throws Exception {
+        final MockInputColumn<String> col = new MockInputColumn<>("foo");
+        final UniqueKeyCheckAnalyzer analyzer = new UniqueKeyCheckAnalyzer(20, 0);
+        analyzer.column = col;
+        analyzer.init();
+
+        final Splitter splitter = Splitter.on(' ').omitEmptyStrings();
+        final Iterable<String> it =
+                splitter.split(FileHelper.readFileAsString(new File("src/test/resources/loremipsum.txt")));
+        for (final String str : it) {
+            analyzer.run(new MockInputRow().put(col, str), 1);
+        }
+        analyzer.run(new MockInputRow().put(col, null), 2);
+
+        final UniqueKeyCheckAnalyzerResult result = analyzer.getResult();
+        assertEquals(71, result.getRowCount());
+        assertEquals(2, result.getNullCount());
+        assertEquals(9, result.getNonUniqueCount());
+        assertEquals("{dolor=2, dolore=2, in=3, ut=2}", result.getNonUniqueSamples().toString());
+    }
+
+    @Test
+    public void testSpillToDiskWhenBudgetIsExceeded() throws Exception {
+        final MockInputColumn<String> col = new MockInputColumn<>("foo");
+        final UniqueKeyCheckAnalyzer analyzer = new UniqueKeyCheckAnalyzer(10000, 1);
+        analyzer.column = col;
+        analyzer.init();
+
+        final int rows = 200000;
+        for (int i = 0; i < rows; i++) {
+            // every 100th value is a duplicate of the value before it
+            final int id = i % 100 == 99 ? i - 1 : i;
+            analyzer.run(new MockInputRow().put(col, "customer-" + id), 1);
+        }
+
+        final UniqueKeyCheckAnalyzerResult result = analyzer.getResult();
+        assertEquals(rows, result.getRowCount());
+        assertEquals(rows / 100 * 2, result.getNonUniqueCount());
+        assertEquals(rows - rows / 100 * 2, result.getUniqueCount());
+        assertEquals(1000, result.getNonUniqueSamples().size());
+        for (final Integer count : result.getNonUniqueSamples().values()) {
+            assertEquals(2, count.intValue());
+        }
+    }
+
+    @Test
+    public void testInMemoryAndOnDiskResultsAreEqual() throws Exception {
+        final MockInputColumn<String> col = new MockInputColumn<>("foo");
+        final int rows = 20000;
+        for (final int memoryBudget : new int[] { 0, 256 }) {
+            final UniqueKeyCheckAnalyzer analyzer = new UniqueKeyCheckAnalyzer(2000, memoryBudget);
+            analyzer.column = col;
+            analyzer.init();
+
+            for (int i = 0; i < rows; i++) {
+                analyzer.run(new MockInputRow().put(col, "key" + (i % 10000)), i < 10000 ? 1 : 2);
+            }
+            final UniqueKeyCheckAnalyzerResult result = analyzer.getResult();
+
+            assertEquals(30000, result.getRowCount());
+            assertEquals(0, result.getUniqueCount());
+            assertEquals(30000, result.getNonUniqueCount());
+        }
+    }
 }
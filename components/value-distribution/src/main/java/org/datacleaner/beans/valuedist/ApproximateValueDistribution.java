@@ -0,0 +1,214 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.valuedist;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.datacleaner.result.SingleValueFrequency;
+import org.datacleaner.result.ValueFrequency;
+
+/**
+ * Fixed-memory approximation of a value distribution, used by the
+ * {@link ValueDistributionAnalyzer} in approximate mode.
+ *
+ * The number of distinct values is estimated with a {@link HyperLogLog} and the
+ * most frequent values are tracked with the Space-Saving algorithm: when
+ * twice [capacity] counters are reached, the counters with the lowest counts
+ * are evicted until [capacity] counters remain. A value that is (re)introduced after an
+ * eviction inherits the highest evicted count as its potential error, so the
+ * reported counts are upper bounds which are exact for values that were
+ * tracked all along. Evictions are done in batches to keep the amortized cost
+ * per value low.
+ *
+ * As long as no eviction has happened, all counts are exact.
+ *
+ * Instances are not thread-safe, but can be merged.
+ */
+public final class ApproximateValueDistribution implements Serializable {
+
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _capacity;
+    private final HyperLogLog _distinctValues;
+    private final Map<String, long[]> _counters;
+    private long _evictedCount;
+    private boolean _evicted;
+
+    public ApproximateValueDistribution() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ApproximateValueDistribution(final int capacity) {
+        _capacity = Math.max(1, capacity);
+        _distinctValues = new HyperLogLog();
+        _counters = new HashMap<>();
+    }
+
+    public void add(final String value, final int count) {
+        _distinctValues.add(value);
+
+        final long[] counter = _counters.get(value);
+        if (counter == null) {
+            _counters.put(value, new long[] { _evictedCount + count, _evictedCount });
+            if (isFull()) {
+                evict();
+            }
+        } else {
+            counter[0] += count;
+        }
+    }
+
+    /**
+     * Merges another distribution into this distribution. The other
+     * distribution is not modified.
+     *
+     * @param other
+     */
+    public void merge(final ApproximateValueDistribution other) {
+        _distinctValues.merge(other._distinctValues);
+
+        for (final Entry<String, long[]> entry : _counters.entrySet()) {
+            if (!other._counters.containsKey(entry.getKey())) {
+                // the value may have been evicted from the other distribution
+                final long[] counter = entry.getValue();
+                counter[0] += other._evictedCount;
+                counter[1] += other._evictedCount;
+            }
+        }
+        for (final Entry<String, long[]> entry : other._counters.entrySet()) {
+            final long[] otherCounter = entry.getValue();
+            final long[] counter = _counters.get(entry.getKey());
+            if (counter == null) {
+                _counters.put(entry.getKey(),
+                        new long[] { otherCounter[0] + _evictedCount, otherCounter[1] + _evictedCount });
+            } else {
+                counter[0] += otherCounter[0];
+                counter[1] += otherCounter[1];
+            }
+        }
+
+        _evictedCount += other._evictedCount;
+        _evicted = _evicted || other._evicted;
+        if (isFull()) {
+            evict();
+        }
+    }
+
+    /**
+     * Determines if the counters should be evicted. Evicting only at twice
+     * the capacity amortizes the cost of sorting the counters, and adding and
+     * merging must use the same threshold so that merging a distribution
+     * into an empty one does not change it.
+     */
+    private boolean isFull() {
+        return _counters.size() >= 2 * _capacity;
+    }
+
+    private void evict() {
+        final List<Entry<String, long[]>> entries = getSortedEntries();
+        for (int i = _capacity; i < entries.size(); i++) {
+            final Entry<String, long[]> entry = entries.get(i);
+            _evictedCount = Math.max(_evictedCount, entry.getValue()[0]);
+            _counters.remove(entry.getKey());
+        }
+        _evicted = true;
+    }
+
+    private List<Entry<String, long[]>> getSortedEntries() {
+        final List<Entry<String, long[]>> entries = new ArrayList<>(_counters.entrySet());
+        entries.sort((e1, e2) -> Long.compare(e2.getValue()[0], e1.getValue()[0]));
+        return entries;
+    }
+
+    /**
+     * Determines if the counts of this distribution are exact, ie. if no values
+     * have been evicted.
+     *
+     * @return
+     */
+    public boolean isExact() {
+        return !_evicted;
+    }
+
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * Gets the (estimated) number of distinct non-null values.
+     *
+     * @return
+     */
+    public int getDistinctCount() {
+        if (isExact()) {
+            return _counters.size();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, _distinctValues.getCardinality());
+    }
+
+    /**
+     * Gets the (estimated) number of values that occur only once. When values
+     * have been evicted, this is an upper bound based on the distinct count
+     * estimate minus the values that are known to occur more than once.
+     *
+     * @return
+     */
+    public int getUniqueCount() {
+        int uniqueCount = 0;
+        int nonUniqueCount = 0;
+        for (final long[] counter : _counters.values()) {
+            if (counter[0] == 1) {
+                uniqueCount++;
+            } else if (counter[0] - counter[1] > 1) {
+                nonUniqueCount++;
+            }
+        }
+        if (isExact()) {
+            return uniqueCount;
+        }
+        return Math.max(0, getDistinctCount() - nonUniqueCount);
+    }
+
+    /**
+     * Gets the tracked values with their (estimated) counts, sorted by
+     * descending count. Unless the distribution is exact, the result is trimmed
+     * to the capacity.
+     *
+     * @return
+     */
+    public List<ValueFrequency> getValueFrequencies() {
+        final List<Entry<String, long[]>> entries = getSortedEntries();
+        final int size = isExact() ? entries.size() : Math.min(_capacity, entries.size());
+        final List<ValueFrequency> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final Entry<String, long[]> entry = entries.get(i);
+            final int count = (int) Math.min(Integer.MAX_VALUE, entry.getValue()[0]);
+            result.add(new SingleValueFrequency(entry.getKey(), count));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.valuedist;
+
+import java.io.Serializable;
+
+/**
+ * A HyperLogLog cardinality estimator, used to estimate the number of distinct
+ * values without keeping the values in memory. The memory footprint is 2^p
+ * bytes and the standard error of the estimate is roughly 1.04 / sqrt(2^p).
+ *
+ * Instances are not thread-safe, but estimators with the same precision can be
+ * merged, which makes them usable for concurrent and distributed counting.
+ */
+public final class HyperLogLog implements Serializable {
+
+    public static final int DEFAULT_PRECISION = 14;
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _precision;
+    private final byte[] _registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(final int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18, was: " + precision);
+        }
+        _precision = precision;
+        _registers = new byte[1 << precision];
+    }
+
+    public void add(final String value) {
+        addHash(hash(value));
+    }
+
+    private void addHash(final long hash) {
+        final int index = (int) (hash >>> (64 - _precision));
+        // the trailing bit ensures that the rank is bounded
+        final long remainder = (hash << _precision) | (1L << (_precision - 1));
+        final byte rank = (byte) (Long.numberOfLeadingZeros(remainder) + 1);
+        if (rank > _registers[index]) {
+            _registers[index] = rank;
+        }
+    }
+
+    /**
+     * Merges another estimator into this estimator. The other estimator is not
+     * modified.
+     *
+     * @param other
+     */
+    public void merge(final HyperLogLog other) {
+        if (other._precision != _precision) {
+            throw new IllegalArgumentException(
+                    "Cannot merge HyperLogLog with precision " + other._precision + " into precision " + _precision);
+        }
+        for (int i = 0; i < _registers.length; i++) {
+            if (other._registers[i] > _registers[i]) {
+                _registers[i] = other._registers[i];
+            }
+        }
+    }
+
+    public long getCardinality() {
+        final int m = _registers.length;
+        double sum = 0;
+        int zeroRegisters = 0;
+        for (final byte register : _registers) {
+            sum += 1d / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+
+        final double alpha = 0.7213 / (1 + 1.079 / m);
+        final double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeroRegisters > 0) {
+            // small range correction (linear counting)
+            return Math.round(m * Math.log((double) m / zeroRegisters));
+        }
+        return Math.round(estimate);
+    }
+
+    public int getPrecision() {
+        return _precision;
+    }
+
+    /**
+     * Computes a 64 bit hash of a string, using FNV-1a followed by the
+     * MurmurHash3 finalizer for a good distribution of the high bits.
+     *
+     * @param value
+     * @return
+     */
+    static long hash(final String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -56,13 +56,24 @@ public class SingleValueDistributionResult extends ValueDistributionAnalyzerResu
     private final int _totalCount;
     private final int _distinctCount;
     private final Supplier<RowAnnotationFactory> _annotationFactoryRef;
+    private final ApproximateValueDistribution _approximateDistribution;
 
     public SingleValueDistributionResult(final String groupName, final ValueCountList topValues,
             final ValueCountList bottomValues, final Collection<String> uniqueValues, final int uniqueValueCount,
             final int distinctCount, final int totalCount, final Map<String, RowAnnotation> annotations,
             final RowAnnotation nullValueAnnotation, final RowAnnotationFactory annotationFactory,
             final InputColumn<?>[] highlightedColumns) {
+        this(groupName, topValues, bottomValues, uniqueValues, uniqueValueCount, distinctCount, totalCount,
+                annotations, nullValueAnnotation, annotationFactory, highlightedColumns, null);
+    }
+
+    public SingleValueDistributionResult(final String groupName, final ValueCountList topValues,
+            final ValueCountList bottomValues, final Collection<String> uniqueValues, final int uniqueValueCount,
+            final int distinctCount, final int totalCount, final Map<String, RowAnnotation> annotations,
+            final RowAnnotation nullValueAnnotation, final RowAnnotationFactory annotationFactory,
+            final InputColumn<?>[] highlightedColumns, final ApproximateValueDistribution approximateDistribution) {
         _groupName = groupName;
+        _approximateDistribution = approximateDistribution;
         _topValues = topValues;
         _bottomValues = bottomValues;
         _uniqueValues = uniqueValues;
@@ -177,6 +188,27 @@ public class SingleValueDistributionResult extends ValueDistributionAnalyzerResu
         return _bottomValues;
     }
 
+    /**
+     * Determines if this result was produced in approximate mode. If so, the
+     * counts, distinct count and unique count may be estimates, see
+     * {@link ApproximateValueDistribution}.
+     *
+     * @return
+     */
+    public boolean isApproximate() {
+        return _approximateDistribution != null;
+    }
+
+    /**
+     * Gets the approximate value distribution that this result was created
+     * from, if in approximate mode. Used for reducing approximate results.
+     *
+     * @return the approximate distribution, or null if not in approximate mode
+     */
+    public ApproximateValueDistribution getApproximateDistribution() {
+        return _approximateDistribution;
+    }
+
     public InputColumn<?>[] getHighlightedColumns() {
         return _highlightedColumns;
     }
@@ -27,7 +27,6 @@ import java.util.TreeSet;
 import javax.inject.Inject;
 import javax.inject.Named;
 
-import org.datacleaner.api.Analyzer;
 import org.datacleaner.api.ColumnProperty;
 import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.Configured;
@@ -38,6 +37,7 @@ import org.datacleaner.api.ExternalDocumentation.DocumentationType;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.Provided;
+import org.datacleaner.api.QueryOptimizedAnalyzer;
 import org.datacleaner.storage.CollectionFactory;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotations;
@@ -51,12 +51,14 @@ import org.slf4j.LoggerFactory;
         { @DocumentationLink(title = "Analyzer rundown", url = "https://www.youtube.com/watch?v=hZWxB_eu_A0",
                 type = DocumentationType.VIDEO, version = "4.0") })
 @Concurrent(true)
-public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnalyzerResult> {
+public class ValueDistributionAnalyzer implements QueryOptimizedAnalyzer<ValueDistributionAnalyzerResult> {
 
     public static final String PROPERTY_COLUMN = "Column";
     public static final String PROPERTY_GROUP_COLUMN = "Group column";
     public static final String PROPERTY_RECORD_UNIQUE_VALUES = "Record unique values";
     public static final String PROPERTY_RECORD_DRILL_DOWN_INFORMATION = "Record drill-down information";
+    public static final String PROPERTY_APPROXIMATE = "Approximate distribution";
+    public static final String PROPERTY_APPROXIMATE_CAPACITY = "Approximate capacity";
 
     private static final Logger logger = LoggerFactory.getLogger(ValueDistributionAnalyzer.class);
     private final Map<String, ValueDistributionGroup> _valueDistributionGroups;
@@ -84,6 +86,15 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
     @Deprecated
     Integer _bottomFrequentValues;
     @Inject
+    @Configured(value = PROPERTY_APPROXIMATE, required = false, order = 7)
+    @Description("Estimate the distribution using fixed-memory sketches instead of counting every distinct value. "
+            + "Recommended for high-cardinality columns. Drill-down to the records of a value is not available.")
+    boolean _approximate = false;
+    @Inject
+    @Configured(value = PROPERTY_APPROXIMATE_CAPACITY, required = false, order = 8)
+    @Description("The number of most frequent values to track in approximate mode.")
+    int _approximateCapacity = ApproximateValueDistribution.DEFAULT_CAPACITY;
+    @Inject
     @Provided
     RowAnnotationFactory _annotationFactory;
 
@@ -161,7 +172,7 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
                     }
                     valueDistributionGroup =
                             new ValueDistributionGroup(group, _annotationFactory, _recordDrillDownInformation,
-                                    inputColumns);
+                                    inputColumns, _approximate ? _approximateCapacity : 0);
                     _valueDistributionGroups.put(group, valueDistributionGroup);
                 }
             }
@@ -169,13 +180,21 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
         return valueDistributionGroup;
     }
 
+    @Override
+    public boolean isOptimizable() {
+        // drill-down needs the actual records, and the sketches of the
+        // approximate distribution depend on the order of the values
+        return !_recordDrillDownInformation && !_approximate;
+    }
+
     @Override
     public ValueDistributionAnalyzerResult getResult() {
         if (_groupColumn == null) {
             logger.info("getResult() invoked, processing single group");
             final ValueDistributionGroup valueDistributionGroup = getValueDistributionGroup(_column.getName());
 
-            return valueDistributionGroup.createResult(_recordUniqueValues);
+            return valueDistributionGroup.createResult(_recordUniqueValues, _topFrequentValues,
+                    _bottomFrequentValues);
         } else {
             logger.info("getResult() invoked, processing {} groups", _valueDistributionGroups.size());
 
@@ -183,7 +202,8 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
             for (final String group : _valueDistributionGroups.keySet()) {
                 final ValueDistributionGroup valueDistributibutionGroup = getValueDistributionGroup(group);
                 final SingleValueDistributionResult result =
-                        valueDistributibutionGroup.createResult(_recordUniqueValues);
+                        valueDistributibutionGroup.createResult(_recordUniqueValues, _topFrequentValues,
+                                _bottomFrequentValues);
                 groupedResults.add(result);
             }
             return new GroupedValueDistributionResult(_column, _groupColumn, groupedResults);
@@ -220,4 +240,12 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
     public void setRecordUniqueValues(final boolean recordUniqueValues) {
         _recordUniqueValues = recordUniqueValues;
     }
+
+    public void setApproximate(final boolean approximate) {
+        _approximate = approximate;
+    }
+
+    public void setApproximateCapacity(final int approximateCapacity) {
+        _approximateCapacity = approximateCapacity;
+    }
 }
@@ -34,10 +34,15 @@ import org.datacleaner.result.ReducedSingleValueDistributionResult;
 import org.datacleaner.result.ValueCountingAnalyzerResult;
 import org.datacleaner.result.ValueFrequency;
 import org.datacleaner.storage.RowAnnotationFactory;
+import org.datacleaner.storage.RowAnnotationImpl;
 
 /**
  * A reducer of {@link ValueDistributionAnalyzerResult}s.
  * {@link ValueDistributionAnalyzerResult}s的简化器。
+ *
+ * Results produced in approximate mode are reduced by merging their
+ * {@link ApproximateValueDistribution}s, which keeps the reduced result within
+ * the same fixed memory bounds.
  */
 public class ValueDistributionAnalyzerResultReducer implements AnalyzerResultReducer<ValueDistributionAnalyzerResult> {
 
@@ -62,6 +67,10 @@ public class ValueDistributionAnalyzerResultReducer implements AnalyzerResultRed
 
         final ValueDistributionAnalyzerResult first = analyzerResults.iterator().next();
 
+        if (hasApproximateResults(analyzerResults)) {
+            return reduceApproximateResults(analyzerResults);
+        }
+
         for (final ValueDistributionAnalyzerResult partialResult : analyzerResults) {
             if ((partialResult instanceof SingleValueDistributionResult)
                     || (partialResult instanceof ReducedSingleValueDistributionResult)) {
@@ -76,6 +85,42 @@ public class ValueDistributionAnalyzerResultReducer implements AnalyzerResultRed
         return new ReducedSingleValueDistributionResult(first.getName(), reducedValueCounts, nullCount);
     }
 
+    private boolean hasApproximateResults(
+            final Collection<? extends ValueDistributionAnalyzerResult> analyzerResults) {
+        for (final ValueDistributionAnalyzerResult analyzerResult : analyzerResults) {
+            if (!(analyzerResult instanceof SingleValueDistributionResult)
+                    || !((SingleValueDistributionResult) analyzerResult).isApproximate()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ValueDistributionAnalyzerResult reduceApproximateResults(
+            final Collection<? extends ValueDistributionAnalyzerResult> analyzerResults) {
+        final SingleValueDistributionResult first = (SingleValueDistributionResult) analyzerResults.iterator().next();
+
+        final ApproximateValueDistribution distribution =
+                new ApproximateValueDistribution(first.getApproximateDistribution().getCapacity());
+        int nullCount = 0;
+        int totalCount = 0;
+        for (final ValueDistributionAnalyzerResult partialResult : analyzerResults) {
+            distribution.merge(((SingleValueDistributionResult) partialResult).getApproximateDistribution());
+            nullCount += partialResult.getNullCount();
+            totalCount += partialResult.getTotalCount();
+        }
+
+        // full lists have a max size of -1 and missing lists a max size of 0
+        final int topMaxSize = first.getTopValues().getMaxSize();
+        final Integer topFrequentValues = topMaxSize < 0 ? null : topMaxSize;
+        final int bottomMaxSize = first.getBottomValues().getMaxSize();
+        final Integer bottomFrequentValues = bottomMaxSize <= 0 ? null : bottomMaxSize;
+
+        return ValueDistributionGroup.createApproximateResult(first.getName(), distribution,
+                first.isUniqueValuesAvailable(), topFrequentValues, bottomFrequentValues, totalCount,
+                new RowAnnotationImpl(nullCount), _rowAnnotationFactory, first.getHighlightedColumns());
+    }
+
     private boolean hasGroupedResults(final Collection<? extends ValueDistributionAnalyzerResult> analyzerResults) {
         for (final ValueDistributionAnalyzerResult valueDistributionAnalyzerResult : analyzerResults) {
             if (valueDistributionAnalyzerResult instanceof GroupedValueDistributionResult) {
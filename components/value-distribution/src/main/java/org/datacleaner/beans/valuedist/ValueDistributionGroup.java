@@ -21,10 +21,12 @@ package org.datacleaner.beans.valuedist;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.datacleaner.api.InputColumn;
@@ -45,6 +47,10 @@ import org.slf4j.LoggerFactory;
  * 表示{@link ValueDistributionAnalyzer}中的值分布。
  * {@link ValueDistributionGroup}包含单个组中的计数值。
  *
+ * In approximate mode the values are counted in per-thread
+ * {@link ApproximateValueDistribution}s instead of a map of annotations, which
+ * bounds the memory footprint and avoids synchronizing on the group. The
+ * per-thread distributions are released once they are merged into the result.
  */
 class ValueDistributionGroup {
 
@@ -57,15 +63,41 @@ class ValueDistributionGroup {
     private final boolean _recordAnnotations;
     private final InputColumn<?>[] _inputColumns;
     private final AtomicInteger _totalCount;
+    private final int _approximateCapacity;
+    private final Map<Thread, ApproximateValueDistribution> _threadApproximateDistributions;
+    private final ApproximateValueDistribution _mergedApproximateDistribution;
 
     public ValueDistributionGroup(final String groupName, final RowAnnotationFactory annotationFactory,
             final boolean recordAnnotations, final InputColumn<?>[] inputColumns) {
+        this(groupName, annotationFactory, recordAnnotations, inputColumns, 0);
+    }
+
+    /**
+     * Creates a value distribution group.
+     *
+     * @param groupName
+     * @param annotationFactory
+     * @param recordAnnotations
+     * @param inputColumns
+     * @param approximateCapacity
+     *            the number of values to track in approximate mode, or 0 to
+     *            count all values exactly
+     */
+    public ValueDistributionGroup(final String groupName, final RowAnnotationFactory annotationFactory,
+            final boolean recordAnnotations, final InputColumn<?>[] inputColumns, final int approximateCapacity) {
         _groupName = groupName;
+        _approximateCapacity = approximateCapacity;
         _annotationFactory = annotationFactory;
         _recordAnnotations = recordAnnotations;
         _inputColumns = inputColumns;
         _totalCount = new AtomicInteger();
         _annotationMap = new HashMap<>();
+        _threadApproximateDistributions = new ConcurrentHashMap<>();
+        if (approximateCapacity > 0) {
+            _mergedApproximateDistribution = new ApproximateValueDistribution(approximateCapacity);
+        } else {
+            _mergedApproximateDistribution = null;
+        }
         if (recordAnnotations) {
             _nullValueAnnotation = _annotationFactory.createAnnotation();
         } else {
@@ -80,6 +112,9 @@ class ValueDistributionGroup {
             } else {
                 ((RowAnnotationImpl) _nullValueAnnotation).incrementRowCount(distinctCount);
             }
+        } else if (_approximateCapacity > 0) {
+            _threadApproximateDistributions.computeIfAbsent(Thread.currentThread(),
+                    thread -> new ApproximateValueDistribution(_approximateCapacity)).add(value, distinctCount);
         } else {
             RowAnnotation annotation;
             synchronized (this) {
@@ -104,6 +139,30 @@ class ValueDistributionGroup {
     }
 
     public SingleValueDistributionResult createResult(final boolean recordUniqueValues) {
+        return createResult(recordUniqueValues, null, null);
+    }
+
+    /**
+     * Creates the result of this group.
+     *
+     * @param recordUniqueValues
+     * @param topFrequentValues
+     *            the number of top frequent values to retain in approximate
+     *            mode, or null to retain all tracked values
+     * @param bottomFrequentValues
+     *            the number of bottom frequent values to retain in approximate
+     *            mode, or null for none
+     * @return
+     */
+    public SingleValueDistributionResult createResult(final boolean recordUniqueValues,
+            final Integer topFrequentValues, final Integer bottomFrequentValues) {
+        if (_approximateCapacity > 0) {
+            final ApproximateValueDistribution distribution = mergeApproximateDistributions();
+            return createApproximateResult(_groupName, distribution, recordUniqueValues, topFrequentValues,
+                    bottomFrequentValues, _totalCount.get(), _nullValueAnnotation, _annotationFactory,
+                    _inputColumns);
+        }
+
         final ValueCountListImpl topValues = ValueCountListImpl.createFullList();
 
         final List<String> uniqueValues;
@@ -145,6 +204,27 @@ class ValueDistributionGroup {
         }
     }
 
+    /**
+     * Merges the per-thread distributions into the retained merged
+     * distribution and releases them, so that pooled threads do not keep them
+     * and a repeated call only merges the values added since the last call.
+     *
+     * @return a copy of the merged distribution, which is not affected by
+     *         later merges
+     */
+    private synchronized ApproximateValueDistribution mergeApproximateDistributions() {
+        final Iterator<ApproximateValueDistribution> it = _threadApproximateDistributions.values().iterator();
+        while (it.hasNext()) {
+            final ApproximateValueDistribution threadDistribution = it.next();
+            it.remove();
+            _mergedApproximateDistribution.merge(threadDistribution);
+        }
+
+        final ApproximateValueDistribution distribution = new ApproximateValueDistribution(_approximateCapacity);
+        distribution.merge(_mergedApproximateDistribution);
+        return distribution;
+    }
+
     private int countValue(final boolean recordUniqueValues, final ValueCountListImpl valueCountList,
             final List<String> uniqueValues, int uniqueCount, final String value, final int count) {
         if (count == 1) {
@@ -158,4 +238,53 @@ class ValueDistributionGroup {
         }
         return uniqueCount;
     }
+
+    static SingleValueDistributionResult createApproximateResult(final String groupName,
+            final ApproximateValueDistribution distribution, final boolean recordUniqueValues,
+            final Integer topFrequentValues, final Integer bottomFrequentValues, final int totalCount,
+            final RowAnnotation nullValueAnnotation, final RowAnnotationFactory annotationFactory,
+            final InputColumn<?>[] inputColumns) {
+        final ValueCountListImpl topValues;
+        if (topFrequentValues == null) {
+            topValues = ValueCountListImpl.createFullList();
+        } else {
+            topValues = ValueCountListImpl.createTopList(topFrequentValues);
+        }
+        final ValueCountListImpl bottomValues;
+        if (bottomFrequentValues == null) {
+            bottomValues = null;
+        } else {
+            bottomValues = ValueCountListImpl.createBottomList(bottomFrequentValues);
+        }
+
+        final boolean exact = distribution.isExact();
+        final List<String> uniqueValues;
+        if (recordUniqueValues && exact) {
+            uniqueValues = new ArrayList<>();
+        } else {
+            uniqueValues = null;
+        }
+
+        for (final ValueFrequency valueFrequency : distribution.getValueFrequencies()) {
+            if (valueFrequency.getCount() == 1) {
+                if (uniqueValues != null) {
+                    uniqueValues.add(valueFrequency.getValue());
+                }
+            } else {
+                topValues.register(valueFrequency);
+                if (bottomValues != null) {
+                    bottomValues.register(valueFrequency);
+                }
+            }
+        }
+
+        int distinctCount = distribution.getDistinctCount();
+        if (nullValueAnnotation.getRowCount() > 0) {
+            distinctCount++;
+        }
+
+        return new SingleValueDistributionResult(groupName, topValues, bottomValues, uniqueValues,
+                distribution.getUniqueCount(), distinctCount, totalCount, null, nullValueAnnotation,
+                annotationFactory, inputColumns, distribution);
+    }
 }
@@ -0,0 +1,105 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.valuedist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.datacleaner.result.ValueFrequency;
+import org.junit.Test;
+
+public class ApproximateValueDistributionTest {
+
+    @Test
+    public void testExactBelowCapacity() throws Exception {
+        final ApproximateValueDistribution distribution = new ApproximateValueDistribution(10);
+        distribution.add("foo", 3);
+        distribution.add("bar", 1);
+        distribution.add("foo", 1);
+        distribution.add("baz", 2);
+
+        assertTrue(distribution.isExact());
+        assertEquals(3, distribution.getDistinctCount());
+        assertEquals(1, distribution.getUniqueCount());
+        assertEquals("[[foo->4], [baz->2], [bar->1]]", distribution.getValueFrequencies().toString());
+    }
+
+    @Test
+    public void testMergeIntoEmptyDistributionBetweenCapacityAndEvictionThreshold() throws Exception {
+        final ApproximateValueDistribution partialDistribution = new ApproximateValueDistribution(10);
+        for (int i = 0; i < 15; i++) {
+            partialDistribution.add("value" + i, i + 1);
+        }
+        assertTrue(partialDistribution.isExact());
+
+        // the way results are created from per-thread distributions
+        final ApproximateValueDistribution distribution = new ApproximateValueDistribution(10);
+        distribution.merge(partialDistribution);
+
+        assertTrue(distribution.isExact());
+        assertEquals(15, distribution.getDistinctCount());
+        assertEquals(1, distribution.getUniqueCount());
+        assertEquals(15, distribution.getValueFrequencies().size());
+        assertEquals("[value14->15]", distribution.getValueFrequencies().get(0).toString());
+    }
+
+    @Test
+    public void testHeavyHittersInHighCardinalityStream() throws Exception {
+        final ApproximateValueDistribution distribution = new ApproximateValueDistribution(100);
+        for (int i = 0; i < 200000; i++) {
+            if (i % 10 == 0) {
+                distribution.add("frequent" + (i % 50), 1);
+            } else {
+                distribution.add("id" + i, 1);
+            }
+        }
+
+        assertFalse(distribution.isExact());
+        assertEquals(180005, distribution.getDistinctCount(), 180005 * 0.03);
+        assertEquals(180000, distribution.getUniqueCount(), 180000 * 0.03);
+
+        final List<ValueFrequency> frequencies = distribution.getValueFrequencies();
+        assertEquals(100, frequencies.size());
+        for (int i = 0; i < 5; i++) {
+            final ValueFrequency frequency = frequencies.get(i);
+            assertTrue(frequency.getValue(), frequency.getValue().startsWith("frequent"));
+            assertTrue(frequency.getCount() >= 4000);
+        }
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        final ApproximateValueDistribution distribution1 = new ApproximateValueDistribution(10);
+        distribution1.add("foo", 3);
+        distribution1.add("bar", 1);
+        final ApproximateValueDistribution distribution2 = new ApproximateValueDistribution(10);
+        distribution2.add("foo", 2);
+        distribution2.add("baz", 1);
+
+        distribution1.merge(distribution2);
+        assertTrue(distribution1.isExact());
+        assertEquals(3, distribution1.getDistinctCount());
+        assertEquals(2, distribution1.getUniqueCount());
+        assertEquals("[foo->5]", distribution1.getValueFrequencies().get(0).toString());
+    }
+}
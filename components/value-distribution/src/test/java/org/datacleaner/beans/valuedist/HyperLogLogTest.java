@@ -0,0 +1,65 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.valuedist;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void testSmallCardinalityIsExact() throws Exception {
+        final HyperLogLog hyperLogLog = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            hyperLogLog.add("value" + (i % 10));
+        }
+        assertEquals(10, hyperLogLog.getCardinality());
+    }
+
+    @Test
+    public void testLargeCardinality() throws Exception {
+        final HyperLogLog hyperLogLog = new HyperLogLog();
+        final int n = 1000000;
+        for (int i = 0; i < n; i++) {
+            hyperLogLog.add("user" + i + "@example.com");
+        }
+        assertEquals(n, hyperLogLog.getCardinality(), n * 0.03);
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        final HyperLogLog hyperLogLog1 = new HyperLogLog();
+        final HyperLogLog hyperLogLog2 = new HyperLogLog();
+        for (int i = 0; i < 60000; i++) {
+            hyperLogLog1.add("id" + i);
+        }
+        for (int i = 40000; i < 100000; i++) {
+            hyperLogLog2.add("id" + i);
+        }
+        hyperLogLog1.merge(hyperLogLog2);
+        assertEquals(100000, hyperLogLog1.getCardinality(), 100000 * 0.03);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecision() throws Exception {
+        new HyperLogLog(10).merge(new HyperLogLog(12));
+    }
+}
@@ -209,4 +209,36 @@ public class ValueDistributionAnalyzerResultReducerTest {
         }
     }
 
+    @Test
+    public void testReduceApproximateResults() throws Exception {
+        final List<ValueDistributionAnalyzerResult> partialResults = new ArrayList<>();
+        for (int part = 0; part < 3; part++) {
+            final ValueDistributionAnalyzer valueDist =
+                    new ValueDistributionAnalyzer(new MetaModelInputColumn(new MutableColumn("col")), true);
+            valueDist.setApproximate(true);
+            valueDist.setApproximateCapacity(50);
+            for (int i = 0; i < 10000; i++) {
+                valueDist.runInternal(new MockInputRow(), i % 4 == 0 ? "common" : "id" + part + "_" + i, 1);
+            }
+            valueDist.runInternal(new MockInputRow(), null, 2);
+
+            final SingleValueDistributionResult partialResult =
+                    (SingleValueDistributionResult) valueDist.getResult();
+            assertTrue(partialResult.isApproximate());
+            assertEquals(2, partialResult.getNullCount());
+            assertEquals("[common->2500]", partialResult.getTopValues().getValueCounts().get(0).toString());
+            partialResults.add(partialResult);
+        }
+
+        final ValueDistributionAnalyzerResultReducer reducer = new ValueDistributionAnalyzerResultReducer();
+        final SingleValueDistributionResult reducedResult =
+                (SingleValueDistributionResult) reducer.reduce(partialResults);
+
+        assertTrue(reducedResult.isApproximate());
+        assertEquals(30006, reducedResult.getTotalCount());
+        assertEquals(6, reducedResult.getNullCount());
+        assertEquals("[common->7500]", reducedResult.getTopValues().getValueCounts().get(0).toString());
+        assertEquals(22502, reducedResult.getDistinctCount(), 22502 * 0.03);
+        assertEquals(22500, reducedResult.getUniqueCount(), 22500 * 0.03);
+    }
 }
@@ -34,12 +34,16 @@ import org.datacleaner.descriptors.AnalyzerDescriptor;
 import org.datacleaner.descriptors.Descriptors;
 import org.datacleaner.descriptors.MetricDescriptor;
 import org.datacleaner.descriptors.MetricParameters;
+import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.builder.AnalysisJobBuilder;
 import org.datacleaner.job.builder.AnalyzerComponentBuilder;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
 import org.datacleaner.result.GroupedValueCountingAnalyzerResult;
 import org.datacleaner.result.ValueCountList;
 import org.datacleaner.result.ValueCountingAnalyzerResult;
 import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
 import org.junit.Test;
 
 public class ValueDistributionAnalyzerTest {
@@ -68,7 +72,7 @@ public class ValueDistributionAnalyzerTest {
     public void testDescriptor() {
         final AnalyzerDescriptor<?> desc = Descriptors.ofAnalyzer(ValueDistributionAnalyzer.class);
         assertEquals(0, desc.getInitializeMethods().size());
-        assertEquals(6, desc.getConfiguredProperties().size());
+        assertEquals(8, desc.getConfiguredProperties().size());
         assertEquals(1, desc.getProvidedProperties().size());
         assertEquals("Value distribution", desc.getDisplayName());
     }
@@ -122,6 +126,45 @@ public class ValueDistributionAnalyzerTest {
 
     }
 
+    @Test
+    public void testApproximateDistributionOfSeveralThreads() throws Exception {
+        final ValueDistributionAnalyzer vd =
+                new ValueDistributionAnalyzer(new MetaModelInputColumn(new MutableColumn("col")), true);
+        vd.setApproximate(true);
+
+        final Thread[] threads = new Thread[3];
+        for (int i = 0; i < threads.length; i++) {
+            final String threadValue = "thread" + i;
+            threads[i] = new Thread(() -> {
+                vd.runInternal(new MockInputRow(), "shared", 1);
+                vd.runInternal(new MockInputRow(), threadValue, 1);
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final ValueCountingAnalyzerResult result1 = vd.getResult();
+        assertEquals(3, result1.getCount("shared").intValue());
+        assertEquals(3, result1.getUniqueCount().intValue());
+        assertEquals(4, result1.getDistinctCount().intValue());
+        assertEquals(6, result1.getTotalCount());
+
+        // values added after the first result are merged into the earlier
+        // ones, without changing the first result
+        vd.runInternal(new MockInputRow(), "shared", 1);
+        vd.runInternal(new MockInputRow(), "thread0", 1);
+        final ValueCountingAnalyzerResult result2 = vd.getResult();
+        assertEquals(4, result2.getCount("shared").intValue());
+        assertEquals(2, result2.getCount("thread0").intValue());
+        assertEquals(2, result2.getUniqueCount().intValue());
+        assertEquals(8, result2.getTotalCount());
+
+        assertEquals(3, result1.getCount("shared").intValue());
+        assertEquals(1, result1.getCount("thread0").intValue());
+    }
+
     @Test
     public void testGetValueCountMetric() {
         final ValueDistributionAnalyzer vd =
@@ -207,4 +250,46 @@ public class ValueDistributionAnalyzerTest {
         assertEquals("Group: 2200", resultLines[i++]);
         assertEquals(" - Copenhagen N: 3", resultLines[i++]);
     }
+
+    @Test
+    public void testAggregatePushDownGivesSameResult() throws Throwable {
+        final String streamed = runCountryDistribution();
+
+        System.setProperty(SystemProperties.QUERY_AGGREGATE_PUSHDOWN, "true");
+        final String aggregated;
+        try {
+            aggregated = runCountryDistribution();
+        } finally {
+            System.clearProperty(SystemProperties.QUERY_AGGREGATE_PUSHDOWN);
+        }
+
+        assertTrue(streamed.startsWith("Value distribution for: COUNTRY"));
+        assertEquals(streamed, aggregated);
+    }
+
+    private String runCountryDistribution() throws Throwable {
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        final DataCleanerConfigurationImpl configuration = new DataCleanerConfigurationImpl().withDatastores(datastore);
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder ajb = new AnalysisJobBuilder(configuration)) {
+            ajb.setDatastore(datastore);
+            ajb.addSourceColumns("customers.country");
+
+            final AnalyzerComponentBuilder<ValueDistributionAnalyzer> componentBuilder =
+                    ajb.addAnalyzer(ValueDistributionAnalyzer.class);
+            componentBuilder.addInputColumn(ajb.getSourceColumnByName("country"));
+            componentBuilder.setConfiguredProperty(ValueDistributionAnalyzer.PROPERTY_RECORD_DRILL_DOWN_INFORMATION,
+                    false);
+            job = ajb.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+        final ValueCountingAnalyzerResult result = (ValueCountingAnalyzerResult) resultFuture.getResults().get(0);
+        return result.toString() + "\n" + result.getTotalCount() + " " + result.getNullCount() + " "
+                + result.getDistinctCount() + " " + result.getUniqueCount() + " " + result.getUniqueValues();
+    }
 }
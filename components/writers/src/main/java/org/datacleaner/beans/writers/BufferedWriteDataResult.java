@@ -0,0 +1,79 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.writers;
+
+import org.datacleaner.api.Distributed;
+import org.datacleaner.api.Metric;
+import org.datacleaner.util.WriteBuffer;
+import org.datacleaner.util.WriteBufferStatistics;
+
+/**
+ * Represents the result of a writer that writes its rows through a
+ * {@link WriteBuffer}, and therefore can report how the writing performed.
+ */
+@Distributed(reducer = WriteDataResultReducer.class)
+public interface BufferedWriteDataResult extends WriteDataResult {
+
+    /**
+     * @return statistics about the buffered writing, or null if not available
+     *         (eg. for a reduced result of older results)
+     */
+    WriteBufferStatistics getWriteBufferStatistics();
+
+    /**
+     * @return the average time spent writing a batch of rows, in milliseconds
+     */
+    @Metric("Average flush time (ms)")
+    default double getAverageFlushMillis() {
+        final WriteBufferStatistics statistics = getWriteBufferStatistics();
+        return statistics == null ? 0 : statistics.getAverageFlushMillis();
+    }
+
+    /**
+     * @return the longest time spent writing a batch of rows, in milliseconds
+     */
+    @Metric("Max flush time (ms)")
+    default long getMaxFlushMillis() {
+        final WriteBufferStatistics statistics = getWriteBufferStatistics();
+        return statistics == null ? 0 : statistics.getMaxFlushMillis();
+    }
+
+    /**
+     * @return the peak number of rows waiting to be written
+     */
+    @Metric("Max queued rows")
+    default int getMaxQueuedRowCount() {
+        final WriteBufferStatistics statistics = getWriteBufferStatistics();
+        return statistics == null ? 0 : statistics.getMaxQueuedRowCount();
+    }
+
+    /**
+     * Gets the total time that the row processing was blocked waiting for
+     * rows to be written. A high value indicates that the target is the
+     * bottleneck of the job.
+     *
+     * @return the backpressure time, in milliseconds
+     */
+    @Metric("Backpressure time (ms)")
+    default long getBackpressureMillis() {
+        final WriteBufferStatistics statistics = getWriteBufferStatistics();
+        return statistics == null ? 0 : statistics.getBackpressureMillis();
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.writers;
+
+import org.apache.metamodel.util.HasName;
+
+/**
+ * An enum that represents the user-selectable strategies for loading buffered
+ * rows into a JDBC database. Datastores that are not JDBC databases are always
+ * written row by row.
+ */
+public enum BulkLoadStrategy implements HasName {
+
+    /**
+     * Selects the fastest strategy available for the database
+     */
+    AUTOMATIC("Automatic"),
+
+    /**
+     * Inserts rows one at a time using the generic insert mechanism
+     */
+    NONE("None (row by row)"),
+
+    /**
+     * Inserts rows using batched prepared statements
+     */
+    JDBC_BATCH("JDBC batch"),
+
+    /**
+     * Inserts many rows per statement using INSERT ... VALUES (...), (...)
+     */
+    MULTI_ROW_INSERT("Multi-row INSERT"),
+
+    /**
+     * Streams rows to the database using PostgreSQL's COPY FROM STDIN
+     */
+    POSTGRESQL_COPY("PostgreSQL COPY");
+
+    private final String _name;
+
+    BulkLoadStrategy(final String name) {
+        _name = name;
+    }
+
+    /**
+     * Gets the display name of this strategy
+     *
+     * @return the display name of this strategy
+     */
+    @Override
+    public String getName() {
+        return _name;
+    }
+}
@@ -83,7 +83,7 @@ import org.slf4j.LoggerFactory;
 @Categorized(superCategory = WriteSuperCategory.class)
 @Concurrent(true)
 public class DeleteFromTableAnalyzer
-        implements Analyzer<WriteDataResult>, Action<Iterable<Object[]>>, HasLabelAdvice, PrecedingComponentConsumer {
+        implements Analyzer<BufferedWriteDataResult>, Action<Iterable<Object[]>>, HasLabelAdvice, PrecedingComponentConsumer {
 
     private static final String PROPERTY_NAME_CONDITION_VALUES = "Condition values";
 
@@ -309,7 +309,7 @@ public class DeleteFromTableAnalyzer
 
 
     @Override
-    public WriteDataResult getResult() {
+    public BufferedWriteDataResult getResult() {
         _writeBuffer.flushBuffer();
 
         final int updatedRowCount = _updatedRowCount.get();
@@ -323,7 +323,7 @@ public class DeleteFromTableAnalyzer
         }
 
         return new WriteDataResultImpl(0, updatedRowCount, datastore, schemaName, tableName, _errorRowCount.get(),
-                errorDatastore);
+                errorDatastore, _writeBuffer.getStatistics());
     }
 
     /**
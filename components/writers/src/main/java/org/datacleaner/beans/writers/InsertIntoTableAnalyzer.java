@@ -21,8 +21,10 @@ package org.datacleaner.beans.writers;
 
 import java.io.File;
 import java.io.IOException;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -31,11 +33,13 @@ import javax.inject.Named;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.metamodel.BatchUpdateScript;
+import org.apache.metamodel.DataContext;
 import org.apache.metamodel.UpdateableDataContext;
 import org.apache.metamodel.create.TableCreationBuilder;
 import org.apache.metamodel.csv.CsvDataContext;
 import org.apache.metamodel.delete.RowDeletionBuilder;
 import org.apache.metamodel.insert.RowInsertionBuilder;
+import org.apache.metamodel.jdbc.JdbcDataContext;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
@@ -44,6 +48,7 @@ import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Resource;
 import org.datacleaner.api.Analyzer;
 import org.datacleaner.api.Categorized;
+import org.datacleaner.api.Close;
 import org.datacleaner.api.ColumnProperty;
 import org.datacleaner.api.ComponentContext;
 import org.datacleaner.api.Concurrent;
@@ -75,7 +80,7 @@ import org.slf4j.LoggerFactory;
 @Description("InsertIntoTableAnalyzer.Description")
 @Categorized(superCategory = WriteSuperCategory.class)
 @Concurrent(true)
-public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Action<Iterable<Object[]>>, HasLabelAdvice {
+public class InsertIntoTableAnalyzer implements Analyzer<BufferedWriteDataResult>, Action<Iterable<Object[]>>, HasLabelAdvice {
 
     private static final String PROPERTY_NAME_VALUES = "Values";
 
@@ -126,6 +131,17 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
                     + "but require more memory.")
     WriteBufferSizeOption bufferSizeOption = WriteBufferSizeOption.MEDIUM;
 
+    @Inject
+    @Configured(value = "Write buffers", required = false)
+    @Description("Number of buffers to use. With a single buffer, rows are written by the row processing threads. "
+            + "With more buffers, full buffers are written by a dedicated writer thread while processing continues.")
+    int writeBufferCount = 1;
+
+    @Inject
+    @Configured(value = "Bulk load strategy", required = false)
+    @Description("How to load batches of rows into JDBC databases. If a batch fails, it is retried row by row.")
+    BulkLoadStrategy bulkLoadStrategy = BulkLoadStrategy.AUTOMATIC;
+
     @Inject
     @Configured(value = "How to handle insertion errors?")
     ErrorHandlingOption errorHandlingOption = ErrorHandlingOption.STOP_JOB;
@@ -147,6 +163,7 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
 
     private Column[] _targetColumns;
     private WriteBuffer _writeBuffer;
+    private JdbcBulkLoader _bulkLoader;
     private AtomicInteger _writtenRowCount;
     private AtomicInteger _errorRowCount;
     private CsvDataContext _errorDataContext;
@@ -199,7 +216,7 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
         final int bufferSize = bufferSizeOption.calculateBufferSize(values.length);
         logger.info("Row buffer size set to {}", bufferSize);
 
-        _writeBuffer = new WriteBuffer(bufferSize, this);
+        _writeBuffer = new WriteBuffer(bufferSize, this, Math.max(1, writeBufferCount));
 
         try (UpdateableDatastoreConnection con = datastore.openConnection()) {
             final SchemaNavigator schemaNavigator = con.getSchemaNavigator();
@@ -215,6 +232,8 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
             if (!columnsNotFound.isEmpty()) {
                 throw new IllegalArgumentException("Could not find column(s): " + columnsNotFound);
             }
+
+            _bulkLoader = JdbcBulkLoader.create(bulkLoadStrategy, con.getDataContext());
         }
 
         if (_targetColumns.length != values.length) {
@@ -368,8 +387,16 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
         }
     }
 
+    @Close
+    public void close() {
+        if (_writeBuffer != null) {
+            _writeBuffer.close();
+            _writeBuffer = null;
+        }
+    }
+
     @Override
-    public WriteDataResult getResult() {
+    public BufferedWriteDataResult getResult() {
         _writeBuffer.flushBuffer();
 
         final int writtenRowCount = _writtenRowCount.get();
@@ -382,8 +409,8 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
             errorDatastore = null;
         }
 
-        return new WriteDataResultImpl(writtenRowCount, datastore, schemaName, tableName, _errorRowCount.get(),
-                errorDatastore);
+        return new WriteDataResultImpl(writtenRowCount, 0, datastore, schemaName, tableName, _errorRowCount.get(),
+                errorDatastore, _writeBuffer.getStatistics());
     }
 
     /**
@@ -391,6 +418,9 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
      */
     @Override
     public void run(final Iterable<Object[]> buffer) throws Exception {
+        if (_bulkLoader != null && bulkLoad(buffer)) {
+            return;
+        }
 
         try (UpdateableDatastoreConnection con = datastore.openConnection()) {
             final Column[] columns = con.getSchemaNavigator().convertToColumns(schemaName, tableName, columnNames);
@@ -429,6 +459,53 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
         }
     }
 
+    /**
+     * Loads a batch of rows using the bulk loader. If the batch fails, the
+     * rows are retried one at a time, so that erroneous rows can be handled.
+     *
+     * @param buffer
+     * @return true if the rows were handled, false if the datastore did not
+     *         support bulk loading
+     */
+    private boolean bulkLoad(final Iterable<Object[]> buffer) {
+        try (UpdateableDatastoreConnection con = datastore.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+            if (!(dataContext instanceof JdbcDataContext)) {
+                return false;
+            }
+            final JdbcDataContext jdbcDataContext = (JdbcDataContext) dataContext;
+
+            final List<Object[]> rows = new ArrayList<>();
+            buffer.forEach(rows::add);
+
+            int insertCount = 0;
+            try {
+                _bulkLoader.load(jdbcDataContext, _targetColumns, rows);
+                insertCount = rows.size();
+                _writtenRowCount.addAndGet(insertCount);
+            } catch (final SQLException | RuntimeException e) {
+                logger.warn("Bulk load ({}) of {} rows failed, retrying row by row: {}", _bulkLoader.getStrategy(),
+                        rows.size(), e.getMessage());
+                for (final Object[] rowData : rows) {
+                    try {
+                        _bulkLoader.load(jdbcDataContext, _targetColumns, Collections.singletonList(rowData));
+                        insertCount++;
+                        _writtenRowCount.incrementAndGet();
+                    } catch (final SQLException rowException) {
+                        errorOccurred(rowData, new IllegalStateException(rowException.getMessage(), rowException));
+                    } catch (final RuntimeException rowException) {
+                        errorOccurred(rowData, rowException);
+                    }
+                }
+            }
+
+            if (insertCount > 0) {
+                _componentContext.publishMessage(new ExecutionLogMessage(insertCount + " inserts executed"));
+            }
+            return true;
+        }
+    }
+
     protected void errorOccurred(final Object[] rowData, final RuntimeException e) {
         _errorRowCount.incrementAndGet();
         if (errorHandlingOption == ErrorHandlingOption.STOP_JOB) {
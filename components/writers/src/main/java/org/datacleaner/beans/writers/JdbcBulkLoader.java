@@ -0,0 +1,335 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.writers;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.jdbc.JdbcDataContext;
+import org.apache.metamodel.jdbc.dialects.IQueryRewriter;
+import org.apache.metamodel.query.FromItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads batches of rows into a JDBC database using a (resolved)
+ * {@link BulkLoadStrategy}. Each batch is loaded in a single transaction, so
+ * that a failing batch can be retried row by row by the caller.
+ */
+final class JdbcBulkLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcBulkLoader.class);
+
+    private static final String POSTGRESQL_CONNECTION_CLASS = "org.postgresql.PGConnection";
+    private static final int JDBC_BATCH_SIZE = 1000;
+    private static final int MAX_ROWS_PER_INSERT = 1000;
+    private static final int MAX_PARAMETERS_PER_INSERT = 2000;
+
+    private final BulkLoadStrategy _strategy;
+
+    private JdbcBulkLoader(final BulkLoadStrategy strategy) {
+        _strategy = strategy;
+    }
+
+    /**
+     * Creates a bulk loader for a data context.
+     *
+     * @param strategy
+     *            the requested strategy
+     * @param dataContext
+     *            the data context to load data into
+     * @return a bulk loader, or null if rows should be written row by row
+     */
+    public static JdbcBulkLoader create(final BulkLoadStrategy strategy, final DataContext dataContext) {
+        if (strategy == null || strategy == BulkLoadStrategy.NONE || !(dataContext instanceof JdbcDataContext)) {
+            return null;
+        }
+
+        final JdbcDataContext jdbcDataContext = (JdbcDataContext) dataContext;
+        final BulkLoadStrategy resolvedStrategy = resolveStrategy(strategy, jdbcDataContext);
+        logger.info("Using bulk load strategy: {}", resolvedStrategy);
+        if (resolvedStrategy == BulkLoadStrategy.NONE) {
+            return null;
+        }
+        return new JdbcBulkLoader(resolvedStrategy);
+    }
+
+    private static BulkLoadStrategy resolveStrategy(final BulkLoadStrategy strategy,
+            final JdbcDataContext dataContext) {
+        final Connection connection = dataContext.getConnection();
+        try {
+            final boolean copySupported = isPostgresCopySupported(connection);
+            if (strategy == BulkLoadStrategy.POSTGRESQL_COPY && !copySupported) {
+                logger.warn("PostgreSQL COPY is not supported by the connection, using JDBC batches instead");
+                return BulkLoadStrategy.JDBC_BATCH;
+            }
+            if (strategy != BulkLoadStrategy.AUTOMATIC) {
+                return strategy;
+            }
+
+            final String databaseProductName = dataContext.getDatabaseProductName();
+            if (JdbcDataContext.DATABASE_PRODUCT_POSTGRESQL.equals(databaseProductName)) {
+                return copySupported ? BulkLoadStrategy.POSTGRESQL_COPY : BulkLoadStrategy.MULTI_ROW_INSERT;
+            }
+            if (JdbcDataContext.DATABASE_PRODUCT_MYSQL.equals(databaseProductName)) {
+                return BulkLoadStrategy.MULTI_ROW_INSERT;
+            }
+            if (connection.getMetaData().supportsBatchUpdates()) {
+                return BulkLoadStrategy.JDBC_BATCH;
+            }
+            return BulkLoadStrategy.NONE;
+        } catch (final SQLException e) {
+            logger.warn("Could not determine bulk load strategy, writing row by row", e);
+            return BulkLoadStrategy.NONE;
+        } finally {
+            dataContext.close(connection);
+        }
+    }
+
+    private static boolean isPostgresCopySupported(final Connection connection) {
+        try {
+            return connection.isWrapperFor(Class.forName(POSTGRESQL_CONNECTION_CLASS));
+        } catch (final ClassNotFoundException | SQLException e) {
+            return false;
+        }
+    }
+
+    public BulkLoadStrategy getStrategy() {
+        return _strategy;
+    }
+
+    /**
+     * Loads rows into a table in a single transaction.
+     *
+     * @param dataContext
+     * @param columns
+     *            the target columns. Rows may contain additional values after
+     *            the values of these columns, which are ignored.
+     * @param rows
+     * @throws SQLException
+     *             if the batch failed and was rolled back
+     */
+    public void load(final JdbcDataContext dataContext, final Column[] columns, final List<Object[]> rows)
+            throws SQLException {
+        final Table table = columns[0].getTable();
+        final String tableName = dataContext.getQueryRewriter().rewriteFromItem(new FromItem(table));
+
+        final Connection connection = dataContext.getConnection();
+        try {
+            // a single-connection data context hands the same connection to
+            // all flushing threads, so the transaction must be exclusive (the
+            // same way MetaModel's executeUpdate(...) locks it)
+            synchronized (connection) {
+                loadInTransaction(connection, dataContext.getQueryRewriter(), tableName, columns, rows);
+            }
+        } finally {
+            dataContext.close(connection);
+        }
+    }
+
+    private void loadInTransaction(final Connection connection, final IQueryRewriter queryRewriter,
+            final String tableName, final Column[] columns, final List<Object[]> rows) throws SQLException {
+        final boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            switch (_strategy) {
+            case JDBC_BATCH:
+                loadJdbcBatch(connection, queryRewriter, tableName, columns, rows);
+                break;
+            case MULTI_ROW_INSERT:
+                loadMultiRowInsert(connection, queryRewriter, tableName, columns, rows);
+                break;
+            case POSTGRESQL_COPY:
+                loadPostgresCopy(connection, tableName, columns, rows);
+                break;
+            default:
+                throw new UnsupportedOperationException("Unsupported bulk load strategy: " + _strategy);
+            }
+            connection.commit();
+        } catch (final SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void loadJdbcBatch(final Connection connection, final IQueryRewriter queryRewriter,
+            final String tableName, final Column[] columns, final List<Object[]> rows) throws SQLException {
+        try (PreparedStatement st = connection.prepareStatement(createInsertSql(tableName, columns, 1))) {
+            int batchCount = 0;
+            for (final Object[] row : rows) {
+                setParameters(st, queryRewriter, columns, row, 0);
+                st.addBatch();
+                batchCount++;
+                if (batchCount == JDBC_BATCH_SIZE) {
+                    st.executeBatch();
+                    batchCount = 0;
+                }
+            }
+            if (batchCount > 0) {
+                st.executeBatch();
+            }
+        }
+    }
+
+    private void loadMultiRowInsert(final Connection connection, final IQueryRewriter queryRewriter,
+            final String tableName, final Column[] columns, final List<Object[]> rows) throws SQLException {
+        final int rowsPerInsert =
+                Math.max(1, Math.min(MAX_ROWS_PER_INSERT, MAX_PARAMETERS_PER_INSERT / columns.length));
+
+        PreparedStatement fullStatement = null;
+        try {
+            for (int offset = 0; offset < rows.size(); offset += rowsPerInsert) {
+                final List<Object[]> chunk = rows.subList(offset, Math.min(offset + rowsPerInsert, rows.size()));
+                if (chunk.size() == rowsPerInsert) {
+                    if (fullStatement == null) {
+                        fullStatement = connection.prepareStatement(createInsertSql(tableName, columns, rowsPerInsert));
+                    }
+                    executeMultiRowInsert(fullStatement, queryRewriter, columns, chunk);
+                } else {
+                    try (PreparedStatement st = connection
+                            .prepareStatement(createInsertSql(tableName, columns, chunk.size()))) {
+                        executeMultiRowInsert(st, queryRewriter, columns, chunk);
+                    }
+                }
+            }
+        } finally {
+            if (fullStatement != null) {
+                fullStatement.close();
+            }
+        }
+    }
+
+    private void executeMultiRowInsert(final PreparedStatement st, final IQueryRewriter queryRewriter,
+            final Column[] columns, final List<Object[]> rows) throws SQLException {
+        int parameterOffset = 0;
+        for (final Object[] row : rows) {
+            setParameters(st, queryRewriter, columns, row, parameterOffset);
+            parameterOffset += columns.length;
+        }
+        st.executeUpdate();
+    }
+
+    private void setParameters(final PreparedStatement st, final IQueryRewriter queryRewriter,
+            final Column[] columns, final Object[] row, final int parameterOffset) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            queryRewriter.setStatementParameter(st, parameterOffset + i + 1, columns[i], row[i]);
+        }
+    }
+
+    private static String createInsertSql(final String tableName, final Column[] columns, final int rowCount) {
+        final StringBuilder sb = new StringBuilder("INSERT INTO ");
+        sb.append(tableName);
+        sb.append(" (");
+        appendColumnNames(sb, columns);
+        sb.append(") VALUES ");
+        for (int r = 0; r < rowCount; r++) {
+            if (r != 0) {
+                sb.append(',');
+            }
+            sb.append('(');
+            for (int i = 0; i < columns.length; i++) {
+                if (i != 0) {
+                    sb.append(',');
+                }
+                sb.append('?');
+            }
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
+    private static void appendColumnNames(final StringBuilder sb, final Column[] columns) {
+        for (int i = 0; i < columns.length; i++) {
+            if (i != 0) {
+                sb.append(',');
+            }
+            sb.append(columns[i].getQuotedName());
+        }
+    }
+
+    private void loadPostgresCopy(final Connection connection, final String tableName, final Column[] columns,
+            final List<Object[]> rows) throws SQLException {
+        final StringBuilder sql = new StringBuilder("COPY ");
+        sql.append(tableName);
+        sql.append(" (");
+        appendColumnNames(sql, columns);
+        sql.append(") FROM STDIN WITH (FORMAT csv)");
+
+        final StringBuilder csv = new StringBuilder();
+        for (final Object[] row : rows) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i != 0) {
+                    csv.append(',');
+                }
+                appendCsvValue(csv, row[i]);
+            }
+            csv.append('\n');
+        }
+
+        // the PostgreSQL driver is accessed reflectively since it is not a
+        // compile time dependency
+        try {
+            final Class<?> pgConnectionClass = Class.forName(POSTGRESQL_CONNECTION_CLASS);
+            final Object pgConnection = connection.unwrap(pgConnectionClass);
+            final Object copyManager = pgConnectionClass.getMethod("getCopyAPI").invoke(pgConnection);
+            final Method copyIn = copyManager.getClass().getMethod("copyIn", String.class, Reader.class);
+            copyIn.invoke(copyManager, sql.toString(), new StringReader(csv.toString()));
+        } catch (final InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException("PostgreSQL COPY failed", cause);
+        } catch (final ReflectiveOperationException e) {
+            throw new SQLException("PostgreSQL COPY is not available", e);
+        }
+    }
+
+    private static void appendCsvValue(final StringBuilder sb, final Object value) {
+        if (value == null) {
+            // an unquoted empty value represents NULL
+            return;
+        }
+
+        final String str;
+        if (value instanceof byte[]) {
+            throw new IllegalArgumentException("Binary values are not supported by PostgreSQL COPY in CSV format");
+        } else if (value instanceof Date && !(value instanceof java.sql.Date) && !(value instanceof java.sql.Time)
+                && !(value instanceof Timestamp)) {
+            str = new Timestamp(((Date) value).getTime()).toString();
+        } else {
+            str = value.toString();
+        }
+        sb.append('"').append(str.replace("\"", "\"\"")).append('"');
+    }
+}
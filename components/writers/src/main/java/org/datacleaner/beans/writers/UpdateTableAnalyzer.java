@@ -47,6 +47,7 @@ import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Resource;
 import org.datacleaner.api.Analyzer;
 import org.datacleaner.api.Categorized;
+import org.datacleaner.api.Close;
 import org.datacleaner.api.ColumnProperty;
 import org.datacleaner.api.ComponentContext;
 import org.datacleaner.api.Concurrent;
@@ -94,7 +95,7 @@ import org.slf4j.LoggerFactory;
 @Categorized(superCategory = WriteSuperCategory.class)
 @Concurrent(true)
 public class UpdateTableAnalyzer
-        implements Analyzer<WriteDataResult>, Action<Iterable<Object[]>>, HasLabelAdvice, PrecedingComponentConsumer {
+        implements Analyzer<BufferedWriteDataResult>, Action<Iterable<Object[]>>, HasLabelAdvice, PrecedingComponentConsumer {
 
     private static final String PROPERTY_NAME_VALUES = "Values";
     private static final String PROPERTY_NAME_CONDITION_VALUES = "Condition values";
@@ -152,6 +153,12 @@ public class UpdateTableAnalyzer
             + "but require more memory.")
     WriteBufferSizeOption bufferSizeOption = WriteBufferSizeOption.MEDIUM;
 
+    @Inject
+    @Configured(value = "Write buffers", required = false, order = 12)
+    @Description("Number of buffers to use. With a single buffer, rows are written by the row processing threads. "
+            + "With more buffers, full buffers are written by a dedicated writer thread while processing continues.")
+    int writeBufferCount = 1;
+
     @Inject
     @Configured(value = "How to handle updation errors?", order = 9)
     ErrorHandlingOption errorHandlingOption = ErrorHandlingOption.STOP_JOB;
@@ -204,7 +211,7 @@ public class UpdateTableAnalyzer
         final int bufferSize = bufferSizeOption.calculateBufferSize(values.length);
         logger.info("Row buffer size set to {}", bufferSize);
 
-        _writeBuffer = new WriteBuffer(bufferSize, this);
+        _writeBuffer = new WriteBuffer(bufferSize, this, Math.max(1, writeBufferCount));
 
         try (UpdateableDatastoreConnection con = datastore.openConnection()) {
             final SchemaNavigator schemaNavigator = con.getSchemaNavigator();
@@ -396,8 +403,16 @@ public class UpdateTableAnalyzer
     }
 
 
+    @Close
+    public void close() {
+        if (_writeBuffer != null) {
+            _writeBuffer.close();
+            _writeBuffer = null;
+        }
+    }
+
     @Override
-    public WriteDataResult getResult() {
+    public BufferedWriteDataResult getResult() {
         _writeBuffer.flushBuffer();
 
         final int updatedRowCount = _updatedRowCount.get();
@@ -411,7 +426,7 @@ public class UpdateTableAnalyzer
         }
 
         return new WriteDataResultImpl(0, updatedRowCount, datastore, schemaName, tableName, _errorRowCount.get(),
-                errorDatastore);
+                errorDatastore, _writeBuffer.getStatistics());
     }
 
     /**
@@ -26,13 +26,14 @@ import org.datacleaner.connection.Datastore;
 import org.datacleaner.connection.DatastoreCatalog;
 import org.datacleaner.connection.DatastoreConnection;
 import org.datacleaner.connection.FileDatastore;
+import org.datacleaner.util.WriteBufferStatistics;
 
 /**
  * Default implementation of {@link WriteDataResult}.
  *
  *
  */
-public final class WriteDataResultImpl implements WriteDataResult {
+public final class WriteDataResultImpl implements BufferedWriteDataResult {
 
     private static final long serialVersionUID = 1L;
 
@@ -42,6 +43,7 @@ public final class WriteDataResultImpl implements WriteDataResult {
     private final String _schemaName;
     private final String _tableName;
     private final int _errorRowCount;
+    private final WriteBufferStatistics _writeBufferStatistics;
 
     private final transient Function<DatastoreCatalog, Datastore> _datastoreFunc;
     private final transient FileDatastore _errorDatastore;
@@ -63,6 +65,12 @@ public final class WriteDataResultImpl implements WriteDataResult {
     public WriteDataResultImpl(final int writtenRowCount, final int updatesCount, final Datastore datastore,
             final String schemaName, final String tableName, final int errorRowCount,
             final FileDatastore errorDatastore) {
+        this(writtenRowCount, updatesCount, datastore, schemaName, tableName, errorRowCount, errorDatastore, null);
+    }
+
+    public WriteDataResultImpl(final int writtenRowCount, final int updatesCount, final Datastore datastore,
+            final String schemaName, final String tableName, final int errorRowCount,
+            final FileDatastore errorDatastore, final WriteBufferStatistics writeBufferStatistics) {
         _writtenRowCount = writtenRowCount;
         _updatesCount = updatesCount;
         _schemaName = schemaName;
@@ -71,6 +79,7 @@ public final class WriteDataResultImpl implements WriteDataResult {
         _datastoreFunc = catalog -> datastore;
         _errorRowCount = errorRowCount;
         _errorDatastore = errorDatastore;
+        _writeBufferStatistics = writeBufferStatistics;
     }
 
     public WriteDataResultImpl(final int writtenRowCount, final String datastoreName, final String schemaName,
@@ -88,6 +97,7 @@ public final class WriteDataResultImpl implements WriteDataResult {
         _datastoreFunc = catalog -> catalog.getDatastore(datastoreName);
         _errorRowCount = 0;
         _errorDatastore = null;
+        _writeBufferStatistics = null;
     }
 
     @Override
@@ -105,6 +115,11 @@ public final class WriteDataResultImpl implements WriteDataResult {
         return _errorRowCount;
     }
 
+    @Override
+    public WriteBufferStatistics getWriteBufferStatistics() {
+        return _writeBufferStatistics;
+    }
+
     @Override
     public int getWrittenRowCount() {
         return _writtenRowCount;
@@ -22,6 +22,7 @@ package org.datacleaner.beans.writers;
 import java.util.Collection;
 
 import org.datacleaner.api.AnalyzerResultReducer;
+import org.datacleaner.util.WriteBufferStatistics;
 
 /**
  * Reducer class for {@link WriteDataResult}s.
@@ -33,12 +34,31 @@ public class WriteDataResultReducer implements AnalyzerResultReducer<WriteDataRe
         int writes = 0;
         int updates = 0;
         int errors = 0;
+        WriteBufferStatistics statistics = null;
         for (final WriteDataResult result : results) {
             writes += result.getWrittenRowCount();
             updates += result.getUpdatesCount();
             errors += result.getErrorRowCount();
+            if (result instanceof BufferedWriteDataResult) {
+                statistics = combine(statistics, ((BufferedWriteDataResult) result).getWriteBufferStatistics());
+            }
         }
-        return new WriteDataResultImpl(writes, updates, errors);
+        return new WriteDataResultImpl(writes, updates, null, null, null, errors, null, statistics);
+    }
+
+    private static WriteBufferStatistics combine(final WriteBufferStatistics statistics1,
+            final WriteBufferStatistics statistics2) {
+        if (statistics1 == null) {
+            return statistics2;
+        }
+        if (statistics2 == null) {
+            return statistics1;
+        }
+        return new WriteBufferStatistics(statistics1.getFlushCount() + statistics2.getFlushCount(),
+                statistics1.getTotalFlushMillis() + statistics2.getTotalFlushMillis(),
+                Math.max(statistics1.getMaxFlushMillis(), statistics2.getMaxFlushMillis()),
+                Math.max(statistics1.getMaxQueuedRowCount(), statistics2.getMaxQueuedRowCount()),
+                statistics1.getBackpressureMillis() + statistics2.getBackpressureMillis());
     }
 
 }
@@ -79,7 +79,7 @@ public class DeleteFromTableAnalyzerTest {
     public void shouldReturnTheCorrectMetricsFromDescriptor() throws Exception {
         final AnalyzerDescriptor<?> descriptor = Descriptors.ofAnalyzer(DeleteFromTableAnalyzer.class);
         final Set<MetricDescriptor> metrics = descriptor.getResultMetrics();
-        assertThat(metrics.size(), is(3));
+        assertThat(metrics.size(), is(7));
         final WriteDataResult result = new WriteDataResultImpl(10, 5, null, null, null);
         assertThat(descriptor.getResultMetric("Inserts").getValue(result, null).intValue(), is(10));
         assertThat(descriptor.getResultMetric("Updates").getValue(result, null).intValue(), is(5));
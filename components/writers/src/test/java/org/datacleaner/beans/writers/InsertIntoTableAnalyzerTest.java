@@ -20,9 +20,14 @@
 package org.datacleaner.beans.writers;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.metamodel.DataContext;
 import org.apache.metamodel.UpdateableDataContext;
 import org.apache.metamodel.create.TableCreationBuilder;
 import org.apache.metamodel.data.DataSet;
@@ -55,6 +60,7 @@ import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
 import org.datacleaner.job.runner.AnalysisResultFuture;
 import org.datacleaner.job.runner.AnalysisRunner;
 import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.util.WriteBufferStatistics;
 import org.easymock.EasyMock;
 
 import junit.framework.TestCase;
@@ -82,13 +88,238 @@ public class InsertIntoTableAnalyzerTest extends TestCase {
     public void testMetricDescriptors() throws Exception {
         final AnalyzerDescriptor<?> descriptor = Descriptors.ofAnalyzer(InsertIntoTableAnalyzer.class);
         final Set<MetricDescriptor> metrics = descriptor.getResultMetrics();
-        assertEquals("[MetricDescriptorImpl[name=Errornous rows], MetricDescriptorImpl[name=Inserts], "
-                        + "MetricDescriptorImpl[name=Updates]]", metrics.toString());
+        assertEquals("[MetricDescriptorImpl[name=Average flush time (ms)], "
+                + "MetricDescriptorImpl[name=Backpressure time (ms)], MetricDescriptorImpl[name=Errornous rows], "
+                + "MetricDescriptorImpl[name=Inserts], MetricDescriptorImpl[name=Max flush time (ms)], "
+                + "MetricDescriptorImpl[name=Max queued rows], MetricDescriptorImpl[name=Updates]]", metrics.toString());
 
-        final WriteDataResult result = new WriteDataResultImpl(10, 5, null, null, null);
+        final BufferedWriteDataResult result = new WriteDataResultImpl(10, 5, null, null, null);
         assertEquals(10, descriptor.getResultMetric("Inserts").getValue(result, null).intValue());
         assertEquals(5, descriptor.getResultMetric("Updates").getValue(result, null).intValue());
         assertEquals(0, descriptor.getResultMetric("Errornous rows").getValue(result, null).intValue());
+        assertEquals(0, descriptor.getResultMetric("Max queued rows").getValue(result, null).intValue());
+    }
+
+    public void testBulkLoadStrategies() throws Exception {
+        runBulkLoad(BulkLoadStrategy.AUTOMATIC, "auto");
+        runBulkLoad(BulkLoadStrategy.JDBC_BATCH, "batch");
+        runBulkLoad(BulkLoadStrategy.MULTI_ROW_INSERT, "multirow");
+        runBulkLoad(BulkLoadStrategy.NONE, "none");
+        // not available for H2, falls back to JDBC batches
+        runBulkLoad(BulkLoadStrategy.POSTGRESQL_COPY, "copy");
+    }
+
+    public void testBulkLoadFallbackToRowByRow() throws Exception {
+        // HSQLDB 1.8 does not support multi-row inserts, so every batch is
+        // retried row by row
+        final InsertIntoTableAnalyzer insertIntoTable = new InsertIntoTableAnalyzer();
+        insertIntoTable.datastore = jdbcDatastore;
+        insertIntoTable.tableName = "test_table";
+        insertIntoTable.columnNames = new String[] { "foo", "bar" };
+        insertIntoTable.bufferSizeOption = WriteBufferSizeOption.TINY;
+        insertIntoTable.bulkLoadStrategy = BulkLoadStrategy.MULTI_ROW_INSERT;
+        insertIntoTable._componentContext = EasyMock.createNiceMock(ComponentContext.class);
+
+        final InputColumn<Object> col1 = new MockInputColumn<>("in1", Object.class);
+        final InputColumn<Object> col2 = new MockInputColumn<>("in2", Object.class);
+        insertIntoTable.values = new InputColumn[] { col1, col2 };
+
+        insertIntoTable.validate();
+        insertIntoTable.init();
+        for (int i = 0; i < 50; i++) {
+            insertIntoTable.run(new MockInputRow().put(col1, "fallback" + i).put(col2, i), 1);
+        }
+        final WriteDataResult result = insertIntoTable.getResult();
+        assertEquals(50, result.getWrittenRowCount());
+        assertEquals(0, result.getErrorRowCount());
+    }
+
+    public void testBulkLoadErrorHandling() throws Exception {
+        final JdbcDatastore h2Datastore = createH2Datastore("bulk_errors");
+
+        final InsertIntoTableAnalyzer insertIntoTable = new InsertIntoTableAnalyzer();
+        insertIntoTable.datastore = h2Datastore;
+        insertIntoTable.tableName = "test_table";
+        insertIntoTable.columnNames = new String[] { "foo", "bar" };
+        insertIntoTable.bulkLoadStrategy = BulkLoadStrategy.JDBC_BATCH;
+        insertIntoTable.errorHandlingOption = ErrorHandlingOption.SAVE_TO_FILE;
+        insertIntoTable._componentContext = EasyMock.createNiceMock(ComponentContext.class);
+
+        final InputColumn<Object> col1 = new MockInputColumn<>("in1", Object.class);
+        final InputColumn<Object> col2 = new MockInputColumn<>("in2", Object.class);
+        insertIntoTable.values = new InputColumn[] { col1, col2 };
+
+        insertIntoTable.validate();
+        insertIntoTable.init();
+
+        insertIntoTable.run(new MockInputRow().put(col1, "hello").put(col2, 1), 1);
+        // violates the NOT NULL constraint of 'bar' in the database
+        insertIntoTable.run(new MockInputRow().put(col1, "world").put(col2, null), 1);
+        insertIntoTable.run(new MockInputRow().put(col1, "foo").put(col2, 2), 1);
+
+        final WriteDataResult result = insertIntoTable.getResult();
+        assertEquals(2, result.getWrittenRowCount());
+        assertEquals(1, result.getErrorRowCount());
+        assertNotNull(result.getErrorDatastore());
+        assertEquals(2, countRows(h2Datastore));
+    }
+
+    public void testBulkLoadConcurrentlyOnSingleConnection() throws Exception {
+        // all flushes share the same connection, so a failing (rolled back)
+        // batch must not discard or commit the rows of another batch
+        final JdbcDatastore h2Datastore = new JdbcDatastore("bulk_single_connection",
+                "jdbc:h2:mem:InsertIntoTable_bulk_single_connection;DB_CLOSE_DELAY=-1", "org.h2.Driver", null, null,
+                false);
+        createTestTable(h2Datastore);
+
+        final InsertIntoTableAnalyzer insertIntoTable = new InsertIntoTableAnalyzer();
+        insertIntoTable.datastore = h2Datastore;
+        insertIntoTable.tableName = "test_table";
+        insertIntoTable.columnNames = new String[] { "foo", "bar" };
+        insertIntoTable.bufferSizeOption = WriteBufferSizeOption.TINY;
+        insertIntoTable.bulkLoadStrategy = BulkLoadStrategy.JDBC_BATCH;
+        insertIntoTable.errorHandlingOption = ErrorHandlingOption.SAVE_TO_FILE;
+        final ComponentContext componentContext = EasyMock.createNiceMock(ComponentContext.class);
+        EasyMock.replay(componentContext);
+        insertIntoTable._componentContext = componentContext;
+
+        final InputColumn<Object> col1 = new MockInputColumn<>("in1", Object.class);
+        final InputColumn<Object> col2 = new MockInputColumn<>("in2", Object.class);
+        insertIntoTable.values = new InputColumn[] { col1, col2 };
+
+        insertIntoTable.validate();
+        insertIntoTable.init();
+
+        final int threadCount = 8;
+        final int rowsPerThread = 500;
+        final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                final int threadNumber = t;
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < rowsPerThread; i++) {
+                        // every 50th row violates the NOT NULL constraint of
+                        // 'bar' and makes its batch roll back
+                        final Integer bar = i % 50 == 0 ? null : i;
+                        insertIntoTable.run(new MockInputRow().put(col1, "thread" + threadNumber).put(col2, bar), 1);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        final WriteDataResult result = insertIntoTable.getResult();
+        insertIntoTable.close();
+
+        final int expectedErrors = threadCount * rowsPerThread / 50;
+        assertEquals(expectedErrors, result.getErrorRowCount());
+        assertEquals(threadCount * rowsPerThread - expectedErrors, result.getWrittenRowCount());
+        assertEquals(result.getWrittenRowCount(), countRows(h2Datastore));
+    }
+
+    private void runBulkLoad(final BulkLoadStrategy strategy, final String name) throws Exception {
+        final JdbcDatastore h2Datastore = createH2Datastore("bulk_" + name);
+
+        final InsertIntoTableAnalyzer insertIntoTable = new InsertIntoTableAnalyzer();
+        insertIntoTable.datastore = h2Datastore;
+        insertIntoTable.tableName = "test_table";
+        insertIntoTable.columnNames = new String[] { "foo", "bar" };
+        insertIntoTable.bufferSizeOption = WriteBufferSizeOption.SMALL;
+        insertIntoTable.bulkLoadStrategy = strategy;
+        insertIntoTable._componentContext = EasyMock.createNiceMock(ComponentContext.class);
+
+        final InputColumn<Object> col1 = new MockInputColumn<>("in1", Object.class);
+        final InputColumn<Object> col2 = new MockInputColumn<>("in2", Object.class);
+        insertIntoTable.values = new InputColumn[] { col1, col2 };
+
+        insertIntoTable.validate();
+        insertIntoTable.init();
+        for (int i = 0; i < 2000; i++) {
+            insertIntoTable.run(new MockInputRow().put(col1, i % 10 == 0 ? null : "\"value\", " + i).put(col2, i), 1);
+        }
+        final WriteDataResult result = insertIntoTable.getResult();
+        assertEquals(strategy.getName(), 2000, result.getWrittenRowCount());
+        assertEquals(strategy.getName(), 0, result.getErrorRowCount());
+        assertEquals(strategy.getName(), 2000, countRows(h2Datastore));
+
+        try (UpdateableDatastoreConnection con = h2Datastore.openConnection()) {
+            final DataContext dc = con.getDataContext();
+            final Table table = dc.getDefaultSchema().getTableByName("TEST_TABLE");
+            try (DataSet ds = dc.query().from(table).select("FOO").where("BAR").eq(1999).execute()) {
+                assertTrue(ds.next());
+                assertEquals("\"value\", 1999", ds.getRow().getValue(0));
+            }
+            try (DataSet ds = dc.query().from(table).selectCount().where("FOO").isNull().execute()) {
+                assertTrue(ds.next());
+                assertEquals(200, ((Number) ds.getRow().getValue(0)).intValue());
+            }
+        }
+    }
+
+    private JdbcDatastore createH2Datastore(final String name) {
+        final JdbcDatastore h2Datastore =
+                new JdbcDatastore(name, "jdbc:h2:mem:InsertIntoTable_" + name, "org.h2.Driver");
+        createTestTable(h2Datastore);
+        return h2Datastore;
+    }
+
+    private void createTestTable(final JdbcDatastore h2Datastore) {
+        try (UpdateableDatastoreConnection con = h2Datastore.openConnection()) {
+            final UpdateableDataContext dc = con.getUpdateableDataContext();
+            dc.executeUpdate(cb -> cb.createTable(dc.getDefaultSchema(), "test_table").withColumn("foo")
+                    .ofType(ColumnType.VARCHAR).withColumn("bar").ofType(ColumnType.INTEGER).nullable(false)
+                    .execute());
+        }
+    }
+
+    private int countRows(final JdbcDatastore datastore) {
+        try (DatastoreConnection con = datastore.openConnection()) {
+            final DataContext dc = con.getDataContext();
+            final Table table = dc.getDefaultSchema().getTableByName("TEST_TABLE");
+            try (DataSet ds = dc.query().from(table).selectCount().execute()) {
+                assertTrue(ds.next());
+                return ((Number) ds.getRow().getValue(0)).intValue();
+            }
+        }
+    }
+
+    public void testAsynchronousWriting() throws Exception {
+        final InsertIntoTableAnalyzer insertIntoTable = new InsertIntoTableAnalyzer();
+        insertIntoTable.datastore = jdbcDatastore;
+        insertIntoTable.tableName = "test_table";
+        insertIntoTable.columnNames = new String[] { "foo", "bar" };
+        insertIntoTable.bufferSizeOption = WriteBufferSizeOption.TINY;
+        insertIntoTable.writeBufferCount = 3;
+        insertIntoTable._componentContext = EasyMock.createNiceMock(ComponentContext.class);
+
+        final InputColumn<Object> col1 = new MockInputColumn<>("in1", Object.class);
+        final InputColumn<Object> col2 = new MockInputColumn<>("in2", Object.class);
+
+        insertIntoTable.values = new InputColumn[] { col1, col2 };
+
+        insertIntoTable.validate();
+        insertIntoTable.init();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                insertIntoTable.run(new MockInputRow().put(col1, "async" + i).put(col2, i), 1);
+            }
+
+            final BufferedWriteDataResult result = insertIntoTable.getResult();
+            assertEquals(1000, result.getWrittenRowCount());
+            assertEquals(0, result.getErrorRowCount());
+
+            // 100 values per buffer means 33 rows per batch
+            final WriteBufferStatistics statistics = result.getWriteBufferStatistics();
+            assertEquals(31, statistics.getFlushCount());
+            assertTrue(result.getMaxQueuedRowCount() >= 33);
+        } finally {
+            insertIntoTable.close();
+        }
     }
 
     public void testErrorHandlingToInvalidFile() throws Exception {
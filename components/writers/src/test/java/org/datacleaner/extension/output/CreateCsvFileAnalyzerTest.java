@@ -34,6 +34,7 @@ import org.datacleaner.connection.CsvDatastore;
 import org.datacleaner.connection.UpdateableDatastoreConnection;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
+import org.datacleaner.descriptors.Descriptors;
 import org.junit.After;
 import org.junit.Test;
 
@@ -48,6 +49,13 @@ public class CreateCsvFileAnalyzerTest {
         }
     }
 
+    @Test
+    public void testMetricDescriptorsExcludeWriteBufferMetrics() throws Exception {
+        assertEquals("[MetricDescriptorImpl[name=Errornous rows], MetricDescriptorImpl[name=Inserts], "
+                + "MetricDescriptorImpl[name=Updates]]",
+                Descriptors.ofAnalyzer(CreateCsvFileAnalyzer.class).getResultMetrics().toString());
+    }
+
     @Test
     public void test() throws Exception {
 
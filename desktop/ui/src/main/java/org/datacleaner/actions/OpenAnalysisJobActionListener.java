@@ -29,6 +29,7 @@ import javax.swing.JOptionPane;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.Resource;
 import org.datacleaner.Version;
 import org.datacleaner.bootstrap.WindowContext;
 import org.datacleaner.configuration.DataCleanerConfiguration;
@@ -42,10 +43,12 @@ import org.datacleaner.job.NoSuchComponentException;
 import org.datacleaner.job.NoSuchDatastoreException;
 import org.datacleaner.job.builder.AnalysisJobBuilder;
 import org.datacleaner.result.AnalysisResult;
+import org.datacleaner.result.save.BinaryAnalysisResultReader;
 import org.datacleaner.user.UserPreferences;
 import org.datacleaner.util.ChangeAwareObjectInputStream;
 import org.datacleaner.util.FileFilters;
 import org.datacleaner.util.VFSUtils;
+import org.datacleaner.util.VfsResource;
 import org.datacleaner.util.WidgetUtils;
 import org.datacleaner.widgets.DCFileChooser;
 import org.datacleaner.widgets.OpenAnalysisJobFileChooserAccessory;
@@ -140,20 +143,31 @@ public class OpenAnalysisJobActionListener implements ActionListener {
         }
     }
 
-    public ResultWindow openAnalysisResult(final FileObject fileObject, final DCModule parentModule) {
-        final AnalysisResult analysisResult;
+    private AnalysisResult readSerializedAnalysisResult(final FileObject fileObject) {
         try {
             final ChangeAwareObjectInputStream is =
                     new ChangeAwareObjectInputStream(fileObject.getContent().getInputStream());
             try {
                 is.addClassLoader(ExtensionPackage.getExtensionClassLoader());
-                analysisResult = (AnalysisResult) is.readObject();
+                return (AnalysisResult) is.readObject();
             } finally {
                 FileHelper.safeClose(is);
             }
         } catch (final Exception e) {
             throw new IllegalStateException(e);
         }
+    }
+
+    public ResultWindow openAnalysisResult(final FileObject fileObject, final DCModule parentModule) {
+        final AnalysisResult analysisResult;
+        final Resource resource = new VfsResource(fileObject);
+        if (BinaryAnalysisResultReader.isBinaryFormat(resource)) {
+            final BinaryAnalysisResultReader reader = new BinaryAnalysisResultReader(resource);
+            reader.addClassLoader(ExtensionPackage.getExtensionClassLoader());
+            analysisResult = reader.getAnalysisResult();
+        } else {
+            analysisResult = readSerializedAnalysisResult(fileObject);
+        }
 
         final File file = VFSUtils.toFile(fileObject);
         if (file != null) {
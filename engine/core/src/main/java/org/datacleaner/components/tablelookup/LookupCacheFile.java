@@ -0,0 +1,434 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.components.tablelookup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.metamodel.util.FileHelper;
+import org.datacleaner.util.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * File that persists the lookup cache of a {@link TableLookupTransformer}
+ * between runs. The file is keyed by the datastore and lookup query, so that
+ * only identical lookups share a cache.
+ *
+ * The files are kept in a directory that only the current user can access
+ * (see {@link SystemProperties#TABLE_LOOKUP_CACHE_DIRECTORY}) and use a simple
+ * typed value format instead of Java serialization, so reading a cache file
+ * never instantiates arbitrary classes. Entries with values of other types
+ * than strings, numbers, booleans, characters and dates are not persisted.
+ */
+final class LookupCacheFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(LookupCacheFile.class);
+
+    private static final int MAGIC = 0x444c4331;
+
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_BOOLEAN = 2;
+    private static final byte TYPE_BYTE = 3;
+    private static final byte TYPE_SHORT = 4;
+    private static final byte TYPE_INTEGER = 5;
+    private static final byte TYPE_LONG = 6;
+    private static final byte TYPE_FLOAT = 7;
+    private static final byte TYPE_DOUBLE = 8;
+    private static final byte TYPE_BIG_INTEGER = 9;
+    private static final byte TYPE_BIG_DECIMAL = 10;
+    private static final byte TYPE_CHARACTER = 11;
+    private static final byte TYPE_DATE = 12;
+    private static final byte TYPE_SQL_DATE = 13;
+    private static final byte TYPE_TIME = 14;
+    private static final byte TYPE_TIMESTAMP = 15;
+
+    private final File _file;
+    private long _createdMillis;
+
+    public LookupCacheFile(final String datastoreName, final String lookupQuery) {
+        this(getDefaultDirectory(), datastoreName, lookupQuery);
+    }
+
+    public LookupCacheFile(final File directory, final String datastoreName, final String lookupQuery) {
+        final String key = Hashing.sha256().hashString(datastoreName + '\n' + lookupQuery, StandardCharsets.UTF_8)
+                .toString();
+        _file = new File(directory, "datacleaner_lookup_cache_" + key + ".dat");
+    }
+
+    /**
+     * Gets the directory where lookup cache files are stored by default.
+     *
+     * @return
+     */
+    public static File getDefaultDirectory() {
+        final String directory = SystemProperties.getString(SystemProperties.TABLE_LOOKUP_CACHE_DIRECTORY, null);
+        if (directory != null) {
+            return new File(directory);
+        }
+        return new File(FileHelper.getTempDir(), "datacleaner_lookup_cache_" + System.getProperty("user.name"));
+    }
+
+    public File getFile() {
+        return _file;
+    }
+
+    /**
+     * Loads the persisted cache entries, unless the file was first written
+     * longer ago than the max age.
+     *
+     * @param maxAgeMillis
+     * @return the cache entries, or an empty map if there are no (valid)
+     *         persisted entries
+     */
+    public Map<List<Object>, Object[]> load(final long maxAgeMillis) {
+        _createdMillis = System.currentTimeMillis();
+        if (!_file.exists()) {
+            return Collections.emptyMap();
+        }
+        if (!makePrivate(_file.getParentFile(), OWNER_ONLY_DIRECTORY)) {
+            logger.warn("Ignoring lookup cache file in a directory that is accessible by other users: {}", _file);
+            return Collections.emptyMap();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(_file)))) {
+            if (in.readInt() != MAGIC) {
+                logger.warn("Ignoring lookup cache file with unknown format: {}", _file);
+                return Collections.emptyMap();
+            }
+            final long createdMillis = in.readLong();
+            if (System.currentTimeMillis() - createdMillis > maxAgeMillis) {
+                logger.info("Ignoring expired lookup cache file: {}", _file);
+                return Collections.emptyMap();
+            }
+
+            final Map<List<Object>, Object[]> entries = new HashMap<>();
+            while (in.readBoolean()) {
+                final List<Object> key = new ArrayList<>();
+                Collections.addAll(key, readValues(in));
+                entries.put(key, readValues(in));
+            }
+            // entries carried over to the next save keep their original age
+            _createdMillis = createdMillis;
+            return entries;
+        } catch (final Exception e) {
+            logger.warn("Failed to read lookup cache file: " + _file, e);
+            return Collections.emptyMap();
+        }
+    }
+
+    public void save(final Map<List<Object>, Object[]> entries) {
+        final File directory = _file.getParentFile();
+        if (!directory.isDirectory() && !createPrivateDirectory(directory)) {
+            logger.warn("Failed to create lookup cache directory: {}", directory);
+            return;
+        }
+        if (!makePrivate(directory, OWNER_ONLY_DIRECTORY)) {
+            logger.warn("Not writing lookup cache file to a directory that is accessible by other users: {}",
+                    directory);
+            return;
+        }
+
+        final File tempFile = new File(directory, _file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            makePrivate(tempFile, OWNER_ONLY_FILE);
+            out.writeInt(MAGIC);
+            out.writeLong(_createdMillis == 0 ? System.currentTimeMillis() : _createdMillis);
+            for (final Map.Entry<List<Object>, Object[]> entry : entries.entrySet()) {
+                final Object[] key = entry.getKey().toArray();
+                final Object[] value = entry.getValue();
+                if (isPersistable(key) && isPersistable(value)) {
+                    out.writeBoolean(true);
+                    writeValues(out, key);
+                    writeValues(out, value);
+                }
+            }
+            out.writeBoolean(false);
+        } catch (final Exception e) {
+            logger.warn("Failed to write lookup cache file: " + _file, e);
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(_file)) {
+            _file.delete();
+            if (!tempFile.renameTo(_file)) {
+                logger.warn("Failed to replace lookup cache file: {}", _file);
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static boolean isPosix() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
+    private static boolean createPrivateDirectory(final File directory) {
+        try {
+            final Path path = directory.toPath();
+            if (isPosix()) {
+                Files.createDirectories(path, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+            } else {
+                Files.createDirectories(path);
+            }
+            return true;
+        } catch (final IOException e) {
+            logger.debug("Failed to create directory: " + directory, e);
+            return false;
+        }
+    }
+
+    /**
+     * Restricts the permissions of a file or directory to the current user.
+     * Since only the owner of a file may change its permissions, this fails
+     * for files owned by other users.
+     */
+    private static boolean makePrivate(final File file, final Set<PosixFilePermission> permissions) {
+        if (isPosix()) {
+            try {
+                final Path path = file.toPath();
+                if (!Files.getPosixFilePermissions(path).equals(permissions)) {
+                    Files.setPosixFilePermissions(path, permissions);
+                }
+                return true;
+            } catch (final IOException e) {
+                logger.debug("Failed to restrict permissions of: " + file, e);
+                return false;
+            }
+        }
+        final boolean executable = file.isDirectory();
+        return file.setReadable(false, false) && file.setReadable(true, true) && file.setWritable(false, false)
+                && file.setWritable(true, true) && (!executable || (file.setExecutable(false, false) && file
+                .setExecutable(true, true)));
+    }
+
+    private static boolean isPersistable(final Object[] values) {
+        if (values == null) {
+            return false;
+        }
+        for (final Object value : values) {
+            if (value != null && getType(value) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte getType(final Object value) {
+        if (value == null) {
+            return TYPE_NULL;
+        }
+        final Class<?> cls = value.getClass();
+        if (cls == String.class) {
+            return TYPE_STRING;
+        } else if (cls == Boolean.class) {
+            return TYPE_BOOLEAN;
+        } else if (cls == Byte.class) {
+            return TYPE_BYTE;
+        } else if (cls == Short.class) {
+            return TYPE_SHORT;
+        } else if (cls == Integer.class) {
+            return TYPE_INTEGER;
+        } else if (cls == Long.class) {
+            return TYPE_LONG;
+        } else if (cls == Float.class) {
+            return TYPE_FLOAT;
+        } else if (cls == Double.class) {
+            return TYPE_DOUBLE;
+        } else if (cls == BigInteger.class) {
+            return TYPE_BIG_INTEGER;
+        } else if (cls == BigDecimal.class) {
+            return TYPE_BIG_DECIMAL;
+        } else if (cls == Character.class) {
+            return TYPE_CHARACTER;
+        } else if (cls == Date.class) {
+            return TYPE_DATE;
+        } else if (cls == java.sql.Date.class) {
+            return TYPE_SQL_DATE;
+        } else if (cls == Time.class) {
+            return TYPE_TIME;
+        } else if (cls == Timestamp.class) {
+            return TYPE_TIMESTAMP;
+        }
+        return -1;
+    }
+
+    private static void writeValues(final DataOutputStream out, final Object[] values) throws IOException {
+        out.writeInt(values.length);
+        for (final Object value : values) {
+            final byte type = getType(value);
+            out.writeByte(type);
+            switch (type) {
+            case TYPE_NULL:
+                break;
+            case TYPE_STRING:
+                writeString(out, (String) value);
+                break;
+            case TYPE_BOOLEAN:
+                out.writeBoolean((Boolean) value);
+                break;
+            case TYPE_BYTE:
+                out.writeByte((Byte) value);
+                break;
+            case TYPE_SHORT:
+                out.writeShort((Short) value);
+                break;
+            case TYPE_INTEGER:
+                out.writeInt((Integer) value);
+                break;
+            case TYPE_LONG:
+                out.writeLong((Long) value);
+                break;
+            case TYPE_FLOAT:
+                out.writeFloat((Float) value);
+                break;
+            case TYPE_DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case TYPE_BIG_INTEGER:
+            case TYPE_BIG_DECIMAL:
+                writeString(out, value.toString());
+                break;
+            case TYPE_CHARACTER:
+                out.writeChar((Character) value);
+                break;
+            case TYPE_DATE:
+            case TYPE_SQL_DATE:
+            case TYPE_TIME:
+                out.writeLong(((Date) value).getTime());
+                break;
+            case TYPE_TIMESTAMP:
+                out.writeLong(((Timestamp) value).getTime());
+                out.writeInt(((Timestamp) value).getNanos());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getName());
+            }
+        }
+    }
+
+    private static Object[] readValues(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid value count: " + length);
+        }
+        final Object[] values = new Object[length];
+        for (int i = 0; i < length; i++) {
+            final byte type = in.readByte();
+            switch (type) {
+            case TYPE_NULL:
+                break;
+            case TYPE_STRING:
+                values[i] = readString(in);
+                break;
+            case TYPE_BOOLEAN:
+                values[i] = in.readBoolean();
+                break;
+            case TYPE_BYTE:
+                values[i] = in.readByte();
+                break;
+            case TYPE_SHORT:
+                values[i] = in.readShort();
+                break;
+            case TYPE_INTEGER:
+                values[i] = in.readInt();
+                break;
+            case TYPE_LONG:
+                values[i] = in.readLong();
+                break;
+            case TYPE_FLOAT:
+                values[i] = in.readFloat();
+                break;
+            case TYPE_DOUBLE:
+                values[i] = in.readDouble();
+                break;
+            case TYPE_BIG_INTEGER:
+                values[i] = new BigInteger(readString(in));
+                break;
+            case TYPE_BIG_DECIMAL:
+                values[i] = new BigDecimal(readString(in));
+                break;
+            case TYPE_CHARACTER:
+                values[i] = in.readChar();
+                break;
+            case TYPE_DATE:
+                values[i] = new Date(in.readLong());
+                break;
+            case TYPE_SQL_DATE:
+                values[i] = new java.sql.Date(in.readLong());
+                break;
+            case TYPE_TIME:
+                values[i] = new Time(in.readLong());
+                break;
+            case TYPE_TIMESTAMP:
+                final Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                values[i] = timestamp;
+                break;
+            default:
+                throw new IOException("Unknown value type: " + type);
+            }
+        }
+        return values;
+    }
+
+    private static void writeString(final DataOutputStream out, final String str) throws IOException {
+        final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
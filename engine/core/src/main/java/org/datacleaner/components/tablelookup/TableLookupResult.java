@@ -0,0 +1,78 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.components.tablelookup;
+
+import java.util.Map;
+
+import org.datacleaner.api.Metric;
+import org.datacleaner.result.CategorizationResult;
+import org.datacleaner.storage.RowAnnotation;
+import org.datacleaner.storage.RowAnnotationFactory;
+
+/**
+ * Result of a {@link TableLookupTransformer}, which exposes the lookup
+ * categories as well as statistics of the client-side lookup cache.
+ */
+public class TableLookupResult extends CategorizationResult {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long _cacheHitCount;
+    private final long _cacheMissCount;
+    private final long _cacheEvictionCount;
+    private final double _averageLoadTimeMillis;
+
+    public TableLookupResult(final RowAnnotationFactory annotationFactory, final Map<String, RowAnnotation> categories,
+            final long cacheHitCount, final long cacheMissCount, final long cacheEvictionCount,
+            final double averageLoadTimeMillis) {
+        super(annotationFactory, categories);
+        _cacheHitCount = cacheHitCount;
+        _cacheMissCount = cacheMissCount;
+        _cacheEvictionCount = cacheEvictionCount;
+        _averageLoadTimeMillis = averageLoadTimeMillis;
+    }
+
+    @Metric("Cache hit rate")
+    public double getCacheHitRate() {
+        final long requestCount = _cacheHitCount + _cacheMissCount;
+        if (requestCount == 0) {
+            return 0d;
+        }
+        return (double) _cacheHitCount / requestCount;
+    }
+
+    @Metric("Cache evictions")
+    public long getCacheEvictionCount() {
+        return _cacheEvictionCount;
+    }
+
+    @Metric("Average lookup time (ms)")
+    public double getAverageLoadTimeMillis() {
+        return _averageLoadTimeMillis;
+    }
+
+    public long getCacheHitCount() {
+        return _cacheHitCount;
+    }
+
+    public long getCacheMissCount() {
+        return _cacheMissCount;
+    }
+}
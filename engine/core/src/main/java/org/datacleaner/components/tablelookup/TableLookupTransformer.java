@@ -22,24 +22,36 @@ package org.datacleaner.components.tablelookup;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
 import org.apache.metamodel.query.CompiledQuery;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.LogicalOperator;
 import org.apache.metamodel.query.OperatorType;
 import org.apache.metamodel.query.Query;
 import org.apache.metamodel.query.QueryParameter;
+import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.HasName;
 import org.datacleaner.api.Alias;
 import org.datacleaner.api.Categorized;
 import org.datacleaner.api.Close;
+import org.datacleaner.api.ColumnarInput;
 import org.datacleaner.api.ColumnProperty;
 import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.Configured;
@@ -55,21 +67,27 @@ import org.datacleaner.api.OutputRowCollector;
 import org.datacleaner.api.Provided;
 import org.datacleaner.api.SchemaProperty;
 import org.datacleaner.api.TableProperty;
-import org.datacleaner.api.Transformer;
+import org.datacleaner.api.VectorizedTransformer;
 import org.datacleaner.api.Validate;
 import org.datacleaner.components.categories.ImproveSuperCategory;
 import org.datacleaner.components.categories.ReferenceDataCategory;
 import org.datacleaner.connection.Datastore;
 import org.datacleaner.connection.DatastoreConnection;
-import org.datacleaner.result.CategorizationResult;
 import org.datacleaner.storage.DummyRowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
-import org.datacleaner.util.CollectionUtils2;
+import org.datacleaner.util.MatchKeyUtils;
+import org.datacleaner.util.batch.BatchSink;
+import org.datacleaner.util.batch.BatchSource;
+import org.datacleaner.util.batch.BatchTransformationBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * A transformer that can do a lookup (like a left join) based on a set of
@@ -81,7 +99,8 @@ import com.google.common.cache.Cache;
 @Description("TableLookupTransformer.Description")
 @Concurrent(true)
 @Categorized(superCategory = ImproveSuperCategory.class, value = ReferenceDataCategory.class)
-public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasAnalyzerResult<CategorizationResult> {
+public class TableLookupTransformer
+        implements VectorizedTransformer, HasLabelAdvice, HasAnalyzerResult<TableLookupResult> {
 
     public enum JoinSemantic implements HasName {
         @Alias("LEFT")
@@ -111,11 +130,38 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         }
     }
 
+    public enum LookupStrategy implements HasName {
+        ROW_BY_ROW("Row by row"),
+
+        BATCHED("Batched"),
+
+        PRELOAD_TABLE("Preload table");
+
+        private final String _name;
+
+        LookupStrategy(final String name) {
+            _name = name;
+        }
+
+        @Override
+        public String getName() {
+            return _name;
+        }
+    }
+
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+    public static final long DEFAULT_CACHE_EXPIRY_SECONDS = 5 * 60;
+    public static final long DEFAULT_PERSISTED_CACHE_MAX_AGE_SECONDS = 24 * 60 * 60;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_MAX_PRELOADED_RECORDS = 100000;
+
+    // batches of records that are transformed one by one are flushed by the
+    // waiting threads themselves, see BatchTransformationBuffer
+    private static final int MAX_IN_FLIGHT_BATCHES = 4;
     private static final Logger logger = LoggerFactory.getLogger(TableLookupTransformer.class);
     private static final String PROPERTY_NAME_DATASTORE = "Datastore";
     private static final String PROPERTY_NAME_SCHEMA_NAME = "Schema name";
     private static final String PROPERTY_NAME_TABLE_NAME = "Table name";
-    private final Cache<List<Object>, Object[]> cache = CollectionUtils2.createCache(10000, 5 * 60);
 
     @Inject
     @Configured(value = PROPERTY_NAME_DATASTORE)
@@ -150,10 +196,42 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
     @Description("Use a client-side cache to avoid looking up multiple times with same inputs.")
     boolean cacheLookups = true;
     @Inject
+    @Configured(required = false)
+    @Description("The max number of lookup results to keep in the client-side cache.")
+    int cacheSize = DEFAULT_CACHE_SIZE;
+    @Inject
+    @Configured(required = false)
+    @Description("The number of seconds that a lookup result is kept in the client-side cache.")
+    long cacheExpirySeconds = DEFAULT_CACHE_EXPIRY_SECONDS;
+    @Inject
+    @Configured(required = false)
+    @Description("Persist the client-side cache between runs of the same lookup, so that repeated jobs can skip "
+            + "most lookups. Only use this when the looked up table rarely changes.")
+    boolean persistCache = false;
+    @Inject
+    @Configured(required = false)
+    @Description("The number of seconds that a persisted client-side cache is reused by later runs, before it is "
+            + "discarded and built up again.")
+    long persistedCacheMaxAgeSeconds = DEFAULT_PERSISTED_CACHE_MAX_AGE_SECONDS;
+    @Inject
     @Configured
     @Description("Which kind of semantic to apply to the lookup, compared to a SQL JOIN.")
     JoinSemantic joinSemantic = JoinSemantic.LEFT_JOIN_MAX_ONE;
     @Inject
+    @Configured(required = false)
+    @Description("How to look up records: One query per record, one query per batch of distinct keys, or by loading "
+            + "the entire table into memory up front (for small reference tables).")
+    LookupStrategy lookupStrategy = LookupStrategy.ROW_BY_ROW;
+    @Inject
+    @Configured(required = false)
+    @Description("The max number of distinct keys to look up in a single query when using batched lookups.")
+    int batchSize = DEFAULT_BATCH_SIZE;
+    @Inject
+    @Configured(required = false)
+    @Description("The max number of records to load when preloading the table. Larger tables are looked up row by "
+            + "row instead.")
+    int maxPreloadedRecords = DEFAULT_MAX_PRELOADED_RECORDS;
+    @Inject
     @Provided
     OutputRowCollector outputRowCollector;
     @Inject
@@ -172,6 +250,13 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
     private Column[] queryConditionColumns;
     private DatastoreConnection datastoreConnection;
     private CompiledQuery lookupQuery;
+    private Cache<List<Object>, Object[]> cache;
+    private LookupCacheFile cacheFile;
+    private BatchTransformationBuffer<List<Object>, List<Object[]>> batchBuffer;
+    private Map<List<Object>, List<Object[]>> preloadedRecords;
+    private final AtomicInteger batchQueryCount = new AtomicInteger();
+    private final AtomicLong batchLoadCount = new AtomicLong();
+    private final AtomicLong batchLoadNanos = new AtomicLong();
 
     /**
      * Default constructor
@@ -217,6 +302,18 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         return "Lookup: " + tableName;
     }
 
+    public void setLookupStrategy(final LookupStrategy lookupStrategy) {
+        this.lookupStrategy = lookupStrategy;
+    }
+
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setMaxPreloadedRecords(final int maxPreloadedRecords) {
+        this.maxPreloadedRecords = maxPreloadedRecords;
+    }
+
     private void resetCachedColumns() {
         queryOutputColumns = null;
         queryConditionColumns = null;
@@ -284,8 +381,247 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
     public void init() {
         datastoreConnection = datastore.openConnection();
         resetCachedColumns();
-        cache.invalidateAll();
         compileLookupQuery();
+        initCache();
+
+        if (!isCarthesianProductMode()) {
+            if (lookupStrategy == LookupStrategy.PRELOAD_TABLE) {
+                preloadedRecords = preloadRecords();
+            } else if (lookupStrategy == LookupStrategy.BATCHED) {
+                batchBuffer = new BatchTransformationBuffer<>(this::lookupBatch, Math.max(1, batchSize), 0,
+                        MAX_IN_FLIGHT_BATCHES);
+                batchBuffer.start();
+            }
+        }
+    }
+
+    private void initCache() {
+        cache = CacheBuilder.newBuilder().maximumSize(cacheSize).expireAfterWrite(cacheExpirySeconds, TimeUnit.SECONDS)
+                .recordStats().build();
+        batchLoadCount.set(0);
+        batchLoadNanos.set(0);
+        cacheFile = null;
+
+        if (cacheLookups && joinSemantic.isCacheable() && persistCache) {
+            cacheFile = new LookupCacheFile(datastore.getName(), lookupQuery.toSql());
+            final Map<List<Object>, Object[]> entries =
+                    cacheFile.load(TimeUnit.SECONDS.toMillis(persistedCacheMaxAgeSeconds));
+            cache.putAll(entries);
+            logger.info("Loaded {} persisted lookup results from {}", entries.size(), cacheFile.getFile());
+        }
+    }
+
+    LookupCacheFile getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Creates a query that selects the condition columns followed by the
+     * output columns, used for preloaded and batched lookups.
+     */
+    private Query createKeyedQuery() {
+        final Column[] queryConditionColumns = getQueryConditionColumns();
+        final Column[] queryOutputColumns = getQueryOutputColumns(false);
+        return new Query().from(queryOutputColumns[0].getTable()).select(queryConditionColumns)
+                .select(queryOutputColumns);
+    }
+
+    private Map<List<Object>, List<Object[]>> preloadRecords() {
+        final Query query = createKeyedQuery();
+        query.setMaxRows(maxPreloadedRecords + 1);
+
+        final String tableName = query.getFromClause().getItem(0).getTable().getName();
+        final Map<List<Object>, List<Object[]>> records = new HashMap<>();
+        int count = 0;
+        try (DataSet dataSet = datastoreConnection.getDataContext().executeQuery(query)) {
+            while (dataSet.next()) {
+                count++;
+                if (count > maxPreloadedRecords) {
+                    logger.warn("Table '{}' has more than {} records, falling back to row-by-row lookups", tableName,
+                            maxPreloadedRecords);
+                    return null;
+                }
+                addRecord(records, dataSet.getRow());
+            }
+        }
+        logger.info("Preloaded {} records from table '{}' for lookups", count, tableName);
+        return records;
+    }
+
+    private void addRecord(final Map<List<Object>, List<Object[]>> records, final Row row) {
+        final int keyLength = getQueryConditionColumns().length;
+        final Object[] values = row.getValues();
+
+        final List<Object> key = toLookupKey(Arrays.asList(values).subList(0, keyLength));
+        if (key == null) {
+            return;
+        }
+
+        records.computeIfAbsent(key, k -> new ArrayList<>(1)).add(values);
+    }
+
+    /**
+     * Looks up a batch of condition values using a single query for all the
+     * distinct keys of the batch.
+     */
+    private void lookupBatch(final BatchSource<List<Object>> source, final BatchSink<List<Object[]>> sink) {
+        final List<List<Object>> queryInputs = new ArrayList<>(source.size());
+        for (int i = 0; i < source.size(); i++) {
+            queryInputs.add(source.getInput(i));
+        }
+
+        final Map<List<Object>, List<Object[]>> records = queryRecords(queryInputs);
+
+        for (int i = 0; i < source.size(); i++) {
+            sink.setOutput(i, getRecords(records, source.getInput(i)));
+        }
+    }
+
+    /**
+     * Queries the records of a number of condition values, using a single
+     * query for all the distinct keys.
+     *
+     * @param queryInputs
+     * @return the records by lookup key, see {@link #getRecords(Map, List)}
+     */
+    private Map<List<Object>, List<Object[]>> queryRecords(final List<List<Object>> queryInputs) {
+        final Column[] queryConditionColumns = getQueryConditionColumns();
+        final Map<List<Object>, List<Object>> distinctKeys = new LinkedHashMap<>();
+        final Set<List<Object>> lookupKeys = new HashSet<>();
+        for (final List<Object> queryInput : queryInputs) {
+            final List<Object> key = toLookupKey(queryInput);
+            if (key != null) {
+                distinctKeys.putIfAbsent(toExactKey(queryInput), queryInput);
+                lookupKeys.add(key);
+            }
+        }
+
+        final Map<List<Object>, List<Object[]>> records = new HashMap<>();
+        if (distinctKeys.isEmpty()) {
+            return records;
+        }
+
+        final Query query = createKeyedQuery();
+        if (queryConditionColumns.length == 1) {
+            final List<Object> operand = new ArrayList<>(distinctKeys.size());
+            for (final List<Object> queryInput : distinctKeys.values()) {
+                operand.add(queryInput.get(0));
+            }
+            query.where(new FilterItem(new SelectItem(queryConditionColumns[0]), OperatorType.IN, operand));
+        } else {
+            final List<FilterItem> keyFilters = new ArrayList<>(distinctKeys.size());
+            for (final List<Object> queryInput : distinctKeys.values()) {
+                final FilterItem[] columnFilters = new FilterItem[queryConditionColumns.length];
+                for (int i = 0; i < queryConditionColumns.length; i++) {
+                    columnFilters[i] = new FilterItem(new SelectItem(queryConditionColumns[i]),
+                            OperatorType.EQUALS_TO, queryInput.get(i));
+                }
+                keyFilters.add(new FilterItem(LogicalOperator.AND, columnFilters));
+            }
+            query.where(new FilterItem(LogicalOperator.OR, keyFilters));
+        }
+
+        batchQueryCount.incrementAndGet();
+        try (DataSet dataSet = datastoreConnection.getDataContext().executeQuery(query)) {
+            while (dataSet.next()) {
+                addRecord(records, dataSet.getRow());
+            }
+        } catch (final RuntimeException e) {
+            logger.error("Error occurred while looking up batch of conditions: " + distinctKeys.values(), e);
+            throw e;
+        }
+
+        if (!lookupKeys.containsAll(records.keySet())) {
+            // the database considers some values equal that we cannot relate
+            // to each other in memory (eg. because of an accent insensitive
+            // collation), so we cannot tell which of the values it matched.
+            // Let the database decide for the values without any records.
+            for (final List<Object> queryInput : distinctKeys.values()) {
+                final List<Object> key = toLookupKey(queryInput);
+                if (records.containsKey(key)) {
+                    continue;
+                }
+                for (final Object[] outputValues : lookupRecords(queryInput)) {
+                    final Object[] values = Arrays.copyOf(queryInput.toArray(), queryInput.size()
+                            + outputValues.length);
+                    System.arraycopy(outputValues, 0, values, queryInput.size(), outputValues.length);
+                    records.computeIfAbsent(key, k -> new ArrayList<>(1)).add(values);
+                }
+            }
+        }
+        return records;
+    }
+
+    int getBatchQueryCount() {
+        return batchQueryCount.get();
+    }
+
+    /**
+     * Gets the output values of the records that match a number of condition
+     * values.
+     *
+     * @param records
+     *            records with both condition and output values, by lookup key
+     *            (see {@link #toLookupKey(List)})
+     * @param queryInput
+     * @return
+     */
+    private List<Object[]> getRecords(final Map<List<Object>, List<Object[]>> records,
+            final List<Object> queryInput) {
+        final List<Object> key = toLookupKey(queryInput);
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        final List<Object[]> candidates = records.get(key);
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+
+        final List<Object> exactKey = toExactKey(queryInput);
+        final int keyLength = queryInput.size();
+        final List<Object[]> result = new ArrayList<>(candidates.size());
+        for (final Object[] candidate : candidates) {
+            if (!exactKey.equals(toExactKey(Arrays.asList(candidate).subList(0, keyLength)))) {
+                // eg. values that differ by case or padding. Whether they are
+                // equal depends on the collation and column types of the
+                // database, so let the database decide.
+                return lookupRecords(queryInput);
+            }
+            result.add(Arrays.copyOfRange(candidate, keyLength, candidate.length));
+            if (joinSemantic == JoinSemantic.LEFT_JOIN_MAX_ONE) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a key for in-memory grouping of condition values. The key is
+     * deliberately loose (see {@link MatchKeyUtils#toLooseKey(Object)}), so
+     * whether grouped values actually match is decided by comparing their
+     * {@link #toExactKey(List)}, or ultimately by the database. Returns null if
+     * any of the values is null, since null never matches (like in SQL).
+     */
+    private static List<Object> toLookupKey(final List<Object> values) {
+        final List<Object> key = new ArrayList<>(values.size());
+        for (final Object value : values) {
+            if (value == null) {
+                return null;
+            }
+            key.add(MatchKeyUtils.toLooseKey(value));
+        }
+        return key;
+    }
+
+    /**
+     * Creates a key for exact in-memory matching of condition values.
+     */
+    private static List<Object> toExactKey(final List<Object> values) {
+        final List<Object> key = new ArrayList<>(values.size());
+        for (final Object value : values) {
+            key.add(MatchKeyUtils.toExactKey(value));
+        }
+        return key;
     }
 
     private void compileLookupQuery() {
@@ -355,6 +691,100 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         return new OutputColumns(names, types);
     }
 
+    /**
+     * Batched lookups of single records can be done for a whole batch of rows
+     * at a time, which lets the batch size be reached regardless of the
+     * number of threads that are looking up records.
+     */
+    @Override
+    public boolean isVectorized() {
+        return lookupStrategy == LookupStrategy.BATCHED && joinSemantic == JoinSemantic.LEFT_JOIN_MAX_ONE
+                && !isCarthesianProductMode();
+    }
+
+    @Override
+    public Object[][] transformBatch(final ColumnarInput input) {
+        final int rowCount = input.getRowCount();
+        final Object[][] columnValues = new Object[conditionValues.length][];
+        for (int i = 0; i < conditionValues.length; i++) {
+            columnValues[i] = input.getValues(conditionValues[i]);
+        }
+
+        final boolean useCache = cacheLookups && joinSemantic.isCacheable();
+        final Object[][] result = new Object[rowCount][];
+        final List<List<Object>> queryInputs = new ArrayList<>(rowCount);
+        final List<Integer> uncachedRows = new ArrayList<>();
+        final Set<List<Object>> uncachedQueryInputs = new HashSet<>();
+        for (int row = 0; row < rowCount; row++) {
+            final List<Object> queryInput = new ArrayList<>(columnValues.length);
+            for (final Object[] values : columnValues) {
+                queryInput.add(values[row]);
+            }
+            queryInputs.add(queryInput);
+
+            if (uncachedQueryInputs.contains(queryInput)) {
+                // resolved along with the first row with the same input
+                uncachedRows.add(row);
+                continue;
+            }
+            final Object[] cached = useCache ? cache.getIfPresent(queryInput) : null;
+            if (cached == null) {
+                uncachedQueryInputs.add(queryInput);
+                uncachedRows.add(row);
+            } else {
+                _annotationFactory.annotate(input.getRow(row), 1, _cached);
+                result[row] = cached;
+            }
+        }
+
+        // query the distinct uncached keys in chunks of the batch size
+        final Map<List<Object>, Object[]> lookedUp = new HashMap<>();
+        final int chunkSize = Math.max(1, batchSize);
+        int chunkStart = 0;
+        while (chunkStart < uncachedRows.size()) {
+            final List<List<Object>> chunk = new ArrayList<>(chunkSize);
+            final Map<List<Object>, Boolean> chunkKeys = new HashMap<>();
+            int chunkEnd = chunkStart;
+            while (chunkEnd < uncachedRows.size() && chunkKeys.size() < chunkSize) {
+                final List<Object> queryInput = queryInputs.get(uncachedRows.get(chunkEnd));
+                chunk.add(queryInput);
+                if (toLookupKey(queryInput) != null) {
+                    chunkKeys.put(toExactKey(queryInput), Boolean.TRUE);
+                }
+                chunkEnd++;
+            }
+
+            final long loadStart = System.nanoTime();
+            int loadCount = 0;
+            final Map<List<Object>, List<Object[]>> records = queryRecords(chunk);
+            for (int i = chunkStart; i < chunkEnd; i++) {
+                final int row = uncachedRows.get(i);
+                final List<Object> queryInput = queryInputs.get(row);
+                final Object[] cached = useCache ? lookedUp.get(queryInput) : null;
+                if (cached != null) {
+                    // the same as a cache hit when looking up row by row
+                    _annotationFactory.annotate(input.getRow(row), 1, _cached);
+                    result[row] = cached;
+                } else {
+                    result[row] = handleRecords(input.getRow(row), getRecords(records, queryInput));
+                    if (useCache) {
+                        lookedUp.put(queryInput, result[row]);
+                        cache.put(queryInput, result[row]);
+                        loadCount++;
+                    }
+                }
+            }
+            if (loadCount > 0) {
+                // the cache only records statistics of values that it loads
+                // itself, so account for the values loaded in batch here
+                batchLoadCount.addAndGet(loadCount);
+                batchLoadNanos.addAndGet(System.nanoTime() - loadStart);
+            }
+            chunkStart = chunkEnd;
+        }
+        return result;
+    }
+
     @Override
     public Object[] transform(final InputRow inputRow) {
         final List<Object> queryInput;
@@ -369,31 +799,61 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
             }
         }
 
-        logger.info("Looking up based on condition values: {}", queryInput);
+        logger.debug("Looking up based on condition values: {}", queryInput);
+
+        if (preloadedRecords != null) {
+            return handleRecords(inputRow, getRecords(preloadedRecords, queryInput));
+        }
 
-        Object[] result;
         if (cacheLookups && joinSemantic.isCacheable()) {
-            result = cache.getIfPresent(queryInput);
-            if (result == null) {
-                result = performQuery(inputRow, queryInput);
-                cache.put(queryInput, result);
-            } else {
+            final boolean[] loaded = new boolean[1];
+            final Object[] result;
+            try {
+                result = cache.get(queryInput, () -> {
+                    loaded[0] = true;
+                    return lookup(inputRow, queryInput);
+                });
+            } catch (final ExecutionException | UncheckedExecutionException | ExecutionError e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+            if (!loaded[0]) {
                 if (logger.isDebugEnabled()) {
                     logger.debug("Returning cached lookup result: {}", Arrays.toString(result));
                 }
-                // normally performQuery(...) handles row annotation, but this
-                // if-else branch does not call performQuery(...) so we manually
-                // do it here too.
+                // normally lookup(...) handles row annotation, but a cached
+                // result does not call lookup(...) so we manually do it here
+                // too.
                 _annotationFactory.annotate(inputRow, 1, _cached);
             }
-        } else {
-            result = performQuery(inputRow, queryInput);
+            return result;
         }
 
-        return result;
+        return lookup(inputRow, queryInput);
+    }
+
+    private Object[] lookup(final InputRow row, final List<Object> queryInput) {
+        if (batchBuffer != null) {
+            return handleRecords(row, batchBuffer.transform(queryInput));
+        }
+        return performQuery(row, queryInput);
     }
 
     private Object[] performQuery(final InputRow row, final List<Object> queryInput) {
+        return handleRecords(row, lookupRecords(queryInput));
+    }
+
+    /**
+     * Looks up the records of a single set of condition values, leaving the
+     * matching to the database.
+     */
+    private List<Object[]> lookupRecords(final List<Object> queryInput) {
         try {
             final Column[] queryConditionColumns = getQueryConditionColumns();
 
@@ -403,7 +863,11 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
             }
 
             try (DataSet dataSet = datastoreConnection.getDataContext().executeQuery(lookupQuery, parameterValues)) {
-                return handleDataSet(row, dataSet);
+                final List<Object[]> records = new ArrayList<>(1);
+                while (dataSet.next()) {
+                    records.add(dataSet.getRow().getValues());
+                }
+                return records;
             }
         } catch (final RuntimeException e) {
             logger.error("Error occurred while looking up based on conditions: " + queryInput, e);
@@ -411,10 +875,9 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         }
     }
 
-    private Object[] handleDataSet(final InputRow row, final DataSet dataSet) {
-        if (!dataSet.next()) {
-
-            logger.info("Result of lookup: None!");
+    private Object[] handleRecords(final InputRow row, final List<Object[]> records) {
+        if (records.isEmpty()) {
+            logger.debug("Result of lookup: None!");
             _annotationFactory.annotate(row, 1, _misses);
 
             switch (joinSemantic) {
@@ -428,10 +891,9 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
 
         _annotationFactory.annotate(row, 1, _matches);
 
-        do {
-            final Object[] result = dataSet.getRow().getValues();
-            if (logger.isInfoEnabled()) {
-                logger.info("Result of lookup: " + Arrays.toString(result));
+        for (final Object[] result : records) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Result of lookup: " + Arrays.toString(result));
             }
             switch (joinSemantic) {
             case LEFT_JOIN_MAX_ONE:
@@ -439,14 +901,18 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
             default:
                 outputRowCollector.putValues(result);
             }
-
-        } while (dataSet.next());
+        }
 
         return null;
     }
 
     @Close
     public void close() {
+        if (batchBuffer != null) {
+            batchBuffer.shutdown();
+            batchBuffer = null;
+        }
+        preloadedRecords = null;
         if (lookupQuery != null) {
             lookupQuery.close();
             lookupQuery = null;
@@ -455,19 +921,33 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
             datastoreConnection.close();
             datastoreConnection = null;
         }
-        cache.invalidateAll();
+        if (cache != null) {
+            if (cacheFile != null) {
+                cacheFile.save(cache.asMap());
+                cacheFile = null;
+            }
+            cache.invalidateAll();
+        }
         queryOutputColumns = null;
         queryConditionColumns = null;
     }
 
     @Override
-    public CategorizationResult getResult() {
+    public TableLookupResult getResult() {
         final Map<String, RowAnnotation> categories = new LinkedHashMap<>();
         categories.put("Match", _matches);
         categories.put("Miss", _misses);
         if (cacheLookups) {
             categories.put("Cached", _cached);
         }
-        return new CategorizationResult(_annotationFactory, categories);
+        if (cache == null) {
+            return new TableLookupResult(_annotationFactory, categories, 0, 0, 0, 0d);
+        }
+        final CacheStats stats = cache.stats();
+        final long loadCount = stats.loadCount() + batchLoadCount.get();
+        final long totalLoadTime = stats.totalLoadTime() + batchLoadNanos.get();
+        final double averageLoadPenalty = loadCount == 0 ? 0d : (double) totalLoadTime / loadCount;
+        return new TableLookupResult(_annotationFactory, categories, stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), averageLoadPenalty / TimeUnit.MILLISECONDS.toNanos(1));
     }
 }
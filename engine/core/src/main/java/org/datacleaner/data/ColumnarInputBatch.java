@@ -0,0 +1,96 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.data;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.datacleaner.api.ColumnarInput;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+
+/**
+ * {@link ColumnarInput} implementation backed by a list of {@link InputRow}s.
+ * Column arrays are extracted from the rows the first time they are requested
+ * and then reused.
+ *
+ * Instances are not thread-safe, a batch is meant to be processed by a single
+ * thread.
+ */
+public final class ColumnarInputBatch implements ColumnarInput {
+
+    private final List<InputRow> _rows;
+    private final RowLayout _rowLayout;
+    private final Map<InputColumn<?>, Object[]> _columnValues;
+
+    public ColumnarInputBatch(final List<InputRow> rows) {
+        this(rows, null);
+    }
+
+    /**
+     * Creates a batch of rows that are (mostly) {@link SlottedInputRow}s of a
+     * particular layout. The slot of a column is then resolved once per batch
+     * instead of once per row.
+     *
+     * @param rows
+     * @param rowLayout
+     *            the layout of the rows, or null if not known
+     */
+    public ColumnarInputBatch(final List<InputRow> rows, final RowLayout rowLayout) {
+        _rows = rows;
+        _rowLayout = rowLayout;
+        _columnValues = new HashMap<>();
+    }
+
+    @Override
+    public int getRowCount() {
+        return _rows.size();
+    }
+
+    @Override
+    public Object[] getValues(final InputColumn<?> column) {
+        Object[] values = _columnValues.get(column);
+        if (values == null) {
+            values = new Object[_rows.size()];
+            final int slot = _rowLayout == null || column.isPhysicalColumn() ? -1 : _rowLayout.getSlot(column);
+            for (int i = 0; i < values.length; i++) {
+                final InputRow row = _rows.get(i);
+                if (slot != -1 && row instanceof SlottedInputRow && ((SlottedInputRow) row).getLayout() == _rowLayout) {
+                    values[i] = ((SlottedInputRow) row).getValue(slot, column);
+                } else {
+                    values[i] = row.getValue(column);
+                }
+            }
+            _columnValues.put(column, values);
+        }
+        return values;
+    }
+
+    @Override
+    public InputRow getRow(final int index) {
+        return _rows.get(index);
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarInputBatch[rows=" + _rows.size() + "]";
+    }
+}
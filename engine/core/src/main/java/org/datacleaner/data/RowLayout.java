@@ -0,0 +1,100 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.data;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.datacleaner.api.InputColumn;
+
+/**
+ * A precomputed layout of virtual {@link InputColumn}s, assigning each column
+ * an integer slot. Used by {@link SlottedInputRow} to store transformed values
+ * in a flat array instead of a per-row map.
+ *
+ * A {@link RowLayout} is immutable and is typically built once per row
+ * processing flow, shared by all rows of that flow.
+ */
+public final class RowLayout implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final InputColumn<?>[] _columns;
+    private final Map<InputColumn<?>, Integer> _slots;
+
+    /**
+     * Creates a {@link RowLayout} based on a collection of columns. Physical
+     * columns and duplicates are ignored.
+     *
+     * @param columns
+     */
+    public RowLayout(final Collection<? extends InputColumn<?>> columns) {
+        _slots = new HashMap<>();
+        for (final InputColumn<?> column : columns) {
+            if (column.isVirtualColumn() && !_slots.containsKey(column)) {
+                _slots.put(column, _slots.size());
+            }
+        }
+        _columns = new InputColumn<?>[_slots.size()];
+        for (final Map.Entry<InputColumn<?>, Integer> entry : _slots.entrySet()) {
+            _columns[entry.getValue()] = entry.getKey();
+        }
+    }
+
+    /**
+     * Gets the slot of a column in this layout.
+     *
+     * @param column
+     * @return the slot index, or -1 if the column is not part of this layout.
+     */
+    public int getSlot(final InputColumn<?> column) {
+        final Integer slot = _slots.get(column);
+        if (slot == null) {
+            return -1;
+        }
+        return slot.intValue();
+    }
+
+    /**
+     * Gets the column at a particular slot.
+     *
+     * @param slot
+     * @return
+     */
+    public InputColumn<?> getColumn(final int slot) {
+        return _columns[slot];
+    }
+
+    /**
+     * Gets the number of slots in this layout.
+     *
+     * @return
+     */
+    public int size() {
+        return _columns.length;
+    }
+
+    @Override
+    public String toString() {
+        return "RowLayout[size=" + _columns.length + "]";
+    }
+}
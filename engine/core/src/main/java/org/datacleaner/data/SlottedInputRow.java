@@ -0,0 +1,242 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.data;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+
+/**
+ * Represents a row with transformed values as well as a delegate row, like
+ * {@link TransformedInputRow}. Transformed values are stored in a flat array
+ * with slots defined by a shared {@link RowLayout}, which avoids allocating a
+ * map and map entries for every row and column.
+ *
+ * Values for columns that are not part of the layout are still accepted, and
+ * kept in a (lazily created) map.
+ */
+public final class SlottedInputRow extends AbstractLegacyAwareInputRow {
+
+    private static final long serialVersionUID = 1L;
+
+    private final InputRow _delegate;
+    private final RowLayout _layout;
+    private final Object[] _values;
+    private final boolean[] _assigned;
+    private final long _id;
+    private Map<InputColumn<?>, Object> _additionalValues;
+
+    /**
+     * Constructs a {@link SlottedInputRow} based on another row, a row ID and
+     * a layout. If the other row is a {@link SlottedInputRow} with the same
+     * layout, it's transformed values are copied so that lookups never need
+     * to walk a chain of delegates.
+     *
+     * @param delegate
+     * @param rowId
+     * @param layout
+     */
+    public SlottedInputRow(final InputRow delegate, final long rowId, final RowLayout layout) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate cannot be null");
+        }
+        if (layout == null) {
+            throw new IllegalArgumentException("RowLayout cannot be null");
+        }
+        _id = rowId;
+        _layout = layout;
+
+        if (delegate instanceof SlottedInputRow && ((SlottedInputRow) delegate)._layout == layout) {
+            final SlottedInputRow slottedDelegate = (SlottedInputRow) delegate;
+            _delegate = slottedDelegate._delegate;
+            _values = slottedDelegate._values.clone();
+            _assigned = slottedDelegate._assigned.clone();
+            if (slottedDelegate._additionalValues != null) {
+                _additionalValues = new LinkedHashMap<>(slottedDelegate._additionalValues);
+            }
+        } else {
+            _delegate = delegate;
+            _values = new Object[layout.size()];
+            _assigned = new boolean[layout.size()];
+        }
+    }
+
+    /**
+     * Constructs a {@link SlottedInputRow} based on another row, or returns the
+     * row if it is already a {@link SlottedInputRow} with the same layout.
+     *
+     * @param row
+     * @param layout
+     * @return
+     */
+    public static SlottedInputRow of(final InputRow row, final RowLayout layout) {
+        if (row instanceof SlottedInputRow && ((SlottedInputRow) row)._layout == layout) {
+            // re-use existing slotted input row.
+            return (SlottedInputRow) row;
+        }
+        return new SlottedInputRow(row, row.getId(), layout);
+    }
+
+    @Override
+    protected String getFieldNameForNewId() {
+        return "_id";
+    }
+
+    @Override
+    protected String getFieldNameForOldId() {
+        return "_rowId";
+    }
+
+    @Override
+    protected Collection<String> getFieldNamesInAdditionToId() {
+        return Arrays.asList("_delegate", "_layout", "_values", "_assigned", "_additionalValues");
+    }
+
+    private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        doReadObject(stream);
+    }
+
+    @Override
+    public long getId() {
+        return _id;
+    }
+
+    @Override
+    public boolean containsInputColumn(final InputColumn<?> inputColumn) {
+        if (inputColumn.isVirtualColumn()) {
+            final int slot = _layout.getSlot(inputColumn);
+            if (slot != -1 && _assigned[slot]) {
+                return true;
+            }
+            if (_additionalValues != null && _additionalValues.containsKey(inputColumn)) {
+                return true;
+            }
+        }
+        return _delegate.containsInputColumn(inputColumn);
+    }
+
+    public void addValue(final InputColumn<?> inputColumn, final Object value) {
+        if (inputColumn.isPhysicalColumn()) {
+            throw new IllegalArgumentException("Cannot add physical column values to transformed InputRow.");
+        }
+        final int slot = _layout.getSlot(inputColumn);
+        if (slot == -1) {
+            if (_additionalValues == null) {
+                _additionalValues = new LinkedHashMap<>();
+            }
+            _additionalValues.put(inputColumn, value);
+        } else {
+            _values[slot] = value;
+            _assigned[slot] = true;
+        }
+    }
+
+    /**
+     * Sets the value of a slot of the layout. Consumers that resolve the slots
+     * of their columns up front (see {@link RowLayout#getSlot(InputColumn)})
+     * can use this instead of {@link #addValue(InputColumn, Object)} to avoid
+     * looking up the slot for every row.
+     *
+     * @param slot
+     * @param value
+     */
+    public void setValue(final int slot, final Object value) {
+        _values[slot] = value;
+        _assigned[slot] = true;
+    }
+
+    /**
+     * Gets the value of a column, using a slot that has been resolved up front
+     * (see {@link RowLayout#getSlot(InputColumn)}). If the slot has not been
+     * assigned, the value is looked up like in {@link #getValue(InputColumn)}.
+     *
+     * @param slot
+     *            the slot of the column in the layout of this row, or -1 if the
+     *            column is not part of the layout
+     * @param column
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <E> E getValue(final int slot, final InputColumn<E> column) {
+        if (slot != -1 && _assigned[slot]) {
+            return (E) _values[slot];
+        }
+        return getValue(column);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <E> E getValueInternal(final InputColumn<E> column) {
+        if (column.isPhysicalColumn()) {
+            return _delegate.getValue(column);
+        }
+        final int slot = _layout.getSlot(column);
+        if (slot != -1 && _assigned[slot]) {
+            return (E) _values[slot];
+        }
+        if (_additionalValues != null && _additionalValues.containsKey(column)) {
+            return (E) _additionalValues.get(column);
+        }
+        return _delegate.getValue(column);
+    }
+
+    public InputRow getDelegate() {
+        return _delegate;
+    }
+
+    public RowLayout getLayout() {
+        return _layout;
+    }
+
+    @Override
+    public List<InputColumn<?>> getInputColumns() {
+        final List<InputColumn<?>> inputColumns = _delegate.getInputColumns();
+        for (int i = 0; i < _values.length; i++) {
+            if (_assigned[i]) {
+                inputColumns.add(_layout.getColumn(i));
+            }
+        }
+        if (_additionalValues != null) {
+            inputColumns.addAll(_additionalValues.keySet());
+        }
+        return inputColumns;
+    }
+
+    @Override
+    public String toString() {
+        final Map<InputColumn<?>, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < _values.length; i++) {
+            if (_assigned[i]) {
+                values.put(_layout.getColumn(i), _values[i]);
+            }
+        }
+        if (_additionalValues != null) {
+            values.putAll(_additionalValues);
+        }
+        return "SlottedInputRow[values=" + values + ",delegate=" + _delegate + "]";
+    }
+}
@@ -20,6 +20,7 @@
 package org.datacleaner.job.runner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Queue;
@@ -27,6 +28,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.metamodel.query.Query;
 import org.datacleaner.api.HasAnalyzerResult;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.data.RowLayout;
 import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.ComponentJob;
 import org.datacleaner.job.FilterOutcome;
@@ -41,6 +44,7 @@ import org.datacleaner.job.tasks.InitializeTask;
 import org.datacleaner.job.tasks.Task;
 import org.datacleaner.lifecycle.LifeCycleHelper;
 import org.datacleaner.util.SourceColumnFinder;
+import org.datacleaner.util.SystemProperties;
 
 public abstract class AbstractRowProcessingPublisher implements RowProcessingPublisher {
 
@@ -159,6 +163,17 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
         final RowProcessingPublishers publishers = getPublishers();
         final AnalysisListener analysisListener = publishers.getAnalysisListener();
 
+        final RowLayout rowLayout;
+        if (SystemProperties.getBoolean(SystemProperties.ROW_PROCESSING_COMPILED_ROW_LAYOUT, false)) {
+            final List<InputColumn<?>> virtualColumns = new ArrayList<>();
+            for (final RowProcessingConsumer consumer : getConsumers()) {
+                virtualColumns.addAll(Arrays.asList(consumer.getOutputColumns()));
+            }
+            rowLayout = new RowLayout(virtualColumns);
+        } else {
+            rowLayout = null;
+        }
+
         for (final RowProcessingConsumer consumer : getConsumers()) {
             final ComponentJob componentJob = consumer.getComponentJob();
             final ComponentMetrics metrics =
@@ -167,6 +182,7 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
 
             if (consumer instanceof TransformerConsumer) {
                 ((TransformerConsumer) consumer).setRowIdGenerator(idGenerator);
+                ((TransformerConsumer) consumer).setRowLayout(rowLayout);
             }
         }
         final List<RowProcessingConsumer> consumers = queryOptimizer.getOptimizedConsumers();
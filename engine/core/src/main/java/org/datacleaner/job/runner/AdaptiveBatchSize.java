@@ -0,0 +1,109 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+/**
+ * Determines the size of batches handed to a vectorized component, adapting
+ * it to the observed throughput. The size is doubled for as long as the
+ * throughput (rows per nanosecond) improves, and halved when it degrades -
+ * ie. a simple hill climbing strategy which settles around the size where
+ * per-batch overhead is amortized without batches growing needlessly large.
+ *
+ * Measurements are aggregated over a number of batches before the size is
+ * reconsidered, to avoid reacting to noise in the timing of single batches.
+ */
+final class AdaptiveBatchSize {
+
+    public static final int MIN_BATCH_SIZE = 16;
+    public static final int MAX_BATCH_SIZE = 4096;
+    public static final int INITIAL_BATCH_SIZE = 128;
+
+    private static final int BATCHES_PER_SAMPLE = 4;
+    private static final double TOLERANCE = 0.05;
+
+    private final int _minBatchSize;
+    private final int _maxBatchSize;
+
+    private volatile int _batchSize;
+    private boolean _growing = true;
+    private double _previousThroughput;
+    private int _sampleBatches;
+    private long _sampleRows;
+    private long _sampleNanos;
+
+    public AdaptiveBatchSize() {
+        this(INITIAL_BATCH_SIZE, MIN_BATCH_SIZE, MAX_BATCH_SIZE);
+    }
+
+    public AdaptiveBatchSize(final int initialBatchSize, final int minBatchSize, final int maxBatchSize) {
+        _minBatchSize = minBatchSize;
+        _maxBatchSize = maxBatchSize;
+        _batchSize = Math.max(minBatchSize, Math.min(maxBatchSize, initialBatchSize));
+    }
+
+    /**
+     * Gets the current batch size.
+     *
+     * @return
+     */
+    public int get() {
+        return _batchSize;
+    }
+
+    /**
+     * Records the time it took to process a batch.
+     *
+     * @param rowCount
+     *            the number of rows in the batch
+     * @param nanos
+     *            the processing time of the batch, in nanoseconds
+     */
+    public synchronized void record(final int rowCount, final long nanos) {
+        if (rowCount < _batchSize) {
+            // remainders of a chunk of rows say little about the throughput
+            // at the current size
+            return;
+        }
+
+        _sampleRows += rowCount;
+        _sampleNanos += Math.max(1, nanos);
+        _sampleBatches++;
+        if (_sampleBatches < BATCHES_PER_SAMPLE) {
+            return;
+        }
+
+        final double throughput = (double) _sampleRows / _sampleNanos;
+        if (_previousThroughput > 0 && throughput < _previousThroughput * (1 - TOLERANCE)) {
+            _growing = !_growing;
+        }
+        _previousThroughput = throughput;
+        _sampleBatches = 0;
+        _sampleRows = 0;
+        _sampleNanos = 0;
+
+        final int batchSize = _growing ? _batchSize * 2 : _batchSize / 2;
+        _batchSize = Math.max(_minBatchSize, Math.min(_maxBatchSize, batchSize));
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveBatchSize[" + _batchSize + "]";
+    }
+}
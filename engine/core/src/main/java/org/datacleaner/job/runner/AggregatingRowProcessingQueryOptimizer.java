@@ -0,0 +1,212 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.LazyRef;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.QueryOptimizedAnalyzer;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.job.AnalyzerJob;
+import org.datacleaner.job.FilterOutcome;
+import org.datacleaner.util.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link RowProcessingQueryOptimizer} which, on top of the optimizations of
+ * another optimizer, pushes {@link QueryOptimizedAnalyzer}s down into GROUP BY
+ * queries. Such analyzers are eliminated from the consumers of the row
+ * processing and are instead fed with the rows of their aggregate queries (see
+ * {@link #getAggregateQuery(RowProcessingConsumer)}). Analyzers that consume
+ * the same columns share a query, see {@link #getAggregatedConsumerGroups()}.
+ *
+ * Since analyzers are only configured when they are initialized, the
+ * aggregated consumers are determined lazily, when first requested.
+ */
+public class AggregatingRowProcessingQueryOptimizer implements RowProcessingQueryOptimizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AggregatingRowProcessingQueryOptimizer.class);
+
+    private final RowProcessingQueryOptimizer _delegate;
+    private final Datastore _datastore;
+    private final Table _table;
+    private final LazyRef<List<RowProcessingConsumer>> _aggregatedConsumers;
+
+    public AggregatingRowProcessingQueryOptimizer(final RowProcessingQueryOptimizer delegate,
+            final Datastore datastore, final Table table) {
+        _delegate = delegate;
+        _datastore = datastore;
+        _table = table;
+        _aggregatedConsumers = new LazyRef<List<RowProcessingConsumer>>() {
+            @Override
+            protected List<RowProcessingConsumer> fetch() {
+                return findAggregatedConsumers();
+            }
+        };
+    }
+
+    private List<RowProcessingConsumer> findAggregatedConsumers() {
+        if (!SystemProperties.getBoolean(SystemProperties.QUERY_AGGREGATE_PUSHDOWN, false)) {
+            return Collections.emptyList();
+        }
+        if (!_datastore.getPerformanceCharacteristics().isQueryOptimizationPreferred()) {
+            logger.debug("Datastore performance characteristics indicate that aggregate queries will not improve "
+                    + "performance for table {}", _table);
+            return Collections.emptyList();
+        }
+
+        final List<RowProcessingConsumer> result = new ArrayList<>();
+        for (final RowProcessingConsumer consumer : _delegate.getOptimizedConsumers()) {
+            if (isAggregatable(consumer)) {
+                logger.info("Pushing down {} into an aggregate query on table {}", consumer, _table.getName());
+                result.add(consumer);
+            }
+        }
+        return result;
+    }
+
+    private boolean isAggregatable(final RowProcessingConsumer consumer) {
+        if (!(consumer instanceof AnalyzerConsumer)) {
+            return false;
+        }
+
+        final Object component = consumer.getComponent();
+        if (!(component instanceof QueryOptimizedAnalyzer) || !((QueryOptimizedAnalyzer<?>) component)
+                .isOptimizable()) {
+            return false;
+        }
+
+        final AnalyzerJob analyzerJob = ((AnalyzerConsumer) consumer).getComponentJob();
+        if (analyzerJob.getComponentRequirement() != null) {
+            logger.debug("Analyzer has a requirement, so it cannot be aggregated: {}", consumer);
+            return false;
+        }
+        if (analyzerJob.getOutputDataStreamJobs().length > 0) {
+            logger.debug("Analyzer has output data streams, so it cannot be aggregated: {}", consumer);
+            return false;
+        }
+
+        final InputColumn<?>[] input = consumer.getRequiredInput();
+        if (input.length == 0 || input.length != analyzerJob.getInput().length) {
+            return false;
+        }
+        for (final InputColumn<?> inputColumn : input) {
+            if (inputColumn.isVirtualColumn() || !_table.equals(inputColumn.getPhysicalColumn().getTable())) {
+                logger.debug("InputColumn {} is not a physical column of table {}, so analyzer cannot be "
+                        + "aggregated: {}", inputColumn, _table, consumer);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the consumers that have been pushed down into aggregate queries.
+     *
+     * @return
+     */
+    public List<RowProcessingConsumer> getAggregatedConsumers() {
+        return _aggregatedConsumers.get();
+    }
+
+    /**
+     * Gets the consumers that have been pushed down into aggregate queries,
+     * grouped by the columns they consume. The consumers of a group can be fed
+     * with the rows of the same aggregate query.
+     *
+     * @return
+     */
+    public Collection<List<RowProcessingConsumer>> getAggregatedConsumerGroups() {
+        final Map<Set<Column>, List<RowProcessingConsumer>> groups = new LinkedHashMap<>();
+        for (final RowProcessingConsumer consumer : getAggregatedConsumers()) {
+            final List<RowProcessingConsumer> group =
+                    groups.computeIfAbsent(getPhysicalColumns(consumer), columns -> new ArrayList<>());
+            group.add(consumer);
+        }
+        return groups.values();
+    }
+
+    /**
+     * Creates the aggregate query for one of the aggregated consumers. The
+     * query selects the distinct values of the consumer's input columns,
+     * followed by the number of records holding those values.
+     *
+     * @param consumer
+     * @return
+     */
+    public Query getAggregateQuery(final RowProcessingConsumer consumer) {
+        final Set<Column> columns = getPhysicalColumns(consumer);
+        final Column[] columnArray = columns.toArray(new Column[columns.size()]);
+
+        final Query query = new Query().from(_table).select(columnArray);
+        query.selectCount();
+        query.groupBy(columnArray);
+        return query;
+    }
+
+    private Set<Column> getPhysicalColumns(final RowProcessingConsumer consumer) {
+        final Set<Column> columns = new LinkedHashSet<>();
+        for (final InputColumn<?> inputColumn : consumer.getRequiredInput()) {
+            columns.add(inputColumn.getPhysicalColumn());
+        }
+        return columns;
+    }
+
+    @Override
+    public Query getOptimizedQuery() {
+        return _delegate.getOptimizedQuery();
+    }
+
+    @Override
+    public List<RowProcessingConsumer> getOptimizedConsumers() {
+        final List<RowProcessingConsumer> result = new ArrayList<>(_delegate.getOptimizedConsumers());
+        result.removeAll(getAggregatedConsumers());
+        return result;
+    }
+
+    @Override
+    public Set<? extends RowProcessingConsumer> getEliminatedConsumers() {
+        final Set<RowProcessingConsumer> result = new LinkedHashSet<>(_delegate.getEliminatedConsumers());
+        result.addAll(getAggregatedConsumers());
+        return result;
+    }
+
+    @Override
+    public Collection<? extends FilterOutcome> getOptimizedAvailableOutcomes() {
+        return _delegate.getOptimizedAvailableOutcomes();
+    }
+
+    @Override
+    public boolean isOptimizable() {
+        return _delegate.isOptimizable() || !getAggregatedConsumers().isEmpty();
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.job.FilterOutcome;
+import org.datacleaner.job.FilterOutcomes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delegate execution object for {@link ConsumeRowHandler} which processes a
+ * batch of rows consumer by consumer, as opposed to the row by row recursion
+ * of {@link ConsumeRowHandlerDelegate}. This allows vectorized transformers
+ * (see {@link TransformerConsumer#isVectorized()}) to be invoked with batches
+ * of rows, while all other consumers are still invoked with one row at a time.
+ *
+ * The order of the rows is retained through the whole chain.
+ */
+final class ConsumeRowBatchDelegate {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumeRowBatchDelegate.class);
+
+    private final List<RowProcessingConsumer> _consumers;
+    private final Collection<? extends FilterOutcome> _alwaysSatisfiedOutcomes;
+
+    public ConsumeRowBatchDelegate(final List<RowProcessingConsumer> consumers,
+            final Collection<? extends FilterOutcome> alwaysSatisfiedOutcomes) {
+        _consumers = consumers;
+        _alwaysSatisfiedOutcomes = alwaysSatisfiedOutcomes;
+    }
+
+    public ConsumeRowResult consume(final List<InputRow> rows) {
+        List<PendingRow> pendingRows = new ArrayList<>(rows.size());
+        for (final InputRow row : rows) {
+            pendingRows.add(new PendingRow(row, 1, new FilterOutcomesImpl(_alwaysSatisfiedOutcomes)));
+        }
+
+        for (final RowProcessingConsumer consumer : _consumers) {
+            if (pendingRows.isEmpty()) {
+                break;
+            }
+            if (consumer instanceof TransformerConsumer && ((TransformerConsumer) consumer).isVectorized()) {
+                pendingRows = consumeVectorized((TransformerConsumer) consumer, pendingRows);
+            } else {
+                pendingRows = consumeRowByRow(consumer, pendingRows);
+            }
+        }
+
+        final List<InputRow> resultRecords = new ArrayList<>(pendingRows.size());
+        final List<FilterOutcomes> resultOutcomes = new ArrayList<>(pendingRows.size());
+        for (final PendingRow pendingRow : pendingRows) {
+            resultRecords.add(pendingRow.row);
+            resultOutcomes.add(pendingRow.outcomes);
+        }
+        return new ConsumeRowResult(resultRecords, resultOutcomes);
+    }
+
+    private List<PendingRow> consumeRowByRow(final RowProcessingConsumer consumer,
+            final List<PendingRow> pendingRows) {
+        final List<PendingRow> nextRows = new ArrayList<>(pendingRows.size());
+        final RowProcessingChain chain = createChain(nextRows);
+        for (final PendingRow pendingRow : pendingRows) {
+            if (consumer.satisfiedForConsume(pendingRow.outcomes, pendingRow.row)) {
+                consumeRow(consumer, pendingRow, chain);
+            } else {
+                nextRows.add(pendingRow);
+            }
+        }
+        return nextRows;
+    }
+
+    private List<PendingRow> consumeVectorized(final TransformerConsumer consumer,
+            final List<PendingRow> pendingRows) {
+        final List<PendingRow> nextRows = new ArrayList<>(pendingRows.size());
+        final RowProcessingChain chain = createChain(nextRows);
+
+        final int size = pendingRows.size();
+        final int batchSize = consumer.getVectorBatchSize();
+        final boolean[] satisfied = new boolean[size];
+        final List<InputRow> batch = new ArrayList<>(Math.min(batchSize, size));
+
+        int start = 0;
+        while (start < size) {
+            // collect a batch of rows to transform, remembering which rows in
+            // between should just be passed on
+            batch.clear();
+            int end = start;
+            while (end < size && batch.size() < batchSize) {
+                final PendingRow pendingRow = pendingRows.get(end);
+                if (consumer.satisfiedForConsume(pendingRow.outcomes, pendingRow.row)) {
+                    satisfied[end] = true;
+                    batch.add(pendingRow.row);
+                }
+                end++;
+            }
+
+            final InputRow[] transformedRows = transformBatch(consumer, batch);
+
+            int batchIndex = 0;
+            for (int i = start; i < end; i++) {
+                final PendingRow pendingRow = pendingRows.get(i);
+                if (!satisfied[i]) {
+                    nextRows.add(pendingRow);
+                } else if (transformedRows == null) {
+                    consumeRow(consumer, pendingRow, chain);
+                } else {
+                    final InputRow transformedRow = transformedRows[batchIndex++];
+                    if (transformedRow != null) {
+                        nextRows.add(new PendingRow(transformedRow, pendingRow.distinctCount, pendingRow.outcomes));
+                    }
+                }
+            }
+            start = end;
+        }
+        return nextRows;
+    }
+
+    /**
+     * Transforms a batch of rows, or returns null if the batch failed - in
+     * which case the rows should be consumed one by one, so that errors are
+     * reported for the offending rows.
+     */
+    private InputRow[] transformBatch(final TransformerConsumer consumer, final List<InputRow> batch) {
+        if (batch.isEmpty()) {
+            return new InputRow[0];
+        }
+        try {
+            if (consumer.isConcurrent()) {
+                return consumer.transformBatch(batch);
+            } else {
+                synchronized (consumer) {
+                    return consumer.transformBatch(batch);
+                }
+            }
+        } catch (final RuntimeException e) {
+            logger.warn("Transforming a batch of {} rows failed in {}, retrying row by row: {}", batch.size(),
+                    consumer, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void consumeRow(final RowProcessingConsumer consumer, final PendingRow pendingRow,
+            final RowProcessingChain chain) {
+        if (consumer.isConcurrent()) {
+            consumer.consume(pendingRow.row, pendingRow.distinctCount, pendingRow.outcomes, chain);
+        } else {
+            synchronized (consumer) {
+                consumer.consume(pendingRow.row, pendingRow.distinctCount, pendingRow.outcomes, chain);
+            }
+        }
+    }
+
+    private static RowProcessingChain createChain(final List<PendingRow> nextRows) {
+        return (row, distinctCount, outcomes) -> nextRows.add(new PendingRow(row, distinctCount, outcomes));
+    }
+
+    /**
+     * A row on its way through the chain of consumers.
+     */
+    private static final class PendingRow {
+
+        private final InputRow row;
+        private final int distinctCount;
+        private final FilterOutcomes outcomes;
+
+        private PendingRow(final InputRow row, final int distinctCount, final FilterOutcomes outcomes) {
+            this.row = row;
+            this.distinctCount = distinctCount;
+            this.outcomes = outcomes;
+        }
+    }
+}
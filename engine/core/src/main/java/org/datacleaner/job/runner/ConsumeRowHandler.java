@@ -143,11 +143,76 @@ public class ConsumeRowHandler {
      * @return
      */
     public ConsumeRowResult consumeRow(final InputRow row) {
+        return consumeRow(row, 1);
+    }
+
+    /**
+     * Consumes a {@link InputRow} which represents a number of identical
+     * records. The distinct count is passed on to the consumers, eg. to
+     * {@link Analyzer#run(InputRow, int)}.
+     *
+     * @param row
+     * @param distinctCount
+     * @return
+     */
+    public ConsumeRowResult consumeRow(final InputRow row, final int distinctCount) {
         final FilterOutcomes outcomes = new FilterOutcomesImpl(_alwaysSatisfiedOutcomes);
-        final ConsumeRowHandlerDelegate delegate = new ConsumeRowHandlerDelegate(_consumers, row, 0, outcomes);
+        final ConsumeRowHandlerDelegate delegate =
+                new ConsumeRowHandlerDelegate(_consumers, row, distinctCount, 0, outcomes);
         return delegate.consume();
     }
 
+    /**
+     * Consumes a number of {@link InputRow}s. If any of the consumers is a
+     * vectorized transformer, the rows are passed through the consumers in
+     * batches, otherwise this is equivalent to calling
+     * {@link #consumeRow(InputRow)} for each row.
+     *
+     * @param rows
+     * @return the combined result of all rows, in order
+     */
+    public ConsumeRowResult consumeRows(final List<InputRow> rows) {
+        if (hasVectorizedConsumers()) {
+            return new ConsumeRowBatchDelegate(_consumers, _alwaysSatisfiedOutcomes).consume(rows);
+        }
+
+        final List<InputRow> resultRecords = new ArrayList<>(rows.size());
+        final List<FilterOutcomes> resultOutcomes = new ArrayList<>(rows.size());
+        for (final InputRow row : rows) {
+            final ConsumeRowResult result = consumeRow(row);
+            resultRecords.addAll(result.getRows());
+            resultOutcomes.addAll(result.getOutcomeSinks());
+        }
+        return new ConsumeRowResult(resultRecords, resultOutcomes);
+    }
+
+    /**
+     * Gets the number of rows that this handler would prefer to receive per
+     * call to {@link #consumeRows(List)}. This is 1 unless there are
+     * vectorized transformers among the consumers, in which case it is the
+     * largest batch size that any of them currently prefers.
+     *
+     * @return
+     */
+    public int getPreferredBatchSize() {
+        int batchSize = 1;
+        for (final RowProcessingConsumer consumer : _consumers) {
+            if (consumer instanceof TransformerConsumer && ((TransformerConsumer) consumer).isVectorized()) {
+                batchSize = Math.max(batchSize, ((TransformerConsumer) consumer).getVectorBatchSize());
+            }
+        }
+        return batchSize;
+    }
+
+    private boolean hasVectorizedConsumers() {
+        for (final RowProcessingConsumer consumer : _consumers) {
+            if (consumer instanceof TransformerConsumer && ((TransformerConsumer) consumer).isVectorized()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private List<RowProcessingConsumer> extractConsumers(final AnalysisJob analysisJob,
             final DataCleanerConfiguration configuration, final Configuration rowConsumeConfiguration) {
         final InjectionManagerFactory injectionManagerFactory =
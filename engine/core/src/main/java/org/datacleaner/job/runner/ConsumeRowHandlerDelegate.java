@@ -36,21 +36,23 @@ final class ConsumeRowHandlerDelegate implements RowProcessingChain {
 
     private final List<RowProcessingConsumer> _consumers;
     private final InputRow _row;
+    private final int _distinctCount;
     private final int _consumerIndex;
     private final FilterOutcomes _outcomes;
     private final List<InputRow> _resultRecords;
     private final List<FilterOutcomes> _resultOutcomes;
 
     public ConsumeRowHandlerDelegate(final List<RowProcessingConsumer> consumers, final InputRow row,
-            final int consumerIndex, final FilterOutcomes outcomes) {
-        this(consumers, row, consumerIndex, outcomes, new ArrayList<>(1), new ArrayList<>(1));
+            final int distinctCount, final int consumerIndex, final FilterOutcomes outcomes) {
+        this(consumers, row, distinctCount, consumerIndex, outcomes, new ArrayList<>(1), new ArrayList<>(1));
     }
 
     private ConsumeRowHandlerDelegate(final List<RowProcessingConsumer> consumers, final InputRow row,
-            final int consumerIndex, final FilterOutcomes outcomes, final List<InputRow> resultRecords,
-            final List<FilterOutcomes> resultOutcomes) {
+            final int distinctCount, final int consumerIndex, final FilterOutcomes outcomes,
+            final List<InputRow> resultRecords, final List<FilterOutcomes> resultOutcomes) {
         _consumers = consumers;
         _row = row;
+        _distinctCount = distinctCount;
         _consumerIndex = consumerIndex;
         _outcomes = outcomes;
         _resultRecords = resultRecords;
@@ -63,15 +65,15 @@ final class ConsumeRowHandlerDelegate implements RowProcessingChain {
         final boolean process = consumer.satisfiedForConsume(_outcomes, _row);
         if (process) {
             if (consumer.isConcurrent()) {
-                consumer.consume(_row, 1, _outcomes, this);
+                consumer.consume(_row, _distinctCount, _outcomes, this);
             } else {
                 synchronized (consumer) {
-                    consumer.consume(_row, 1, _outcomes, this);
+                    consumer.consume(_row, _distinctCount, _outcomes, this);
                 }
             }
         } else {
             // jump to the next step
-            processNext(_row, 1, _outcomes);
+            processNext(_row, _distinctCount, _outcomes);
         }
 
         return new ConsumeRowResult(_resultRecords, _resultOutcomes);
@@ -88,7 +90,8 @@ final class ConsumeRowHandlerDelegate implements RowProcessingChain {
         }
 
         final ConsumeRowHandlerDelegate subDelegate =
-                new ConsumeRowHandlerDelegate(_consumers, row, nextIndex, outcomes, _resultRecords, _resultOutcomes);
+                new ConsumeRowHandlerDelegate(_consumers, row, distinctCount, nextIndex, outcomes, _resultRecords,
+                        _resultOutcomes);
         subDelegate.consume();
     }
 
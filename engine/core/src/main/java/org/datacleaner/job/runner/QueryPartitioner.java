@@ -0,0 +1,167 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.MetaModelHelper;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Table;
+import org.datacleaner.connection.Datastore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Splits a row processing {@link Query} into a number of queries that each
+ * select a disjoint range of the source table's primary key. The resulting
+ * queries can be executed concurrently over separate connections.
+ *
+ * Partitioning is only applied when it can be done without changing the
+ * result: the datastore must prefer query optimization (ie. filters are
+ * evaluated natively by the database, as with JDBC datastores), the table must
+ * have a single integer primary key and the query must not be paged or
+ * grouped. In all other cases the original query is returned as the single
+ * partition.
+ */
+public final class QueryPartitioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryPartitioner.class);
+
+    private final Datastore _datastore;
+    private final Table _table;
+
+    public QueryPartitioner(final Datastore datastore, final Table table) {
+        _datastore = datastore;
+        _table = table;
+    }
+
+    /**
+     * Creates the partitioned queries.
+     *
+     * @param dataContext
+     *            the {@link DataContext} to use for determining the range of
+     *            primary key values
+     * @param query
+     *            the (optimized) query to partition
+     * @param numPartitions
+     *            the desired number of partitions
+     * @return a list of queries which together select the same records as the
+     *         original query
+     */
+    public List<Query> partition(final DataContext dataContext, final Query query, final int numPartitions) {
+        if (numPartitions <= 1) {
+            return Collections.singletonList(query);
+        }
+
+        final Column primaryKey = getPartitionColumn(query);
+        if (primaryKey == null) {
+            return Collections.singletonList(query);
+        }
+
+        final Query rangeQuery = query.clone();
+        rangeQuery.getSelectClause().removeItems();
+        rangeQuery.getOrderByClause().removeItems();
+        rangeQuery.select(FunctionType.MIN, primaryKey).select(FunctionType.MAX, primaryKey);
+
+        final Row rangeRow = MetaModelHelper.executeSingleRowQuery(dataContext, rangeQuery);
+        final Object minValue = rangeRow.getValue(0);
+        final Object maxValue = rangeRow.getValue(1);
+        if (!(minValue instanceof Number) || !(maxValue instanceof Number)) {
+            // empty table or unexpected value types
+            return Collections.singletonList(query);
+        }
+
+        final long min = ((Number) minValue).longValue();
+        final long max = ((Number) maxValue).longValue();
+
+        // avoid creating more partitions than there are key values
+        final long keySpan = max - min + 1;
+        final int partitionCount = (int) Math.min(numPartitions, Math.max(1, keySpan));
+        if (partitionCount <= 1 || keySpan <= 0) {
+            return Collections.singletonList(query);
+        }
+
+        final long partitionSize = keySpan / partitionCount;
+        final List<Query> result = new ArrayList<>(partitionCount);
+        long lowerBound = min;
+        for (int i = 0; i < partitionCount; i++) {
+            final Query partitionQuery = query.clone();
+            if (i == partitionCount - 1) {
+                partitionQuery.where(primaryKey, OperatorType.GREATER_THAN_OR_EQUAL, lowerBound);
+                partitionQuery.where(primaryKey, OperatorType.LESS_THAN_OR_EQUAL, max);
+            } else {
+                final long upperBound = lowerBound + partitionSize;
+                partitionQuery.where(primaryKey, OperatorType.GREATER_THAN_OR_EQUAL, lowerBound);
+                partitionQuery.where(primaryKey, OperatorType.LESS_THAN, upperBound);
+                lowerBound = upperBound;
+            }
+            result.add(partitionQuery);
+        }
+
+        logger.info("Partitioned query on table '{}' into {} ranges of primary key '{}' ({} to {})",
+                _table.getName(), partitionCount, primaryKey.getName(), min, max);
+
+        return result;
+    }
+
+    private Column getPartitionColumn(final Query query) {
+        if (!_datastore.getPerformanceCharacteristics().isQueryOptimizationPreferred()) {
+            logger.debug("Datastore {} does not prefer query optimization, not partitioning", _datastore.getName());
+            return null;
+        }
+
+        if (query.getFirstRow() != null || query.getMaxRows() != null) {
+            logger.debug("Query is paged, not partitioning: {}", query);
+            return null;
+        }
+
+        if (!query.getGroupByClause().isEmpty() || query.getFromClause().getItemCount() != 1) {
+            logger.debug("Query is grouped or has multiple FROM items, not partitioning: {}", query);
+            return null;
+        }
+
+        final List<Column> primaryKeys = _table.getPrimaryKeys();
+        if (primaryKeys == null || primaryKeys.size() != 1) {
+            logger.debug("Table {} does not have a single primary key, not partitioning", _table.getName());
+            return null;
+        }
+
+        final Column primaryKey = primaryKeys.get(0);
+        if (!isIntegerType(primaryKey.getType())) {
+            logger.debug("Primary key {} is not of an integer type, not partitioning", primaryKey);
+            return null;
+        }
+
+        return primaryKey;
+    }
+
+    private static boolean isIntegerType(final ColumnType type) {
+        return type == ColumnType.INTEGER || type == ColumnType.BIGINT || type == ColumnType.SMALLINT
+                || type == ColumnType.TINYINT;
+    }
+}
@@ -20,28 +20,41 @@
 package org.datacleaner.job.runner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.jdbc.JdbcDataContext;
 import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.CollectionUtils;
 import org.apache.metamodel.util.LazyRef;
 import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
 import org.datacleaner.connection.Datastore;
 import org.datacleaner.connection.DatastoreConnection;
 import org.datacleaner.data.MetaModelInputRow;
+import org.datacleaner.job.concurrent.DaemonThreadFactory;
 import org.datacleaner.job.concurrent.ForkTaskListener;
 import org.datacleaner.job.concurrent.RunNextTaskTaskListener;
+import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
 import org.datacleaner.job.concurrent.TaskListener;
 import org.datacleaner.job.concurrent.TaskRunnable;
+import org.datacleaner.job.tasks.ConsumeRowBatchTask;
 import org.datacleaner.job.tasks.ConsumeRowTask;
 import org.datacleaner.job.tasks.RunRowProcessingPublisherTask;
 import org.datacleaner.util.SystemProperties;
@@ -55,6 +68,12 @@ public final class SourceTableRowProcessingPublisher extends AbstractRowProcessi
 
     private static final Logger logger = LoggerFactory.getLogger(SourceTableRowProcessingPublisher.class);
 
+    /**
+     * The max number of distinct rows to keep in memory when collapsing
+     * duplicate rows without the help of the datastore.
+     */
+    private static final int MAX_COLLAPSED_ROWS_IN_MEMORY = 100000;
+
     private final Set<Column> _physicalColumns = new LinkedHashSet<>();
     private final LazyRef<RowProcessingQueryOptimizer> _queryOptimizerRef;
 
@@ -137,7 +156,9 @@ public final class SourceTableRowProcessingPublisher extends AbstractRowProcessi
 
                     // try to optimize
 
-                    return new RowProcessingQueryOptimizerImpl(datastore, getConsumersSorted(), baseQuery);
+                    final RowProcessingQueryOptimizer filterOptimizer =
+                            new RowProcessingQueryOptimizerImpl(datastore, getConsumersSorted(), baseQuery);
+                    return new AggregatingRowProcessingQueryOptimizer(filterOptimizer, datastore, getTable());
                 } catch (final RuntimeException e) {
                     logger.error("Failed to build query optimizer! {}", e.getMessage(), e);
                     throw e;
@@ -201,46 +222,450 @@ public final class SourceTableRowProcessingPublisher extends AbstractRowProcessi
         try (DatastoreConnection con = datastore.openConnection()) {
             final DataContext dataContext = con.getDataContext();
 
+            if (!runAggregateQueries(dataContext, queryOptimizer, idGenerator, analysisListener)) {
+                return false;
+            }
+
+            if (consumeRowHandler.getConsumers().isEmpty()) {
+                logger.info("All consumers of table '{}' were pushed down into aggregate queries, skipping row "
+                        + "processing", getTable().getName());
+                return true;
+            }
+
+            final boolean collapseDuplicateRows = isCollapseDuplicateRows(queryOptimizer.getOptimizedConsumers());
+
+            final int numPartitions = collapseDuplicateRows ? 1 : getPartitionCount();
+            final List<Query> queries =
+                    new QueryPartitioner(datastore, getTable()).partition(dataContext, finalQuery, numPartitions);
+
             if (logger.isDebugEnabled()) {
-                final String queryString;
-                if (dataContext instanceof JdbcDataContext) {
-                    final JdbcDataContext jdbcDataContext = (JdbcDataContext) dataContext;
-                    queryString = jdbcDataContext.getQueryRewriter().rewriteQuery(finalQuery);
-                } else {
-                    queryString = finalQuery.toSql();
+                for (final Query query : queries) {
+                    final String queryString;
+                    if (dataContext instanceof JdbcDataContext) {
+                        final JdbcDataContext jdbcDataContext = (JdbcDataContext) dataContext;
+                        queryString = jdbcDataContext.getQueryRewriter().rewriteQuery(query);
+                    } else {
+                        queryString = query.toSql();
+                    }
+                    logger.debug("Final query: {}", queryString);
+                    logger.debug("Final query firstRow={}, maxRows={}", query.getFirstRow(), query.getMaxRows());
                 }
-                logger.debug("Final query: {}", queryString);
-                logger.debug("Final query firstRow={}, maxRows={}", finalQuery.getFirstRow(), finalQuery.getMaxRows());
             }
 
-            // represents the distinct count of rows as well as the number of
-            // tasks to execute
-            int numTasks = 0;
+            final int batchSize = getBatchSize();
+            final long startTime = System.currentTimeMillis();
+
+            final RowReader rowReader =
+                    new RowReader(consumeRowHandler, rowProcessingMetrics, analysisListener, taskListener,
+                            idGenerator, batchSize);
+
+            boolean rowsRead = true;
+            if (collapseDuplicateRows) {
+                final boolean groupByQuery = datastore.getPerformanceCharacteristics().isQueryOptimizationPreferred();
+                rowReader.readCollapsed(dataContext, finalQuery, groupByQuery);
+            } else if (queries.size() == 1) {
+                rowReader.read(dataContext, queries.get(0));
+            } else {
+                rowsRead = readPartitions(datastore, queries, rowReader, analysisListener);
+            }
 
-            try (DataSet dataSet = dataContext.executeQuery(finalQuery)) {
+            // also when reading failed, the rows that have been submitted must
+            // be consumed before the consumers are closed
+            taskListener.awaitTasks(rowReader.getTaskCount());
+            if (!rowsRead) {
+                return false;
+            }
+
+            if (logger.isInfoEnabled()) {
+                final int numRows = rowReader.getRowCount();
+                final long duration = Math.max(1, System.currentTimeMillis() - startTime);
+                logger.info("Processed {} rows of table '{}' in {} ms ({} rows/second, batch size {}, partitions {})",
+                        numRows, getTable().getName(), duration, numRows * 1000L / duration,
+                        batchSize > 0 ? batchSize : "adaptive", queries.size());
+            }
+        }
+
+        return !taskListener.isErrornous();
+    }
+
+    /**
+     * Feeds the consumers that have been pushed down into aggregate queries
+     * (see {@link AggregatingRowProcessingQueryOptimizer}) with the grouped
+     * rows of their queries, each with the number of records it represents as
+     * distinct count. Consumers of the same columns are fed by a single query.
+     *
+     * @return whether or not all aggregate queries where consumed successfully
+     */
+    private boolean runAggregateQueries(final DataContext dataContext,
+            final RowProcessingQueryOptimizer queryOptimizer, final RowIdGenerator idGenerator,
+            final AnalysisListener analysisListener) {
+        if (!(queryOptimizer instanceof AggregatingRowProcessingQueryOptimizer)) {
+            return true;
+        }
+        final AggregatingRowProcessingQueryOptimizer aggregatingOptimizer =
+                (AggregatingRowProcessingQueryOptimizer) queryOptimizer;
+
+        for (final List<RowProcessingConsumer> consumers : aggregatingOptimizer.getAggregatedConsumerGroups()) {
+            final Query query = aggregatingOptimizer.getAggregateQuery(consumers.get(0));
+            final int countIndex = query.getSelectClause().getItemCount() - 1;
+            logger.debug("Aggregate query for {}: {}", consumers, query);
+
+            final ConsumeRowHandler aggregateHandler = new ConsumeRowHandler(consumers);
+            final long startTime = System.currentTimeMillis();
+            int groupCount = 0;
+            try (DataSet dataSet = dataContext.executeQuery(query)) {
                 while (dataSet.next()) {
-                    if (taskListener.isErrornous()) {
+                    final Row row = dataSet.getRow();
+                    final int distinctCount = ((Number) row.getValue(countIndex)).intValue();
+                    // grouped rows are not physical records, so they are given
+                    // virtual ids to keep the ids of the streamed rows intact
+                    aggregateHandler.consumeRow(new MetaModelInputRow(idGenerator.nextVirtualRowId(), row),
+                            distinctCount);
+                    groupCount++;
+                }
+            } catch (final RuntimeException e) {
+                logger.error("Aggregate query for {} on table '{}' failed", consumers, getTable().getName(), e);
+                for (final RowProcessingConsumer consumer : consumers) {
+                    analysisListener.errorInComponent(getAnalysisJob(), consumer.getComponentJob(), null, e);
+                }
+                return false;
+            }
+
+            logger.info("Consumed {} groups of table '{}' for {} in {} ms", groupCount, getTable().getName(),
+                    consumers, System.currentTimeMillis() - startTime);
+        }
+        return true;
+    }
+
+    /**
+     * Determines if identical rows should be collapsed into a single row with a
+     * distinct count, as configured by the
+     * {@link SystemProperties#ROW_PROCESSING_COLLAPSE_DUPLICATES} property.
+     * This is only possible when all consumers are analyzers without output
+     * data streams, since transformers and filters expect to see every
+     * individual record.
+     *
+     * @param consumers
+     * @return
+     */
+    private boolean isCollapseDuplicateRows(final List<RowProcessingConsumer> consumers) {
+        if (!SystemProperties.getBoolean(SystemProperties.ROW_PROCESSING_COLLAPSE_DUPLICATES, false)) {
+            return false;
+        }
+        for (final RowProcessingConsumer consumer : consumers) {
+            if (!(consumer instanceof AnalyzerConsumer)) {
+                logger.info("Not collapsing duplicate rows of table '{}' because of non-analyzer consumer: {}",
+                        getTable().getName(), consumer);
+                return false;
+            }
+            if (consumer.getComponentJob().getOutputDataStreamJobs().length > 0) {
+                logger.info("Not collapsing duplicate rows of table '{}' because of output data streams in: {}",
+                        getTable().getName(), consumer);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a number of partition queries concurrently, each over a separate
+     * {@link DatastoreConnection}. If a partition fails, the other partitions
+     * are cancelled and this method returns once all of them have stopped.
+     *
+     * @return whether or not all partitions where read successfully
+     */
+    private boolean readPartitions(final Datastore datastore, final List<Query> queries, final RowReader rowReader,
+            final AnalysisListener analysisListener) {
+        final ExecutorService executorService =
+                Executors.newFixedThreadPool(queries.size(), new DaemonThreadFactory());
+        try {
+            final List<Future<?>> futures = new ArrayList<>(queries.size());
+            for (final Query query : queries) {
+                futures.add(executorService.submit(() -> {
+                    try (DatastoreConnection partitionConnection = datastore.openConnection()) {
+                        rowReader.read(partitionConnection.getDataContext(), query);
+                    }
+                }));
+            }
+
+            boolean success = true;
+            boolean interrupted = false;
+            for (final Future<?> future : futures) {
+                while (true) {
+                    try {
+                        future.get();
                         break;
+                    } catch (final ExecutionException e) {
+                        if (success) {
+                            logger.error("Reading partition of table '{}' failed", getTable().getName(),
+                                    e.getCause());
+                            analysisListener.errorUnknown(getAnalysisJob(), e.getCause());
+                            success = false;
+                            rowReader.cancel();
+                        } else {
+                            logger.warn("Reading partition of table '{}' failed after cancellation",
+                                    getTable().getName(), e.getCause());
+                        }
+                        break;
+                    } catch (final InterruptedException e) {
+                        if (success) {
+                            logger.error("Interrupted while reading partitions of table '{}'", getTable().getName(),
+                                    e);
+                            analysisListener.errorUnknown(getAnalysisJob(), e);
+                            success = false;
+                            rowReader.cancel();
+                        }
+                        // keep waiting, the readers stop soon after being
+                        // cancelled
+                        interrupted = true;
                     }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return success;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
 
-                    numTasks++;
+    /**
+     * Gets the number of rows to consume per task, as configured by the
+     * {@link SystemProperties#ROW_PROCESSING_BATCH_SIZE} property.
+     *
+     * @return the configured batch size, or 0 if the batch size should adapt
+     *         to the consumers
+     */
+    private static int getBatchSize() {
+        final String value = SystemProperties.getString(SystemProperties.ROW_PROCESSING_BATCH_SIZE, null);
+        if (value == null) {
+            return 0;
+        }
+        return Math.max(1, SystemProperties.getInt(SystemProperties.ROW_PROCESSING_BATCH_SIZE, 1));
+    }
+
+    /**
+     * Gets the number of partitions to read concurrently, as configured by the
+     * {@link SystemProperties#ROW_PROCESSING_PARTITIONS} property. Partitioning
+     * is never applied with a {@link SingleThreadedTaskRunner}, since rows
+     * would then be consumed concurrently by the reading threads.
+     *
+     * @return
+     */
+    private int getPartitionCount() {
+        if (getTaskRunner() instanceof SingleThreadedTaskRunner) {
+            return 1;
+        }
+        return Math.max(1, SystemProperties.getInt(SystemProperties.ROW_PROCESSING_PARTITIONS, 1));
+    }
+
+    /**
+     * A row and the number of identical records it represents.
+     */
+    private static final class CollapsedRow {
+
+        private final Row row;
+        private int count;
+
+        private CollapsedRow(final Row row) {
+            this.row = row;
+            this.count = 1;
+        }
+    }
+
+    /**
+     * Reads rows from one or more {@link DataSet}s and submits them for
+     * consumption. A single instance is shared between all partitions of a
+     * table so that row ids and row numbers stay unique.
+     */
+    private final class RowReader {
+
+        private final ConsumeRowHandler _consumeRowHandler;
+        private final RowProcessingMetrics _rowProcessingMetrics;
+        private final AnalysisListener _analysisListener;
+        private final RowConsumerTaskListener _taskListener;
+        private final RowIdGenerator _idGenerator;
+        private final int _batchSize;
+
+        // represents the distinct count of rows
+        private final AtomicInteger _rowCounter = new AtomicInteger();
+
+        // the number of tasks to execute
+        private final AtomicInteger _taskCounter = new AtomicInteger();
+
+        // set when reading should stop, eg. because another partition failed
+        private volatile boolean _cancelled;
+
+        private RowReader(final ConsumeRowHandler consumeRowHandler, final RowProcessingMetrics rowProcessingMetrics,
+                final AnalysisListener analysisListener, final RowConsumerTaskListener taskListener,
+                final RowIdGenerator idGenerator, final int batchSize) {
+            _consumeRowHandler = consumeRowHandler;
+            _rowProcessingMetrics = rowProcessingMetrics;
+            _analysisListener = analysisListener;
+            _taskListener = taskListener;
+            _idGenerator = idGenerator;
+            _batchSize = batchSize;
+        }
+
+        public void read(final DataContext dataContext, final Query query) {
+            try (DataSet dataSet = dataContext.executeQuery(query)) {
+                int batchSize = getCurrentBatchSize();
+                List<InputRow> batch = new ArrayList<>(batchSize);
+                while (dataSet.next()) {
+                    if (isStopped()) {
+                        break;
+                    }
 
                     final Row metaModelRow = dataSet.getRow();
-                    final int rowId = idGenerator.nextPhysicalRowId();
+                    final int rowId = _idGenerator.nextPhysicalRowId();
 
                     final MetaModelInputRow inputRow = new MetaModelInputRow(rowId, metaModelRow);
 
-                    final ConsumeRowTask task =
-                            new ConsumeRowTask(consumeRowHandler, rowProcessingMetrics, inputRow, analysisListener,
-                                    numTasks);
-                    getTaskRunner().run(task, taskListener);
+                    if (batchSize == 1) {
+                        final int rowNumber = _rowCounter.incrementAndGet();
+                        final ConsumeRowTask task =
+                                new ConsumeRowTask(_consumeRowHandler, _rowProcessingMetrics, inputRow,
+                                        _analysisListener, rowNumber);
+                        _taskCounter.incrementAndGet();
+                        getTaskRunner().run(task, _taskListener);
+                    } else {
+                        batch.add(inputRow);
+                        if (batch.size() >= batchSize) {
+                            runBatch(batch);
+                            batchSize = getCurrentBatchSize();
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    }
+                }
 
+                if (!batch.isEmpty() && !isStopped()) {
+                    runBatch(batch);
                 }
             }
-            taskListener.awaitTasks(numTasks);
         }
 
-        return !taskListener.isErrornous();
+        /**
+         * Stops reading, as soon as the current row has been read.
+         */
+        public void cancel() {
+            _cancelled = true;
+        }
+
+        private boolean isStopped() {
+            return _cancelled || _taskListener.isErrornous();
+        }
+
+        /**
+         * Gets the number of rows to submit in the next task. Unless a fixed
+         * batch size is configured, this is determined by the consumers, see
+         * {@link ConsumeRowHandler#getPreferredBatchSize()}.
+         *
+         * @return
+         */
+        private int getCurrentBatchSize() {
+            if (_batchSize > 0) {
+                return _batchSize;
+            }
+            return _consumeRowHandler.getPreferredBatchSize();
+        }
+
+        /**
+         * Reads the distinct rows of a query, and submits each of them once
+         * together with the number of identical records.
+         *
+         * @param dataContext
+         * @param query
+         * @param groupByQuery
+         *            whether to let the datastore group the records (using a
+         *            GROUP BY query) or to aggregate them in memory.
+         */
+        public void readCollapsed(final DataContext dataContext, final Query query, final boolean groupByQuery) {
+            if (groupByQuery && query.getFirstRow() == null && query.getMaxRows() == null && query.getGroupByClause()
+                    .isEmpty()) {
+                final Query groupedQuery = query.clone();
+                final List<SelectItem> selectItems = groupedQuery.getSelectClause().getItems();
+                final int countIndex = selectItems.size();
+                for (final SelectItem selectItem : selectItems) {
+                    groupedQuery.groupBy(selectItem.getColumn());
+                }
+                groupedQuery.selectCount();
+
+                logger.debug("Collapsing duplicate rows using query: {}", groupedQuery);
+
+                try (DataSet dataSet = dataContext.executeQuery(groupedQuery)) {
+                    while (dataSet.next()) {
+                        if (_taskListener.isErrornous()) {
+                            break;
+                        }
+                        final Row row = dataSet.getRow();
+                        final int distinctCount = ((Number) row.getValue(countIndex)).intValue();
+                        runCollapsed(row, distinctCount);
+                    }
+                }
+                return;
+            }
+
+            logger.debug("Collapsing duplicate rows in memory for query: {}", query);
+
+            final Map<List<Object>, CollapsedRow> collapsedRows = new LinkedHashMap<>();
+            try (DataSet dataSet = dataContext.executeQuery(query)) {
+                while (dataSet.next()) {
+                    if (_taskListener.isErrornous()) {
+                        return;
+                    }
+                    final Row row = dataSet.getRow();
+                    final List<Object> key = Arrays.asList(row.getValues());
+                    final CollapsedRow collapsedRow = collapsedRows.get(key);
+                    if (collapsedRow == null) {
+                        if (collapsedRows.size() >= MAX_COLLAPSED_ROWS_IN_MEMORY) {
+                            // submitting the rows collected so far keeps
+                            // memory bounded - the counts simply add up
+                            runCollapsed(collapsedRows);
+                        }
+                        collapsedRows.put(key, new CollapsedRow(row));
+                    } else {
+                        collapsedRow.count++;
+                    }
+                }
+            }
+            runCollapsed(collapsedRows);
+        }
+
+        private void runCollapsed(final Map<List<Object>, CollapsedRow> collapsedRows) {
+            for (final CollapsedRow collapsedRow : collapsedRows.values()) {
+                runCollapsed(collapsedRow.row, collapsedRow.count);
+            }
+            collapsedRows.clear();
+        }
+
+        private void runCollapsed(final Row row, final int distinctCount) {
+            final int rowId = _idGenerator.nextPhysicalRowId();
+            final MetaModelInputRow inputRow = new MetaModelInputRow(rowId, row);
+            final int rowNumber = _rowCounter.addAndGet(distinctCount);
+            final ConsumeRowTask task =
+                    new ConsumeRowTask(_consumeRowHandler, _rowProcessingMetrics, inputRow, distinctCount,
+                            _analysisListener, rowNumber);
+            _taskCounter.incrementAndGet();
+            getTaskRunner().run(task, _taskListener);
+        }
+
+        private void runBatch(final List<InputRow> batch) {
+            final int firstRowNumber = _rowCounter.addAndGet(batch.size()) - batch.size() + 1;
+            final ConsumeRowBatchTask task =
+                    new ConsumeRowBatchTask(_consumeRowHandler, _rowProcessingMetrics, batch, _analysisListener,
+                            firstRowNumber);
+            _taskCounter.incrementAndGet();
+            getTaskRunner().run(task, _taskListener);
+        }
+
+        public int getRowCount() {
+            return _rowCounter.get();
+        }
+
+        public int getTaskCount() {
+            return _taskCounter.get();
+        }
     }
 
     @Override
@@ -19,6 +19,7 @@
  */
 package org.datacleaner.job.runner;
 
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -27,6 +28,10 @@ import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputRowCollector;
 import org.datacleaner.api.Transformer;
+import org.datacleaner.api.VectorizedTransformer;
+import org.datacleaner.data.ColumnarInputBatch;
+import org.datacleaner.data.RowLayout;
+import org.datacleaner.data.SlottedInputRow;
 import org.datacleaner.data.TransformedInputRow;
 import org.datacleaner.descriptors.ProvidedPropertyDescriptor;
 import org.datacleaner.job.FilterOutcomes;
@@ -44,7 +49,10 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
     private final InputColumn<?>[] _inputColumns;
     private final boolean _concurrent;
     private final Set<ProvidedPropertyDescriptor> _outputRowCollectorProperties;
+    private final AdaptiveBatchSize _vectorBatchSize;
     private RowIdGenerator _idGenerator;
+    private RowLayout _rowLayout;
+    private int[] _outputSlots;
 
     public TransformerConsumer(final Transformer transformer, final TransformerJob transformerJob,
             final InputColumn<?>[] inputColumns, final RowProcessingPublisher publisher) {
@@ -56,6 +64,7 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
 
         _outputRowCollectorProperties =
                 _transformerJob.getDescriptor().getProvidedPropertiesByType(OutputRowCollector.class);
+        _vectorBatchSize = transformer instanceof VectorizedTransformer ? new AdaptiveBatchSize() : null;
     }
 
     private boolean determineConcurrent() {
@@ -76,6 +85,28 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
         _idGenerator = idGenerator;
     }
 
+    /**
+     * Sets the {@link RowLayout} to use for transformed records. If set,
+     * records are created as {@link SlottedInputRow}s, otherwise as
+     * {@link TransformedInputRow}s.
+     *
+     * @param rowLayout
+     */
+    public void setRowLayout(final RowLayout rowLayout) {
+        _rowLayout = rowLayout;
+        if (rowLayout == null) {
+            _outputSlots = null;
+        } else {
+            // resolve the slots of the output columns once, instead of for
+            // every record
+            final InputColumn<?>[] outputColumns = getOutputColumns();
+            _outputSlots = new int[outputColumns.length];
+            for (int i = 0; i < outputColumns.length; i++) {
+                _outputSlots[i] = rowLayout.getSlot(outputColumns[i]);
+            }
+        }
+    }
+
     @Override
     public boolean isConcurrent() {
         return _concurrent;
@@ -108,14 +139,65 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
             if (values == null) {
                 return;
             }
-            final TransformedInputRow resultRow = TransformedInputRow.of(row);
-            addValuesToRow(resultRow, outputColumns, values);
+            final InputRow resultRow = createResultRow(row, null, outputColumns, values);
             chain.processNext(resultRow, distinctCount, outcomes);
         } finally {
             unregisterListener(_transformer);
         }
     }
 
+    /**
+     * Determines if the transformer of this consumer can be invoked with
+     * batches of rows, see {@link #transformBatch(List)}.
+     *
+     * @return
+     */
+    public boolean isVectorized() {
+        return _vectorBatchSize != null && ((VectorizedTransformer) _transformer).isVectorized();
+    }
+
+    /**
+     * Gets the preferred number of rows to pass to
+     * {@link #transformBatch(List)}. The size adapts to the throughput
+     * observed in previous batches.
+     *
+     * @return
+     */
+    public int getVectorBatchSize() {
+        return _vectorBatchSize == null ? 1 : _vectorBatchSize.get();
+    }
+
+    /**
+     * Transforms a batch of rows using the {@link VectorizedTransformer}
+     * interface. Only applicable if {@link #isVectorized()} returns true.
+     *
+     * @param rows
+     * @return the transformed records, one for each of the incoming rows, or
+     *         null for rows that the transformer produced no output for.
+     */
+    public InputRow[] transformBatch(final List<InputRow> rows) {
+        final VectorizedTransformer transformer = (VectorizedTransformer) _transformer;
+        final InputColumn<?>[] outputColumns = getOutputColumns();
+
+        final long startTime = System.nanoTime();
+        final Object[][] values = transformer.transformBatch(new ColumnarInputBatch(rows, _rowLayout));
+        _vectorBatchSize.record(rows.size(), System.nanoTime() - startTime);
+
+        if (values == null || values.length != rows.size()) {
+            throw new IllegalStateException(
+                    "Transformer " + _transformer + " returned " + (values == null ? "null" : values.length)
+                            + " results for a batch of " + rows.size() + " rows");
+        }
+
+        final InputRow[] result = new InputRow[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                result[i] = createResultRow(rows.get(i), null, outputColumns, values[i]);
+            }
+        }
+        return result;
+    }
+
     private void unregisterListener(final Transformer transformer) {
         for (final ProvidedPropertyDescriptor descriptor : _outputRowCollectorProperties) {
             final OutputRowCollector outputRowCollector = (OutputRowCollector) descriptor.getValue(transformer);
@@ -139,16 +221,14 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
             public void onValues(final Object[] values) {
                 final int recordNo = recordNumber.incrementAndGet();
                 final boolean isFirst = recordNo == 1;
-                final TransformedInputRow resultRow;
+                final InputRow resultRow;
                 if (isFirst) {
                     // retain the first record's id
-                    resultRow = TransformedInputRow.of(row);
+                    resultRow = createResultRow(row, null, outputColumns, values);
                 } else {
-                    resultRow = new TransformedInputRow(row, getNextVirtualRowId(row, recordNo));
+                    resultRow = createResultRow(row, getNextVirtualRowId(row, recordNo), outputColumns, values);
                 }
 
-                addValuesToRow(resultRow, outputColumns, values);
-
                 final FilterOutcomes clonedOutcomeSink = outcomes.clone();
                 chain.processNext(resultRow, 1, clonedOutcomeSink);
             }
@@ -177,21 +257,57 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
         return _idGenerator.nextVirtualRowId();
     }
 
-    private void addValuesToRow(final TransformedInputRow resultRow, final InputColumn<?>[] outputColumns,
+    /**
+     * Creates a record with the transformed values added to it.
+     *
+     * @param row
+     *            the incoming record
+     * @param newRowId
+     *            the id of a new record, or null if the incoming record should
+     *            be reused when possible
+     * @param outputColumns
+     * @param values
+     * @return
+     */
+    private InputRow createResultRow(final InputRow row, final Long newRowId, final InputColumn<?>[] outputColumns,
             final Object[] values) {
         assert outputColumns.length == values.length;
 
-        // add output values to row.
+        if (_rowLayout == null) {
+            final TransformedInputRow resultRow;
+            if (newRowId == null) {
+                resultRow = TransformedInputRow.of(row);
+            } else {
+                resultRow = new TransformedInputRow(row, newRowId);
+            }
+            for (int i = 0; i < outputColumns.length; i++) {
+                resultRow.addValue(outputColumns[i], getValue(values, i));
+            }
+            return resultRow;
+        }
+
+        final SlottedInputRow resultRow;
+        if (newRowId == null) {
+            resultRow = SlottedInputRow.of(row, _rowLayout);
+        } else {
+            resultRow = new SlottedInputRow(row, newRowId, _rowLayout);
+        }
         for (int i = 0; i < outputColumns.length; i++) {
-            final Object value;
-            if (i < values.length) {
-                value = values[i];
+            final int slot = _outputSlots[i];
+            if (slot == -1) {
+                resultRow.addValue(outputColumns[i], getValue(values, i));
             } else {
-                value = null;
+                resultRow.setValue(slot, getValue(values, i));
             }
-            final InputColumn<?> column = outputColumns[i];
-            resultRow.addValue(column, value);
         }
+        return resultRow;
+    }
+
+    private static Object getValue(final Object[] values, final int index) {
+        if (index < values.length) {
+            return values[index];
+        }
+        return null;
     }
 
     @Override
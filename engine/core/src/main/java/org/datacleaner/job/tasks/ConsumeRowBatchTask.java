@@ -0,0 +1,79 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.tasks;
+
+import java.util.List;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.runner.AnalysisListener;
+import org.datacleaner.job.runner.ConsumeRowHandler;
+import org.datacleaner.job.runner.RowProcessingMetrics;
+
+/**
+ * Task which consumes a chunk of rows in one go. Compared to submitting a
+ * {@link ConsumeRowTask} per row, this reduces the overhead of handing tasks
+ * over to the task runner and of notifying task listeners, and it allows
+ * vectorized transformers to process the rows in batches.
+ */
+public final class ConsumeRowBatchTask implements Task {
+
+    private final RowProcessingMetrics _rowProcessingMetrics;
+    private final List<InputRow> _rows;
+    private final AnalysisListener _analysisListener;
+    private final ConsumeRowHandler _consumeRowHandler;
+    private final int _firstRowNumber;
+
+    /**
+     * Creates a {@link ConsumeRowBatchTask}.
+     *
+     * @param consumeRowHandler
+     * @param rowProcessingMetrics
+     * @param rows
+     *            the rows to consume, in order
+     * @param analysisListener
+     * @param firstRowNumber
+     *            the row number of the first row in the batch
+     */
+    public ConsumeRowBatchTask(final ConsumeRowHandler consumeRowHandler,
+            final RowProcessingMetrics rowProcessingMetrics, final List<InputRow> rows,
+            final AnalysisListener analysisListener, final int firstRowNumber) {
+        _consumeRowHandler = consumeRowHandler;
+        _rowProcessingMetrics = rowProcessingMetrics;
+        _rows = rows;
+        _analysisListener = analysisListener;
+        _firstRowNumber = firstRowNumber;
+    }
+
+    @Override
+    public void execute() {
+        final AnalysisJob analysisJob = _rowProcessingMetrics.getAnalysisJobMetrics().getAnalysisJob();
+        _consumeRowHandler.consumeRows(_rows);
+        int rowNumber = _firstRowNumber;
+        for (final InputRow row : _rows) {
+            _analysisListener.rowProcessingProgress(analysisJob, _rowProcessingMetrics, row, rowNumber);
+            rowNumber++;
+        }
+    }
+
+    public int getRowCount() {
+        return _rows.size();
+    }
+}
@@ -35,22 +35,30 @@ public final class ConsumeRowTask implements Task {
 
     private final RowProcessingMetrics _rowProcessingMetrics;
     private final InputRow _row;
+    private final int _distinctCount;
     private final AnalysisListener _analysisListener;
     private final ConsumeRowHandler _consumeRowHandler;
     private final int _rowNumber;
 
     public ConsumeRowTask(final ConsumeRowHandler consumeRowHandler, final RowProcessingMetrics rowProcessingMetrics,
             final InputRow row, final AnalysisListener analysisListener, final int rowNumber) {
+        this(consumeRowHandler, rowProcessingMetrics, row, 1, analysisListener, rowNumber);
+    }
+
+    public ConsumeRowTask(final ConsumeRowHandler consumeRowHandler, final RowProcessingMetrics rowProcessingMetrics,
+            final InputRow row, final int distinctCount, final AnalysisListener analysisListener,
+            final int rowNumber) {
         _consumeRowHandler = consumeRowHandler;
         _rowProcessingMetrics = rowProcessingMetrics;
         _row = row;
+        _distinctCount = distinctCount;
         _analysisListener = analysisListener;
         _rowNumber = rowNumber;
     }
 
     @Override
     public void execute() {
-        _consumeRowHandler.consumeRow(_row).getRows();
+        _consumeRowHandler.consumeRow(_row, _distinctCount).getRows();
         _analysisListener.rowProcessingProgress(_rowProcessingMetrics.getAnalysisJobMetrics().getAnalysisJob(),
                 _rowProcessingMetrics, _row, _rowNumber);
     }
@@ -0,0 +1,289 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.util.MatchKeyUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * {@link DictionaryConnection} for {@link DatastoreDictionary}s which are not
+ * loaded into memory. The dictionary column is streamed once into a compact
+ * bloom filter (of loose keys, see {@link MatchKeyUtils}, so that values the
+ * datastore considers equal are not ruled out), which answers the majority of
+ * negative lookups without querying the datastore. Positive candidates are confirmed using batched
+ * <code>IN</code> queries (concurrent lookups are confirmed together) and the
+ * confirmed answers are kept in a bounded LRU cache.
+ */
+final class BloomFilterDatastoreDictionaryConnection implements DictionaryConnection {
+
+    private static final class PendingLookup {
+
+        private final String _value;
+        private boolean _done;
+        private boolean _result;
+        private RuntimeException _error;
+
+        PendingLookup(final String value) {
+            _value = value;
+        }
+    }
+
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+    public static final int MAX_BATCH_SIZE = 100;
+    public static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private static final Logger logger = LoggerFactory.getLogger(BloomFilterDatastoreDictionaryConnection.class);
+
+    private final DatastoreConnection _datastoreConnection;
+    private final DatastoreDictionary _dictionary;
+    private final Column _column;
+    private final BloomFilter<CharSequence> _bloomFilter;
+    private final Cache<String, Boolean> _cache;
+    private final Object _batchLock = new Object();
+    private final List<PendingLookup> _pendingLookups = new ArrayList<>();
+    private boolean _batchInProgress;
+    private volatile SimpleDictionary _snapshot;
+
+    public BloomFilterDatastoreDictionaryConnection(final DatastoreDictionary dictionary,
+            final DatastoreConnection datastoreConnection, final int cacheSize) {
+        _dictionary = dictionary;
+        _datastoreConnection = datastoreConnection;
+        _column = dictionary.getColumn(datastoreConnection);
+        _bloomFilter = createBloomFilter();
+        _cache = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    private BloomFilter<CharSequence> createBloomFilter() {
+        final DataContext dataContext = _datastoreConnection.getDataContext();
+
+        final long expectedInsertions;
+        try (DataSet dataSet = dataContext.query().from(_column.getTable()).selectCount().execute()) {
+            if (dataSet.next()) {
+                final Number count = (Number) dataSet.getRow().getValue(0);
+                expectedInsertions = Math.max(1, count == null ? 1 : count.longValue());
+            } else {
+                expectedInsertions = 1;
+            }
+        }
+
+        final BloomFilter<CharSequence> bloomFilter =
+                BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions,
+                        FALSE_POSITIVE_PROBABILITY);
+
+        final Query query = dataContext.query().from(_column.getTable()).select(_column).toQuery();
+        if (_datastoreConnection.getDatastore().getPerformanceCharacteristics().isQueryOptimizationPreferred()) {
+            query.getSelectClause().setDistinct(true);
+        }
+        try (DataSet dataSet = dataContext.executeQuery(query)) {
+            while (dataSet.next()) {
+                final Object value = dataSet.getRow().getValue(0);
+                if (value != null) {
+                    bloomFilter.put(toBloomFilterKey(value));
+                }
+            }
+        }
+
+        logger.debug("Built bloom filter for dictionary '{}' with {} expected insertions", _dictionary.getName(),
+                expectedInsertions);
+        return bloomFilter;
+    }
+
+    @Override
+    public boolean containsValue(final String value) {
+        if (value == null || !_bloomFilter.mightContain(toBloomFilterKey(value))) {
+            return false;
+        }
+
+        final Boolean cached = _cache.getIfPresent(value);
+        if (cached != null) {
+            return cached.booleanValue();
+        }
+
+        final boolean result = confirm(value);
+        _cache.put(value, result);
+        return result;
+    }
+
+    /**
+     * Confirms a bloom filter candidate against the datastore. Whichever
+     * thread finds no batch in progress executes a single query for all the
+     * candidates pending at that time, so a single-threaded caller never waits
+     * for other lookups to arrive.
+     */
+    private boolean confirm(final String value) {
+        final PendingLookup lookup = new PendingLookup(value);
+        synchronized (_batchLock) {
+            _pendingLookups.add(lookup);
+        }
+        while (true) {
+            final List<PendingLookup> batch;
+            synchronized (_batchLock) {
+                while (!lookup._done && _batchInProgress) {
+                    try {
+                        _batchLock.wait();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for dictionary lookup", e);
+                    }
+                }
+                if (lookup._done) {
+                    if (lookup._error != null) {
+                        throw lookup._error;
+                    }
+                    return lookup._result;
+                }
+
+                final int batchSize = Math.min(MAX_BATCH_SIZE, _pendingLookups.size());
+                final List<PendingLookup> head = _pendingLookups.subList(0, batchSize);
+                batch = new ArrayList<>(head);
+                head.clear();
+                _batchInProgress = true;
+            }
+
+            boolean[] results = null;
+            RuntimeException error = null;
+            try {
+                results = queryValues(batch);
+            } catch (final RuntimeException e) {
+                error = e;
+            } finally {
+                synchronized (_batchLock) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        final PendingLookup pendingLookup = batch.get(i);
+                        if (error == null) {
+                            pendingLookup._result = results[i];
+                        } else {
+                            pendingLookup._error = error;
+                        }
+                        pendingLookup._done = true;
+                    }
+                    _batchInProgress = false;
+                    _batchLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Queries a batch of candidates using a single query. Since the datastore
+     * compares values using its own collation and type conversions, a
+     * candidate is only confirmed by the batch if it is plainly equal to a
+     * returned value. Other candidates (the few false positives of the bloom
+     * filter, and values that are written differently than in the datastore)
+     * are confirmed using a query of their own.
+     *
+     * @param batch
+     * @return whether each of the candidates is in the dictionary
+     */
+    private boolean[] queryValues(final List<PendingLookup> batch) {
+        final List<String> values = new ArrayList<>(batch.size());
+        for (final PendingLookup pendingLookup : batch) {
+            values.add(pendingLookup._value);
+        }
+
+        final DataContext dataContext = _datastoreConnection.getDataContext();
+        final Query query = dataContext.query().from(_column.getTable()).select(_column).toQuery();
+        query.where(new FilterItem(new SelectItem(_column), OperatorType.IN, values));
+
+        final Set<Object> found = new HashSet<>();
+        try (DataSet dataSet = dataContext.executeQuery(query)) {
+            while (dataSet.next()) {
+                final Object value = dataSet.getRow().getValue(0);
+                if (value != null) {
+                    found.add(toExactKey(value));
+                }
+            }
+        }
+
+        final boolean[] results = new boolean[batch.size()];
+        for (int i = 0; i < results.length; i++) {
+            final String value = batch.get(i)._value;
+            results[i] = found.contains(toExactKey(value)) || queryValue(value);
+        }
+        return results;
+    }
+
+    /**
+     * Queries a single candidate, leaving the matching to the datastore.
+     */
+    private boolean queryValue(final String value) {
+        final DataContext dataContext = _datastoreConnection.getDataContext();
+        final Query query = dataContext.query().from(_column.getTable()).select(_column).where(_column).eq(value)
+                .maxRows(1).toQuery();
+        try (DataSet dataSet = dataContext.executeQuery(query)) {
+            return dataSet.next();
+        }
+    }
+
+    private static Object toExactKey(final Object value) {
+        return MatchKeyUtils.toExactKey(value).toString();
+    }
+
+    private static String toBloomFilterKey(final Object value) {
+        return MatchKeyUtils.toLooseKey(value).toString();
+    }
+
+    @Override
+    public Iterator<String> getAllValues() {
+        return getSnapshot().openConnection(null).getAllValues();
+    }
+
+    @Override
+    public Iterator<String> getLengthSortedValues() {
+        return getSnapshot().openConnection(null).getLengthSortedValues();
+    }
+
+    private SimpleDictionary getSnapshot() {
+        if (_snapshot == null) {
+            synchronized (this) {
+                if (_snapshot == null) {
+                    _snapshot = _dictionary.loadIntoMemory(_datastoreConnection);
+                }
+            }
+        }
+        return _snapshot;
+    }
+
+    @Override
+    public void close() {
+        _datastoreConnection.close();
+    }
+}
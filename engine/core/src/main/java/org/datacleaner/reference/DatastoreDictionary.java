@@ -35,6 +35,7 @@ import org.datacleaner.connection.DatastoreConnection;
 import org.datacleaner.job.NoSuchColumnException;
 import org.datacleaner.job.NoSuchDatastoreException;
 import org.datacleaner.util.ReadObjectBuilder;
+import org.datacleaner.util.SystemProperties;
 
 /**
  * A dictionary backed by a column in a datastore.
@@ -124,6 +125,12 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
             return simpleDictionary.openConnection(configuration);
         }
 
+        if (SystemProperties.getBoolean(SystemProperties.REFERENCE_DATA_DATASTORE_DICTIONARY_BLOOM_FILTER, false)) {
+            final int cacheSize = SystemProperties.getInt(SystemProperties.REFERENCE_DATA_DATASTORE_DICTIONARY_CACHE_SIZE,
+                    BloomFilterDatastoreDictionaryConnection.DEFAULT_CACHE_SIZE);
+            return new BloomFilterDatastoreDictionaryConnection(this, datastoreConnection, cacheSize);
+        }
+
         return new DatastoreDictionaryConnection(this, datastoreConnection);
     }
 
@@ -30,6 +30,7 @@ final class DatastoreDictionaryConnection implements DictionaryConnection {
 
     private final DatastoreConnection _datastoreConnection;
     private final DatastoreDictionary _dictionary;
+    private volatile SimpleDictionary _snapshot;
 
     public DatastoreDictionaryConnection(final DatastoreDictionary dictionary,
             final DatastoreConnection datastoreConnection) {
@@ -52,12 +53,23 @@ final class DatastoreDictionaryConnection implements DictionaryConnection {
 
     @Override
     public Iterator<String> getAllValues() {
-        return _dictionary.loadIntoMemory(_datastoreConnection).openConnection(null).getAllValues();
+        return getSnapshot().openConnection(null).getAllValues();
     }
 
     @Override
     public Iterator<String> getLengthSortedValues() {
-        return _dictionary.loadIntoMemory(_datastoreConnection).openConnection(null).getLengthSortedValues();
+        return getSnapshot().openConnection(null).getLengthSortedValues();
+    }
+
+    private SimpleDictionary getSnapshot() {
+        if (_snapshot == null) {
+            synchronized (this) {
+                if (_snapshot == null) {
+                    _snapshot = _dictionary.loadIntoMemory(_datastoreConnection);
+                }
+            }
+        }
+        return _snapshot;
     }
 
     @Override
@@ -0,0 +1,103 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.datacleaner.reference.SynonymCatalogConnection.Replacement;
+import org.datacleaner.util.MultiTermMatcher;
+import org.datacleaner.util.MultiTermMatcher.Match;
+import org.datacleaner.util.StringUtils;
+
+/**
+ * Helper for implementing {@link SynonymCatalogConnection#replaceInline(String)}
+ * based on a matcher of multi-word synonyms and a lookup function for single
+ * word synonyms.
+ */
+final class InlineSynonymReplacer {
+
+    private InlineSynonymReplacer() {
+        // prevent instantiation
+    }
+
+    public static Replacement replaceInline(String sentence, final MultiTermMatcher<String> multiWordSynonymMatcher,
+            final Function<String, String> masterTermLookup) {
+        final List<String> synonyms = new ArrayList<>();
+        final List<String> masterTerms = new ArrayList<>();
+
+        final List<Match<String>> matches = multiWordSynonymMatcher.findMatches(sentence);
+        if (!matches.isEmpty()) {
+            final StringBuilder replaced = new StringBuilder(sentence.length());
+            int index = 0;
+            for (final Match<String> match : matches) {
+                final String masterTerm = match.getValue();
+                replaced.append(sentence, index, match.getStart());
+                replaced.append(masterTerm);
+                index = match.getEnd();
+                synonyms.add(match.getTerm());
+                masterTerms.add(masterTerm);
+            }
+            replaced.append(sentence, index, sentence.length());
+            sentence = replaced.toString();
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        final List<String> tokens = StringUtils.splitOnWordBoundaries(sentence, true);
+        for (final String token : tokens) {
+            if (StringUtils.isSingleWord(token)) {
+                final String masterTerm = masterTermLookup.apply(token);
+                if (masterTerm == null) {
+                    // no match, just add it
+                    sb.append(token);
+                } else {
+                    // match - add the master term
+                    if (!masterTerm.equals(token)) {
+                        synonyms.add(token);
+                        masterTerms.add(masterTerm);
+                    }
+                    sb.append(masterTerm);
+                }
+            } else {
+                // it's a delim, just add it
+                sb.append(token);
+            }
+        }
+
+        final String finalSentence = sb.toString();
+        return new Replacement() {
+            @Override
+            public String getReplacedString() {
+                return finalSentence;
+            }
+
+            @Override
+            public List<String> getSynonyms() {
+                return synonyms;
+            }
+
+            @Override
+            public List<String> getMasterTerms() {
+                return masterTerms;
+            }
+        };
+    }
+}
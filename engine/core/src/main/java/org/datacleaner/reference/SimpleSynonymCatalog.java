@@ -22,21 +22,17 @@ package org.datacleaner.reference;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.util.MultiTermMatcher;
 import org.datacleaner.util.ReadObjectBuilder;
 import org.datacleaner.util.ReadObjectBuilder.Adaptor;
 import org.datacleaner.util.StringUtils;
@@ -100,9 +96,8 @@ public final class SimpleSynonymCatalog extends AbstractReferenceData implements
         return synonymMap;
     }
 
-    private SortedMap<String, String> createMultiWordSynonymMap() {
-        final SortedMap<String, String> synonymMap =
-                new TreeMap<>(Comparator.comparingInt(String::length).reversed().thenComparing(String::compareTo));
+    private MultiTermMatcher<String> createMultiWordSynonymMatcher() {
+        final Map<String, String> synonymMap = new HashMap<>();
         final Set<Entry<String, String>> entries = _synonymMap.entrySet();
         for (final Entry<String, String> entry : entries) {
             final String synonym = entry.getKey();
@@ -115,7 +110,7 @@ public final class SimpleSynonymCatalog extends AbstractReferenceData implements
                 }
             }
         }
-        return synonymMap;
+        return new MultiTermMatcher<>(synonymMap, _caseSensitive);
     }
 
     private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
@@ -155,7 +150,7 @@ public final class SimpleSynonymCatalog extends AbstractReferenceData implements
     public SynonymCatalogConnection openConnection(final DataCleanerConfiguration configuration) {
         return new SynonymCatalogConnection() {
 
-            private final SortedMap<String, String> _sortedMultiWordSynonymMap = createMultiWordSynonymMap();
+            private final MultiTermMatcher<String> _multiWordSynonymMatcher = createMultiWordSynonymMatcher();
             private final Map<String, String> _singleWordSynonymMap = createSingleWordSynonymMap();
 
             @Override
@@ -186,76 +181,8 @@ public final class SimpleSynonymCatalog extends AbstractReferenceData implements
             }
 
             @Override
-            public Replacement replaceInline(String sentence) {
-                final List<String> synonyms = new ArrayList<>();
-                final List<String> masterTerms = new ArrayList<>();
-
-                // matchString will contain a copy of "sentence" but potentially
-                // lower-cased for case-insensitive matching
-                String matchString;
-                if (!_caseSensitive) {
-                    matchString = sentence.toLowerCase();
-                } else {
-                    matchString = sentence;
-                }
-
-                final Set<Entry<String, String>> entries = _sortedMultiWordSynonymMap.entrySet();
-                for (final Entry<String, String> entry : entries) {
-                    final String synonym = entry.getKey();
-                    final String masterTerm = entry.getValue();
-                    final Matcher matcher = Pattern.compile("\\b" + synonym + "\\b").matcher(matchString);
-                    while (matcher.find()) {
-                        sentence =
-                                sentence.substring(0, matcher.start()) + masterTerm + sentence.substring(matcher.end());
-                        if (_caseSensitive) {
-                            matchString = sentence.toLowerCase();
-                        } else {
-                            matchString = sentence;
-                        }
-                        synonyms.add(synonym);
-                        masterTerms.add(masterTerm);
-                    }
-                }
-
-                final StringBuilder sb = new StringBuilder();
-                final List<String> tokens = StringUtils.splitOnWordBoundaries(sentence, true);
-                for (final String token : tokens) {
-                    if (StringUtils.isSingleWord(token)) {
-                        final String masterTerm = getMasterTerm(token);
-                        if (masterTerm == null) {
-                            // no match, just add it
-                            sb.append(token);
-                        } else {
-                            // match - add the master term
-                            if (!masterTerm.equals(token)) {
-                                synonyms.add(token);
-                                masterTerms.add(masterTerm);
-                            }
-                            sb.append(masterTerm);
-                        }
-                    } else {
-                        // it's a delim, just add it
-                        sb.append(token);
-                    }
-                }
-
-                final String finalSentence = sb.toString();
-                return new Replacement() {
-                    @Override
-                    public String getReplacedString() {
-                        return finalSentence;
-                    }
-
-                    @Override
-                    public List<String> getSynonyms() {
-                        return synonyms;
-                    }
-
-                    @Override
-                    public List<String> getMasterTerms() {
-                        return masterTerms;
-                    }
-                };
+            public Replacement replaceInline(final String sentence) {
+                return InlineSynonymReplacer.replaceInline(sentence, _multiWordSynonymMatcher, this::getMasterTerm);
             }
 
             @Override
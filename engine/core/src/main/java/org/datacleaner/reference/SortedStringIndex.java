@@ -0,0 +1,512 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.Resource;
+import org.datacleaner.util.MultiTermMatcher;
+import org.datacleaner.util.StringUtils;
+import org.datacleaner.util.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * A read-only, memory-mapped index of sorted strings (and optionally a value
+ * per string), used to back large text file based reference data without
+ * loading it onto the heap.
+ *
+ * The index file has the following layout:
+ *
+ * <pre>
+ * int    magic number
+ * int    format version
+ * long   last modified timestamp of the source
+ * long   size of the source
+ * int    number of keys (n)
+ * int    number of distinct values (m)
+ * int[n+1] key offsets
+ * int[n] value indexes (only when m &gt; 0)
+ * int[m+1] value offsets
+ * byte[] UTF-8 encoded keys, sorted by their bytes
+ * byte[] UTF-8 encoded values
+ * </pre>
+ *
+ * Indexes are cached and shared within the JVM, see
+ * {@link #getIndex(Resource, String, Supplier)}. Index files are kept in a
+ * directory that only the current user has access to, since their contents
+ * are trusted.
+ */
+final class SortedStringIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SortedStringIndex.class);
+
+    private static final int MAGIC_NUMBER = 0x44434958;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private static final ConcurrentMap<File, SortedStringIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final File _file;
+    private final ByteBuffer _buffer;
+    private final long _sourceLastModified;
+    private final long _sourceSize;
+    private final int _keyCount;
+    private final int _valueCount;
+    private final int _keyOffsetsStart;
+    private final int _valueIndexesStart;
+    private final int _valueOffsetsStart;
+    private final int _keyDataStart;
+    private final int _valueDataStart;
+    private volatile MultiTermMatcher<String> _caseSensitiveMatcher;
+    private volatile MultiTermMatcher<String> _caseInsensitiveMatcher;
+
+    private SortedStringIndex(final File file, final ByteBuffer buffer) {
+        _file = file;
+        _buffer = buffer;
+        if (buffer.getInt(0) != MAGIC_NUMBER || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("Not a valid index file: " + file);
+        }
+        _sourceLastModified = buffer.getLong(8);
+        _sourceSize = buffer.getLong(16);
+        _keyCount = buffer.getInt(24);
+        _valueCount = buffer.getInt(28);
+
+        _keyOffsetsStart = HEADER_SIZE;
+        _valueIndexesStart = _keyOffsetsStart + 4 * (_keyCount + 1);
+        _valueOffsetsStart = _valueIndexesStart + (_valueCount > 0 ? 4 * _keyCount : 0);
+        final int keyDataLength = buffer.getInt(_keyOffsetsStart + 4 * _keyCount);
+        _keyDataStart = _valueOffsetsStart + (_valueCount > 0 ? 4 * (_valueCount + 1) : 0);
+        _valueDataStart = _keyDataStart + keyDataLength;
+    }
+
+    /**
+     * Gets a (shared) index for a resource. If no index exists, or the index
+     * was built from a different version of the resource, the index is
+     * (re)built.
+     *
+     * @param resource
+     *            the source resource of the index
+     * @param indexName
+     *            a name that uniquely identifies the index (including e.g.
+     *            the type of reference data and its parsing settings)
+     * @param entriesSupplier
+     *            supplier of the entries to build the index from. Values may
+     *            be null if the index only contains keys.
+     * @return the index, or null if the resource does not support detecting
+     *         changes or the index directory cannot be restricted to the
+     *         current user, in which case it cannot be indexed.
+     */
+    public static SortedStringIndex getIndex(final Resource resource, final String indexName,
+            final Supplier<Map<String, String>> entriesSupplier) {
+        final long lastModified = resource.getLastModified();
+        final long size = resource.getSize();
+        if (lastModified <= 0 || size < 0) {
+            return null;
+        }
+
+        final File file = getIndexFile(resource, indexName);
+        final File directory = file.getParentFile();
+        if (!isPrivateDirectory(directory)) {
+            logger.warn("Not indexing {} since the index directory cannot be restricted to the current user: {}",
+                    resource, directory);
+            return null;
+        }
+
+        return INDEXES.compute(file, (key, existingIndex) -> {
+            if (existingIndex != null && existingIndex.isBuiltFrom(lastModified, size)) {
+                return existingIndex;
+            }
+            if (Files.exists(file.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+                if (!Files.isRegularFile(file.toPath(), LinkOption.NOFOLLOW_LINKS) || !isOwnedByCurrentUser(file
+                        .toPath())) {
+                    logger.warn("Replacing index file which is not a regular file of the current user: {}", file);
+                } else {
+                    try {
+                        final SortedStringIndex index = open(file);
+                        if (index.isBuiltFrom(lastModified, size)) {
+                            return index;
+                        }
+                    } catch (final Exception e) {
+                        logger.warn("Failed to open index file {}, rebuilding it", file, e);
+                    }
+                }
+            }
+            logger.info("Building index file {} for {}", file, resource);
+            write(file, lastModified, size, entriesSupplier.get());
+            return open(file);
+        });
+    }
+
+    static File getIndexFile(final Resource resource, final String indexName) {
+        final String indexKey = resource.getQualifiedPath() + '\n' + indexName;
+        final String hash = Hashing.sha256().hashString(indexKey, StandardCharsets.UTF_8).toString();
+        return new File(getDirectory(), "datacleaner_reference_" + hash + ".idx");
+    }
+
+    private static File getDirectory() {
+        final String directory =
+                SystemProperties.getString(SystemProperties.REFERENCE_DATA_INDEX_DIRECTORY, null);
+        if (directory != null) {
+            return new File(directory);
+        }
+        return new File(FileHelper.getTempDir(), "datacleaner_reference_index_" + System.getProperty("user.name"));
+    }
+
+    private static boolean isPosix() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
+    /**
+     * Determines if a directory is (or can be created as) a directory that
+     * only the current user has access to, so that no other user can plant or
+     * replace index files in it.
+     */
+    private static boolean isPrivateDirectory(final File directory) {
+        final Path path = directory.toPath();
+        try {
+            if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+                if (isPosix()) {
+                    Files.createDirectories(path, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+                } else {
+                    Files.createDirectories(path);
+                }
+            }
+            if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) || !isOwnedByCurrentUser(path)) {
+                return false;
+            }
+            if (isPosix() && !Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS).equals(
+                    OWNER_ONLY_DIRECTORY)) {
+                Files.setPosixFilePermissions(path, OWNER_ONLY_DIRECTORY);
+            }
+            return true;
+        } catch (final IOException | UnsupportedOperationException e) {
+            logger.debug("Failed to restrict index directory: " + directory, e);
+            return false;
+        }
+    }
+
+    private static boolean isOwnedByCurrentUser(final Path path) {
+        try {
+            final UserPrincipal owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS);
+            final UserPrincipal currentUser = path.getFileSystem().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+            return owner.equals(currentUser);
+        } catch (final IOException | UnsupportedOperationException e) {
+            logger.debug("Failed to determine owner of: " + path, e);
+            return false;
+        }
+    }
+
+    /**
+     * Opens (memory-maps) an existing index file.
+     *
+     * @param file
+     * @return
+     */
+    public static SortedStringIndex open(final File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SortedStringIndex(file, buffer);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to open index file: " + file, e);
+        }
+    }
+
+    /**
+     * Writes an index file.
+     *
+     * @param file
+     *            the file to write to. Will be replaced atomically if it
+     *            exists.
+     * @param sourceLastModified
+     * @param sourceSize
+     * @param entries
+     *            the entries of the index. Values may be null if the index
+     *            only contains keys.
+     */
+    public static void write(final File file, final long sourceLastModified, final long sourceSize,
+            final Map<String, String> entries) {
+        final byte[][] keys = new byte[entries.size()][];
+        final Map<byte[], String> values = new IdentityHashMap<>();
+        final Map<String, Integer> valueIndexes = new HashMap<>();
+        final List<byte[]> valueBytes = new ArrayList<>();
+
+        int i = 0;
+        for (final Entry<String, String> entry : entries.entrySet()) {
+            final byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            keys[i++] = key;
+            final String value = entry.getValue();
+            if (value != null) {
+                values.put(key, value);
+                if (!valueIndexes.containsKey(value)) {
+                    valueIndexes.put(value, valueBytes.size());
+                    valueBytes.add(value.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        Arrays.sort(keys, SortedStringIndex::compareBytes);
+
+        // a new file with a random name, which is never a planted file or a
+        // symbolic link
+        final Path tempFile;
+        try {
+            final Path directory = file.getAbsoluteFile().getParentFile().toPath();
+            if (isPosix()) {
+                tempFile = Files.createTempFile(directory, file.getName() + '.', ".tmp",
+                        PosixFilePermissions.asFileAttribute(OWNER_ONLY_FILE));
+            } else {
+                tempFile = Files.createTempFile(directory, file.getName() + '.', ".tmp");
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to write index file: " + file, e);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempFile), 64 * 1024))) {
+            final int valueCount = valueBytes.size();
+            out.writeInt(MAGIC_NUMBER);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(sourceLastModified);
+            out.writeLong(sourceSize);
+            out.writeInt(keys.length);
+            out.writeInt(valueCount);
+
+            writeOffsets(out, Arrays.asList(keys));
+            if (valueCount > 0) {
+                for (final byte[] key : keys) {
+                    final String value = values.get(key);
+                    out.writeInt(value == null ? -1 : valueIndexes.get(value));
+                }
+                writeOffsets(out, valueBytes);
+            }
+            for (final byte[] key : keys) {
+                out.write(key);
+            }
+            for (final byte[] value : valueBytes) {
+                out.write(value);
+            }
+        } catch (final IOException e) {
+            deleteQuietly(tempFile);
+            throw new IllegalStateException("Failed to write index file: " + file, e);
+        }
+
+        try {
+            // replaces the file itself, also if it is a symbolic link
+            Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            deleteQuietly(tempFile);
+            throw new IllegalStateException("Failed to write index file: " + file, e);
+        }
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final IOException e) {
+            logger.debug("Failed to delete: " + path, e);
+        }
+    }
+
+    private static void writeOffsets(final DataOutputStream out, final List<byte[]> strings) throws IOException {
+        long offset = 0;
+        out.writeInt(0);
+        for (final byte[] string : strings) {
+            offset += string.length;
+            if (offset > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Index content exceeds max size of " + Integer.MAX_VALUE);
+            }
+            out.writeInt((int) offset);
+        }
+    }
+
+    private static int compareBytes(final byte[] a, final byte[] b) {
+        final int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            final int diff = (a[i] & 0xff) - (b[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    public boolean isBuiltFrom(final long sourceLastModified, final long sourceSize) {
+        return _sourceLastModified == sourceLastModified && _sourceSize == sourceSize;
+    }
+
+    public File getFile() {
+        return _file;
+    }
+
+    public int size() {
+        return _keyCount;
+    }
+
+    public boolean containsKey(final String key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Gets the value of a key
+     *
+     * @param key
+     * @return the value, or null if the key is not contained in the index
+     */
+    public String get(final String key) {
+        final int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        return getValue(index);
+    }
+
+    public String getKey(final int index) {
+        final int offsetPosition = _keyOffsetsStart + 4 * index;
+        final int start = _buffer.getInt(offsetPosition);
+        final int end = _buffer.getInt(offsetPosition + 4);
+        return readString(_keyDataStart + start, end - start);
+    }
+
+    public String getValue(final int index) {
+        if (_valueCount == 0) {
+            return null;
+        }
+        final int valueIndex = _buffer.getInt(_valueIndexesStart + 4 * index);
+        if (valueIndex == -1) {
+            return null;
+        }
+        final int offsetPosition = _valueOffsetsStart + 4 * valueIndex;
+        final int start = _buffer.getInt(offsetPosition);
+        final int end = _buffer.getInt(offsetPosition + 4);
+        return readString(_valueDataStart + start, end - start);
+    }
+
+    /**
+     * Gets a matcher for all the multi-word keys of this index. The matcher is
+     * built once (per case sensitivity) and shared by all users of the index.
+     *
+     * @param caseSensitive
+     * @return
+     */
+    public MultiTermMatcher<String> getMultiWordMatcher(final boolean caseSensitive) {
+        MultiTermMatcher<String> matcher = caseSensitive ? _caseSensitiveMatcher : _caseInsensitiveMatcher;
+        if (matcher == null) {
+            synchronized (this) {
+                matcher = caseSensitive ? _caseSensitiveMatcher : _caseInsensitiveMatcher;
+                if (matcher == null) {
+                    final Map<String, String> multiWordEntries = new HashMap<>();
+                    for (int i = 0; i < _keyCount; i++) {
+                        final String key = getKey(i);
+                        if (!StringUtils.isSingleWord(key)) {
+                            multiWordEntries.put(key, getValue(i));
+                        }
+                    }
+                    matcher = new MultiTermMatcher<>(multiWordEntries, caseSensitive);
+                    if (caseSensitive) {
+                        _caseSensitiveMatcher = matcher;
+                    } else {
+                        _caseInsensitiveMatcher = matcher;
+                    }
+                }
+            }
+        }
+        return matcher;
+    }
+
+    private int indexOf(final String key) {
+        if (key == null) {
+            return -1;
+        }
+        final byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = _keyCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int comparison = compareKey(mid, bytes);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareKey(final int index, final byte[] bytes) {
+        final int offsetPosition = _keyOffsetsStart + 4 * index;
+        final int start = _keyDataStart + _buffer.getInt(offsetPosition);
+        final int length = _keyDataStart + _buffer.getInt(offsetPosition + 4) - start;
+        final int commonLength = Math.min(length, bytes.length);
+        for (int i = 0; i < commonLength; i++) {
+            final int diff = (_buffer.get(start + i) & 0xff) - (bytes[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - bytes.length;
+    }
+
+    private String readString(final int position, final int length) {
+        final byte[] bytes = new byte[length];
+        // use a duplicate, since the position of the shared buffer must not
+        // be modified concurrently
+        final ByteBuffer buffer = _buffer.duplicate();
+        buffer.position(position);
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
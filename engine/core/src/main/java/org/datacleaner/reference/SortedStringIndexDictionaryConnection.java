@@ -0,0 +1,84 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * {@link DictionaryConnection} backed by a (shared) {@link SortedStringIndex}.
+ */
+final class SortedStringIndexDictionaryConnection implements DictionaryConnection {
+
+    private final SortedStringIndex _index;
+    private final boolean _caseSensitive;
+
+    public SortedStringIndexDictionaryConnection(final SortedStringIndex index, final boolean caseSensitive) {
+        _index = index;
+        _caseSensitive = caseSensitive;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (value == null) {
+            return false;
+        }
+        if (!_caseSensitive) {
+            value = value.toLowerCase();
+        }
+        return _index.containsKey(value);
+    }
+
+    @Override
+    public Iterator<String> getLengthSortedValues() {
+        final SortedSet<String> values =
+                new TreeSet<>(Comparator.comparingInt(String::length).reversed().thenComparing(String::compareTo));
+        getAllValues().forEachRemaining(values::add);
+        return values.iterator();
+    }
+
+    @Override
+    public Iterator<String> getAllValues() {
+        return new Iterator<String>() {
+            private int _next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return _next < _index.size();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return _index.getKey(_next++);
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        // the index is shared and stays mapped
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link SynonymCatalogConnection} backed by a (shared)
+ * {@link SortedStringIndex} of synonyms and their master terms.
+ */
+final class SortedStringIndexSynonymCatalogConnection implements SynonymCatalogConnection {
+
+    private final SortedStringIndex _index;
+    private final boolean _caseSensitive;
+
+    public SortedStringIndexSynonymCatalogConnection(final SortedStringIndex index, final boolean caseSensitive) {
+        _index = index;
+        _caseSensitive = caseSensitive;
+    }
+
+    @Override
+    public Collection<Synonym> getSynonyms() {
+        final Map<String, Synonym> synonyms = new TreeMap<>();
+        for (int i = 0; i < _index.size(); i++) {
+            final String masterTerm = _index.getValue(i);
+            MutableSynonym synonym = (MutableSynonym) synonyms.get(masterTerm);
+            if (synonym == null) {
+                synonym = new MutableSynonym(masterTerm);
+                synonyms.put(masterTerm, synonym);
+            }
+            synonym.addSynonym(_index.getKey(i));
+        }
+        return synonyms.values();
+    }
+
+    @Override
+    public String getMasterTerm(final String term) {
+        if (term == null) {
+            return null;
+        }
+        final String key = _caseSensitive ? term : term.toLowerCase();
+        return _index.get(key);
+    }
+
+    @Override
+    public Replacement replaceInline(final String sentence) {
+        return InlineSynonymReplacer.replaceInline(sentence, _index.getMultiWordMatcher(_caseSensitive),
+                this::getMasterTerm);
+    }
+
+    @Override
+    public void close() {
+        // the index is shared and stays mapped
+    }
+}
@@ -23,7 +23,9 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.lang.reflect.Field;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -32,6 +34,7 @@ import org.apache.metamodel.util.Resource;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.util.ReadObjectBuilder;
 import org.datacleaner.util.ReadObjectBuilder.Adaptor;
+import org.datacleaner.util.SystemProperties;
 import org.datacleaner.util.convert.ResourceConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -88,8 +91,28 @@ public final class TextFileDictionary extends AbstractReferenceData implements D
     public DictionaryConnection openConnection(final DataCleanerConfiguration configuration) {
         final ResourceConverter rc = new ResourceConverter(configuration);
         final Resource resource = rc.fromString(Resource.class, _filename);
-        final Set<String> values = resource.read(in -> {
-            final Set<String> values1 = new HashSet<>();
+
+        if (SystemProperties.getBoolean(SystemProperties.REFERENCE_DATA_INDEX, false)) {
+            final SortedStringIndex index =
+                    SortedStringIndex.getIndex(resource, "dictionary\n" + _encoding + "\n" + _caseSensitive, () -> {
+                        final Map<String, String> entries = new HashMap<>();
+                        for (final String value : readValues(resource)) {
+                            entries.put(value, null);
+                        }
+                        return entries;
+                    });
+            if (index != null) {
+                return new SortedStringIndexDictionaryConnection(index, _caseSensitive);
+            }
+        }
+
+        final SimpleDictionary simpleDictionary = new SimpleDictionary(getName(), readValues(resource), _caseSensitive);
+        return simpleDictionary.openConnection(configuration);
+    }
+
+    private Set<String> readValues(final Resource resource) {
+        return resource.read(in -> {
+            final Set<String> values = new HashSet<>();
             final BufferedReader reader = FileHelper.getBufferedReader(in, getEncoding());
             try {
                 String line = reader.readLine();
@@ -97,7 +120,7 @@ public final class TextFileDictionary extends AbstractReferenceData implements D
                     if (!_caseSensitive) {
                         line = line.toLowerCase();
                     }
-                    values1.add(line);
+                    values.add(line);
                     line = reader.readLine();
                 }
             } catch (final IOException e) {
@@ -105,11 +128,8 @@ public final class TextFileDictionary extends AbstractReferenceData implements D
             } finally {
                 FileHelper.safeClose(reader);
             }
-            return values1;
+            return values;
         });
-
-        final SimpleDictionary simpleDictionary = new SimpleDictionary(getName(), values, _caseSensitive);
-        return simpleDictionary.openConnection(configuration);
     }
 
     @Override
@@ -25,12 +25,14 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 
 import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Resource;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.util.ReadObjectBuilder;
+import org.datacleaner.util.SystemProperties;
 import org.datacleaner.util.convert.ResourceConverter;
 
 import com.opencsv.CSVParser;
@@ -77,8 +79,30 @@ public final class TextFileSynonymCatalog extends AbstractReferenceData implemen
         final ResourceConverter rc = new ResourceConverter(configuration);
         final Resource resource = rc.fromString(Resource.class, _filename);
 
-        final Map<String, String> synonyms = resource.read(in -> {
-            final Map<String, String> synonyms1 = new HashMap<>();
+        if (SystemProperties.getBoolean(SystemProperties.REFERENCE_DATA_INDEX, false)) {
+            final SortedStringIndex index =
+                    SortedStringIndex.getIndex(resource, "synonyms\n" + _encoding + "\n" + _caseSensitive, () -> {
+                        if (_caseSensitive) {
+                            return readSynonyms(resource);
+                        }
+                        final Map<String, String> entries = new HashMap<>();
+                        for (final Entry<String, String> entry : readSynonyms(resource).entrySet()) {
+                            entries.put(entry.getKey().toLowerCase(), entry.getValue());
+                        }
+                        return entries;
+                    });
+            if (index != null) {
+                return new SortedStringIndexSynonymCatalogConnection(index, _caseSensitive);
+            }
+        }
+
+        return new SimpleSynonymCatalog(getName(), readSynonyms(resource), _caseSensitive)
+                .openConnection(configuration);
+    }
+
+    private Map<String, String> readSynonyms(final Resource resource) {
+        return resource.read(in -> {
+            final Map<String, String> synonyms = new HashMap<>();
 
             final CSVParser parser = new CSVParser(',', '"', '\\');
             final BufferedReader reader = FileHelper.getBufferedReader(in, _encoding);
@@ -92,11 +116,11 @@ public final class TextFileSynonymCatalog extends AbstractReferenceData implemen
                         throw new IllegalStateException("Failed to parse line: " + line, e);
                     }
                     if (values.length > 0) {
-                        synonyms1.put(values[0], values[0]);
+                        synonyms.put(values[0], values[0]);
                     }
                     if (values.length > 1) {
                         for (int i = 1; i < values.length; i++) {
-                            synonyms1.put(values[i], values[0]);
+                            synonyms.put(values[i], values[0]);
                         }
                     }
                 }
@@ -106,10 +130,8 @@ public final class TextFileSynonymCatalog extends AbstractReferenceData implemen
                 FileHelper.safeClose(reader);
             }
 
-            return synonyms1;
+            return synonyms;
         });
-
-        return new SimpleSynonymCatalog(getName(), synonyms, _caseSensitive).openConnection(configuration);
     }
 
     private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
@@ -37,6 +37,11 @@ import org.datacleaner.result.SimpleAnalysisResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Saves {@link AnalysisResult}s in the binary result format of
+ * {@link BinaryAnalysisResultWriter}, and helps finding the result elements that
+ * cannot be saved.
+ */
 public class AnalysisResultSaveHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(AnalysisResultSaveHandler.class);
@@ -51,17 +56,9 @@ public class AnalysisResultSaveHandler {
     }
 
     private static void saveOrThrow(final AnalysisResult analysisResult, final Resource resource) {
-        final SimpleAnalysisResult simpleAnalysisResult;
-        if (analysisResult instanceof SimpleAnalysisResult) {
-            simpleAnalysisResult = (SimpleAnalysisResult) analysisResult;
-        } else {
-            simpleAnalysisResult =
-                    new SimpleAnalysisResult(analysisResult.getResultMap(), analysisResult.getCreationDate());
-        }
-
         final OutputStream out = resource.write();
         try {
-            SerializationUtils.serialize(simpleAnalysisResult, out);
+            new BinaryAnalysisResultWriter().write(analysisResult, out);
         } catch (final SerializationException e) {
             logger.error("Error serializing analysis result: " + analysisResult, e);
             throw e;
@@ -0,0 +1,363 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.result.save;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.Resource;
+import org.apache.metamodel.util.ResourceException;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.result.AnalysisResult;
+import org.datacleaner.util.ChangeAwareObjectInputStream;
+
+/**
+ * Reads analysis results written by {@link BinaryAnalysisResultWriter}. Only
+ * the section headers are read up front, the component jobs and analyzer
+ * results are deserialized when they are requested.
+ */
+public class BinaryAnalysisResultReader {
+
+    /**
+     * A single analyzer result of a saved analysis result.
+     */
+    public final class Section {
+
+        private final String _componentName;
+        private final String _descriptorName;
+        private final String _resultClassName;
+        private final int _componentJobIndex;
+        private final byte[] _componentJobBytes;
+        private final Map<String, Number> _metrics;
+        private final long _resultOffset;
+        private final int _resultLength;
+        private ComponentJob _componentJob;
+
+        private Section(final String componentName, final String descriptorName, final String resultClassName,
+                final int componentJobIndex, final byte[] componentJobBytes, final Map<String, Number> metrics,
+                final long resultOffset, final int resultLength) {
+            _componentName = componentName;
+            _descriptorName = descriptorName;
+            _resultClassName = resultClassName;
+            _componentJobIndex = componentJobIndex;
+            _componentJobBytes = componentJobBytes;
+            _metrics = metrics;
+            _resultOffset = resultOffset;
+            _resultLength = resultLength;
+        }
+
+        public String getComponentName() {
+            return _componentName;
+        }
+
+        public String getDescriptorName() {
+            return _descriptorName;
+        }
+
+        public String getResultClassName() {
+            return _resultClassName;
+        }
+
+        public synchronized ComponentJob getComponentJob() {
+            if (_componentJob == null) {
+                if (_componentJobBytes == null) {
+                    _componentJob = getComponentJobs().get(_componentJobIndex);
+                } else {
+                    // results of version 1 and 2 contain a component job per
+                    // section
+                    _componentJob = (ComponentJob) deserialize(new ByteArrayInputStream(_componentJobBytes));
+                }
+            }
+            return _componentJob;
+        }
+
+        /**
+         * Gets the values of the metrics of the result that do not need any
+         * parameters, without deserializing the result. Metrics with values
+         * that could not be stored without losing their type or precision are
+         * not included.
+         *
+         * @return
+         */
+        public Map<String, Number> getMetrics() {
+            return _metrics;
+        }
+
+        /**
+         * Reads and deserializes the analyzer result of this section.
+         *
+         * @return
+         */
+        public AnalyzerResult getResult() {
+            return _resource.read(in -> {
+                try {
+                    IOUtils.skipFully(in, _resultOffset);
+                } catch (final IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                final InputStream resultIn = new InflaterInputStream(new BoundedInputStream(in, _resultLength));
+                return (AnalyzerResult) deserialize(resultIn);
+            });
+        }
+    }
+
+    private final Resource _resource;
+    private final List<ClassLoader> _classLoaders;
+    private final Date _creationDate;
+    private final List<Section> _sections;
+    private byte[] _componentJobsBytes;
+    private List<ComponentJob> _componentJobs;
+
+    public BinaryAnalysisResultReader(final Resource resource) {
+        _resource = resource;
+        _classLoaders = new ArrayList<>();
+        _sections = new ArrayList<>();
+        try {
+            _creationDate = _resource.read(this::readIndex);
+        } catch (final ResourceException e) {
+            if (e.getCause() instanceof IllegalStateException) {
+                throw (IllegalStateException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Determines if a resource contains a result in the binary result format.
+     * Other results are Java serialized objects.
+     *
+     * @param resource
+     * @return
+     */
+    public static boolean isBinaryFormat(final Resource resource) {
+        return resource.read(in -> {
+            return isBinaryFormat(in);
+        });
+    }
+
+    /**
+     * Determines if a stream starts with the binary result format. The stream
+     * is consumed, so it must be marked and reset by the caller if it is going
+     * to be read afterwards.
+     *
+     * @param in
+     * @return
+     */
+    public static boolean isBinaryFormat(final InputStream in) {
+        final byte[] magic = new byte[BinaryAnalysisResultWriter.MAGIC.length];
+        try {
+            return IOUtils.read(in, magic) == magic.length && Arrays.equals(magic, BinaryAnalysisResultWriter.MAGIC);
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Adds a class loader to use when deserializing component jobs and results,
+     * eg. the class loader of extensions.
+     *
+     * @param classLoader
+     */
+    public void addClassLoader(final ClassLoader classLoader) {
+        _classLoaders.add(classLoader);
+    }
+
+    public Date getCreationDate() {
+        return _creationDate;
+    }
+
+    public List<Section> getSections() {
+        return Collections.unmodifiableList(_sections);
+    }
+
+    /**
+     * Gets the component jobs of all sections. They are deserialized together,
+     * so objects that are shared by the component jobs are also shared after
+     * reading them.
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private synchronized List<ComponentJob> getComponentJobs() {
+        if (_componentJobs == null) {
+            _componentJobs = (List<ComponentJob>) deserialize(new ByteArrayInputStream(_componentJobsBytes));
+        }
+        return _componentJobs;
+    }
+
+    /**
+     * Gets an {@link AnalysisResult} that deserializes the analyzer results
+     * when they are requested.
+     *
+     * @return
+     */
+    public AnalysisResult getAnalysisResult() {
+        return new LazyAnalysisResult(this);
+    }
+
+    private Date readIndex(final InputStream in) {
+        final CountingDataInputStream dataIn = new CountingDataInputStream(in);
+        try {
+            if (!isBinaryFormat(dataIn)) {
+                throw new IllegalStateException("Not a binary analysis result: " + _resource);
+            }
+            final int version = dataIn.readInt();
+            if (version > BinaryAnalysisResultWriter.VERSION) {
+                throw new IllegalStateException("Unsupported analysis result version: " + version);
+            }
+            final long creationTime = dataIn.readLong();
+            if (version >= 3) {
+                _componentJobsBytes = new byte[dataIn.readInt()];
+                dataIn.readFully(_componentJobsBytes);
+            }
+            final int sectionCount = dataIn.readInt();
+            for (int i = 0; i < sectionCount; i++) {
+                final String componentName = dataIn.readUTF();
+                final String descriptorName = dataIn.readUTF();
+                final String resultClassName = dataIn.readUTF();
+
+                final int componentJobIndex;
+                final byte[] componentJobBytes;
+                final Map<String, Number> metrics;
+                if (version >= 3) {
+                    componentJobIndex = dataIn.readInt();
+                    componentJobBytes = null;
+                    metrics = readMetrics(dataIn);
+                } else {
+                    if (version == 1) {
+                        // version 1 contained metric values that were all
+                        // converted to doubles, so they are not used
+                        final int metricCount = dataIn.readInt();
+                        for (int j = 0; j < metricCount; j++) {
+                            dataIn.readUTF();
+                            dataIn.readDouble();
+                        }
+                    }
+                    componentJobIndex = -1;
+                    componentJobBytes = new byte[dataIn.readInt()];
+                    dataIn.readFully(componentJobBytes);
+                    metrics = Collections.emptyMap();
+                }
+
+                final int resultLength = dataIn.readInt();
+                final long resultOffset = dataIn.getCount();
+                IOUtils.skipFully(dataIn, resultLength);
+
+                _sections.add(new Section(componentName, descriptorName, resultClassName, componentJobIndex,
+                        componentJobBytes, metrics, resultOffset, resultLength));
+            }
+            return creationTime == 0 ? null : new Date(creationTime);
+        } catch (final EOFException e) {
+            throw new IllegalStateException("Unexpected end of analysis result: " + _resource, e);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, Number> readMetrics(final DataInputStream in) throws IOException {
+        final int metricCount = in.readInt();
+        final Map<String, Number> metrics = new LinkedHashMap<>();
+        for (int i = 0; i < metricCount; i++) {
+            final String metricName = in.readUTF();
+            final Number value;
+            final byte type = in.readByte();
+            switch (type) {
+            case BinaryAnalysisResultWriter.TYPE_NULL:
+                value = null;
+                break;
+            case BinaryAnalysisResultWriter.TYPE_BYTE:
+                value = in.readByte();
+                break;
+            case BinaryAnalysisResultWriter.TYPE_SHORT:
+                value = in.readShort();
+                break;
+            case BinaryAnalysisResultWriter.TYPE_INTEGER:
+                value = in.readInt();
+                break;
+            case BinaryAnalysisResultWriter.TYPE_LONG:
+                value = in.readLong();
+                break;
+            case BinaryAnalysisResultWriter.TYPE_FLOAT:
+                value = in.readFloat();
+                break;
+            case BinaryAnalysisResultWriter.TYPE_DOUBLE:
+                value = in.readDouble();
+                break;
+            case BinaryAnalysisResultWriter.TYPE_BIG_INTEGER:
+                value = new BigInteger(in.readUTF());
+                break;
+            case BinaryAnalysisResultWriter.TYPE_BIG_DECIMAL:
+                value = new BigDecimal(in.readUTF());
+                break;
+            default:
+                throw new IllegalStateException("Unsupported metric value type " + type + " in " + _resource);
+            }
+            metrics.put(metricName, value);
+        }
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    private Object deserialize(final InputStream in) {
+        ChangeAwareObjectInputStream objectIn = null;
+        try {
+            objectIn = new ChangeAwareObjectInputStream(in);
+            for (final ClassLoader classLoader : _classLoaders) {
+                objectIn.addClassLoader(classLoader);
+            }
+            return objectIn.readObject();
+        } catch (final IOException | ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            FileHelper.safeClose(objectIn);
+        }
+    }
+
+    /**
+     * {@link DataInputStream} that keeps track of the current position.
+     */
+    private static final class CountingDataInputStream extends DataInputStream {
+
+        CountingDataInputStream(final InputStream in) {
+            super(new CountingInputStream(in));
+        }
+
+        long getCount() {
+            return ((CountingInputStream) in).getByteCount();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.result.save;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.commons.lang.SerializationException;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.api.AnalyzerResultFuture;
+import org.datacleaner.descriptors.Descriptors;
+import org.datacleaner.descriptors.MetricDescriptor;
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.result.AnalysisResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes {@link AnalysisResult}s in the binary result format, which can be read
+ * lazily by {@link BinaryAnalysisResultReader}.
+ *
+ * The format consists of a header followed by one section per analyzer result:
+ *
+ * <pre>
+ * header:  "DCRESULT" | int version | long creation date
+ *          | int length | serialized list of all component jobs
+ *          | int section count
+ * section: UTF component name | UTF descriptor name | UTF result class name
+ *          | int index of the component job
+ *          | int metric count | (UTF metric name | byte type | value)*
+ *          | int length | deflated serialized analyzer result
+ * </pre>
+ *
+ * The component jobs are serialized together, so that the objects they share
+ * (eg. input columns) are only written once and are shared again when read.
+ * The section headers, including the values of the metrics that do not need
+ * any parameters, can be read without deserializing any of the analyzer
+ * results, and a single analyzer result can be read without deserializing the
+ * others.
+ */
+public class BinaryAnalysisResultWriter {
+
+    static final byte[] MAGIC = "DCRESULT".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 3;
+
+    static final byte TYPE_NULL = 0;
+    static final byte TYPE_BYTE = 1;
+    static final byte TYPE_SHORT = 2;
+    static final byte TYPE_INTEGER = 3;
+    static final byte TYPE_LONG = 4;
+    static final byte TYPE_FLOAT = 5;
+    static final byte TYPE_DOUBLE = 6;
+    static final byte TYPE_BIG_INTEGER = 7;
+    static final byte TYPE_BIG_DECIMAL = 8;
+
+    private static final Logger logger = LoggerFactory.getLogger(BinaryAnalysisResultWriter.class);
+
+    /**
+     * Writes an analysis result to an output stream. The stream is not closed.
+     *
+     * @param analysisResult
+     * @param out
+     * @throws SerializationException
+     *             if one of the analyzer results could not be serialized
+     */
+    public void write(final AnalysisResult analysisResult, final OutputStream out) throws SerializationException {
+        final Map<ComponentJob, AnalyzerResult> resultMap = analysisResult.getResultMap();
+        final List<ComponentJob> componentJobs = new ArrayList<>(resultMap.keySet());
+        try {
+            final DataOutputStream dataOut = new DataOutputStream(out);
+            dataOut.write(MAGIC);
+            dataOut.writeInt(VERSION);
+            dataOut.writeLong(analysisResult.getCreationDate() == null ? 0 : analysisResult.getCreationDate().getTime());
+
+            final byte[] componentJobsBytes = serialize(componentJobs, false);
+            dataOut.writeInt(componentJobsBytes.length);
+            dataOut.write(componentJobsBytes);
+
+            dataOut.writeInt(resultMap.size());
+            int componentJobIndex = 0;
+            for (final Entry<ComponentJob, AnalyzerResult> entry : resultMap.entrySet()) {
+                writeSection(dataOut, entry.getKey(), componentJobIndex, entry.getValue());
+                componentJobIndex++;
+            }
+            dataOut.flush();
+        } catch (final IOException e) {
+            throw new SerializationException(e);
+        }
+    }
+
+    private void writeSection(final DataOutputStream out, final ComponentJob componentJob,
+            final int componentJobIndex, final AnalyzerResult analyzerResult) throws IOException {
+        final String componentName = componentJob.getName();
+        out.writeUTF(componentName == null ? "" : componentName);
+        final String descriptorName =
+                componentJob.getDescriptor() == null ? "" : componentJob.getDescriptor().getDisplayName();
+        out.writeUTF(descriptorName);
+        out.writeUTF(analyzerResult == null ? "" : analyzerResult.getClass().getName());
+        out.writeInt(componentJobIndex);
+
+        final Map<String, Number> metrics = getMetrics(analyzerResult);
+        out.writeInt(metrics.size());
+        for (final Entry<String, Number> metric : metrics.entrySet()) {
+            out.writeUTF(metric.getKey());
+            writeMetricValue(out, metric.getValue());
+        }
+
+        final byte[] resultBytes = serialize(analyzerResult, true);
+        out.writeInt(resultBytes.length);
+        out.write(resultBytes);
+    }
+
+    /**
+     * Gets the values of the metrics of a result that do not need any
+     * parameters and that can be written without losing their type or
+     * precision.
+     *
+     * @param analyzerResult
+     * @return
+     */
+    private Map<String, Number> getMetrics(final AnalyzerResult result) {
+        final Map<String, Number> metrics = new LinkedHashMap<>();
+        final AnalyzerResult analyzerResult;
+        if (result instanceof AnalyzerResultFuture) {
+            analyzerResult = ((AnalyzerResultFuture<?>) result).get();
+        } else {
+            analyzerResult = result;
+        }
+        if (analyzerResult == null) {
+            return metrics;
+        }
+        for (final MetricDescriptor metric : Descriptors.ofResult(analyzerResult).getResultMetrics()) {
+            if (metric.isParameterizedByInputColumn() || metric.isParameterizedByString()) {
+                continue;
+            }
+            final Number value;
+            try {
+                value = metric.getValue(analyzerResult, null);
+            } catch (final RuntimeException e) {
+                logger.debug("Could not get metric '{}' of result {}", metric.getName(), analyzerResult, e);
+                continue;
+            }
+            if (getMetricType(value) != -1) {
+                metrics.put(metric.getName(), value);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Gets the type that a metric value is written as.
+     *
+     * @param value
+     * @return the type, or -1 if the value cannot be written without losing
+     *         its type
+     */
+    private static byte getMetricType(final Number value) {
+        if (value == null) {
+            return TYPE_NULL;
+        }
+        final Class<?> type = value.getClass();
+        if (type == Byte.class) {
+            return TYPE_BYTE;
+        } else if (type == Short.class) {
+            return TYPE_SHORT;
+        } else if (type == Integer.class) {
+            return TYPE_INTEGER;
+        } else if (type == Long.class) {
+            return TYPE_LONG;
+        } else if (type == Float.class) {
+            return TYPE_FLOAT;
+        } else if (type == Double.class) {
+            return TYPE_DOUBLE;
+        } else if (type == BigInteger.class) {
+            return TYPE_BIG_INTEGER;
+        } else if (type == BigDecimal.class) {
+            return TYPE_BIG_DECIMAL;
+        }
+        return -1;
+    }
+
+    private void writeMetricValue(final DataOutputStream out, final Number value) throws IOException {
+        final byte type = getMetricType(value);
+        out.writeByte(type);
+        switch (type) {
+        case TYPE_BYTE:
+            out.writeByte(value.byteValue());
+            break;
+        case TYPE_SHORT:
+            out.writeShort(value.shortValue());
+            break;
+        case TYPE_INTEGER:
+            out.writeInt(value.intValue());
+            break;
+        case TYPE_LONG:
+            out.writeLong(value.longValue());
+            break;
+        case TYPE_FLOAT:
+            out.writeFloat(value.floatValue());
+            break;
+        case TYPE_DOUBLE:
+            out.writeDouble(value.doubleValue());
+            break;
+        case TYPE_BIG_INTEGER:
+        case TYPE_BIG_DECIMAL:
+            out.writeUTF(value.toString());
+            break;
+        default:
+            // null
+        }
+    }
+
+    private byte[] serialize(final Object object, final boolean deflate) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final Deflater deflater = deflate ? new Deflater(Deflater.BEST_SPEED) : null;
+        try {
+            final OutputStream out = deflate ? new DeflaterOutputStream(bytes, deflater) : bytes;
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+                objectOut.writeObject(object);
+            } catch (final IOException e) {
+                logger.error("Error serializing analysis result element: " + object, e);
+                throw new SerializationException(e);
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
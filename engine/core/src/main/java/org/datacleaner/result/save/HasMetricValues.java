@@ -0,0 +1,44 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.result.save;
+
+import java.util.Map;
+
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.result.AnalysisResult;
+
+/**
+ * Interface for {@link AnalysisResult}s that have stored the values of the
+ * metrics of their analyzer results, so that these can be read without
+ * deserializing the analyzer results.
+ */
+public interface HasMetricValues {
+
+    /**
+     * Gets the stored values of the metrics (that do not need any parameters)
+     * of the result of a component job.
+     *
+     * @param componentJob
+     * @return the metric values by metric name, or null if the component job
+     *         has no result in the analysis result. Metrics that are not in the
+     *         map have to be read from the analyzer result.
+     */
+    Map<String, Number> getMetricValues(ComponentJob componentJob);
+}
@@ -0,0 +1,254 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.result.save;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.job.AnalyzerJob;
+import org.datacleaner.job.AnalyzerJobHelper;
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.result.AbstractAnalysisResult;
+import org.datacleaner.result.AnalysisResult;
+import org.datacleaner.result.save.BinaryAnalysisResultReader.Section;
+import org.datacleaner.util.ReflectionUtils;
+
+/**
+ * {@link AnalysisResult} of a {@link BinaryAnalysisResultReader}, which only
+ * deserializes the analyzer results that are requested.
+ */
+final class LazyAnalysisResult extends AbstractAnalysisResult implements HasMetricValues {
+
+    /**
+     * Entry of the result map, which deserializes the analyzer result when its
+     * value is requested.
+     */
+    private final class LazyEntry implements Map.Entry<ComponentJob, AnalyzerResult> {
+
+        private final Section _section;
+
+        private LazyEntry(final Section section) {
+            _section = section;
+        }
+
+        @Override
+        public ComponentJob getKey() {
+            return _section.getComponentJob();
+        }
+
+        @Override
+        public AnalyzerResult getValue() {
+            return getResult(_section);
+        }
+
+        @Override
+        public AnalyzerResult setValue(final AnalyzerResult value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return Objects.equals(getKey(), other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * Result map that only deserializes the analyzer results that are
+     * requested. Its keys can be iterated without deserializing any of them.
+     */
+    private final class LazyResultMap extends AbstractMap<ComponentJob, AnalyzerResult> {
+
+        @Override
+        public Set<Map.Entry<ComponentJob, AnalyzerResult>> entrySet() {
+            return new AbstractSet<Map.Entry<ComponentJob, AnalyzerResult>>() {
+                @Override
+                public Iterator<Map.Entry<ComponentJob, AnalyzerResult>> iterator() {
+                    final Iterator<Section> sections = _reader.getSections().iterator();
+                    return new Iterator<Map.Entry<ComponentJob, AnalyzerResult>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return sections.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<ComponentJob, AnalyzerResult> next() {
+                            return new LazyEntry(sections.next());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return _reader.getSections().size();
+                }
+            };
+        }
+
+        @Override
+        public AnalyzerResult get(final Object key) {
+            final Section section = getSectionOf(key);
+            return section == null ? null : getResult(section);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return getSectionOf(key) != null;
+        }
+
+        private Section getSectionOf(final Object key) {
+            for (final Section section : _reader.getSections()) {
+                if (section.getComponentJob().equals(key)) {
+                    return section;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final BinaryAnalysisResultReader _reader;
+    private final Map<Section, AnalyzerResult> _loadedResults;
+
+    LazyAnalysisResult(final BinaryAnalysisResultReader reader) {
+        _reader = reader;
+        _loadedResults = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public List<AnalyzerResult> getResults() {
+        final List<AnalyzerResult> results = new ArrayList<>();
+        for (final Section section : _reader.getSections()) {
+            results.add(getResult(section));
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <R extends AnalyzerResult> List<? extends R> getResults(final Class<R> resultClass) {
+        final List<R> list = new ArrayList<>();
+        for (final Section section : _reader.getSections()) {
+            if (!isPossibly(section, resultClass)) {
+                continue;
+            }
+            final AnalyzerResult analyzerResult = getResult(section);
+            if (analyzerResult != null && ReflectionUtils.is(analyzerResult.getClass(), resultClass)) {
+                list.add((R) analyzerResult);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Determines if the result of a section may be of a particular type,
+     * without deserializing it.
+     *
+     * @param section
+     * @param resultClass
+     * @return
+     */
+    private boolean isPossibly(final Section section, final Class<?> resultClass) {
+        final String resultClassName = section.getResultClassName();
+        if (resultClassName.isEmpty()) {
+            return false;
+        }
+        try {
+            return ReflectionUtils.is(Class.forName(resultClassName, false, resultClass.getClassLoader()),
+                    resultClass);
+        } catch (final ClassNotFoundException | LinkageError e) {
+            // the class is probably from an extension, so deserialize the
+            // result to find out
+            return true;
+        }
+    }
+
+    @Override
+    public Map<ComponentJob, AnalyzerResult> getResultMap() {
+        return new LazyResultMap();
+    }
+
+    @Override
+    public AnalyzerResult getResult(final ComponentJob componentJob) {
+        final Section section = getSection(componentJob);
+        return section == null ? null : getResult(section);
+    }
+
+    @Override
+    public Map<String, Number> getMetricValues(final ComponentJob componentJob) {
+        final Section section = getSection(componentJob);
+        return section == null ? null : section.getMetrics();
+    }
+
+    @Override
+    public Date getCreationDate() {
+        return _reader.getCreationDate();
+    }
+
+    private Section getSection(final ComponentJob componentJob) {
+        final List<Section> sections = _reader.getSections();
+        for (final Section section : sections) {
+            if (section.getComponentJob().equals(componentJob)) {
+                return section;
+            }
+        }
+
+        if (componentJob instanceof AnalyzerJob) {
+            final Map<AnalyzerJob, Section> analyzerJobs = new LinkedHashMap<>();
+            for (final Section section : sections) {
+                if (section.getComponentJob() instanceof AnalyzerJob) {
+                    analyzerJobs.put((AnalyzerJob) section.getComponentJob(), section);
+                }
+            }
+            final AnalyzerJob analyzerJob =
+                    new AnalyzerJobHelper(analyzerJobs.keySet()).getAnalyzerJob((AnalyzerJob) componentJob);
+            if (analyzerJob != null) {
+                return analyzerJobs.get(analyzerJob);
+            }
+        }
+        return null;
+    }
+
+    private AnalyzerResult getResult(final Section section) {
+        return _loadedResults.computeIfAbsent(section, Section::getResult);
+    }
+}
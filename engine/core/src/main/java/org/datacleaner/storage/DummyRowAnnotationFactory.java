@@ -37,4 +37,9 @@ public class DummyRowAnnotationFactory extends AbstractRowAnnotationFactory2 {
     public List<InputRow> getSampleRows(final RowAnnotation annotation) {
         return Collections.emptyList();
     }
+
+    @Override
+    public boolean isStoringSampleRows() {
+        return false;
+    }
 }
@@ -159,4 +159,9 @@ public final class InMemoryRowAnnotationFactory2 extends AbstractRowAnnotationFa
     public boolean hasSampleRows(final RowAnnotation annotation) {
         return _storage.containsKey(annotation);
     }
+
+    @Override
+    public boolean isStoringSampleRows() {
+        return _maxSampleSets > 0 && _maxSampleRecords > 0;
+    }
 }
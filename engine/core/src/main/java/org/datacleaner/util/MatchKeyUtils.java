@@ -0,0 +1,99 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Utility methods for relating values in memory to values that a datastore
+ * has matched in a query. A datastore compares values using its own collations
+ * and type conversions, which cannot be reproduced in memory in general.
+ * Instead, a loose key collides for values that a datastore may consider equal,
+ * and an exact key only for values that are plainly equal.
+ */
+public final class MatchKeyUtils {
+
+    private MatchKeyUtils() {
+        // prevent instantiation
+    }
+
+    /**
+     * Creates a loose key of a value. Strings that differ by case or
+     * surrounding whitespace (eg. padding of CHAR columns), numbers and numeric
+     * strings with the same value, and dates and timestamps of the same instant
+     * get the same key.
+     *
+     * @param value
+     * @return the key, or null if the value is null
+     */
+    public static Object toLooseKey(final Object value) {
+        if (value instanceof Number) {
+            return toPlainNumber(value);
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        if (value instanceof String) {
+            final String string = ((String) value).trim();
+            if (isNumeric(string)) {
+                try {
+                    return new BigDecimal(string).stripTrailingZeros().toPlainString();
+                } catch (final NumberFormatException e) {
+                    // not a number after all
+                }
+            }
+            return string.toLowerCase(Locale.ROOT);
+        }
+        return value;
+    }
+
+    /**
+     * Creates an exact key of a value. Only numbers are normalized, so that eg.
+     * an integer matches a decimal with the same value.
+     *
+     * @param value
+     * @return the key, or null if the value is null
+     */
+    public static Object toExactKey(final Object value) {
+        if (value instanceof Number) {
+            return toPlainNumber(value);
+        }
+        return value;
+    }
+
+    private static boolean isNumeric(final String string) {
+        if (string.isEmpty()) {
+            return false;
+        }
+        final char c = string.charAt(0);
+        return Character.isDigit(c) || c == '-' || c == '+' || c == '.';
+    }
+
+    private static Object toPlainNumber(final Object value) {
+        try {
+            return new BigDecimal(value.toString()).stripTrailingZeros().toPlainString();
+        } catch (final NumberFormatException e) {
+            // eg. NaN or infinity
+            return value;
+        }
+    }
+}
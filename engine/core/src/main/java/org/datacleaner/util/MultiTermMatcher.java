@@ -0,0 +1,294 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Matches a (potentially large) set of terms against texts in a single pass,
+ * using an Aho-Corasick automaton. Only matches that begin and end on word
+ * boundaries (like the regular expression <code>\b</code>) are found.
+ * Overlapping matches are resolved by letting the longest match win.
+ *
+ * The matcher is immutable once built and can be shared between threads.
+ *
+ * @param <V>
+ *            the type of value associated with each term
+ */
+public final class MultiTermMatcher<V> {
+
+    /**
+     * Represents a single match of a term in a text.
+     *
+     * @param <V>
+     */
+    public static final class Match<V> {
+
+        private final int _start;
+        private final int _end;
+        private final String _term;
+        private final V _value;
+
+        private Match(final int start, final int end, final String term, final V value) {
+            _start = start;
+            _end = end;
+            _term = term;
+            _value = value;
+        }
+
+        /**
+         * @return the index of the first character of the match
+         */
+        public int getStart() {
+            return _start;
+        }
+
+        /**
+         * @return the index after the last character of the match
+         */
+        public int getEnd() {
+            return _end;
+        }
+
+        /**
+         * @return the matched term, as it was added to the matcher
+         */
+        public String getTerm() {
+            return _term;
+        }
+
+        public V getValue() {
+            return _value;
+        }
+
+        @Override
+        public String toString() {
+            return "Match[" + _term + "," + _start + "-" + _end + "]";
+        }
+    }
+
+    private static final class Node {
+
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private final int _depth;
+        private char[] _keys = NO_KEYS;
+        private Node[] _children = NO_CHILDREN;
+        private Node _failure;
+        private Node _outputLink;
+        private int _termIndex = -1;
+
+        private Node(final int depth) {
+            _depth = depth;
+        }
+
+        private Node getChild(final char c) {
+            final int index = Arrays.binarySearch(_keys, c);
+            if (index < 0) {
+                return null;
+            }
+            return _children[index];
+        }
+
+        private Node getOrCreateChild(final char c) {
+            int index = Arrays.binarySearch(_keys, c);
+            if (index >= 0) {
+                return _children[index];
+            }
+            index = -index - 1;
+            final Node child = new Node(_depth + 1);
+            final int length = _keys.length;
+            final char[] keys = new char[length + 1];
+            final Node[] children = new Node[length + 1];
+            System.arraycopy(_keys, 0, keys, 0, index);
+            System.arraycopy(_children, 0, children, 0, index);
+            keys[index] = c;
+            children[index] = child;
+            System.arraycopy(_keys, index, keys, index + 1, length - index);
+            System.arraycopy(_children, index, children, index + 1, length - index);
+            _keys = keys;
+            _children = children;
+            return child;
+        }
+    }
+
+    private static final Comparator<Match<?>> LONGEST_FIRST =
+            Comparator.<Match<?>> comparingInt(m -> m._end - m._start).reversed().thenComparingInt(m -> m._start);
+
+    private final Node _root;
+    private final String[] _terms;
+    private final Object[] _values;
+    private final boolean _caseSensitive;
+
+    /**
+     * Creates a matcher for the given terms.
+     *
+     * @param terms
+     *            a map of terms and their associated values
+     * @param caseSensitive
+     *            whether matching should be case sensitive
+     */
+    public MultiTermMatcher(final Map<String, V> terms, final boolean caseSensitive) {
+        _caseSensitive = caseSensitive;
+        _root = new Node(0);
+        _terms = new String[terms.size()];
+        _values = new Object[terms.size()];
+
+        int termIndex = 0;
+        for (final Entry<String, V> entry : terms.entrySet()) {
+            final String term = entry.getKey();
+            if (term == null || term.isEmpty()) {
+                continue;
+            }
+            Node node = _root;
+            for (int i = 0; i < term.length(); i++) {
+                node = node.getOrCreateChild(fold(term.charAt(i)));
+            }
+            if (node._termIndex == -1) {
+                node._termIndex = termIndex;
+                _terms[termIndex] = term;
+                _values[termIndex] = entry.getValue();
+                termIndex++;
+            }
+        }
+
+        buildFailureLinks();
+    }
+
+    private void buildFailureLinks() {
+        final Deque<Node> queue = new ArrayDeque<>();
+        for (final Node child : _root._children) {
+            child._failure = _root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            final Node node = queue.poll();
+            for (int i = 0; i < node._keys.length; i++) {
+                final char c = node._keys[i];
+                final Node child = node._children[i];
+
+                Node failure = node._failure;
+                while (failure != _root && failure.getChild(c) == null) {
+                    failure = failure._failure;
+                }
+                final Node failureChild = failure.getChild(c);
+                child._failure = failureChild == null ? _root : failureChild;
+                child._outputLink =
+                        child._failure._termIndex == -1 ? child._failure._outputLink : child._failure;
+
+                queue.add(child);
+            }
+        }
+    }
+
+    private char fold(final char c) {
+        if (_caseSensitive) {
+            return c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    public boolean isEmpty() {
+        return _root._keys.length == 0;
+    }
+
+    /**
+     * Finds the matching terms of a text. Matches do not overlap - if terms
+     * overlap, the longest one is matched.
+     *
+     * @param text
+     * @return the list of matches, ordered by their position in the text
+     */
+    public List<Match<V>> findMatches(final String text) {
+        if (text == null || isEmpty()) {
+            return new ArrayList<>(0);
+        }
+
+        final List<Match<V>> candidates = new ArrayList<>();
+        final int length = text.length();
+        Node node = _root;
+        for (int i = 0; i < length; i++) {
+            final char c = fold(text.charAt(i));
+            while (node != _root && node.getChild(c) == null) {
+                node = node._failure;
+            }
+            final Node child = node.getChild(c);
+            node = child == null ? _root : child;
+
+            final int end = i + 1;
+            if (!isWordBoundary(text, end)) {
+                continue;
+            }
+            for (Node output = node._termIndex == -1 ? node._outputLink : node; output != null;
+                    output = output._outputLink) {
+                final int start = end - output._depth;
+                if (isWordBoundary(text, start)) {
+                    candidates.add(createMatch(start, end, output._termIndex));
+                }
+            }
+        }
+
+        if (candidates.size() <= 1) {
+            return candidates;
+        }
+
+        candidates.sort(LONGEST_FIRST);
+        final BitSet matched = new BitSet(length);
+        final List<Match<V>> matches = new ArrayList<>(candidates.size());
+        for (final Match<V> candidate : candidates) {
+            final int nextMatched = matched.nextSetBit(candidate._start);
+            if (nextMatched == -1 || nextMatched >= candidate._end) {
+                matched.set(candidate._start, candidate._end);
+                matches.add(candidate);
+            }
+        }
+        matches.sort(Comparator.comparingInt(Match::getStart));
+        return matches;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Match<V> createMatch(final int start, final int end, final int termIndex) {
+        return new Match<>(start, end, _terms[termIndex], (V) _values[termIndex]);
+    }
+
+    /**
+     * Determines if there is a word boundary at a particular index of a text,
+     * with the same semantics as the <code>\b</code> regular expression
+     * boundary matcher.
+     */
+    private static boolean isWordBoundary(final String text, final int index) {
+        final boolean wordBefore = index > 0 && isWordCharacter(text.charAt(index - 1));
+        final boolean wordAfter = index < text.length() && isWordCharacter(text.charAt(index));
+        return wordBefore != wordAfter;
+    }
+
+    private static boolean isWordCharacter(final char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+}
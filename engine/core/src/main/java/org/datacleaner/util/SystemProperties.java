@@ -19,6 +19,8 @@
  */
 package org.datacleaner.util;
 
+import org.datacleaner.api.QueryOptimizedAnalyzer;
+import org.datacleaner.data.SlottedInputRow;
 import org.datacleaner.job.AnalysisJob;
 
 import com.google.common.base.Strings;
@@ -131,6 +133,111 @@ public class SystemProperties {
      */
     public static final String QUERY_SELECTCLAUSE_OPTIMIZE = "datacleaner.query.selectclause.optimize";
 
+    /**
+     * Property which in case of a "true" value makes DataCleaner push
+     * {@link QueryOptimizedAnalyzer}s down into GROUP BY queries, when they
+     * consume physical columns of a datastore that prefers query optimization
+     * (eg. JDBC databases). Such analyzers will then receive each distinct
+     * value combination once, with a count, instead of every record. Analyzers
+     * whose annotated rows are shown to the user are only pushed down when the
+     * storage provider does not keep sample rows.
+     */
+    public static final String QUERY_AGGREGATE_PUSHDOWN = "datacleaner.query.aggregate.pushdown";
+
+    /**
+     * Determines how many source rows are handed to a worker thread in one
+     * task. A value of 1 submits a task per row, larger values submit
+     * fixed-size chunks of rows which reduces task handoff overhead on big
+     * tables. If not set, a task is submitted per row unless the job contains
+     * vectorized transformers, in which case the chunk size adapts to the
+     * throughput of those transformers.
+     */
+    public static final String ROW_PROCESSING_BATCH_SIZE = "datacleaner.rowprocessing.batchsize";
+
+    /**
+     * Determines into how many partitions a source table is split for
+     * concurrent reading. Partitioning is done by primary key ranges and only
+     * applies to datastores that evaluate queries natively (eg. JDBC databases)
+     * and tables with a single integer primary key. Defaults to 1, ie. no
+     * partitioning.
+     */
+    public static final String ROW_PROCESSING_PARTITIONS = "datacleaner.rowprocessing.partitions";
+
+    /**
+     * Property which in case of a "true" value makes DataCleaner collapse
+     * identical source rows into a single row with a distinct count, when a
+     * table is consumed only by analyzers. Grouping is done by the database
+     * when possible, otherwise in memory.
+     */
+    public static final String ROW_PROCESSING_COLLAPSE_DUPLICATES = "datacleaner.rowprocessing.collapseduplicates";
+
+    /**
+     * Property which in case of a "true" value makes transformers store their
+     * output values in flat, array-based records with precomputed column
+     * slots (see {@link SlottedInputRow}) instead of map-based records.
+     */
+    public static final String ROW_PROCESSING_COMPILED_ROW_LAYOUT = "datacleaner.rowprocessing.rowlayout.compiled";
+
+    /**
+     * Property which in case of a "true" value makes text file based
+     * dictionaries and synonym catalogs compile their files into binary,
+     * memory-mapped index files. The indexes are shared by all connections
+     * within the JVM and rebuilt when the source file changes.
+     */
+    public static final String REFERENCE_DATA_INDEX = "datacleaner.referencedata.index";
+
+    /**
+     * Property for the directory where reference data index files are
+     * stored. The directory is restricted to the current user. Defaults to a
+     * user specific folder in the temp directory.
+     */
+    public static final String REFERENCE_DATA_INDEX_DIRECTORY = "datacleaner.referencedata.index.dir";
+
+    /**
+     * Property which in case of a "true" value makes datastore dictionaries
+     * that are not loaded into memory answer lookups using a bloom filter of
+     * the dictionary column (built once per connection), confirming positive
+     * candidates with batched queries behind a bounded cache.
+     */
+    public static final String REFERENCE_DATA_DATASTORE_DICTIONARY_BLOOM_FILTER =
+            "datacleaner.referencedata.datastoredictionary.bloomfilter";
+
+    /**
+     * Property for the max number of confirmed lookups to cache per datastore
+     * dictionary connection, when using bloom filter lookups. Defaults to
+     * 10000.
+     */
+    public static final String REFERENCE_DATA_DATASTORE_DICTIONARY_CACHE_SIZE =
+            "datacleaner.referencedata.datastoredictionary.cachesize";
+
+    /**
+     * Property for the directory where persisted table lookup caches are
+     * stored. The directory is restricted to the current user. Defaults to a
+     * user specific folder in the temp directory.
+     */
+    public static final String TABLE_LOOKUP_CACHE_DIRECTORY = "datacleaner.tablelookup.cache.dir";
+
+    /**
+     * Property for the max number of batches that a remote transformer may
+     * have in flight (ie. sent to the server and awaiting a response) at the
+     * same time. Defaults to 4.
+     */
+    public static final String REMOTE_COMPONENTS_MAX_IN_FLIGHT = "datacleaner.remote.components.maxinflight";
+
+    /**
+     * Property for the max number of records to send to a remote transformer
+     * in a single request. Defaults to 200.
+     */
+    public static final String REMOTE_COMPONENTS_MAX_BATCH_SIZE = "datacleaner.remote.components.maxbatchsize";
+
+    /**
+     * Property for the max size (in bytes of serialized JSON) of the records
+     * sent to a remote transformer in a single request. Larger batches are
+     * split into multiple requests which are sent concurrently. Defaults to
+     * 1048576 (1 MB).
+     */
+    public static final String REMOTE_COMPONENTS_MAX_BATCH_BYTES = "datacleaner.remote.components.maxbatchbytes";
+
     /**
      * Gets a system property string, or a replacement value if the property is
      * null or blank.
@@ -19,14 +19,22 @@
  */
 package org.datacleaner.util;
 
+import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.metamodel.util.Action;
+import org.datacleaner.job.concurrent.DaemonThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,35 +42,120 @@ import org.slf4j.LoggerFactory;
  * Provides a buffering mechanism that enables writing rows periodically instead
  * of instantly.
  * 提供一种缓冲机制，该机制使定期（而不是立即）写入行成为可能。
+ *
+ * By default the buffer is flushed on the thread that fills it. If more than
+ * one buffer is requested, full buffers are instead handed over to a dedicated
+ * writer thread (which flushes them in order) while the row producing threads
+ * continue filling a new buffer. Producers are only blocked when all buffers
+ * are full.
  */
-public class WriteBuffer {
+public class WriteBuffer implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(WriteBuffer.class);
 
     private final BlockingQueue<Object[]> _buffer;
     private final Action<Iterable<Object[]>> _flushAction;
     private final AtomicInteger _batchNumber;
+    private final int _bufferCount;
+    private final ExecutorService _writerExecutor;
+    private final Semaphore _availableBuffers;
+    private final AtomicReference<RuntimeException> _asyncError;
+
+    private final AtomicInteger _flushCount;
+    private final AtomicLong _totalFlushNanos;
+    private final AtomicLong _maxFlushNanos;
+    private final AtomicLong _backpressureNanos;
+    private final AtomicInteger _pendingRowCount;
+    private final AtomicInteger _maxQueuedRowCount;
 
     public WriteBuffer(final int bufferSize, final Action<Iterable<Object[]>> flushAction) {
+        this(bufferSize, flushAction, 1);
+    }
+
+    /**
+     * Creates a write buffer.
+     *
+     * @param bufferSize
+     *            the number of rows in each buffer
+     * @param flushAction
+     *            the action to invoke when flushing a buffer
+     * @param bufferCount
+     *            the number of buffers. A value of 1 means that the buffer is
+     *            flushed synchronously on the thread that fills it, higher
+     *            values mean that buffers are flushed asynchronously on a
+     *            dedicated writer thread.
+     */
+    public WriteBuffer(final int bufferSize, final Action<Iterable<Object[]>> flushAction, final int bufferCount) {
         if (bufferSize <= 0) {
             throw new IllegalArgumentException("Buffer size must be a positive integer");
         }
+        if (bufferCount <= 0) {
+            throw new IllegalArgumentException("Buffer count must be a positive integer");
+        }
         _batchNumber = new AtomicInteger();
         _buffer = new ArrayBlockingQueue<>(bufferSize);
         _flushAction = flushAction;
+        _bufferCount = bufferCount;
+        if (bufferCount > 1) {
+            _writerExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory());
+            _availableBuffers = new Semaphore(bufferCount - 1);
+        } else {
+            _writerExecutor = null;
+            _availableBuffers = null;
+        }
+        _asyncError = new AtomicReference<>();
+
+        _flushCount = new AtomicInteger();
+        _totalFlushNanos = new AtomicLong();
+        _maxFlushNanos = new AtomicLong();
+        _backpressureNanos = new AtomicLong();
+        _pendingRowCount = new AtomicInteger();
+        _maxQueuedRowCount = new AtomicInteger();
     }
 
     protected Queue<Object[]> getBuffer() {
         return _buffer;
     }
 
+    public boolean isAsynchronous() {
+        return _writerExecutor != null;
+    }
+
+    /**
+     * @return the number of rows that are currently buffered or waiting to be
+     *         flushed
+     */
+    public int getQueuedRowCount() {
+        return _buffer.size() + _pendingRowCount.get();
+    }
+
+    public WriteBufferStatistics getStatistics() {
+        return new WriteBufferStatistics(_flushCount.get(), TimeUnit.NANOSECONDS.toMillis(_totalFlushNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(_maxFlushNanos.get()), _maxQueuedRowCount.get(),
+                TimeUnit.NANOSECONDS.toMillis(_backpressureNanos.get()));
+    }
+
     public final void addToBuffer(final Object[] rowData) {
+        checkAsyncError();
         while (!_buffer.offer(rowData)) {
-            flushBuffer();
+            submitBuffer();
         }
     }
 
+    /**
+     * Flushes the buffered rows. In asynchronous mode this method also waits
+     * for all previously submitted buffers to be written.
+     */
     public final void flushBuffer() {
+        submitBuffer();
+        if (isAsynchronous()) {
+            awaitAvailableBuffers();
+            _availableBuffers.release(_bufferCount - 1);
+            checkAsyncError();
+        }
+    }
+
+    private void submitBuffer() {
         final int flushSize = _buffer.size();
         if (flushSize == 0) {
             return;
@@ -79,16 +172,93 @@ public class WriteBuffer {
             return;
         }
 
+        final int pendingRowCount = _pendingRowCount.addAndGet(copy.size());
+        _maxQueuedRowCount.accumulateAndGet(pendingRowCount + _buffer.size(), Math::max);
+
+        if (!isAsynchronous()) {
+            // the producing thread is blocked for the whole flush
+            final long writeStart = System.nanoTime();
+            try {
+                write(copy);
+            } finally {
+                _backpressureNanos.addAndGet(System.nanoTime() - writeStart);
+                _pendingRowCount.addAndGet(-copy.size());
+            }
+            return;
+        }
+
+        final long waitStart = System.nanoTime();
+        awaitAvailableBuffer();
+        _backpressureNanos.addAndGet(System.nanoTime() - waitStart);
+
+        _writerExecutor.execute(() -> {
+            try {
+                if (_asyncError.get() == null) {
+                    write(copy);
+                }
+            } catch (final RuntimeException e) {
+                logger.error("Write batch failed asynchronously", e);
+                _asyncError.compareAndSet(null, e);
+            } finally {
+                _pendingRowCount.addAndGet(-copy.size());
+                _availableBuffers.release();
+            }
+        });
+    }
+
+    private void write(final List<Object[]> rows) {
+        final long start = System.nanoTime();
         try {
             final int batchNo = _batchNumber.incrementAndGet();
             logger.info("Write batch no. {} starting", batchNo);
-            _flushAction.run(copy);
+            _flushAction.run(rows);
             logger.info("Write batch no. {} finished", batchNo);
         } catch (final Exception e) {
             if (e instanceof RuntimeException) {
                 throw (RuntimeException) e;
             }
             throw new IllegalStateException(e);
+        } finally {
+            final long flushNanos = System.nanoTime() - start;
+            _flushCount.incrementAndGet();
+            _totalFlushNanos.addAndGet(flushNanos);
+            _maxFlushNanos.accumulateAndGet(flushNanos, Math::max);
+        }
+    }
+
+    private void awaitAvailableBuffer() {
+        try {
+            _availableBuffers.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for write buffer", e);
+        }
+    }
+
+    private void awaitAvailableBuffers() {
+        try {
+            _availableBuffers.acquire(_bufferCount - 1);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for write buffers to be flushed", e);
+        }
+    }
+
+    private void checkAsyncError() {
+        final RuntimeException error = _asyncError.get();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Stops the writer thread (if asynchronous). Rows that have not been
+     * flushed using {@link #flushBuffer()} will not be written.
+     */
+    @Override
+    public void close() {
+        if (_writerExecutor != null) {
+            _writerExecutor.shutdownNow();
         }
     }
 }
@@ -0,0 +1,105 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.io.Serializable;
+
+/**
+ * Snapshot of the statistics of a {@link WriteBuffer}, which can be used to
+ * determine whether the writing (eg. the target database) or the pipeline
+ * producing the rows is the bottleneck.
+ */
+public final class WriteBufferStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _flushCount;
+    private final long _totalFlushMillis;
+    private final long _maxFlushMillis;
+    private final int _maxQueuedRowCount;
+    private final long _backpressureMillis;
+
+    public WriteBufferStatistics(final int flushCount, final long totalFlushMillis, final long maxFlushMillis,
+            final int maxQueuedRowCount, final long backpressureMillis) {
+        _flushCount = flushCount;
+        _totalFlushMillis = totalFlushMillis;
+        _maxFlushMillis = maxFlushMillis;
+        _maxQueuedRowCount = maxQueuedRowCount;
+        _backpressureMillis = backpressureMillis;
+    }
+
+    /**
+     * @return the number of batches flushed
+     */
+    public int getFlushCount() {
+        return _flushCount;
+    }
+
+    /**
+     * @return the total time spent flushing batches, in milliseconds
+     */
+    public long getTotalFlushMillis() {
+        return _totalFlushMillis;
+    }
+
+    /**
+     * @return the average time spent flushing a batch, in milliseconds
+     */
+    public double getAverageFlushMillis() {
+        if (_flushCount == 0) {
+            return 0;
+        }
+        return (double) _totalFlushMillis / _flushCount;
+    }
+
+    /**
+     * @return the longest time spent flushing a batch, in milliseconds
+     */
+    public long getMaxFlushMillis() {
+        return _maxFlushMillis;
+    }
+
+    /**
+     * @return the peak number of rows that were buffered or waiting to be
+     *         flushed
+     */
+    public int getMaxQueuedRowCount() {
+        return _maxQueuedRowCount;
+    }
+
+    /**
+     * Gets the total time that row producing threads were blocked waiting for
+     * rows to be written. In synchronous mode this is the time spent flushing
+     * on the producing threads, in asynchronous mode it is the time spent
+     * waiting for a free buffer.
+     *
+     * @return the backpressure time, in milliseconds
+     */
+    public long getBackpressureMillis() {
+        return _backpressureMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBufferStatistics[flushes=" + _flushCount + ",averageFlushMillis=" + getAverageFlushMillis()
+                + ",maxFlushMillis=" + _maxFlushMillis + ",maxQueuedRows=" + _maxQueuedRowCount
+                + ",backpressureMillis=" + _backpressureMillis + "]";
+    }
+}
@@ -27,6 +27,7 @@ final class BatchEntry<I, O> {
     private final I _input;
     private final CountDownLatch _countDownLatch;
     private volatile O _output;
+    private volatile boolean _dispatched;
 
     public BatchEntry(final I input) {
         _input = input;
@@ -41,6 +42,20 @@ final class BatchEntry<I, O> {
         return _output;
     }
 
+    /**
+     * Determines if this entry has been taken from the queue to be part of a
+     * batch.
+     *
+     * @return
+     */
+    public boolean isDispatched() {
+        return _dispatched;
+    }
+
+    public void setDispatched() {
+        _dispatched = true;
+    }
+
     public void setOutput(final O output) {
         _output = output;
         _countDownLatch.countDown();
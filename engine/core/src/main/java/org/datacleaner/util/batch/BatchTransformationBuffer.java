@@ -25,6 +25,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -39,6 +40,14 @@ import org.slf4j.LoggerFactory;
  * {@link Transformer}.
  * 一个批处理转换缓冲区实用程序，用于归档次要批处理操作，同时保留{@link Transformer}的一对一转换接口。
  *
+ * By default the buffer only flushes full batches from the transforming
+ * threads, and relies on a scheduled flush for the rest. Alternatively a max
+ * number of in-flight batches can be specified, in which case the waiting
+ * threads flush the buffer themselves whenever less batches than that are
+ * being transformed ("group commit"), so that entries arriving while batches
+ * are in flight are collected into the next batch. This keeps latency low
+ * without relying on a timer.
+ *
  * @param <I>
  *            the input type
  * @param <O>
@@ -59,6 +68,7 @@ public class BatchTransformationBuffer<I, O> {
     private final int _maxBatchSize;
     private final ScheduledExecutorService _threadPool;
     private final int _flushInterval;
+    private final Semaphore _inFlightBatches;
 
     private Throwable exception;
 
@@ -68,17 +78,43 @@ public class BatchTransformationBuffer<I, O> {
 
     public BatchTransformationBuffer(final BatchTransformation<I, O> transformation, final int maxBatchSize,
             final int flushIntervalMillis) {
+        this(transformation, maxBatchSize, flushIntervalMillis, 0);
+    }
+
+    /**
+     * Creates a {@link BatchTransformationBuffer}.
+     *
+     * @param transformation
+     * @param maxBatchSize
+     *            the max number of entries in a batch
+     * @param flushIntervalMillis
+     *            the interval of the scheduled flush, or 0 to disable it
+     *            (only possible when maxInFlightBatches is set)
+     * @param maxInFlightBatches
+     *            the max number of batches to transform concurrently, flushed
+     *            eagerly by the waiting threads, or 0 to only flush full
+     *            batches and otherwise rely on the scheduled flush
+     */
+    public BatchTransformationBuffer(final BatchTransformation<I, O> transformation, final int maxBatchSize,
+            final int flushIntervalMillis, final int maxInFlightBatches) {
+        if (flushIntervalMillis <= 0 && maxInFlightBatches <= 0) {
+            throw new IllegalArgumentException("Either a flush interval or max in-flight batches must be specified");
+        }
         _transformation = transformation;
         _flushInterval = flushIntervalMillis;
         _maxBatchSize = maxBatchSize;
         _queue = new ArrayBlockingQueue<>(maxBatchSize);
         _batchNo = new AtomicInteger();
         _threadPool = Executors.newScheduledThreadPool(1);
+        _inFlightBatches = maxInFlightBatches > 0 ? new Semaphore(maxInFlightBatches) : null;
     }
 
     public void start() {
         logger.info("start()");
-        _threadPool.scheduleAtFixedRate(createFlushCommand(), _flushInterval, _flushInterval, TimeUnit.MILLISECONDS);
+        if (_flushInterval > 0) {
+            _threadPool.scheduleAtFixedRate(createFlushCommand(), _flushInterval, _flushInterval,
+                    TimeUnit.MILLISECONDS);
+        }
     }
 
     private Runnable createFlushCommand() {
@@ -108,7 +144,7 @@ public class BatchTransformationBuffer<I, O> {
             // do nothing when queue is empty
             return;
         }
-        if (!scheduled) {
+        if (!scheduled && _inFlightBatches == null) {
             if (_queue.size() < _maxBatchSize) {
                 logger.debug("Batch ignored, flush operation not scheduled and queue is not full");
                 return;
@@ -128,11 +164,13 @@ public class BatchTransformationBuffer<I, O> {
 
         final int batchNumber = _batchNo.incrementAndGet();
 
-        logger.info("Batch #{} - Preparing {} entries, scheduled={}", batchNumber, batchSize, scheduled);
+        logger.debug("Batch #{} - Preparing {} entries, scheduled={}", batchNumber, batchSize, scheduled);
 
         final Object[] input = new Object[batchSize];
         for (int i = 0; i < batchSize; i++) {
-            input[i] = entries.get(i).getInput();
+            final BatchEntry<?, O> entry = entries.get(i);
+            entry.setDispatched();
+            input[i] = entry.getInput();
         }
 
         final BatchSource<I> source = new ArrayBatchSource<>(input);
@@ -140,7 +178,7 @@ public class BatchTransformationBuffer<I, O> {
 
         _transformation.map(source, sink);
 
-        logger.info("Batch #{} - Finished", batchNumber, batchSize);
+        logger.debug("Batch #{} - Finished", batchNumber, batchSize);
     }
 
     public void shutdown() {
@@ -149,6 +187,10 @@ public class BatchTransformationBuffer<I, O> {
     }
 
     public O transform(final I input) {
+        if (_inFlightBatches != null) {
+            return transformGroupCommit(input);
+        }
+
         final BatchEntry<I, O> entry = new BatchEntry<>(input);
 
         while (!_queue.offer(entry)) {
@@ -187,6 +229,58 @@ public class BatchTransformationBuffer<I, O> {
         }
     }
 
+    /**
+     * Transforms an entry by either flushing the buffer (if less than the max
+     * number of batches are in flight) or waiting for another thread to do so.
+     */
+    private O transformGroupCommit(final I input) {
+        final BatchEntry<I, O> entry = new BatchEntry<>(input);
+
+        int attemptIndex = 0;
+        boolean queued = false;
+        while (true) {
+            rethrowException();
+            if (_threadPool.isShutdown()) {
+                rethrowException();
+                throw new PreviousErrorsExistException("Transformer closed");
+            }
+            final long waitTime = (attemptIndex < AWAIT_TIMES.length
+                    ? AWAIT_TIMES[attemptIndex]
+                    : AWAIT_TIMES[AWAIT_TIMES.length - 1]);
+
+            try {
+                if (!queued) {
+                    queued = _queue.offer(entry);
+                }
+                if (!queued || !entry.isDispatched()) {
+                    // wait for a free slot and then flush the queue,
+                    // including whatever entries arrived in the meantime
+                    if (_inFlightBatches.tryAcquire(waitTime, TimeUnit.MILLISECONDS)) {
+                        try {
+                            flushBuffer(false);
+                        } finally {
+                            _inFlightBatches.release();
+                        }
+                    } else {
+                        attemptIndex++;
+                    }
+                } else if (entry.await(waitTime)) {
+                    return entry.getOuput();
+                } else {
+                    attemptIndex++;
+                }
+            } catch (final Exception e) {
+                if (exception == null) {
+                    exception = e;
+                }
+                if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                }
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
     /** Re-throws the exception from background thread */
     private void rethrowException() {
         if (exception != null) {
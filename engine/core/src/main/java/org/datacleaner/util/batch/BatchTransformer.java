@@ -33,12 +33,13 @@ public abstract class BatchTransformer implements Transformer, BatchTransformati
     private final BatchTransformationBuffer<InputRow, Object[]> _batchTransformationBuffer;
 
     public BatchTransformer() {
-        _batchTransformationBuffer = new BatchTransformationBuffer<>(this, getMaxBatchSize(), getFlushIntervalMillis());
+        _batchTransformationBuffer = new BatchTransformationBuffer<>(this, getMaxBatchSize(), getFlushIntervalMillis(),
+                getMaxInFlightBatches());
     }
 
     /**
      * Overrideable method to define the number of milliseconds between flushes
-     * of the batch buffer.
+     * of the batch buffer, or 0 to disable scheduled flushes.
      *
      * @return
      */
@@ -55,6 +56,19 @@ public abstract class BatchTransformer implements Transformer, BatchTransformati
         return BatchTransformationBuffer.DEFAULT_MAX_BATCH_SIZE;
     }
 
+    /**
+     * Overrideable method to define the max number of batches to transform
+     * concurrently. If positive, the batch buffer is flushed by the
+     * transforming threads whenever less batches are in flight, see
+     * {@link BatchTransformationBuffer}. If 0 (the default) only full batches
+     * are flushed right away and the rest relies on the scheduled flush.
+     *
+     * @return
+     */
+    protected int getMaxInFlightBatches() {
+        return 0;
+    }
+
     @Initialize
     public final void initialize() {
         _batchTransformationBuffer.start();
@@ -0,0 +1,497 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.metamodel.util.FileHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sorter and deduplicator that uses temporary files as storage to support high
+ * volume sorted data.
+ *
+ * Rows are appended to per-thread buffers (so concurrent appenders do not
+ * contend for a lock), which are sorted and deduplicated when full and, if
+ * still too large, spilled to a temporary "run" file. Each run file is a
+ * single object stream, so object graphs that rows share (eg. the header of
+ * MetaModel rows) are written once per run file rather than once per row.
+ * When sorting, runs are merged using a heap-based k-way merge with a bounded
+ * fan-in; if there are more runs than the fan-in allows, intermediate merges
+ * are performed in parallel first.
+ *
+ * Rows which are equal according to the comparator are collapsed into a single
+ * row with the sum of their counts.
+ *
+ * @param <R>
+ *            the row type, HAS to be serializable
+ */
+public class ExternalSorter<R extends Serializable> {
+
+    /**
+     * Receiver of the sorted rows
+     *
+     * @param <R>
+     *            the row type
+     */
+    @FunctionalInterface
+    public interface SortedRowHandler<R> {
+
+        void handle(R row, int count) throws IOException;
+    }
+
+    /**
+     * A row and its count in a buffer or a run
+     */
+    private static final class CountedRow<R> {
+
+        private final R _row;
+        private int _count;
+
+        CountedRow(final R row, final int count) {
+            _row = row;
+            _count = count;
+        }
+    }
+
+    /**
+     * Buffer of rows appended by a single thread. Deliberately static and
+     * without a reference to the sorter, so that a buffer which lingers in the
+     * thread local map of a pooled thread does not keep the sorter alive.
+     */
+    private static final class ThreadBuffer<R> {
+
+        private List<CountedRow<R>> _rows = new ArrayList<>();
+    }
+
+    /**
+     * Writer of a temporary run file
+     */
+    private final class RunWriter implements Closeable {
+
+        private final ObjectOutputStream _out;
+        private int _rowsSinceReset;
+
+        RunWriter(final File file) throws IOException {
+            _out = new ObjectOutputStream(openTempFileOutput(file));
+        }
+
+        void write(final R row, final int count) throws IOException {
+            _out.writeBoolean(true);
+            writeTempRow(_out, row);
+            _out.writeInt(count);
+            if (++_rowsSinceReset == TEMP_FILE_RESET_INTERVAL) {
+                // the stream keeps a reference to every object written
+                // since the last reset
+                _out.reset();
+                _rowsSinceReset = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                _out.writeBoolean(false);
+            } finally {
+                _out.close();
+            }
+        }
+    }
+
+    /**
+     * Reader of a temporary run file, holding its current row
+     */
+    private final class RunReader implements Closeable {
+
+        private final ObjectInputStream _in;
+        private CountedRow<R> _current;
+
+        RunReader(final File file) throws IOException {
+            _in = new ObjectInputStream(openTempFileInput(file));
+        }
+
+        boolean next() throws IOException {
+            if (!_in.readBoolean()) {
+                _current = null;
+                return false;
+            }
+            final R row = readTempRow(_in);
+            final int count = _in.readInt();
+            _current = new CountedRow<>(row, count);
+            return true;
+        }
+
+        @Override
+        public void close() {
+            FileHelper.safeClose(_in);
+        }
+    }
+
+    public static final int DEFAULT_MERGE_FAN_IN = 64;
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalSorter.class);
+
+    private static final int TEMP_FILE_BUFFER_SIZE = 64 * 1024;
+    private static final byte TEMP_ROW_STRING = 1;
+    private static final byte TEMP_ROW_SERIALIZED = 2;
+    private static final int TEMP_FILE_RESET_INTERVAL = 1000;
+
+    /**
+     * Size of the "records in memory" buffer (per appending thread)
+     */
+    private final int _bufferSize;
+
+    /**
+     * Comparator for row sorting
+     */
+    private final Comparator<? super R> _comparator;
+
+    /**
+     * List of temporary files containing sorted runs of values
+     */
+    private final List<File> _tempFiles;
+
+    /**
+     * Buffers containing rows in memory, one per appending thread
+     */
+    private final List<ThreadBuffer<R>> _buffers;
+    private final ThreadLocal<ThreadBuffer<R>> _threadBuffer;
+
+    /**
+     * Creates an external sorter.
+     *
+     * @param bufferSize
+     *            the number of rows to buffer in memory before sorting (and
+     *            possibly spilling) them. Every appending thread has its own
+     *            buffer, so up to the number of appending threads times this
+     *            size of rows may be held in memory.
+     * @param comparator
+     */
+    public ExternalSorter(final int bufferSize, final Comparator<? super R> comparator) {
+        _bufferSize = bufferSize;
+        _tempFiles = Collections.synchronizedList(new ArrayList<>());
+        _buffers = new CopyOnWriteArrayList<>();
+        _threadBuffer = ThreadLocal.withInitial(() -> {
+            final ThreadBuffer<R> buffer = new ThreadBuffer<>();
+            _buffers.add(buffer);
+            return buffer;
+        });
+        _comparator = comparator;
+    }
+
+    public void append(final R row) {
+        append(row, 1);
+    }
+
+    /**
+     * Appends a row.
+     *
+     * @param row
+     *            the row, must not be null
+     * @param count
+     *            the number of times the row occurs
+     */
+    public void append(final R row, final int count) {
+        final ThreadBuffer<R> buffer = _threadBuffer.get();
+        synchronized (buffer) {
+            buffer._rows.add(new CountedRow<>(row, count));
+            if (buffer._rows.size() >= _bufferSize) {
+                buffer._rows = sortAndCollapse(buffer._rows);
+                if (buffer._rows.size() * 2 > _bufferSize) {
+                    final List<CountedRow<R>> rows = buffer._rows;
+                    buffer._rows = new ArrayList<>();
+                    flushBuffer(rows);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands all appended rows, in sorted order, to a handler. Afterwards the
+     * sorter is empty.
+     *
+     * @param handler
+     * @throws IOException
+     */
+    public void sort(final SortedRowHandler<? super R> handler) throws IOException {
+        try {
+            if (_tempFiles.isEmpty()) {
+                logger.info("No temp files created yet, sorting buffered rows in memory");
+                final List<CountedRow<R>> rows = new ArrayList<>();
+                for (final ThreadBuffer<R> buffer : _buffers) {
+                    rows.addAll(drain(buffer));
+                }
+                for (final CountedRow<R> row : sortAndCollapse(rows)) {
+                    handler.handle(row._row, row._count);
+                }
+            } else {
+                for (final ThreadBuffer<R> buffer : _buffers) {
+                    final List<CountedRow<R>> rows = drain(buffer);
+                    if (!rows.isEmpty()) {
+                        flushBuffer(rows);
+                    }
+                }
+
+                final List<File> runs = reduceRuns(new ArrayList<>(_tempFiles));
+                _tempFiles.clear();
+                try {
+                    merge(runs, handler);
+                } finally {
+                    deleteFiles(runs);
+                }
+            }
+        } finally {
+            _threadBuffer.remove();
+        }
+    }
+
+    private List<CountedRow<R>> drain(final ThreadBuffer<R> buffer) {
+        synchronized (buffer) {
+            final List<CountedRow<R>> rows = sortAndCollapse(buffer._rows);
+            buffer._rows = new ArrayList<>();
+            return rows;
+        }
+    }
+
+    private List<CountedRow<R>> sortAndCollapse(final List<CountedRow<R>> rows) {
+        rows.sort((o1, o2) -> _comparator.compare(o1._row, o2._row));
+
+        final List<CountedRow<R>> result = new ArrayList<>(rows.size());
+        CountedRow<R> previous = null;
+        for (final CountedRow<R> row : rows) {
+            if (previous != null && _comparator.compare(previous._row, row._row) == 0) {
+                previous._count += row._count;
+            } else {
+                result.add(row);
+                previous = row;
+            }
+        }
+        return result;
+    }
+
+    private void flushBuffer(final List<CountedRow<R>> sortedRows) {
+        logger.debug("flushBuffer()");
+        try {
+            final File file = createTempFile();
+            logger.info("Writing {} rows to temporary file: {}", sortedRows.size(), file);
+
+            try (RunWriter out = new RunWriter(file)) {
+                for (final CountedRow<R> row : sortedRows) {
+                    out.write(row._row, row._count);
+                }
+            }
+            _tempFiles.add(file);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private OutputStream openTempFileOutput(final File file) throws IOException {
+        final OutputStream out = new FileOutputStream(file);
+        if (isCompressingTempFiles()) {
+            return new GZIPOutputStream(out, TEMP_FILE_BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(out, TEMP_FILE_BUFFER_SIZE);
+    }
+
+    private InputStream openTempFileInput(final File file) throws IOException {
+        final InputStream in = new FileInputStream(file);
+        if (isCompressingTempFiles()) {
+            return new GZIPInputStream(in, TEMP_FILE_BUFFER_SIZE);
+        }
+        return new BufferedInputStream(in, TEMP_FILE_BUFFER_SIZE);
+    }
+
+    protected File createTempFile() throws IOException {
+        final File file = File.createTempFile("sort_merge", ".dat");
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Writes a row to a temporary file. All rows of a temporary file are
+     * written to the same object stream. The default implementation writes
+     * strings as length-prefixed UTF-8 and other rows as objects. Subclasses
+     * can overwrite this method (along with {@link #readTempRow(ObjectInput)})
+     * to provide a more compact format.
+     *
+     * @param out
+     * @param row
+     * @throws IOException
+     */
+    protected void writeTempRow(final ObjectOutput out, final R row) throws IOException {
+        if (row instanceof String) {
+            out.writeByte(TEMP_ROW_STRING);
+            final byte[] bytes = ((String) row).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else {
+            out.writeByte(TEMP_ROW_SERIALIZED);
+            out.writeObject(row);
+        }
+    }
+
+    /**
+     * Reads a row written by {@link #writeTempRow(ObjectOutput, Serializable)}.
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    @SuppressWarnings("unchecked")
+    protected R readTempRow(final ObjectInput in) throws IOException {
+        final byte type = in.readByte();
+        if (type == TEMP_ROW_STRING) {
+            final byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return (R) new String(bytes, StandardCharsets.UTF_8);
+        }
+        try {
+            return (R) in.readObject();
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Should temporary files be compressed? Compression trades CPU for disk
+     * I/O, which is typically beneficial on slow disks. Subclasses can
+     * overwrite this method to define that behaviour.
+     *
+     * @return
+     */
+    protected boolean isCompressingTempFiles() {
+        return false;
+    }
+
+    /**
+     * Determines the max number of temporary files to merge at a time.
+     * Subclasses can overwrite this method to define that behaviour.
+     *
+     * @return
+     */
+    protected int getMergeFanIn() {
+        return DEFAULT_MERGE_FAN_IN;
+    }
+
+    /**
+     * Merges groups of runs into (fewer, larger) runs until the number of runs
+     * fits within the merge fan-in. Groups are merged in parallel.
+     */
+    private List<File> reduceRuns(List<File> runs) {
+        final int fanIn = Math.max(2, getMergeFanIn());
+        while (runs.size() > fanIn) {
+            final List<List<File>> groups = new ArrayList<>();
+            for (int i = 0; i < runs.size(); i += fanIn) {
+                groups.add(runs.subList(i, Math.min(i + fanIn, runs.size())));
+            }
+            logger.info("Merging {} temporary files into {}", runs.size(), groups.size());
+            runs = groups.parallelStream().map(this::mergeToTempFile).collect(Collectors.toList());
+        }
+        return runs;
+    }
+
+    private File mergeToTempFile(final List<File> runs) {
+        if (runs.size() == 1) {
+            return runs.get(0);
+        }
+        try {
+            final File file = createTempFile();
+            try (RunWriter out = new RunWriter(file)) {
+                merge(runs, out::write);
+            }
+            deleteFiles(runs);
+            return file;
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void merge(final List<File> runs, final SortedRowHandler<? super R> handler) throws IOException {
+        final PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()),
+                (o1, o2) -> _comparator.compare(o1._current._row, o2._current._row));
+        final List<RunReader> readers = new ArrayList<>(runs.size());
+        try {
+            for (final File run : runs) {
+                final RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                final R row = reader._current._row;
+                int count = reader._current._count;
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+
+                // sum up the counts of equal rows from other runs
+                while (!queue.isEmpty() && _comparator.compare(queue.peek()._current._row, row) == 0) {
+                    reader = queue.poll();
+                    count += reader._current._count;
+                    if (reader.next()) {
+                        queue.add(reader);
+                    }
+                }
+
+                handler.handle(row, count);
+            }
+        } finally {
+            for (final RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private void deleteFiles(final List<File> files) {
+        for (final File file : files) {
+            if (!file.delete()) {
+                logger.debug("Could not delete temporary file: {}", file);
+            }
+        }
+    }
+}
@@ -20,135 +20,64 @@
 package org.datacleaner.util.sort;
 
 import java.io.Closeable;
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.FileResource;
 import org.apache.metamodel.util.Resource;
-import org.datacleaner.util.ImmutableEntry;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Sorter, deduplicator and writer that uses temporary files as storage to
  * support high volume sorted data.
  * 使用临时文件作为存储的排序器，重复数据删除器和编写器支持大量排序的数据。
  *
+ * Sorting and deduplication is done by the {@link ExternalSorter} that this
+ * class extends, while this class writes the sorted rows (and nulls, which are
+ * not passed to the sorter) to the final destination.
+ *
  * @param <R>
  *            the row type, HAS to be serializable
  * @param <W>
  *            the writer type used when writing a row to the final destination
  *            file.
  */
-public abstract class SortMergeWriter<R extends Serializable, W extends Closeable> {
-
-    private static final Logger logger = LoggerFactory.getLogger(SortMergeWriter.class);
-
-    /**
-     * Size of the "records in memory" buffer
-     */
-    private final int _bufferSize;
-
-    /**
-     * Comparator for row sorting
-     */
-    private final Comparator<? super R> _comparator;
-
-    /**
-     * List of temporary files containing values
-     */
-    private final List<File> _tempFiles;
+public abstract class SortMergeWriter<R extends Serializable, W extends Closeable> extends ExternalSorter<R> {
 
-    /**
-     * Buffer containing sorted rows in memory
-     */
-    private final Map<R, Integer> _buffer;
-    private AtomicInteger _nullCount;
+    private final AtomicInteger _nullCount;
 
     public SortMergeWriter(final Comparator<? super R> comparator) {
         this(50000, comparator);
     }
 
+    /**
+     * Creates a sort merge writer.
+     *
+     * @param bufferSize
+     *            the number of rows to buffer in memory before sorting (and
+     *            possibly spilling) them. Every appending thread has its own
+     *            buffer, so up to the number of appending threads times this
+     *            size of rows may be held in memory.
+     * @param comparator
+     */
     public SortMergeWriter(final int bufferSize, final Comparator<? super R> comparator) {
-        _bufferSize = bufferSize;
-        _tempFiles = new ArrayList<>();
-        _buffer = new TreeMap<>(comparator);
-        _comparator = comparator;
+        super(bufferSize, comparator);
         _nullCount = new AtomicInteger();
     }
 
-    public void append(final R line) {
-        append(line, 1);
-    }
-
+    @Override
     public void append(final R line, final int frequency) {
         if (line == null) {
             // special handling of null
             _nullCount.addAndGet(frequency);
         } else {
-            synchronized (this) {
-                Integer count = _buffer.get(line);
-                if (count == null) {
-                    if (_buffer.size() == _bufferSize) {
-                        flushBuffer();
-                    }
-                    count = 0;
-                }
-                count += frequency;
-                _buffer.put(line, count);
-            }
+            super.append(line, frequency);
         }
     }
 
-    private void flushBuffer() {
-        logger.debug("flushBuffer()");
-        ObjectOutputStream oos = null;
-        try {
-            final File file = createTempFile();
-            logger.info("Writing {} rows to temporary file: {}", _bufferSize, file);
-
-            oos = new ObjectOutputStream(new FileOutputStream(file));
-
-            final List<Entry<R, Integer>> copyOfEntries;
-            synchronized (this) {
-                final Set<Entry<R, Integer>> entries = _buffer.entrySet();
-                copyOfEntries = new ArrayList<>(entries);
-                _buffer.clear();
-                _tempFiles.add(file);
-            }
-
-            for (final Entry<R, Integer> entry : copyOfEntries) {
-                oos.writeObject(entry.getKey());
-                oos.writeInt(entry.getValue());
-            }
-        } catch (final IOException e) {
-            throw new IllegalStateException(e);
-        } finally {
-            FileHelper.safeClose(oos);
-        }
-    }
-
-    protected File createTempFile() throws IOException {
-        final File file = File.createTempFile("sort_merge", ".dat");
-        file.deleteOnExit();
-        return file;
-    }
-
     /**
      * Should null rows (if any) be written in the beginning or in the end of
      * the written file? Subclasses can overwrite this method to define that
@@ -190,139 +119,52 @@ public abstract class SortMergeWriter<R extends Serializable, W extends Closeabl
      * @return the written count of rows
      */
     public int write(final Resource resource) {
-        W writer = null;
-        ObjectInputStream[] tempFileObjectInputStreams = null;
+        final W writer;
         try {
             writer = createWriter(resource);
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return write(writer);
+    }
+
+    /**
+     * Writes the sorted rows to a writer that has been created by the caller
+     * instead of by {@link #createWriter(Resource)}. The writer is closed when
+     * all rows have been written.
+     *
+     * @param writer
+     * @return the written count of rows
+     */
+    public int write(final W writer) {
+        try {
             writeHeader(writer);
 
-            int rowCount = 0;
+            final AtomicInteger rowCount = new AtomicInteger();
 
             final boolean writeNullsFirst = writeNullsFirst();
 
             final int nullCount = _nullCount.get();
             if (nullCount > 0 && writeNullsFirst) {
                 writeNull(writer, nullCount);
-                rowCount++;
-            }
-
-            if (_tempFiles.isEmpty()) {
-                logger.info("No temp files created yet, flushing buffer directly to target: {}", resource);
-                final Set<Entry<R, Integer>> entries = _buffer.entrySet();
-                for (final Entry<R, Integer> entry : entries) {
-                    writeRow(writer, entry.getKey(), entry.getValue());
-                    rowCount++;
-                }
-                _buffer.clear();
-
-                if (nullCount > 0 && !writeNullsFirst) {
-                    writeNull(writer, nullCount);
-                    rowCount++;
-                }
-
-                return rowCount;
-            }
-
-            if (!_buffer.isEmpty()) {
-                flushBuffer();
-            }
-
-            tempFileObjectInputStreams = createTempFileObjectInputStreams();
-
-            final List<Entry<R, Integer>> rowCandidates = new ArrayList<>(_tempFiles.size());
-            for (int i = 0; i < _tempFiles.size(); i++) {
-                rowCandidates.add(null);
+                rowCount.incrementAndGet();
             }
 
-            while (true) {
-                readNextRows(rowCandidates, tempFileObjectInputStreams);
-
-                Entry<R, Integer> currentRow = null;
-
-                // find the next row to write
-                for (final Entry<R, Integer> rowCandidate : rowCandidates) {
-                    if (rowCandidate != null) {
-                        if (currentRow == null) {
-                            currentRow = rowCandidate;
-                        } else {
-                            if (_comparator.compare(rowCandidate.getKey(), currentRow.getKey()) < 0) {
-                                currentRow = rowCandidate;
-                            }
-                        }
-                    }
-                }
-
-                if (currentRow == null) {
-                    // the writing is done!
-                    break;
-                }
-
-                // set count to 0 (the next loop will increment it)
-                currentRow = new ImmutableEntry<>(currentRow.getKey(), 0);
-
-                for (int i = 0; i < rowCandidates.size(); i++) {
-                    final Entry<R, Integer> rowCandidate = rowCandidates.get(i);
-                    if (rowCandidate != null) {
-                        if (_comparator.compare(rowCandidate.getKey(), currentRow.getKey()) == 0) {
-                            // sum up a new count
-                            final int newCount = currentRow.getValue().intValue() + rowCandidate.getValue().intValue();
-                            currentRow = new ImmutableEntry<>(currentRow.getKey(), newCount);
-                            rowCandidates.set(i, null);
-                        }
-                    }
-                }
-
-                writeRow(writer, currentRow.getKey(), currentRow.getValue());
-                rowCount++;
-            }
+            sort((row, count) -> {
+                writeRow(writer, row, count);
+                rowCount.incrementAndGet();
+            });
 
             if (nullCount > 0 && !writeNullsFirst) {
                 writeNull(writer, nullCount);
-                rowCount++;
+                rowCount.incrementAndGet();
             }
 
-            return rowCount;
+            return rowCount.get();
         } catch (final Exception e) {
             throw new IllegalStateException(e);
         } finally {
             FileHelper.safeClose(writer);
-            if (tempFileObjectInputStreams != null) {
-                for (int i = 0; i < tempFileObjectInputStreams.length; i++) {
-                    FileHelper.safeClose(tempFileObjectInputStreams[i]);
-                }
-            }
-        }
-    }
-
-    private void readNextRows(final List<Entry<R, Integer>> nextRows,
-            final ObjectInputStream[] tempFileObjectInputStreams) throws Exception {
-        for (int i = 0; i < tempFileObjectInputStreams.length; i++) {
-            if (tempFileObjectInputStreams[i] != null) {
-                if (nextRows.get(i) == null) {
-
-                    try {
-                        @SuppressWarnings("unchecked") final R row = (R) tempFileObjectInputStreams[i].readObject();
-                        final int count = tempFileObjectInputStreams[i].readInt();
-
-                        final Entry<R, Integer> entry = new ImmutableEntry<>(row, count);
-                        nextRows.set(i, entry);
-                    } catch (final EOFException e) {
-                        FileHelper.safeClose(tempFileObjectInputStreams[i]);
-                        tempFileObjectInputStreams[i] = null;
-                    }
-                }
-            }
-        }
-    }
-
-    @SuppressWarnings("resource")
-    private ObjectInputStream[] createTempFileObjectInputStreams() throws IOException {
-        final ObjectInputStream[] tempFileObjectInputStreams = new ObjectInputStream[_tempFiles.size()];
-        for (int i = 0; i < tempFileObjectInputStreams.length; i++) {
-            final File tempFile = _tempFiles.get(i);
-            final ObjectInputStream ois = new ObjectInputStream(new FileInputStream(tempFile));
-            tempFileObjectInputStreams[i] = ois;
         }
-        return tempFileObjectInputStreams;
     }
 }
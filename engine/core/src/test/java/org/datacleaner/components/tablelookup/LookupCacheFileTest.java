@@ -0,0 +1,128 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.components.tablelookup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.metamodel.util.FileHelper;
+
+import junit.framework.TestCase;
+
+public class LookupCacheFileTest extends TestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = new File(FileHelper.getTempDir(), "LookupCacheFileTest_" + getName());
+        deleteDirectory();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteDirectory();
+        super.tearDown();
+    }
+
+    private void deleteDirectory() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    public void testRoundTripOfTypedValues() throws Exception {
+        final Timestamp timestamp = new Timestamp(1234567890123L);
+        timestamp.setNanos(123456789);
+
+        final Map<List<Object>, Object[]> entries = new HashMap<>();
+        entries.put(Arrays.asList("foo", 1), new Object[] { "bar", 2L, 3.5d, null, true });
+        entries.put(Arrays.asList(new BigDecimal("1.10"), 'c'), new Object[] { new Date(1000L), timestamp });
+        // not persistable, since the value type is unknown
+        entries.put(Arrays.asList("baz", 2), new Object[] { new StringBuilder("baz") });
+
+        new LookupCacheFile(directory, "ds", "SELECT 1").save(entries);
+
+        final Map<List<Object>, Object[]> loaded = new LookupCacheFile(directory, "ds", "SELECT 1").load(60000);
+        assertEquals(2, loaded.size());
+        assertEquals("[bar, 2, 3.5, null, true]", Arrays.toString(loaded.get(Arrays.asList("foo", 1))));
+        final Object[] dates = loaded.get(Arrays.asList(new BigDecimal("1.10"), 'c'));
+        assertEquals(new Date(1000L), dates[0]);
+        assertEquals(timestamp, dates[1]);
+
+        // another lookup query does not share the cache
+        assertTrue(new LookupCacheFile(directory, "ds", "SELECT 2").load(60000).isEmpty());
+    }
+
+    public void testMaxAgeIsMeasuredFromFirstWrite() throws Exception {
+        final Map<List<Object>, Object[]> entries = new HashMap<>();
+        entries.put(Arrays.asList("foo"), new Object[] { "bar" });
+
+        final LookupCacheFile cacheFile = new LookupCacheFile(directory, "ds", "SELECT 1");
+        cacheFile.save(entries);
+        Thread.sleep(50);
+
+        // rewriting the loaded entries does not renew them
+        final LookupCacheFile reloaded = new LookupCacheFile(directory, "ds", "SELECT 1");
+        assertEquals(1, reloaded.load(60000).size());
+        reloaded.save(entries);
+
+        assertTrue(new LookupCacheFile(directory, "ds", "SELECT 1").load(10).isEmpty());
+        assertEquals(1, new LookupCacheFile(directory, "ds", "SELECT 1").load(60000).size());
+    }
+
+    public void testDirectoryIsPrivate() throws Exception {
+        final Map<List<Object>, Object[]> entries = new HashMap<>();
+        entries.put(Arrays.asList("foo"), new Object[] { "bar" });
+        new LookupCacheFile(directory, "ds", "SELECT 1").save(entries);
+
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory.toPath())));
+            final File file = new LookupCacheFile(directory, "ds", "SELECT 1").getFile();
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())));
+        }
+    }
+
+    public void testJavaSerializedFileIsNotRead() throws Exception {
+        final LookupCacheFile cacheFile = new LookupCacheFile(directory, "ds", "SELECT 1");
+        directory.mkdirs();
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(cacheFile.getFile()))) {
+            out.writeObject(new HashMap<>());
+        }
+
+        assertTrue(cacheFile.load(60000).isEmpty());
+    }
+}
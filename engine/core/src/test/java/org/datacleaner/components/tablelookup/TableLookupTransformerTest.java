@@ -19,14 +19,26 @@
  */
 package org.datacleaner.components.tablelookup;
 
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputColumns;
 import org.datacleaner.components.tablelookup.TableLookupTransformer.JoinSemantic;
+import org.datacleaner.components.tablelookup.TableLookupTransformer.LookupStrategy;
 import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.JdbcDatastore;
+import org.datacleaner.data.ColumnarInputBatch;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
 import org.datacleaner.descriptors.Descriptors;
@@ -34,6 +46,7 @@ import org.datacleaner.descriptors.TransformerDescriptor;
 import org.datacleaner.job.AbstractOutputRowCollector;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotations;
+import org.datacleaner.test.TestHelper;
 
 import junit.framework.TestCase;
 
@@ -210,6 +223,327 @@ public class TableLookupTransformerTest extends TestCase {
         trans.close();
     }
 
+    public void testPreloadTable() throws Exception {
+        final List<Object[]> result = new ArrayList<>();
+
+        final TableLookupTransformer trans = createTransformer();
+        trans.datastore = new CsvDatastore("my ds", "src/test/resources/employees.csv");
+        trans.outputColumns = new String[] { "name" };
+        trans.outputRowCollector = new AbstractOutputRowCollector() {
+            @Override
+            public void putValues(final Object... values) {
+                result.add(values);
+            }
+        };
+        trans.joinSemantic = JoinSemantic.INNER_JOIN;
+        trans.lookupStrategy = LookupStrategy.PRELOAD_TABLE;
+        trans.conditionColumns = new String[] { "email" };
+        final InputColumn<String> col1 = new MockInputColumn<>("my email col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+
+        trans.validate();
+        trans.init();
+
+        assertNull(trans.transform(new MockInputRow().put(col1, "foo bar")));
+        assertNull(trans.transform(new MockInputRow().put(col1, null)));
+        assertEquals(0, result.size());
+
+        assertNull(trans.transform(new MockInputRow().put(col1, "jane.doe@company.com")));
+        assertEquals(2, result.size());
+        assertEquals("[Jane Doe]", Arrays.toString(result.get(0)));
+        assertEquals("[Jane doe]", Arrays.toString(result.get(1)));
+
+        assertEquals(1, trans._matches.getRowCount());
+        assertEquals(2, trans._misses.getRowCount());
+
+        trans.close();
+    }
+
+    public void testPreloadTableFallbackWhenTableIsTooLarge() throws Exception {
+        final TableLookupTransformer trans = createTransformer();
+        trans.datastore = new CsvDatastore("my ds", "src/test/resources/employees.csv");
+        trans.outputColumns = new String[] { "name" };
+        trans.conditionColumns = new String[] { "email" };
+        trans.lookupStrategy = LookupStrategy.PRELOAD_TABLE;
+        trans.maxPreloadedRecords = 3;
+        final InputColumn<String> col1 = new MockInputColumn<>("my email col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+
+        trans.validate();
+        trans.init();
+
+        assertEquals("[Mrs. Foobar Foo]",
+                Arrays.toString(trans.transform(new MockInputRow().put(col1, "foobar.foo@company.com"))));
+        assertEquals("[null]", Arrays.toString(trans.transform(new MockInputRow().put(col1, "foo bar"))));
+
+        trans.close();
+    }
+
+    public void testPreloadAndBatchedLookupsWithNumberKeys() throws Exception {
+        for (final LookupStrategy lookupStrategy : LookupStrategy.values()) {
+            final TableLookupTransformer trans = createTransformer();
+            trans.datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+            trans.schemaName = "PUBLIC";
+            trans.tableName = "CUSTOMERS";
+            trans.outputColumns = new String[] { "CUSTOMERNAME" };
+            trans.conditionColumns = new String[] { "CUSTOMERNUMBER" };
+            trans.lookupStrategy = lookupStrategy;
+            trans.cacheLookups = false;
+            final InputColumn<Number> col1 = new MockInputColumn<>("customer number", Number.class);
+            trans.conditionValues = new InputColumn[] { col1 };
+
+            trans.validate();
+            trans.init();
+
+            assertEquals(lookupStrategy.getName(), "[Atelier graphique]",
+                    Arrays.toString(trans.transform(new MockInputRow().put(col1, 103))));
+            assertEquals(lookupStrategy.getName(), "[Atelier graphique]",
+                    Arrays.toString(trans.transform(new MockInputRow().put(col1, 103L))));
+            assertEquals(lookupStrategy.getName(), "[null]",
+                    Arrays.toString(trans.transform(new MockInputRow().put(col1, 1))));
+
+            trans.close();
+        }
+    }
+
+    public void testBatchedLookupsFromMultipleThreads() throws Exception {
+        final TableLookupTransformer trans = createTransformer();
+        trans.datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        trans.schemaName = "PUBLIC";
+        trans.tableName = "CUSTOMERS";
+        trans.outputColumns = new String[] { "CUSTOMERNAME", "CITY" };
+        trans.conditionColumns = new String[] { "CUSTOMERNUMBER", "COUNTRY" };
+        trans.lookupStrategy = LookupStrategy.BATCHED;
+        trans.batchSize = 16;
+        trans.cacheLookups = false;
+        final InputColumn<Integer> col1 = new MockInputColumn<>("customer number", Integer.class);
+        final InputColumn<String> col2 = new MockInputColumn<>("country", String.class);
+        trans.conditionValues = new InputColumn[] { col1, col2 };
+
+        trans.validate();
+        trans.init();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final String country = i % 2 == 0 ? "France" : "USA";
+                results.add(executor.submit(() -> Arrays
+                        .toString(trans.transform(new MockInputRow().put(col1, 103).put(col2, country)))));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                final String expected = i % 2 == 0 ? "[Atelier graphique, Nantes]" : "[null, null]";
+                assertEquals(expected, results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(100, trans._matches.getRowCount());
+        assertEquals(100, trans._misses.getRowCount());
+
+        trans.close();
+    }
+
+    public void testBatchedLookupsOfColumnarInput() throws Exception {
+        final InputColumn<Integer> col1 = new MockInputColumn<>("customer number", Integer.class);
+        final List<InputRow> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // 250 distinct keys
+            rows.add(new MockInputRow(i).put(col1, 100 + (i % 250)));
+        }
+
+        final TableLookupTransformer batched = createCustomerNameTransformer(col1, LookupStrategy.BATCHED);
+        final TableLookupTransformer rowByRow = createCustomerNameTransformer(col1, LookupStrategy.ROW_BY_ROW);
+        assertTrue(batched.isVectorized());
+        assertFalse(rowByRow.isVectorized());
+
+        final Object[][] result = batched.transformBatch(new ColumnarInputBatch(rows));
+        assertEquals(300, result.length);
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(Arrays.toString(rowByRow.transform(rows.get(i))), Arrays.toString(result[i]));
+        }
+
+        // one query per 100 distinct keys, regardless of the number of threads
+        assertEquals(3, batched.getBatchQueryCount());
+        assertEquals(250, batched.getResult().getCacheMissCount());
+        assertTrue(batched.getResult().getAverageLoadTimeMillis() > 0);
+        assertEquals(50, batched._cached.getRowCount());
+        assertEquals(250, batched._matches.getRowCount() + batched._misses.getRowCount());
+
+        batched.close();
+        rowByRow.close();
+    }
+
+    private TableLookupTransformer createCustomerNameTransformer(final InputColumn<Integer> conditionValue,
+            final LookupStrategy lookupStrategy) {
+        final TableLookupTransformer trans = createTransformer();
+        trans.datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        trans.schemaName = "PUBLIC";
+        trans.tableName = "CUSTOMERS";
+        trans.outputColumns = new String[] { "CUSTOMERNAME" };
+        trans.conditionColumns = new String[] { "CUSTOMERNUMBER" };
+        trans.conditionValues = new InputColumn[] { conditionValue };
+        trans.lookupStrategy = lookupStrategy;
+        trans.validate();
+        trans.init();
+        return trans;
+    }
+
+    public void testBatchedAndPreloadedLookupsMatchLikeTheDatabase() throws Exception {
+        final String url = "jdbc:hsqldb:mem:TableLookup_testMatchLikeTheDatabase";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE PEOPLE (NAME VARCHAR_IGNORECASE(20), AGE INTEGER, CITY VARCHAR(20))");
+            statement.execute("INSERT INTO PEOPLE VALUES ('Alice', 30, 'Paris')");
+            statement.execute("INSERT INTO PEOPLE VALUES ('Bob', 40, 'London')");
+        }
+        final Datastore datastore = new JdbcDatastore("people", url, "org.hsqldb.jdbcDriver");
+
+        final InputColumn<String> col1 = new MockInputColumn<>("name or age", String.class);
+        final List<InputRow> names = Arrays.asList(new MockInputRow(1).put(col1, "Alice"),
+                new MockInputRow(2).put(col1, "ALICE"), new MockInputRow(3).put(col1, "bob"),
+                new MockInputRow(4).put(col1, "Carol"));
+        final List<InputRow> ages = Arrays.asList(new MockInputRow(1).put(col1, "30"),
+                new MockInputRow(2).put(col1, " 30"), new MockInputRow(3).put(col1, "40"),
+                new MockInputRow(4).put(col1, "50"));
+        final String expected = "[[Paris], [Paris], [London], [null]]";
+
+        for (final LookupStrategy lookupStrategy : LookupStrategy.values()) {
+            // a case insensitive column
+            final TableLookupTransformer byName = createPeopleTransformer(datastore, "NAME", col1, lookupStrategy);
+            assertEquals(lookupStrategy.getName(), expected, transformAll(byName, names));
+            if (byName.isVectorized()) {
+                assertEquals(lookupStrategy.getName(), expected,
+                        Arrays.deepToString(byName.transformBatch(new ColumnarInputBatch(names))));
+            }
+            byName.close();
+
+            // string values of a numeric column
+            final TableLookupTransformer byAge = createPeopleTransformer(datastore, "AGE", col1, lookupStrategy);
+            assertEquals(lookupStrategy.getName(), expected, transformAll(byAge, ages));
+            if (byAge.isVectorized()) {
+                assertEquals(lookupStrategy.getName(), expected,
+                        Arrays.deepToString(byAge.transformBatch(new ColumnarInputBatch(ages))));
+            }
+            byAge.close();
+        }
+    }
+
+    private TableLookupTransformer createPeopleTransformer(final Datastore datastore, final String conditionColumn,
+            final InputColumn<String> conditionValue, final LookupStrategy lookupStrategy) {
+        final TableLookupTransformer trans = createTransformer();
+        trans.datastore = datastore;
+        trans.schemaName = "PUBLIC";
+        trans.tableName = "PEOPLE";
+        trans.outputColumns = new String[] { "CITY" };
+        trans.conditionColumns = new String[] { conditionColumn };
+        trans.conditionValues = new InputColumn[] { conditionValue };
+        trans.lookupStrategy = lookupStrategy;
+        trans.cacheLookups = false;
+        trans.validate();
+        trans.init();
+        return trans;
+    }
+
+    private static String transformAll(final TableLookupTransformer trans, final List<InputRow> rows) {
+        final List<String> result = new ArrayList<>();
+        for (final InputRow row : rows) {
+            result.add(Arrays.toString(trans.transform(row)));
+        }
+        return result.toString();
+    }
+
+    public void testCacheStatistics() throws Exception {
+        final TableLookupTransformer trans = createTransformer();
+        trans.datastore = new CsvDatastore("my ds", "src/test/resources/employees.csv");
+        trans.outputColumns = new String[] { "name" };
+        trans.conditionColumns = new String[] { "email" };
+        final InputColumn<String> col1 = new MockInputColumn<>("my email col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+
+        trans.validate();
+        trans.init();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("[Jane Doe]",
+                    Arrays.toString(trans.transform(new MockInputRow().put(col1, "jane.doe@company.com"))));
+        }
+        assertEquals("[null]", Arrays.toString(trans.transform(new MockInputRow().put(col1, "foo bar"))));
+
+        final TableLookupResult result = trans.getResult();
+        assertEquals(2, result.getCacheHitCount());
+        assertEquals(2, result.getCacheMissCount());
+        assertEquals(0.5, result.getCacheHitRate(), 0.0001);
+        assertEquals(0, result.getCacheEvictionCount());
+        assertTrue(result.getAverageLoadTimeMillis() > 0);
+        assertEquals(2, result.getCategoryCount("Cached"));
+        assertEquals(1, result.getCategoryCount("Match"));
+        assertEquals(1, result.getCategoryCount("Miss"));
+
+        trans.close();
+    }
+
+    public void testCacheSizeEvictions() throws Exception {
+        final TableLookupTransformer trans = createTransformer();
+        trans.datastore = new CsvDatastore("my ds", "src/test/resources/employees.csv");
+        trans.outputColumns = new String[] { "name" };
+        trans.conditionColumns = new String[] { "email" };
+        trans.cacheSize = 1;
+        final InputColumn<String> col1 = new MockInputColumn<>("my email col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+
+        trans.validate();
+        trans.init();
+
+        trans.transform(new MockInputRow().put(col1, "jane.doe@company.com"));
+        trans.transform(new MockInputRow().put(col1, "john.doe@company.com"));
+        trans.transform(new MockInputRow().put(col1, "jane.doe@company.com"));
+
+        final TableLookupResult result = trans.getResult();
+        assertEquals(0, result.getCacheHitCount());
+        assertEquals(2, result.getCacheEvictionCount());
+
+        trans.close();
+    }
+
+    public void testPersistCache() throws Exception {
+        final InputColumn<String> col1 = new MockInputColumn<>("my email col", String.class);
+
+        File cacheFile = null;
+        try {
+            for (int run = 0; run < 2; run++) {
+                final TableLookupTransformer trans = createTransformer();
+                trans.datastore = new CsvDatastore("my persisted ds", "src/test/resources/employees.csv");
+                trans.outputColumns = new String[] { "name" };
+                trans.conditionColumns = new String[] { "email" };
+                trans.conditionValues = new InputColumn[] { col1 };
+                trans.persistCache = true;
+
+                trans.validate();
+                trans.init();
+
+                cacheFile = trans.getCacheFile().getFile();
+
+                assertEquals("[Jane Doe]",
+                        Arrays.toString(trans.transform(new MockInputRow().put(col1, "jane.doe@company.com"))));
+
+                final TableLookupResult result = trans.getResult();
+                trans.close();
+
+                if (run == 0) {
+                    assertEquals(0, result.getCacheHitCount());
+                } else {
+                    assertEquals(1, result.getCacheHitCount());
+                }
+            }
+        } finally {
+            if (cacheFile != null) {
+                cacheFile.delete();
+            }
+        }
+    }
+
     public void testIsDistributable() throws Exception {
         final TransformerDescriptor<TableLookupTransformer> descriptor =
                 Descriptors.ofTransformer(TableLookupTransformer.class);
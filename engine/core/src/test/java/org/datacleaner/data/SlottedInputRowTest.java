@@ -0,0 +1,258 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.metamodel.data.DataSetHeader;
+import org.apache.metamodel.data.DefaultRow;
+import org.apache.metamodel.data.SimpleDataSetHeader;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.MutableColumn;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.test.TestHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import junit.framework.TestCase;
+
+public class SlottedInputRowTest extends TestCase {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlottedInputRowTest.class);
+
+    private final InputColumn<String> inputColumn1 = new MockInputColumn<>("foo", String.class);
+    private final InputColumn<String> inputColumn2 = new MockInputColumn<>("bar", String.class);
+    private final InputColumn<String> inputColumn3 = new MockInputColumn<>("baz", String.class);
+    private final RowLayout layout = new RowLayout(Arrays.asList(inputColumn1, inputColumn2));
+
+    public void testConstaints() throws Exception {
+        try {
+            new SlottedInputRow(null, 1, layout);
+            fail("Exception expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("Delegate cannot be null", e.getMessage());
+        }
+
+        final Column col1 = new MutableColumn("foo");
+        final InputColumn<?> physicalColumn = new MetaModelInputColumn(col1);
+
+        final SlottedInputRow row = new SlottedInputRow(new MockInputRow(), 1, layout);
+
+        try {
+            row.addValue(physicalColumn, "bar");
+            fail("Exception expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("Cannot add physical column values to transformed InputRow.", e.getMessage());
+        }
+    }
+
+    public void testDelegateOnPhysicalColumn() throws Exception {
+        final Column col1 = new MutableColumn("foo");
+        final InputColumn<?> physicalColumn1 = new MetaModelInputColumn(col1);
+
+        final Column col2 = new MutableColumn("bar");
+        final InputColumn<?> physicalColumn2 = new MetaModelInputColumn(col2);
+
+        final SelectItem[] selectItems = new SelectItem[] { new SelectItem(col1), new SelectItem(col2) };
+        final Object[] values = new Object[] { 1234, 4567 };
+        final DataSetHeader header = new SimpleDataSetHeader(selectItems);
+        final SlottedInputRow row =
+                new SlottedInputRow(new MetaModelInputRow(0, new DefaultRow(header, values)), 1, layout);
+
+        assertEquals(1234, row.getValue(physicalColumn1));
+        assertEquals(4567, row.getValue(physicalColumn2));
+    }
+
+    public void testGetValue() throws Exception {
+        final SlottedInputRow row1 = new SlottedInputRow(new MockInputRow(), 1, layout);
+        assertFalse(row1.containsInputColumn(inputColumn1));
+
+        row1.addValue(inputColumn1, "f");
+        row1.addValue(inputColumn2, "b");
+        assertTrue(row1.containsInputColumn(inputColumn1));
+        assertEquals("f", row1.getValue(inputColumn1));
+        assertEquals("b", row1.getValue(inputColumn2));
+        assertNull(row1.getValue(inputColumn3));
+        assertNull(row1.getValue(null));
+
+        assertSame(row1, SlottedInputRow.of(row1, layout));
+
+        final SlottedInputRow row2 = new SlottedInputRow(row1, 2, layout);
+        assertEquals(2, row2.getId());
+        assertEquals("f", row2.getValue(inputColumn1));
+        assertEquals("b", row2.getValue(inputColumn2));
+
+        // column which is not part of the layout
+        row2.addValue(inputColumn3, "w");
+        row2.addValue(inputColumn1, "g");
+
+        assertNull(row1.getValue(inputColumn3));
+        assertEquals("f", row1.getValue(inputColumn1));
+        assertEquals("w", row2.getValue(inputColumn3));
+        assertEquals("g", row2.getValue(inputColumn1));
+
+        assertEquals(Arrays.asList(inputColumn1, inputColumn2, inputColumn3), row2.getInputColumns());
+    }
+
+    public void testSameValuesAsTransformedInputRow() throws Exception {
+        final List<InputColumn<?>> columns = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            columns.add(new MockInputColumn<>("col" + i, String.class));
+        }
+        final RowLayout layout = new RowLayout(columns);
+        final InputRow sourceRow = new MockInputRow();
+
+        final TransformedInputRow transformedRow = TransformedInputRow.of(sourceRow);
+        final SlottedInputRow slottedRow = SlottedInputRow.of(sourceRow, layout);
+        for (final InputColumn<?> column : columns) {
+            transformedRow.addValue(column, column.getName());
+            slottedRow.addValue(column, column.getName());
+            assertEquals(transformedRow.getValue(columns.get(0)), slottedRow.getValue(columns.get(0)));
+        }
+
+        for (final InputColumn<?> column : columns) {
+            assertEquals(transformedRow.getValue(column), slottedRow.getValue(column));
+        }
+        assertEquals(transformedRow.getId(), slottedRow.getId());
+    }
+
+    public void testSlotAccessors() throws Exception {
+        final MockInputRow sourceRow = new MockInputRow().put(inputColumn3, "baz value");
+        final SlottedInputRow row = SlottedInputRow.of(sourceRow, layout);
+
+        final int slot1 = layout.getSlot(inputColumn1);
+        final int slot2 = layout.getSlot(inputColumn2);
+        row.setValue(slot1, "foo value");
+
+        assertEquals("foo value", row.getValue(slot1, inputColumn1));
+        assertEquals("foo value", row.getValue(inputColumn1));
+        assertTrue(row.containsInputColumn(inputColumn1));
+
+        // unassigned slots and columns that are not in the layout fall back to
+        // the delegate
+        assertNull(row.getValue(slot2, inputColumn2));
+        assertFalse(row.containsInputColumn(inputColumn2));
+        assertEquals("baz value", row.getValue(-1, inputColumn3));
+    }
+
+    public void testColumnarInputBatchOfSlottedRows() throws Exception {
+        final SlottedInputRow row1 = SlottedInputRow.of(new MockInputRow(), layout);
+        row1.addValue(inputColumn1, "a");
+        final SlottedInputRow row2 = SlottedInputRow.of(new MockInputRow().put(inputColumn1, "b"), layout);
+        final InputRow row3 = new MockInputRow().put(inputColumn1, "c");
+
+        final ColumnarInputBatch batch = new ColumnarInputBatch(Arrays.asList(row1, row2, row3), layout);
+        assertEquals("[a, b, c]", Arrays.toString(batch.getValues(inputColumn1)));
+        assertEquals("[null, null, null]", Arrays.toString(batch.getValues(inputColumn3)));
+    }
+
+    /**
+     * Compares the time it takes to add and read values with
+     * {@link TransformedInputRow}s and {@link SlottedInputRow}s. Only run when
+     * benchmarks are enabled, see {@link TestHelper#isBenchmarkEnabled()}.
+     */
+    public void testBenchmarkAgainstTransformedInputRow() throws Exception {
+        if (!TestHelper.isBenchmarkEnabled()) {
+            return;
+        }
+
+        final int numColumns = 30;
+        final int numRows = 200000;
+
+        final List<InputColumn<?>> columns = new ArrayList<>();
+        for (int i = 0; i < numColumns; i++) {
+            columns.add(new MockInputColumn<>("col" + i, String.class));
+        }
+        final RowLayout layout = new RowLayout(columns);
+        final int[] slots = new int[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            slots[i] = layout.getSlot(columns.get(i));
+        }
+        final InputRow sourceRow = new MockInputRow();
+
+        // warm up all implementations before measuring
+        runTransformedInputRows(sourceRow, columns, numRows);
+        runSlottedInputRows(sourceRow, columns, layout, numRows);
+        runSlottedInputRowsBySlot(sourceRow, columns, layout, slots, numRows);
+
+        long time = System.nanoTime();
+        final long transformedChecksum = runTransformedInputRows(sourceRow, columns, numRows);
+        final long transformedTime = System.nanoTime() - time;
+
+        time = System.nanoTime();
+        final long slottedChecksum = runSlottedInputRows(sourceRow, columns, layout, numRows);
+        final long slottedTime = System.nanoTime() - time;
+
+        time = System.nanoTime();
+        final long slotChecksum = runSlottedInputRowsBySlot(sourceRow, columns, layout, slots, numRows);
+        final long slotTime = System.nanoTime() - time;
+
+        logger.info("{} rows, {} columns: TransformedInputRow {} ms, SlottedInputRow by column {} ms, "
+                + "SlottedInputRow by slot {} ms", numRows, numColumns, transformedTime / 1000000,
+                slottedTime / 1000000, slotTime / 1000000);
+
+        assertEquals(transformedChecksum, slottedChecksum);
+        assertEquals(transformedChecksum, slotChecksum);
+    }
+
+    private long runTransformedInputRows(final InputRow sourceRow, final List<InputColumn<?>> columns,
+            final int numRows) {
+        long checksum = 0;
+        for (int i = 0; i < numRows; i++) {
+            final TransformedInputRow row = TransformedInputRow.of(sourceRow);
+            for (final InputColumn<?> column : columns) {
+                row.addValue(column, column.getName());
+                checksum += row.getValue(columns.get(0)).hashCode();
+            }
+        }
+        return checksum;
+    }
+
+    private long runSlottedInputRows(final InputRow sourceRow, final List<InputColumn<?>> columns,
+            final RowLayout layout, final int numRows) {
+        long checksum = 0;
+        for (int i = 0; i < numRows; i++) {
+            final SlottedInputRow row = SlottedInputRow.of(sourceRow, layout);
+            for (final InputColumn<?> column : columns) {
+                row.addValue(column, column.getName());
+                checksum += row.getValue(columns.get(0)).hashCode();
+            }
+        }
+        return checksum;
+    }
+
+    private long runSlottedInputRowsBySlot(final InputRow sourceRow, final List<InputColumn<?>> columns,
+            final RowLayout layout, final int[] slots, final int numRows) {
+        final InputColumn<?> firstColumn = columns.get(0);
+        long checksum = 0;
+        for (int i = 0; i < numRows; i++) {
+            final SlottedInputRow row = SlottedInputRow.of(sourceRow, layout);
+            for (int j = 0; j < slots.length; j++) {
+                row.setValue(slots[j], columns.get(j).getName());
+                checksum += row.getValue(slots[0], firstColumn).hashCode();
+            }
+        }
+        return checksum;
+    }
+}
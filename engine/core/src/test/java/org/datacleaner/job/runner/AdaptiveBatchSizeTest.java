@@ -0,0 +1,55 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import junit.framework.TestCase;
+
+public class AdaptiveBatchSizeTest extends TestCase {
+
+    public void testGrowsWhileOverheadIsAmortized() throws Exception {
+        final AdaptiveBatchSize batchSize = new AdaptiveBatchSize();
+        for (int i = 0; i < 200; i++) {
+            final int size = batchSize.get();
+            // fixed per-batch overhead: bigger batches are always better
+            batchSize.record(size, 1_000_000 + size * 100L);
+        }
+        assertEquals(AdaptiveBatchSize.MAX_BATCH_SIZE, batchSize.get());
+    }
+
+    public void testSettlesAroundOptimum() throws Exception {
+        final AdaptiveBatchSize batchSize = new AdaptiveBatchSize();
+        for (int i = 0; i < 400; i++) {
+            final int size = batchSize.get();
+            // per-row cost grows once batches exceed 512 rows
+            final long penalty = size > 512 ? size * 1000L : 0;
+            batchSize.record(size, 100_000 + size * (100L + penalty));
+        }
+        assertTrue("Batch size: " + batchSize.get(), batchSize.get() >= 256);
+        assertTrue("Batch size: " + batchSize.get(), batchSize.get() <= 1024);
+    }
+
+    public void testIgnoresPartialBatches() throws Exception {
+        final AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 10, 1000);
+        for (int i = 0; i < 100; i++) {
+            batchSize.record(5, 1_000_000);
+        }
+        assertEquals(100, batchSize.get());
+    }
+}
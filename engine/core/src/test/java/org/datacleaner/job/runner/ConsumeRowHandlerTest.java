@@ -20,6 +20,7 @@
 package org.datacleaner.job.runner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.metamodel.pojo.ArrayTableDataProvider;
@@ -38,6 +39,7 @@ import org.datacleaner.job.builder.AnalyzerComponentBuilder;
 import org.datacleaner.job.builder.TransformerComponentBuilder;
 import org.datacleaner.job.runner.ConsumeRowHandler.Configuration;
 import org.datacleaner.job.tasks.MockMultiRowTransformer;
+import org.datacleaner.job.tasks.MockVectorizedTransformer;
 import org.datacleaner.test.MockAnalyzer;
 import org.datacleaner.test.MockTransformer;
 
@@ -166,4 +168,92 @@ public class ConsumeRowHandlerTest extends TestCase {
         final List<InputColumn<?>> outputColumns = outputRow.getInputColumns();
         assertEquals(6, outputColumns.size());
     }
+
+    public void testConsumeRowsWithVectorizedTransformer() throws Exception {
+        final TransformerComponentBuilder<MockVectorizedTransformer> tr1 =
+                ajb.addTransformer(MockVectorizedTransformer.class);
+        tr1.addInputColumn(nameColumn);
+
+        final TransformerComponentBuilder<MockTransformer> tr2 = ajb.addTransformer(MockTransformer.class);
+        tr2.addInputColumn(tr1.getOutputColumns().get(0));
+
+        final ConsumeRowHandler handler = createHandler();
+        final MockVectorizedTransformer transformer = getComponent(handler, MockVectorizedTransformer.class);
+
+        final List<InputRow> result = handler.consumeRows(
+                Arrays.asList(createRow(1, "a"), createRow(2, "skip"), createRow(3, "b"), createRow(4, null),
+                        createRow(5, "c"))).getRows();
+
+        assertEquals(4, result.size());
+        assertEquals(1, result.get(0).getId());
+        assertEquals(3, result.get(1).getId());
+        assertEquals(4, result.get(2).getId());
+        assertEquals(5, result.get(3).getId());
+
+        final InputColumn<?> upperCaseColumn = tr1.getOutputColumns().get(0);
+        assertEquals("A", result.get(0).getValue(upperCaseColumn));
+        assertEquals("B", result.get(1).getValue(upperCaseColumn));
+        assertEquals(null, result.get(2).getValue(upperCaseColumn));
+        assertEquals("C", result.get(3).getValue(upperCaseColumn));
+        assertEquals("mocked: C", result.get(3).getValue(tr2.getOutputColumns().get(0)));
+
+        assertEquals(1, transformer.getBatchCount());
+        assertEquals(5, transformer.getBatchRowCount());
+        assertEquals(0, transformer.getRowCount());
+        assertEquals(128, handler.getPreferredBatchSize());
+    }
+
+    public void testConsumeRowsFallsBackToRowByRowWhenBatchFails() throws Exception {
+        final TransformerComponentBuilder<MockVectorizedTransformer> tr1 =
+                ajb.addTransformer(MockVectorizedTransformer.class);
+        tr1.addInputColumn(nameColumn);
+
+        final ConsumeRowHandler handler = createHandler();
+        final MockVectorizedTransformer transformer = getComponent(handler, MockVectorizedTransformer.class);
+
+        final List<InputRow> result =
+                handler.consumeRows(Arrays.asList(createRow(1, "a"), createRow(2, "fail"), createRow(3, "b")))
+                        .getRows();
+
+        // the failing row is reported as an error and swallowed
+        assertEquals(2, result.size());
+        assertEquals("A", result.get(0).getValue(tr1.getOutputColumns().get(0)));
+        assertEquals("B", result.get(1).getValue(tr1.getOutputColumns().get(0)));
+
+        assertEquals(1, transformer.getBatchCount());
+        assertEquals(3, transformer.getRowCount());
+    }
+
+    public void testConsumeRowsWithoutVectorizedTransformers() throws Exception {
+        final TransformerComponentBuilder<MockTransformer> tr1 = ajb.addTransformer(MockTransformer.class);
+        tr1.addInputColumn(nameColumn);
+
+        final ConsumeRowHandler handler = createHandler();
+        assertEquals(1, handler.getPreferredBatchSize());
+
+        final List<InputRow> result =
+                handler.consumeRows(Arrays.asList(createRow(1, "a"), createRow(2, "b"))).getRows();
+        assertEquals(2, result.size());
+        assertEquals("mocked: b", result.get(1).getValue(tr1.getOutputColumns().get(0)));
+    }
+
+    private ConsumeRowHandler createHandler() {
+        final AnalysisJob job = ajb.toAnalysisJob(false);
+        final Configuration configuration = new Configuration();
+        configuration.includeAnalyzers = false;
+        return new ConsumeRowHandler(job, _configuration, configuration);
+    }
+
+    private MockInputRow createRow(final int id, final String name) {
+        return new MockInputRow(id).put(nameColumn, name).put(ageColumn, null).put(countryColumn, null);
+    }
+
+    private <C> C getComponent(final ConsumeRowHandler handler, final Class<C> componentClass) {
+        for (final RowProcessingConsumer consumer : handler.getConsumers()) {
+            if (componentClass.isInstance(consumer.getComponent())) {
+                return componentClass.cast(consumer.getComponent());
+            }
+        }
+        throw new IllegalStateException("No component of type " + componentClass);
+    }
 }
@@ -0,0 +1,295 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Named;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.jdbc.JdbcDataContext;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Table;
+import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.Close;
+import org.datacleaner.api.Configured;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.connection.DatastoreConnectionImpl;
+import org.datacleaner.connection.PerformanceCharacteristics;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.result.NumberResult;
+import org.datacleaner.test.MockAnalyzer;
+import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
+
+import junit.framework.TestCase;
+
+public class QueryPartitionerTest extends TestCase {
+
+    private final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.ROW_PROCESSING_PARTITIONS);
+    }
+
+    public void testPartitionByPrimaryKeyRange() throws Exception {
+        try (DatastoreConnection con = datastore.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+            final Table table = dataContext.getTableByQualifiedLabel("PUBLIC.ORDERS");
+            final Query query = dataContext.query().from(table).select("ORDERNUMBER", "STATUS").toQuery();
+
+            final List<Query> partitions = new QueryPartitioner(datastore, table).partition(dataContext, query, 4);
+            assertEquals(4, partitions.size());
+
+            final Set<Object> keys = new HashSet<>();
+            for (final Query partition : partitions) {
+                try (DataSet dataSet = dataContext.executeQuery(partition)) {
+                    while (dataSet.next()) {
+                        assertTrue(keys.add(dataSet.getRow().getValue(0)));
+                    }
+                }
+            }
+
+            assertEquals(count(dataContext, query), keys.size());
+        }
+    }
+
+    public void testPartitionOrderedQuery() throws Exception {
+        try (DatastoreConnection con = datastore.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+            final Table table = dataContext.getTableByQualifiedLabel("PUBLIC.ORDERS");
+            final Query query =
+                    dataContext.query().from(table).select("ORDERNUMBER", "STATUS").orderBy("STATUS").toQuery();
+
+            final List<Query> partitions = new QueryPartitioner(datastore, table).partition(dataContext, query, 4);
+            assertEquals(4, partitions.size());
+
+            int count = 0;
+            for (final Query partition : partitions) {
+                count += count(dataContext, partition);
+            }
+            assertEquals(count(dataContext, query), count);
+        }
+    }
+
+    public void testNoPartitioningOfPagedQuery() throws Exception {
+        try (DatastoreConnection con = datastore.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+            final Table table = dataContext.getTableByQualifiedLabel("PUBLIC.ORDERS");
+            final Query query = dataContext.query().from(table).select("STATUS").maxRows(10).toQuery();
+
+            final List<Query> partitions = new QueryPartitioner(datastore, table).partition(dataContext, query, 4);
+            assertEquals(1, partitions.size());
+            assertSame(query, partitions.get(0));
+        }
+    }
+
+    public void testNoPartitioningOfCsvFile() throws Exception {
+        final Datastore csvDatastore = new CsvDatastore("Names", "src/test/resources/example-name-lengths.csv");
+        try (DatastoreConnection con = csvDatastore.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+            final Table table = dataContext.getDefaultSchema().getTable(0);
+            final Query query = dataContext.query().from(table).select("name").toQuery();
+
+            final List<Query> partitions =
+                    new QueryPartitioner(csvDatastore, table).partition(dataContext, query, 4);
+            assertEquals(1, partitions.size());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testRunJobWithPartitions() throws Throwable {
+        System.setProperty(SystemProperties.ROW_PROCESSING_PARTITIONS, "3");
+
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(new MultiThreadedTaskRunner(4)));
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("PUBLIC.ORDERS.ORDERNUMBER", "PUBLIC.ORDERS.STATUS");
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumns(builder.getSourceColumns());
+            job = builder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+
+        final List<InputRow> rows = ((ListResult<InputRow>) resultFuture.getResults().get(0)).getValues();
+
+        final int expectedRows;
+        try (DatastoreConnection con = datastore.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+            expectedRows = count(dataContext,
+                    dataContext.query().from("PUBLIC.ORDERS").select("ORDERNUMBER").toQuery());
+        }
+        assertEquals(expectedRows, rows.size());
+
+        final Set<Long> ids = new HashSet<>();
+        for (final InputRow row : rows) {
+            assertTrue("Multiple rows with id " + row.getId(), ids.add(row.getId()));
+        }
+    }
+
+    public void testRunJobWithFailingPartition() throws Throwable {
+        System.setProperty(SystemProperties.ROW_PROCESSING_PARTITIONS, "3");
+        SlowAnalyzer.runAfterClose.set(false);
+
+        final Datastore failingDatastore = new FailingPartitionDatastore();
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(new MultiThreadedTaskRunner(4)));
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(failingDatastore);
+            builder.addSourceColumns("PUBLIC.ORDERS.ORDERNUMBER", "PUBLIC.ORDERS.STATUS");
+            builder.addAnalyzer(SlowAnalyzer.class).addInputColumns(builder.getSourceColumns());
+            job = builder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        resultFuture.await();
+
+        assertTrue(resultFuture.isErrornous());
+        assertEquals("Failing partition", resultFuture.getErrors().get(0).getMessage());
+        assertFalse("Rows were consumed after the analyzer was closed", SlowAnalyzer.runAfterClose.get());
+    }
+
+    @Named("Slow analyzer")
+    public static class SlowAnalyzer implements Analyzer<NumberResult> {
+
+        static final AtomicBoolean runAfterClose = new AtomicBoolean();
+
+        private final AtomicInteger counter = new AtomicInteger();
+        private volatile boolean closed;
+
+        @Configured
+        InputColumn<?>[] columns;
+
+        @Override
+        public void run(final InputRow row, final int distinctCount) {
+            if (closed) {
+                runAfterClose.set(true);
+            }
+            counter.incrementAndGet();
+            try {
+                Thread.sleep(1);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public NumberResult getResult() {
+            return new NumberResult(counter.get());
+        }
+
+        @Close
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Datastore over the sample database, in which the query of the last
+     * partition (the only one with an inclusive upper bound) fails.
+     */
+    private static class FailingPartitionDatastore implements Datastore, PerformanceCharacteristics {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String getName() {
+            return "failing partition";
+        }
+
+        @Override
+        public String getDescription() {
+            return null;
+        }
+
+        @Override
+        public void setDescription(final String description) {
+        }
+
+        @Override
+        public DatastoreConnection openConnection() {
+            final JdbcDataContext dataContext = new JdbcDataContext(TestHelper.createSampleDatabaseDataSource()) {
+                @Override
+                public DataSet executeQuery(final Query query) throws MetaModelException {
+                    for (final FilterItem filterItem : query.getWhereClause().getItems()) {
+                        if (filterItem.getOperator() == OperatorType.LESS_THAN_OR_EQUAL) {
+                            throw new MetaModelException("Failing partition");
+                        }
+                    }
+                    return super.executeQuery(query);
+                }
+            };
+            return new DatastoreConnectionImpl<>(dataContext, this);
+        }
+
+        @Override
+        public PerformanceCharacteristics getPerformanceCharacteristics() {
+            return this;
+        }
+
+        @Override
+        public boolean isQueryOptimizationPreferred() {
+            return true;
+        }
+
+        @Override
+        public boolean isNaturalRecordOrderConsistent() {
+            return false;
+        }
+    }
+
+    private int count(final DataContext dataContext, final Query query) {
+        int count = 0;
+        try (DataSet dataSet = dataContext.executeQuery(query)) {
+            while (dataSet.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
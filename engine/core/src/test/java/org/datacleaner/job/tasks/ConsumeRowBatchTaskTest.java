@@ -0,0 +1,125 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.tasks;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.builder.TransformerComponentBuilder;
+import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.test.MockAnalyzer;
+import org.datacleaner.util.SystemProperties;
+
+import junit.framework.TestCase;
+
+public class ConsumeRowBatchTaskTest extends TestCase {
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.ROW_PROCESSING_BATCH_SIZE);
+    }
+
+    public void testBatchSizeNotDividingRowCount() throws Throwable {
+        // 12 rows in the file, batches of 5, 5 and 2
+        System.setProperty(SystemProperties.ROW_PROCESSING_BATCH_SIZE, "5");
+        assertRowsConsumed(12);
+    }
+
+    public void testBatchSizeLargerThanRowCount() throws Throwable {
+        System.setProperty(SystemProperties.ROW_PROCESSING_BATCH_SIZE, "1000");
+        assertRowsConsumed(12);
+    }
+
+    public void testInvalidBatchSizeFallsBackToSingleRows() throws Throwable {
+        System.setProperty(SystemProperties.ROW_PROCESSING_BATCH_SIZE, "-3");
+        assertRowsConsumed(12);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testAdaptiveBatchSizeWithVectorizedTransformer() throws Throwable {
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(new MultiThreadedTaskRunner(4)));
+
+        final AnalysisJob job;
+        final InputColumn<?> outputColumn;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(new CsvDatastore("Names", "src/test/resources/example-name-lengths.csv"));
+            builder.addSourceColumns("name");
+            final TransformerComponentBuilder<MockVectorizedTransformer> transformer =
+                    builder.addTransformer(MockVectorizedTransformer.class);
+            transformer.addInputColumn(builder.getSourceColumnByName("name"));
+            outputColumn = transformer.getOutputColumns().get(0);
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumns(outputColumn);
+            job = builder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+
+        final List<InputRow> rows = ((ListResult<InputRow>) resultFuture.getResults().get(0)).getValues();
+        assertEquals(12, rows.size());
+        for (final InputRow row : rows) {
+            final String value = (String) row.getValue(outputColumn);
+            assertEquals(value.toUpperCase(), value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertRowsConsumed(final int expectedRows) throws Throwable {
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(new MultiThreadedTaskRunner(4)));
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(new CsvDatastore("Names", "src/test/resources/example-name-lengths.csv"));
+            builder.addSourceColumns("name");
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumns(builder.getSourceColumns());
+            job = builder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+
+        final List<InputRow> rows = ((ListResult<InputRow>) resultFuture.getResults().get(0)).getValues();
+        assertEquals(expectedRows, rows.size());
+
+        final Set<Long> ids = new HashSet<>();
+        for (final InputRow row : rows) {
+            assertTrue("Multiple rows with id " + row.getId(), ids.add(row.getId()));
+        }
+    }
+}
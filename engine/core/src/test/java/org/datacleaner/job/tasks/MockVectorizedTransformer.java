@@ -0,0 +1,96 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.tasks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.datacleaner.api.ColumnarInput;
+import org.datacleaner.api.Configured;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.api.OutputColumns;
+import org.datacleaner.api.VectorizedTransformer;
+import org.junit.Ignore;
+
+/**
+ * Simple vectorized transformer which upper cases values and counts the
+ * batches it is invoked with. Values of "fail" make the transformer throw an
+ * exception and values of "skip" produce no output.
+ */
+@Ignore
+@Named("Mock vectorized transformer")
+public class MockVectorizedTransformer implements VectorizedTransformer {
+
+    @Inject
+    @Configured
+    InputColumn<String> input;
+
+    private final AtomicInteger _batchCount = new AtomicInteger();
+    private final AtomicInteger _batchRowCount = new AtomicInteger();
+    private final AtomicInteger _rowCount = new AtomicInteger();
+
+    @Override
+    public OutputColumns getOutputColumns() {
+        return new OutputColumns(String.class, "upper case");
+    }
+
+    @Override
+    public String[] transform(final InputRow inputRow) {
+        _rowCount.incrementAndGet();
+        return transform(inputRow.getValue(input));
+    }
+
+    @Override
+    public Object[][] transformBatch(final ColumnarInput columnarInput) {
+        _batchCount.incrementAndGet();
+        final Object[] values = columnarInput.getValues(input);
+        final Object[][] result = new Object[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = transform((String) values[i]);
+        }
+        _batchRowCount.addAndGet(values.length);
+        return result;
+    }
+
+    private String[] transform(final String value) {
+        if ("fail".equals(value)) {
+            throw new IllegalArgumentException("Failing on purpose");
+        }
+        if ("skip".equals(value)) {
+            return null;
+        }
+        return new String[] { value == null ? null : value.toUpperCase() };
+    }
+
+    public int getBatchCount() {
+        return _batchCount.get();
+    }
+
+    public int getBatchRowCount() {
+        return _batchRowCount.get();
+    }
+
+    public int getRowCount() {
+        return _rowCount.get();
+    }
+}
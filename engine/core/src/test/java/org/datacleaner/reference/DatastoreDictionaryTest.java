@@ -0,0 +1,166 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.DatastoreCatalogImpl;
+import org.datacleaner.connection.JdbcDatastore;
+import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
+
+import junit.framework.TestCase;
+
+public class DatastoreDictionaryTest extends TestCase {
+
+    private final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+    private final DataCleanerConfiguration configuration =
+            new DataCleanerConfigurationImpl().withDatastoreCatalog(new DatastoreCatalogImpl(datastore));
+    private final DatastoreDictionary dictionary =
+            new DatastoreDictionary("lastnames", "orderdb", "PUBLIC.EMPLOYEES.LASTNAME", false);
+
+    public void testQueryPerLookup() throws Exception {
+        final DictionaryConnection connection = dictionary.openConnection(configuration);
+        try {
+            assertTrue(connection instanceof DatastoreDictionaryConnection);
+            assertLookups(connection);
+        } finally {
+            connection.close();
+        }
+    }
+
+    public void testBloomFilterLookups() throws Exception {
+        runWithBloomFilter(() -> {
+            final DictionaryConnection connection = dictionary.openConnection(configuration);
+            try {
+                assertTrue(connection instanceof BloomFilterDatastoreDictionaryConnection);
+                assertLookups(connection);
+                // repeated lookups are served from the cache
+                assertLookups(connection);
+            } finally {
+                connection.close();
+            }
+            return null;
+        });
+    }
+
+    public void testBloomFilterConcurrentLookups() throws Exception {
+        runWithBloomFilter(() -> {
+            final DictionaryConnection connection = dictionary.openConnection(configuration);
+            final ExecutorService executorService = Executors.newFixedThreadPool(8);
+            try {
+                final List<Future<Boolean>> futures = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    final String value = (i % 2 == 0 ? "Murphy" : "Murphy" + i);
+                    futures.add(executorService.submit(() -> connection.containsValue(value)));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    assertEquals("Lookup no. " + i, i % 2 == 0, futures.get(i).get().booleanValue());
+                }
+            } finally {
+                executorService.shutdown();
+                connection.close();
+            }
+            return null;
+        });
+    }
+
+    public void testBloomFilterLookupsMatchLikeTheDatabase() throws Exception {
+        final String url = "jdbc:hsqldb:mem:DatastoreDictionary_testMatchLikeTheDatabase";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE PEOPLE (NAME VARCHAR_IGNORECASE(20), SCORE DECIMAL(5,2))");
+            statement.execute("INSERT INTO PEOPLE VALUES ('Alice', 1.50)");
+            statement.execute("INSERT INTO PEOPLE VALUES ('Bob', 20)");
+        }
+        final DataCleanerConfiguration peopleConfiguration = new DataCleanerConfigurationImpl()
+                .withDatastoreCatalog(new DatastoreCatalogImpl(new JdbcDatastore("people", url,
+                        "org.hsqldb.jdbcDriver")));
+        final DatastoreDictionary names = new DatastoreDictionary("names", "people", "PUBLIC.PEOPLE.NAME", false);
+        final DatastoreDictionary scores =
+                new DatastoreDictionary("scores", "people", "PUBLIC.PEOPLE.SCORE", false);
+
+        final String[] nameValues = { "Alice", "ALICE", "bob", "Carol" };
+        final String[] scoreValues = { "1.5", "1.50", "20", "20.0", "1", "15" };
+        final String expectedNames = containsValues(names.openConnection(peopleConfiguration), nameValues);
+        final String expectedScores = containsValues(scores.openConnection(peopleConfiguration), scoreValues);
+        assertEquals("[true, true, true, false]", expectedNames);
+        assertEquals("[true, true, true, true, false, false]", expectedScores);
+
+        runWithBloomFilter(() -> {
+            final DictionaryConnection nameConnection = names.openConnection(peopleConfiguration);
+            assertTrue(nameConnection instanceof BloomFilterDatastoreDictionaryConnection);
+            assertEquals(expectedNames, containsValues(nameConnection, nameValues));
+            assertEquals(expectedScores, containsValues(scores.openConnection(peopleConfiguration),
+                    scoreValues));
+            return null;
+        });
+    }
+
+    private static String containsValues(final DictionaryConnection connection, final String[] values) {
+        try {
+            final boolean[] result = new boolean[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = connection.containsValue(values[i]);
+            }
+            return Arrays.toString(result);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void assertLookups(final DictionaryConnection connection) {
+        assertTrue(connection.containsValue("Murphy"));
+        assertTrue(connection.containsValue("Bondur"));
+        assertFalse(connection.containsValue("murphy"));
+        assertFalse(connection.containsValue("foobar"));
+        assertFalse(connection.containsValue(""));
+
+        int count = 0;
+        final Iterator<String> allValues = connection.getAllValues();
+        while (allValues.hasNext()) {
+            assertNotNull(allValues.next());
+            count++;
+        }
+        assertEquals(19, count);
+    }
+
+    private void runWithBloomFilter(final Callable<Void> callable) throws Exception {
+        System.setProperty(SystemProperties.REFERENCE_DATA_DATASTORE_DICTIONARY_BLOOM_FILTER, "true");
+        try {
+            callable.call();
+        } finally {
+            System.clearProperty(SystemProperties.REFERENCE_DATA_DATASTORE_DICTIONARY_BLOOM_FILTER);
+        }
+    }
+}
@@ -59,6 +59,23 @@ public class SimpleSynonymCatalogTest extends TestCase {
 
     }
 
+    public void testReplaceInlineMultipleMultiWordSynonyms() {
+        final SimpleSynonymCatalog sc = new SimpleSynonymCatalog("cities", Arrays.asList(
+                new Synonym[] { new SimpleSynonym("NYC", "New York", "New York City", "The Big Apple"),
+                        new SimpleSynonym("SF", "San Francisco", "St. Francis") }));
+
+        final SynonymCatalogConnection connection = sc.openConnection(null);
+        final SynonymCatalogConnection.Replacement replacement =
+                connection.replaceInline("New York City, The Big Apple and San Francisco (aka St. Francis)");
+        assertEquals("NYC, NYC and SF (aka SF)", replacement.getReplacedString());
+        assertEquals("[New York City, The Big Apple, San Francisco, St. Francis]",
+                replacement.getSynonyms().toString());
+        assertEquals("[NYC, NYC, SF, SF]", replacement.getMasterTerms().toString());
+
+        // a regex-like synonym must only match literally
+        assertEquals("Stx Francis", connection.replaceInline("Stx Francis").getReplacedString());
+    }
+
     public void testGetSynonyms() throws Exception {
         final SimpleSynonymCatalog sc = new SimpleSynonymCatalog("countries", Arrays.asList(
                 new Synonym[] { new SimpleSynonym("DNK", "Denmark", "Danmark"),
@@ -0,0 +1,206 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.FileResource;
+import org.datacleaner.util.SystemProperties;
+
+import junit.framework.TestCase;
+
+public class SortedStringIndexTest extends TestCase {
+
+    public void testWriteAndRead() throws Exception {
+        final Map<String, String> entries = new HashMap<>();
+        entries.put("foo", "FOO");
+        entries.put("bar", "BAR");
+        entries.put("baz", "BAR");
+        entries.put("Ærø", "DK");
+        entries.put("😀", "smiley");
+        entries.put("Ａ", "A");
+        entries.put("no value", null);
+
+        final File file = new File("target/SortedStringIndexTest-testWriteAndRead.idx");
+        SortedStringIndex.write(file, 1234, 42, entries);
+
+        final SortedStringIndex index = SortedStringIndex.open(file);
+        assertEquals(7, index.size());
+        assertTrue(index.isBuiltFrom(1234, 42));
+        assertFalse(index.isBuiltFrom(1234, 43));
+
+        for (final Map.Entry<String, String> entry : entries.entrySet()) {
+            assertTrue(entry.getKey(), index.containsKey(entry.getKey()));
+            assertEquals(entry.getValue(), index.get(entry.getKey()));
+        }
+
+        assertFalse(index.containsKey("fo"));
+        assertFalse(index.containsKey("fooo"));
+        assertFalse(index.containsKey(""));
+        assertFalse(index.containsKey(null));
+        assertNull(index.get("FOO"));
+
+        // keys are ordered by their UTF-8 bytes
+        assertEquals("bar", index.getKey(0));
+        assertEquals("😀", index.getKey(6));
+    }
+
+    public void testKeysOnlyAndEmptyIndex() throws Exception {
+        final Map<String, String> entries = new HashMap<>();
+        entries.put("foo", null);
+        entries.put("bar", null);
+
+        final File file = new File("target/SortedStringIndexTest-testKeysOnly.idx");
+        SortedStringIndex.write(file, 1, 1, entries);
+        SortedStringIndex index = SortedStringIndex.open(file);
+        assertEquals(2, index.size());
+        assertTrue(index.containsKey("foo"));
+        assertNull(index.get("foo"));
+        assertFalse(index.containsKey("baz"));
+
+        SortedStringIndex.write(file, 1, 1, new HashMap<>());
+        index = SortedStringIndex.open(file);
+        assertEquals(0, index.size());
+        assertFalse(index.containsKey("foo"));
+    }
+
+    public void testGetIndexIsSharedAndRebuiltOnChanges() throws Exception {
+        System.setProperty(SystemProperties.REFERENCE_DATA_INDEX_DIRECTORY, "target/reference-data-index");
+        try {
+            final File sourceFile = new File("target/SortedStringIndexTest-source.txt");
+            FileHelper.writeStringAsFile(sourceFile, "foo");
+            final FileResource resource = new FileResource(sourceFile);
+
+            final int[] buildCount = new int[1];
+            final Map<String, String> entries = new HashMap<>();
+            entries.put("foo", null);
+
+            final SortedStringIndex index1 = SortedStringIndex.getIndex(resource, "test", () -> {
+                buildCount[0]++;
+                return entries;
+            });
+            final SortedStringIndex index2 = SortedStringIndex.getIndex(resource, "test", () -> {
+                buildCount[0]++;
+                return entries;
+            });
+            assertSame(index1, index2);
+            assertEquals(1, buildCount[0]);
+            assertTrue(index1.containsKey("foo"));
+
+            FileHelper.writeStringAsFile(sourceFile, "foo\nbar");
+            entries.put("bar", null);
+            final SortedStringIndex index3 = SortedStringIndex.getIndex(resource, "test", () -> {
+                buildCount[0]++;
+                return entries;
+            });
+            assertNotSame(index1, index3);
+            assertEquals(2, buildCount[0]);
+            assertTrue(index3.containsKey("bar"));
+            assertEquals(index1.getFile(), index3.getFile());
+        } finally {
+            System.clearProperty(SystemProperties.REFERENCE_DATA_INDEX_DIRECTORY);
+        }
+    }
+
+    public void testPlantedIndexFileIsNotTrusted() throws Exception {
+        System.setProperty(SystemProperties.REFERENCE_DATA_INDEX_DIRECTORY, "target/reference-data-index");
+        try {
+            final File sourceFile = new File("target/SortedStringIndexTest-planted-source.txt");
+            FileHelper.writeStringAsFile(sourceFile, "foo");
+            final FileResource resource = new FileResource(sourceFile);
+
+            final Map<String, String> plantedEntries = new HashMap<>();
+            plantedEntries.put("planted", null);
+            final File plantedFile = new File("target/SortedStringIndexTest-planted.idx");
+            SortedStringIndex.write(plantedFile, resource.getLastModified(), resource.getSize(), plantedEntries);
+
+            // a symbolic link in place of the index file, to a matching index
+            final File indexFile = SortedStringIndex.getIndexFile(resource, "planted");
+            indexFile.getParentFile().mkdirs();
+            indexFile.delete();
+            try {
+                Files.createSymbolicLink(indexFile.toPath(), plantedFile.getAbsoluteFile().toPath());
+            } catch (final UnsupportedOperationException | IOException e) {
+                // symbolic links are not supported here
+                return;
+            }
+
+            final Map<String, String> entries = new HashMap<>();
+            entries.put("foo", null);
+            final SortedStringIndex index = SortedStringIndex.getIndex(resource, "planted", () -> entries);
+            assertTrue(index.containsKey("foo"));
+            assertFalse(index.containsKey("planted"));
+
+            // the link itself was replaced, not the file it pointed to
+            assertFalse(Files.isSymbolicLink(indexFile.toPath()));
+            assertTrue(SortedStringIndex.open(plantedFile).containsKey("planted"));
+
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(indexFile
+                        .getParentFile().toPath())));
+                assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(indexFile
+                        .toPath())));
+            }
+        } finally {
+            System.clearProperty(SystemProperties.REFERENCE_DATA_INDEX_DIRECTORY);
+        }
+    }
+
+    public void testMultiWordMatcherPerCaseSensitivity() throws Exception {
+        final Map<String, String> entries = new HashMap<>();
+        entries.put("New York", null);
+
+        final File file = new File("target/SortedStringIndexTest-testMultiWordMatcher.idx");
+        SortedStringIndex.write(file, 1, 1, entries);
+        final SortedStringIndex index = SortedStringIndex.open(file);
+
+        assertEquals(0, index.getMultiWordMatcher(true).findMatches("in new york").size());
+        assertEquals(1, index.getMultiWordMatcher(false).findMatches("in new york").size());
+        assertSame(index.getMultiWordMatcher(true), index.getMultiWordMatcher(true));
+        assertSame(index.getMultiWordMatcher(false), index.getMultiWordMatcher(false));
+    }
+
+    public void testManyValues() throws Exception {
+        final Map<String, String> entries = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            entries.put("value number " + i, null);
+        }
+        final File file = new File("target/SortedStringIndexTest-testManyValues.idx");
+
+        SortedStringIndex.write(file, 1, 1, entries);
+        final SortedStringIndex index = SortedStringIndex.open(file);
+        assertEquals(100000, index.size());
+
+        int found = 0;
+        for (int i = 0; i < 200000; i += 2) {
+            if (index.containsKey("value number " + i)) {
+                found++;
+            }
+        }
+        assertEquals(50000, found);
+    }
+}
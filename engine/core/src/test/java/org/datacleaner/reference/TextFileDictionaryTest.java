@@ -27,6 +27,7 @@ import java.util.concurrent.Future;
 import org.apache.metamodel.util.FileHelper;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.util.SystemProperties;
 
 import junit.framework.TestCase;
 
@@ -98,4 +99,27 @@ public class TextFileDictionaryTest extends TestCase {
             assertTrue(connection.containsValue("foobar"));
         }
     }
+
+    public void testIndexedCaseSensitiveAndCaseInsensitive() throws Exception {
+        runIndexed(this::testCaseSensitiveAndCaseInsensitive);
+    }
+
+    public void testIndexedThreadSafety() throws Exception {
+        runIndexed(this::testThreadSafety);
+    }
+
+    private void runIndexed(final ThrowingRunnable runnable) throws Exception {
+        System.setProperty(SystemProperties.REFERENCE_DATA_INDEX, "true");
+        System.setProperty(SystemProperties.REFERENCE_DATA_INDEX_DIRECTORY, "target/reference-data-index");
+        try {
+            runnable.run();
+        } finally {
+            System.clearProperty(SystemProperties.REFERENCE_DATA_INDEX);
+            System.clearProperty(SystemProperties.REFERENCE_DATA_INDEX_DIRECTORY);
+        }
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
 }
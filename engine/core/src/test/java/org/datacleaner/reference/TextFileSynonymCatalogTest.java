@@ -27,6 +27,7 @@ import java.io.ObjectOutputStream;
 
 import org.apache.metamodel.util.FileHelper;
 import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.util.SystemProperties;
 
 import junit.framework.TestCase;
 
@@ -113,4 +114,53 @@ public class TextFileSynonymCatalogTest extends TestCase {
             assertEquals("foobar", scConnection.getMasterTerm("foob"));
         }
     }
+
+    public void testIndexedCountrySynonymsCaseSensitive() throws Exception {
+        runIndexed(this::testCountrySynonymsCaseSensitive);
+    }
+
+    public void testIndexedCountrySynonymsCaseInsensitive() throws Exception {
+        runIndexed(this::testCountrySynonymsCaseInsensitive);
+    }
+
+    public void testIndexedModificationsRebuildIndex() throws Exception {
+        runIndexed(() -> {
+            final File file = new File("target/TextBasedSynonymCatalogTest-indexed-modification.txt");
+            FileHelper.writeStringAsFile(file, "foo,fooo,fo\nbar,baar,br", "UTF-8");
+            final SynonymCatalog cat = new TextFileSynonymCatalog("sc", file, false, "UTF-8");
+
+            try (SynonymCatalogConnection scConnection = cat.openConnection(configuration)) {
+                assertEquals("foo", scConnection.getMasterTerm("Fooo"));
+                assertEquals("bar", scConnection.getMasterTerm("br"));
+                assertEquals(null, scConnection.getMasterTerm("foob"));
+                assertEquals("foo and bar", scConnection.replaceInline("fo and baar").getReplacedString());
+            }
+
+            final long lastModified = file.lastModified();
+            FileHelper.writeStringAsFile(file, "foo,fooo,fo\nfoobar,foob,foo bar", "UTF-8");
+            file.setLastModified(lastModified + 2000);
+
+            try (SynonymCatalogConnection scConnection = cat.openConnection(configuration)) {
+                assertEquals("foo", scConnection.getMasterTerm("fooo"));
+                assertEquals(null, scConnection.getMasterTerm("br"));
+                assertEquals("foobar", scConnection.getMasterTerm("foob"));
+                assertEquals("foobar!", scConnection.replaceInline("Foo Bar!").getReplacedString());
+            }
+        });
+    }
+
+    private void runIndexed(final ThrowingRunnable runnable) throws Exception {
+        System.setProperty(SystemProperties.REFERENCE_DATA_INDEX, "true");
+        System.setProperty(SystemProperties.REFERENCE_DATA_INDEX_DIRECTORY, "target/reference-data-index");
+        try {
+            runnable.run();
+        } finally {
+            System.clearProperty(SystemProperties.REFERENCE_DATA_INDEX);
+            System.clearProperty(SystemProperties.REFERENCE_DATA_INDEX_DIRECTORY);
+        }
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
 }
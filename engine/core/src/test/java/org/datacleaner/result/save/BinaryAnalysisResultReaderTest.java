@@ -0,0 +1,254 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.result.save;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.metamodel.util.InMemoryResource;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.Metric;
+import org.datacleaner.components.mock.AnalyzerMock;
+import org.datacleaner.data.MockInputColumn;
+import org.datacleaner.descriptors.AnalyzerDescriptor;
+import org.datacleaner.descriptors.ConfiguredPropertyDescriptor;
+import org.datacleaner.descriptors.Descriptors;
+import org.datacleaner.job.AnalyzerJob;
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.job.ImmutableAnalyzerJob;
+import org.datacleaner.job.ImmutableComponentConfiguration;
+import org.datacleaner.result.AnalysisResult;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.result.NumberResult;
+import org.datacleaner.result.SimpleAnalysisResult;
+import org.datacleaner.result.save.BinaryAnalysisResultReader.Section;
+
+import junit.framework.TestCase;
+
+public class BinaryAnalysisResultReaderTest extends TestCase {
+
+    public static class CountingResult implements AnalyzerResult {
+
+        private static final long serialVersionUID = 1L;
+        private static final AtomicInteger deserializations = new AtomicInteger();
+
+        private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            deserializations.incrementAndGet();
+        }
+    }
+
+    public static class MetricsResult implements AnalyzerResult {
+
+        private static final long serialVersionUID = 1L;
+        private static final AtomicInteger deserializations = new AtomicInteger();
+
+        @Metric("Big long")
+        public long getBigLong() {
+            return Long.MAX_VALUE - 1;
+        }
+
+        @Metric("Count")
+        public Integer getCount() {
+            return 42;
+        }
+
+        @Metric("Ratio")
+        public BigDecimal getRatio() {
+            return new BigDecimal("0.10");
+        }
+
+        @Metric("Missing")
+        public Double getMissing() {
+            return null;
+        }
+
+        @Metric("Counter")
+        public AtomicLong getCounter() {
+            return new AtomicLong(1);
+        }
+
+        private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            deserializations.incrementAndGet();
+        }
+    }
+
+    private final AnalyzerJob job1 = createJob("job1");
+    private final AnalyzerJob job2 = createJob("job2");
+    private final AnalyzerJob job3 = createJob("job3");
+
+    private static AnalyzerJob createJob(final String name) {
+        return new ImmutableAnalyzerJob(name, Descriptors.ofAnalyzer(AnalyzerMock.class),
+                new ImmutableComponentConfiguration(new HashMap<>()), null, null);
+    }
+
+    private static AnalyzerJob createJob(final String name, final InputColumn<?> column) {
+        final AnalyzerDescriptor<AnalyzerMock> descriptor = Descriptors.ofAnalyzer(AnalyzerMock.class);
+        final Map<ConfiguredPropertyDescriptor, Object> properties = new HashMap<>();
+        properties.put(descriptor.getConfiguredPropertiesForInput().iterator().next(),
+                new InputColumn<?>[] { column });
+        return new ImmutableAnalyzerJob(name, descriptor, new ImmutableComponentConfiguration(properties), null,
+                null);
+    }
+
+    private InMemoryResource save(final AnalysisResult analysisResult) {
+        final InMemoryResource resource = new InMemoryResource("result.analysis.result.dat");
+        new AnalysisResultSaveHandler(analysisResult, resource).saveOrThrow();
+        return resource;
+    }
+
+    public void testWriteAndRead() throws Exception {
+        final Map<ComponentJob, AnalyzerResult> results = new LinkedHashMap<>();
+        results.put(job1, new NumberResult(42));
+        results.put(job2, new ListResult<>(Arrays.asList("foo", "bar")));
+        final Date creationDate = new Date(1234567890000L);
+        final InMemoryResource resource = save(new SimpleAnalysisResult(results, creationDate));
+
+        assertTrue(BinaryAnalysisResultReader.isBinaryFormat(resource));
+
+        final BinaryAnalysisResultReader reader = new BinaryAnalysisResultReader(resource);
+        assertEquals(creationDate, reader.getCreationDate());
+
+        final List<Section> sections = reader.getSections();
+        assertEquals(2, sections.size());
+        assertEquals("job1", sections.get(0).getComponentName());
+        assertEquals("Row-processing mock", sections.get(0).getDescriptorName());
+        assertEquals(NumberResult.class.getName(), sections.get(0).getResultClassName());
+        assertEquals(ListResult.class.getName(), sections.get(1).getResultClassName());
+        assertEquals(job2, sections.get(1).getComponentJob());
+
+        final AnalysisResult analysisResult = reader.getAnalysisResult();
+        assertEquals(creationDate, analysisResult.getCreationDate());
+        assertEquals("42", analysisResult.getResult(job1).toString());
+        assertEquals("[foo, bar]", ((ListResult<?>) analysisResult.getResult(job2)).getValues().toString());
+        assertEquals(2, analysisResult.getResultMap().size());
+        assertEquals(1, analysisResult.getResults(NumberResult.class).size());
+    }
+
+    public void testOnlyRequestedResultsAreDeserialized() throws Exception {
+        final Map<ComponentJob, AnalyzerResult> results = new LinkedHashMap<>();
+        results.put(job1, new CountingResult());
+        results.put(job2, new NumberResult(1));
+        results.put(job3, new CountingResult());
+        final InMemoryResource resource = save(new SimpleAnalysisResult(results));
+
+        final int before = CountingResult.deserializations.get();
+        final AnalysisResult analysisResult = new BinaryAnalysisResultReader(resource).getAnalysisResult();
+        assertEquals(before, CountingResult.deserializations.get());
+
+        assertEquals("1", analysisResult.getResult(job2).toString());
+        assertEquals(before, CountingResult.deserializations.get());
+
+        assertTrue(analysisResult.getResult(job3) instanceof CountingResult);
+        assertEquals(before + 1, CountingResult.deserializations.get());
+
+        // results are only deserialized once
+        analysisResult.getResult(job3);
+        assertEquals(before + 1, CountingResult.deserializations.get());
+
+        // the keys of the result map are available without deserializing the
+        // results
+        final Map<ComponentJob, AnalyzerResult> resultMap = analysisResult.getResultMap();
+        assertEquals(Arrays.asList(job1, job2, job3), new ArrayList<>(resultMap.keySet()));
+        assertEquals(before + 1, CountingResult.deserializations.get());
+
+        assertEquals(1, analysisResult.getResults(NumberResult.class).size());
+        assertEquals(before + 1, CountingResult.deserializations.get());
+
+        assertTrue(resultMap.get(job1) instanceof CountingResult);
+        assertEquals(before + 2, CountingResult.deserializations.get());
+    }
+
+    public void testMetricValuesAreReadWithoutDeserializingResults() throws Exception {
+        final Map<ComponentJob, AnalyzerResult> results = new LinkedHashMap<>();
+        results.put(job1, new MetricsResult());
+        results.put(job2, new NumberResult(7));
+        final InMemoryResource resource = save(new SimpleAnalysisResult(results));
+
+        final int before = MetricsResult.deserializations.get();
+        final BinaryAnalysisResultReader reader = new BinaryAnalysisResultReader(resource);
+        final Map<String, Number> metrics = reader.getSections().get(0).getMetrics();
+
+        // values keep their type and precision
+        assertEquals(Long.valueOf(Long.MAX_VALUE - 1), metrics.get("Big long"));
+        assertEquals(Integer.valueOf(42), metrics.get("Count"));
+        assertEquals(new BigDecimal("0.10"), metrics.get("Ratio"));
+        assertTrue(metrics.containsKey("Missing"));
+        assertNull(metrics.get("Missing"));
+
+        // values of other types have to be read from the result itself
+        assertFalse(metrics.containsKey("Counter"));
+
+        final AnalysisResult analysisResult = reader.getAnalysisResult();
+        assertTrue(analysisResult instanceof HasMetricValues);
+        final HasMetricValues metricValues = (HasMetricValues) analysisResult;
+        assertEquals(Integer.valueOf(42), metricValues.getMetricValues(createJob("job1")).get("Count"));
+        assertEquals(Integer.valueOf(7), metricValues.getMetricValues(job2).get("Number"));
+
+        assertEquals(before, MetricsResult.deserializations.get());
+    }
+
+    public void testComponentJobsShareObjects() throws Exception {
+        final InputColumn<String> column = new MockInputColumn<>("col", String.class);
+        final AnalyzerJob inputJob1 = createJob("job1", column);
+        final AnalyzerJob inputJob2 = createJob("job2", column);
+
+        final Map<ComponentJob, AnalyzerResult> results = new LinkedHashMap<>();
+        results.put(inputJob1, new NumberResult(1));
+        results.put(inputJob2, new NumberResult(2));
+        final InMemoryResource resource = save(new SimpleAnalysisResult(results));
+
+        final List<Section> sections = new BinaryAnalysisResultReader(resource).getSections();
+        final AnalyzerJob readJob1 = (AnalyzerJob) sections.get(0).getComponentJob();
+        final AnalyzerJob readJob2 = (AnalyzerJob) sections.get(1).getComponentJob();
+        assertEquals("job1", readJob1.getName());
+        assertEquals("job2", readJob2.getName());
+        assertEquals("col", readJob1.getInput()[0].getName());
+        assertSame(readJob1.getInput()[0], readJob2.getInput()[0]);
+    }
+
+    public void testLegacySerializedResultIsNotBinary() throws Exception {
+        final Map<ComponentJob, AnalyzerResult> results = new LinkedHashMap<>();
+        results.put(job1, new NumberResult(42));
+        final InMemoryResource resource = new InMemoryResource("legacy.analysis.result.dat");
+        resource.write(out -> SerializationUtils.serialize(new SimpleAnalysisResult(results), out));
+
+        assertFalse(BinaryAnalysisResultReader.isBinaryFormat(resource));
+        try {
+            new BinaryAnalysisResultReader(resource);
+            fail("Exception expected");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("Not a binary analysis result"));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.test.full.scenarios;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Named;
+
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.api.Configured;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.api.QueryOptimizedAnalyzer;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
+
+import junit.framework.TestCase;
+
+public class AggregatePushDownTest extends TestCase {
+
+    @Named("Aggregatable count analyzer")
+    public static class AggregatableCountAnalyzer implements QueryOptimizedAnalyzer<ListResult<Integer>> {
+
+        private final AtomicInteger runs = new AtomicInteger();
+        private final AtomicInteger records = new AtomicInteger();
+
+        @Configured
+        InputColumn<?> inputColumn;
+
+        @Configured
+        boolean optimizable = true;
+
+        @Override
+        public boolean isOptimizable() {
+            return optimizable;
+        }
+
+        @Override
+        public void run(final InputRow row, final int distinctCount) {
+            runs.incrementAndGet();
+            records.addAndGet(distinctCount);
+        }
+
+        @Override
+        public ListResult<Integer> getResult() {
+            return new ListResult<>(Arrays.asList(runs.get(), records.get()));
+        }
+    }
+
+    @Named("Aggregatable row id analyzer")
+    public static class AggregatableRowIdAnalyzer implements QueryOptimizedAnalyzer<ListResult<Long>> {
+
+        private final Set<Long> rowIds = ConcurrentHashMap.newKeySet();
+
+        @Configured
+        InputColumn<?> inputColumn;
+
+        @Override
+        public boolean isOptimizable() {
+            return true;
+        }
+
+        @Override
+        public void run(final InputRow row, final int distinctCount) {
+            rowIds.add(row.getId());
+        }
+
+        @Override
+        public ListResult<Long> getResult() {
+            final List<Long> result = new ArrayList<>(rowIds);
+            Collections.sort(result);
+            return new ListResult<>(result);
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.QUERY_AGGREGATE_PUSHDOWN);
+    }
+
+    public void testPushedDownIntoGroupByQuery() throws Throwable {
+        System.setProperty(SystemProperties.QUERY_AGGREGATE_PUSHDOWN, "true");
+
+        final List<AnalyzerResult> results =
+                runJob(TestHelper.createSampleDatabaseDatastore("orderdb"), "PUBLIC.ORDERS.STATUS", true);
+        assertEquals("[6, 326]", ((ListResult<?>) results.get(0)).getValues().toString());
+    }
+
+    public void testAnalyzersOfSameColumnsShareQuery() throws Throwable {
+        System.setProperty(SystemProperties.QUERY_AGGREGATE_PUSHDOWN, "true");
+
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl();
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("PUBLIC.ORDERS.STATUS", "PUBLIC.ORDERS.CUSTOMERNUMBER");
+            final InputColumn<?> status = builder.getSourceColumnByName("STATUS");
+            final InputColumn<?> customerNumber = builder.getSourceColumnByName("CUSTOMERNUMBER");
+            builder.addAnalyzer(AggregatableRowIdAnalyzer.class).addInputColumn(status);
+            builder.addAnalyzer(AggregatableRowIdAnalyzer.class).addInputColumn(customerNumber);
+            builder.addAnalyzer(AggregatableRowIdAnalyzer.class).addInputColumn(status);
+            job = builder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+        final List<AnalyzerResult> results = resultFuture.getResults();
+        final List<?> statusRowIds1 = ((ListResult<?>) results.get(0)).getValues();
+        final List<?> customerNumberRowIds = ((ListResult<?>) results.get(1)).getValues();
+        final List<?> statusRowIds2 = ((ListResult<?>) results.get(2)).getValues();
+
+        // the analyzers of the status column got the same grouped rows
+        assertEquals(6, statusRowIds1.size());
+        assertEquals(statusRowIds1, statusRowIds2);
+
+        assertEquals(98, customerNumberRowIds.size());
+        assertTrue(Collections.disjoint(statusRowIds1, customerNumberRowIds));
+    }
+
+    public void testStreamedAlongsideNonOptimizableAnalyzer() throws Throwable {
+        System.setProperty(SystemProperties.QUERY_AGGREGATE_PUSHDOWN, "true");
+
+        final List<AnalyzerResult> results =
+                runJob(TestHelper.createSampleDatabaseDatastore("orderdb"), "PUBLIC.ORDERS.STATUS", true, false);
+        assertEquals("[6, 326]", ((ListResult<?>) results.get(0)).getValues().toString());
+        assertEquals("[326, 326]", ((ListResult<?>) results.get(1)).getValues().toString());
+    }
+
+    public void testNotPushedDownByDefault() throws Throwable {
+        final List<AnalyzerResult> results =
+                runJob(TestHelper.createSampleDatabaseDatastore("orderdb"), "PUBLIC.ORDERS.STATUS", true);
+        assertEquals("[326, 326]", ((ListResult<?>) results.get(0)).getValues().toString());
+    }
+
+    public void testNotPushedDownWhenQueryOptimizationIsNotPreferred() throws Throwable {
+        System.setProperty(SystemProperties.QUERY_AGGREGATE_PUSHDOWN, "true");
+
+        final List<AnalyzerResult> results =
+                runJob(new CsvDatastore("employees", "src/test/resources/employees.csv"), "email", true);
+        assertEquals("[7, 7]", ((ListResult<?>) results.get(0)).getValues().toString());
+    }
+
+    private List<AnalyzerResult> runJob(final Datastore datastore, final String columnPath,
+            final boolean... optimizable) throws Throwable {
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(new MultiThreadedTaskRunner(4)));
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns(columnPath);
+            for (final boolean optimizableAnalyzer : optimizable) {
+                builder.addAnalyzer(AggregatableCountAnalyzer.class).addInputColumns(builder.getSourceColumns())
+                        .setConfiguredProperty("Optimizable", optimizableAnalyzer);
+            }
+            job = builder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+        return resultFuture.getResults();
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.test.full.scenarios;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Named;
+
+import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.Configured;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
+
+import junit.framework.TestCase;
+
+public class DuplicateRowCollapsingTest extends TestCase {
+
+    @Named("Distinct count analyzer")
+    public static class DistinctCountAnalyzer implements Analyzer<ListResult<Integer>> {
+
+        private final AtomicInteger runs = new AtomicInteger();
+        private final AtomicInteger records = new AtomicInteger();
+
+        @Configured
+        InputColumn<?> inputColumn;
+
+        @Override
+        public void run(final InputRow row, final int distinctCount) {
+            runs.incrementAndGet();
+            records.addAndGet(distinctCount);
+        }
+
+        @Override
+        public ListResult<Integer> getResult() {
+            return new ListResult<>(Arrays.asList(runs.get(), records.get()));
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.ROW_PROCESSING_COLLAPSE_DUPLICATES);
+    }
+
+    public void testGroupByQuery() throws Throwable {
+        System.setProperty(SystemProperties.ROW_PROCESSING_COLLAPSE_DUPLICATES, "true");
+
+        final ListResult<Integer> result =
+                runJob(TestHelper.createSampleDatabaseDatastore("orderdb"), "PUBLIC.ORDERS.STATUS");
+        assertEquals(326, result.getValues().get(1).intValue());
+        assertEquals(6, result.getValues().get(0).intValue());
+    }
+
+    public void testInMemoryAggregation() throws Throwable {
+        System.setProperty(SystemProperties.ROW_PROCESSING_COLLAPSE_DUPLICATES, "true");
+
+        final ListResult<Integer> result =
+                runJob(new CsvDatastore("employees", "src/test/resources/employees.csv"), "email");
+        assertEquals(7, result.getValues().get(1).intValue());
+        assertEquals(6, result.getValues().get(0).intValue());
+    }
+
+    public void testNotCollapsedByDefault() throws Throwable {
+        final ListResult<Integer> result =
+                runJob(new CsvDatastore("employees", "src/test/resources/employees.csv"), "email");
+        assertEquals(7, result.getValues().get(1).intValue());
+        assertEquals(7, result.getValues().get(0).intValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ListResult<Integer> runJob(final Datastore datastore, final String columnPath) throws Throwable {
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(new MultiThreadedTaskRunner(4)));
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns(columnPath);
+            builder.addAnalyzer(DistinctCountAnalyzer.class).addInputColumns(builder.getSourceColumns());
+            job = builder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+        return (ListResult<Integer>) resultFuture.getResults().get(0);
+    }
+}
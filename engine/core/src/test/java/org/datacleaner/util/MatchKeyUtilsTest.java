@@ -0,0 +1,48 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+public class MatchKeyUtilsTest extends TestCase {
+
+    public void testToLooseKey() throws Exception {
+        assertNull(MatchKeyUtils.toLooseKey(null));
+        assertEquals(MatchKeyUtils.toLooseKey("Alice"), MatchKeyUtils.toLooseKey("ALICE  "));
+        assertEquals(MatchKeyUtils.toLooseKey(1), MatchKeyUtils.toLooseKey(new BigDecimal("1.00")));
+        assertEquals(MatchKeyUtils.toLooseKey(1), MatchKeyUtils.toLooseKey(" 1.0"));
+        assertEquals(MatchKeyUtils.toLooseKey(new Date(1000)), MatchKeyUtils.toLooseKey(new Timestamp(1000)));
+        assertEquals(MatchKeyUtils.toLooseKey(Double.NaN), MatchKeyUtils.toLooseKey(Double.NaN));
+        assertEquals("-foo", MatchKeyUtils.toLooseKey("-Foo"));
+        assertFalse(MatchKeyUtils.toLooseKey("Alice").equals(MatchKeyUtils.toLooseKey("Bob")));
+    }
+
+    public void testToExactKey() throws Exception {
+        assertNull(MatchKeyUtils.toExactKey(null));
+        assertEquals(MatchKeyUtils.toExactKey(1), MatchKeyUtils.toExactKey(new BigDecimal("1.00")));
+        assertEquals(MatchKeyUtils.toExactKey(1), MatchKeyUtils.toExactKey(1L));
+        assertFalse(MatchKeyUtils.toExactKey("Alice").equals(MatchKeyUtils.toExactKey("ALICE")));
+        assertFalse(MatchKeyUtils.toExactKey(1).equals(MatchKeyUtils.toExactKey(" 1")));
+    }
+}
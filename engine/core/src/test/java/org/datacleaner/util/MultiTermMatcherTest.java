@@ -0,0 +1,124 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.datacleaner.util.MultiTermMatcher.Match;
+
+import junit.framework.TestCase;
+
+public class MultiTermMatcherTest extends TestCase {
+
+    public void testWordBoundaries() throws Exception {
+        final MultiTermMatcher<String> matcher = createMatcher(true, "foo bar", "bar baz");
+
+        assertEquals("[Match[foo bar,0-7]]", matcher.findMatches("foo bar").toString());
+        assertEquals("[Match[foo bar,2-9]]", matcher.findMatches("- foo bar.").toString());
+        assertEquals("[]", matcher.findMatches("xfoo bar").toString());
+        assertEquals("[]", matcher.findMatches("foo barx").toString());
+        assertEquals("[]", matcher.findMatches("foo bar_").toString());
+        assertEquals("[Match[foo bar,0-7], Match[bar baz,8-15]]",
+                matcher.findMatches("foo bar bar baz").toString());
+        assertEquals("[]", matcher.findMatches("").toString());
+        assertEquals("[]", matcher.findMatches(null).toString());
+    }
+
+    public void testLongestMatchWins() throws Exception {
+        final MultiTermMatcher<String> matcher =
+                createMatcher(true, "assistant to", "assistant to the", "to the lead", "the lead");
+
+        final List<Match<String>> matches = matcher.findMatches("assistant to the lead");
+        assertEquals("[Match[assistant to the,0-16]]", matches.toString());
+
+        assertEquals("[Match[assistant to,0-12], Match[the lead,13-21]]",
+                createMatcher(true, "assistant to", "the lead").findMatches("assistant to the lead").toString());
+    }
+
+    public void testCaseInsensitive() throws Exception {
+        final MultiTermMatcher<String> matcher = createMatcher(false, "The Netherlands");
+
+        final List<Match<String>> matches = matcher.findMatches("in THE netherlands!");
+        assertEquals(1, matches.size());
+        assertEquals("The Netherlands", matches.get(0).getTerm());
+        assertEquals("The Netherlands_value", matches.get(0).getValue());
+        assertEquals(3, matches.get(0).getStart());
+        assertEquals(18, matches.get(0).getEnd());
+
+        assertEquals("[]", createMatcher(true, "The Netherlands").findMatches("in THE netherlands!").toString());
+    }
+
+    public void testSpecialCharactersAreLiteral() throws Exception {
+        final MultiTermMatcher<String> matcher = createMatcher(true, "Mr. Smith", "a+b c");
+        assertEquals("[Match[Mr. Smith,0-9]]", matcher.findMatches("Mr. Smith").toString());
+        assertEquals("[]", matcher.findMatches("Mrx Smith").toString());
+        assertEquals("[Match[a+b c,0-5]]", matcher.findMatches("a+b c").toString());
+    }
+
+    public void testSameResultAsRegex() throws Exception {
+        final String[] terms = { "new york", "york city", "new york city", "san francisco", "los angeles",
+                "the big apple", "big apple" };
+        final MultiTermMatcher<String> matcher = createMatcher(true, terms);
+        final String text = "from new york city to los angeles, via the big apple and san francisco; "
+                + "new yorkers and xlos angeles are not matched";
+
+        final StringBuilder expected = new StringBuilder();
+        for (final Match<String> match : matcher.findMatches(text)) {
+            expected.append(match.getTerm()).append('@').append(match.getStart()).append(' ');
+        }
+        assertEquals("new york city@5 los angeles@22 the big apple@39 san francisco@57 ", expected.toString());
+
+        // every match should also be found by the equivalent regex
+        for (final Match<String> match : matcher.findMatches(text)) {
+            final Matcher regexMatcher = Pattern.compile("\\b" + Pattern.quote(match.getTerm()) + "\\b").matcher(text);
+            assertTrue(regexMatcher.find(match.getStart()));
+            assertEquals(match.getStart(), regexMatcher.start());
+        }
+    }
+
+    public void testManyTerms() throws Exception {
+        final Map<String, String> terms = new HashMap<>();
+        for (int i = 0; i < 80000; i++) {
+            terms.put("term number " + i, "master " + i);
+        }
+
+        final MultiTermMatcher<String> matcher = new MultiTermMatcher<>(terms, false);
+
+        int matchCount = 0;
+        for (int i = 79000; i < 81000; i++) {
+            matchCount += matcher.findMatches("some text with term number " + i + " and Term Number 42").size();
+        }
+
+        // values from 80000 and up only match "Term Number 42"
+        assertEquals(1000 * 2 + 1000, matchCount);
+    }
+
+    private MultiTermMatcher<String> createMatcher(final boolean caseSensitive, final String... terms) {
+        final Map<String, String> map = new HashMap<>();
+        for (final String term : terms) {
+            map.put(term, term + "_value");
+        }
+        return new MultiTermMatcher<>(map, caseSensitive);
+    }
+}
@@ -19,6 +19,8 @@
  */
 package org.datacleaner.util;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
@@ -47,4 +49,76 @@ public class WriteBufferTest extends TestCase {
         assertEquals(1, buffer.getBuffer().size());
         assertEquals(5, counter.get());
     }
+
+    public void testSynchronousFlushIsBackpressure() throws Exception {
+        final WriteBuffer buffer = new WriteBuffer(2, rows -> Thread.sleep(50));
+
+        buffer.addToBuffer(new Object[0]);
+        buffer.addToBuffer(new Object[0]);
+        buffer.flushBuffer();
+
+        final WriteBufferStatistics statistics = buffer.getStatistics();
+        assertEquals(1, statistics.getFlushCount());
+        assertTrue(statistics.getBackpressureMillis() >= statistics.getMaxFlushMillis());
+        assertTrue(statistics.getBackpressureMillis() >= 50);
+    }
+
+    public void testAsynchronousFlush() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch releaseWriter = new CountDownLatch(1);
+        final Thread callerThread = Thread.currentThread();
+
+        final WriteBuffer buffer = new WriteBuffer(5, rows -> {
+            assertNotSame(callerThread, Thread.currentThread());
+            writeStarted.countDown();
+            releaseWriter.await();
+            for (@SuppressWarnings("unused") final Object[] row : rows) {
+                counter.incrementAndGet();
+            }
+        }, 2);
+
+        try {
+            assertTrue(buffer.isAsynchronous());
+            for (int i = 0; i < 6; i++) {
+                buffer.addToBuffer(new Object[0]);
+            }
+            // the first buffer is being written while the caller continues
+            assertTrue(writeStarted.await(10, TimeUnit.SECONDS));
+            assertEquals(1, buffer.getBuffer().size());
+            assertEquals(6, buffer.getQueuedRowCount());
+            assertEquals(0, counter.get());
+
+            releaseWriter.countDown();
+            buffer.flushBuffer();
+            assertEquals(6, counter.get());
+            assertEquals(0, buffer.getQueuedRowCount());
+
+            final WriteBufferStatistics statistics = buffer.getStatistics();
+            assertEquals(2, statistics.getFlushCount());
+            assertEquals(6, statistics.getMaxQueuedRowCount());
+        } finally {
+            buffer.close();
+        }
+    }
+
+    public void testAsynchronousErrorIsRethrown() throws Exception {
+        final WriteBuffer buffer = new WriteBuffer(2, rows -> {
+            throw new IllegalStateException("Database is down");
+        }, 3);
+
+        try {
+            buffer.addToBuffer(new Object[0]);
+            buffer.addToBuffer(new Object[0]);
+            buffer.addToBuffer(new Object[0]);
+            try {
+                buffer.flushBuffer();
+                fail("Exception expected");
+            } catch (final IllegalStateException e) {
+                assertEquals("Database is down", e.getMessage());
+            }
+        } finally {
+            buffer.close();
+        }
+    }
 }
@@ -19,6 +19,8 @@
  */
 package org.datacleaner.util.batch;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import junit.framework.TestCase;
 
 public class BatchTransformationBufferTest extends TestCase {
@@ -62,6 +64,55 @@ public class BatchTransformationBufferTest extends TestCase {
         runScenario(1000, 100, 100);
     }
 
+    public void testGroupCommitScenario() throws Exception {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final BatchTransformation<Integer, String> batchTransformation = (source, sink) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (final InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            for (int i = 0; i < source.size(); i++) {
+                sink.setOutput(i, source.getInput(i) + "bar");
+            }
+            inFlight.decrementAndGet();
+        };
+
+        // no flush interval: batches are dispatched by the waiting threads
+        final BatchTransformationBuffer<Integer, String> buffer =
+                new BatchTransformationBuffer<>(batchTransformation, 10, 0, 2);
+        buffer.start();
+        final int numThreads = 50;
+        final int recordsPerThread = 20;
+        final String[] results = new String[numThreads * recordsPerThread];
+        try {
+            final Thread[] threads = new Thread[numThreads];
+            for (int i = 0; i < threads.length; i++) {
+                final int threadIndex = i;
+                threads[i] = new Thread(() -> {
+                    for (int j = 0; j < recordsPerThread; j++) {
+                        final int index = threadIndex * recordsPerThread + j;
+                        results[index] = buffer.transform(index);
+                    }
+                });
+                threads[i].start();
+            }
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            buffer.shutdown();
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            assertEquals(i + "bar", results[i]);
+        }
+        assertTrue("Max in flight was " + maxInFlight.get(), maxInFlight.get() <= 2);
+        assertTrue("Batch count was " + buffer.getBatchCount(), buffer.getBatchCount() < results.length);
+    }
+
     public int runScenario(final int numThreads, final int maxBatchSize, final int flushInterval) {
         System.out.println("Running scenario with " + numThreads + ", maxBatchSize=" + maxBatchSize + ", flushInterval="
                 + flushInterval + "ms");
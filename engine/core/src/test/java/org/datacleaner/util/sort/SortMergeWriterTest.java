@@ -23,16 +23,29 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Resource;
 import org.apache.metamodel.util.ToStringComparator;
+import org.datacleaner.test.TestHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import junit.framework.TestCase;
 
 public class SortMergeWriterTest extends TestCase {
 
+    private static final Logger logger = LoggerFactory.getLogger(SortMergeWriterTest.class);
+
     public void testSimpleSort() throws Exception {
         doSortTests(2);
         doSortTests(5);
@@ -102,6 +115,38 @@ public class SortMergeWriterTest extends TestCase {
         }
     }
 
+    public void testSharedObjectsAreWrittenOncePerTempFile() throws Exception {
+        final String[] header = { "id", "value" };
+        final Set<Object> readHeaders = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        final SortMergeWriter<Object[], Writer> sorter =
+                new SortMergeWriter<Object[], Writer>(100, (o1, o2) -> ((Integer) o1[1]).compareTo((Integer) o2[1])) {
+
+                    @Override
+                    protected Writer createWriter(final Resource file) {
+                        return FileHelper.getWriter(file.write(), FileHelper.DEFAULT_ENCODING);
+                    }
+
+                    @Override
+                    protected void writeRow(final Writer writer, final Object[] row, final int count)
+                            throws IOException {
+                        readHeaders.add(row[0]);
+                        writer.write(row[1] + "\n");
+                    }
+
+                    protected void writeHeader(final Writer writer) throws IOException {
+                    }
+                };
+
+        for (int i = 0; i < 1000; i++) {
+            sorter.append(new Object[] { header, i });
+        }
+        assertEquals(1000, sorter.write(new File("target/sort_merge_shared_objects.txt")));
+
+        // 10 temp files of 100 rows, each holding a single copy of the header
+        assertEquals(10, readHeaders.size());
+    }
+
     public void testUseAsUniquenessChecker() throws Exception {
         final SortMergeWriter<String, Writer> sorter =
                 new SortMergeWriter<String, Writer>(2, ToStringComparator.getComparator()) {
@@ -237,6 +282,177 @@ public class SortMergeWriterTest extends TestCase {
         }
     }
 
+    public void testConcurrentAppends() throws Exception {
+        final SortMergeWriter<String, Writer> sorter = createCountingSorter(100, false, 4);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        sorter.append("value" + (i % 1000));
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        final File file = new File("target/sort_merge_concurrent.txt");
+        assertEquals(1000, sorter.write(file));
+
+        try (BufferedReader br = FileHelper.getBufferedReader(file)) {
+            assertEquals("value0,40", br.readLine());
+            assertEquals("value1,40", br.readLine());
+            assertEquals("value10,40", br.readLine());
+            int lines = 3;
+            String previous = "value10";
+            for (String line = br.readLine(); line != null; line = br.readLine()) {
+                final String value = line.substring(0, line.indexOf(','));
+                assertTrue(previous + " < " + value, previous.compareTo(value) < 0);
+                assertEquals(value + ",40", line);
+                previous = value;
+                lines++;
+            }
+            assertEquals(1000, lines);
+        }
+    }
+
+    public void testMultiLevelMergeWithCompression() throws Exception {
+        // a fan-in of 2 forces several levels of intermediate merges
+        final SortMergeWriter<String, Writer> sorter = createCountingSorter(10, true, 2);
+        for (int i = 0; i < 1000; i++) {
+            sorter.append("v" + (1000 + (i * 7919) % 500));
+        }
+        sorter.append("\u00e6\u00f8\u00e5", 2);
+
+        final File file = new File("target/sort_merge_multi_level.txt");
+        assertEquals(501, sorter.write(file));
+
+        try (BufferedReader br = FileHelper.getBufferedReader(file)) {
+            for (int i = 0; i < 500; i++) {
+                assertEquals("v" + (1000 + i) + ",2", br.readLine());
+            }
+            assertEquals("\u00e6\u00f8\u00e5,2", br.readLine());
+            assertNull(br.readLine());
+        }
+    }
+
+    public void testManyValuesAcrossRuns() throws Exception {
+        final int numValues = 100000;
+        final SortMergeWriter<String, Writer> sorter =
+                createCountingSorter(5000, false, SortMergeWriter.DEFAULT_MERGE_FAN_IN);
+
+        for (int i = 0; i < numValues; i++) {
+            sorter.append("value" + ((i * 7919L) % numValues));
+        }
+        final File file = new File("target/sort_merge_many_values.txt");
+        assertEquals(numValues, sorter.write(file));
+
+        try (BufferedReader br = FileHelper.getBufferedReader(file)) {
+            String previous = null;
+            for (int i = 0; i < numValues; i++) {
+                final String line = br.readLine();
+                assertTrue(line, line.endsWith(",1"));
+                if (previous != null) {
+                    assertTrue(previous + " before " + line, previous.compareTo(line) < 0);
+                }
+                previous = line;
+            }
+            assertNull(br.readLine());
+        }
+    }
+
+    /**
+     * Measures the throughput of sorting strings, appended by one or more
+     * threads and with plain or compressed runs. Only run when benchmarks are
+     * enabled, see {@link TestHelper#isBenchmarkEnabled()}. The number of
+     * values can be set with the "datacleaner.benchmark.sort.values" system
+     * property, eg. to 100000000 for a sort that spills most of the values.
+     */
+    public void testThroughput() throws Exception {
+        if (!TestHelper.isBenchmarkEnabled()) {
+            return;
+        }
+
+        final int numValues = Integer.getInteger("datacleaner.benchmark.sort.values", 1000000);
+
+        // warm up before measuring
+        runThroughput(numValues / 10, 1, false);
+
+        for (final boolean compress : new boolean[] { false, true }) {
+            for (int threads = 1; threads <= 4; threads *= 2) {
+                final long start = System.nanoTime();
+                final int rowCount = runThroughput(numValues, threads, compress);
+                final long time = System.nanoTime() - start;
+
+                assertEquals(numValues, rowCount);
+                logger.info("Sorted {} strings with {} threads (compressed runs: {}) in {} ms", numValues, threads,
+                        compress, time / 1000000);
+            }
+        }
+    }
+
+    private int runThroughput(final int numValues, final int threads, final boolean compress) throws Exception {
+        final SortMergeWriter<String, Writer> sorter =
+                createCountingSorter(50000, compress, SortMergeWriter.DEFAULT_MERGE_FAN_IN);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < numValues; i += threads) {
+                        sorter.append("value" + ((i * 7919L) % numValues));
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        return sorter.write(new File("target/sort_merge_throughput.txt"));
+    }
+
+    private SortMergeWriter<String, Writer> createCountingSorter(final int bufferSize, final boolean compress,
+            final int fanIn) {
+        return new SortMergeWriter<String, Writer>(bufferSize, ToStringComparator.getComparator()) {
+
+            @Override
+            protected Writer createWriter(final Resource file) {
+                return FileHelper.getWriter(file.write(), FileHelper.DEFAULT_ENCODING);
+            }
+
+            @Override
+            protected void writeRow(final Writer writer, final String row, final int count) throws IOException {
+                writer.write(row + "," + count + "\n");
+            }
+
+            @Override
+            protected void writeHeader(final Writer writer) throws IOException {
+                // do nothing
+            }
+
+            @Override
+            protected boolean isCompressingTempFiles() {
+                return compress;
+            }
+
+            @Override
+            protected int getMergeFanIn() {
+                return fanIn;
+            }
+        };
+    }
+
     private void doSortTests(final int threshold) throws Exception {
         final SortMergeWriter<String, Writer> sorter =
                 new SortMergeWriter<String, Writer>(threshold, ToStringComparator.getComparator()) {
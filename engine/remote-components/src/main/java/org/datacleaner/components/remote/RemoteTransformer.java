@@ -20,6 +20,7 @@
 package org.datacleaner.components.remote;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -43,10 +44,10 @@ import org.datacleaner.restclient.ComponentConfiguration;
 import org.datacleaner.restclient.ComponentRESTClient;
 import org.datacleaner.restclient.ComponentsRestClientUtils;
 import org.datacleaner.restclient.CreateInput;
-import org.datacleaner.restclient.ProcessStatelessInput;
-import org.datacleaner.restclient.ProcessStatelessOutput;
 import org.datacleaner.restclient.RESTClientException;
 import org.datacleaner.restclient.Serializator;
+import org.datacleaner.restclient.StatelessOutputHandler;
+import org.datacleaner.util.SystemProperties;
 import org.datacleaner.util.batch.BatchRowCollectingTransformer;
 import org.datacleaner.util.batch.BatchSink;
 import org.datacleaner.util.batch.BatchSource;
@@ -54,6 +55,9 @@ import org.datacleaner.util.convert.StringConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.module.jsonSchema.JsonSchema;
@@ -64,6 +68,12 @@ import com.fasterxml.jackson.module.jsonSchema.types.ValueTypeSchema;
  * Transformer that is actually a proxy to a remote transformer sitting at DataCleaner Monitor server.
  * Instances of this transformer can be created only by
  * {@link org.datacleaner.descriptors.RemoteTransformerDescriptorImpl} component descriptors.
+ * <p>
+ * Records are sent to the server in batches. Several batches may be in flight at
+ * the same time (see {@link SystemProperties#REMOTE_COMPONENTS_MAX_IN_FLIGHT}) and
+ * batches that are larger than {@link SystemProperties#REMOTE_COMPONENTS_MAX_BATCH_BYTES}
+ * are split into several requests. The responses are streamed back and converted
+ * while they are being read.
  *
  * @Since 9/1/15
  */
@@ -77,6 +87,7 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
 
     private ComponentRESTClient client;
     private Map<String, Object> configuredProperties = new TreeMap<>();
+    private volatile byte[] serializedConfiguration;
 
     private final AtomicBoolean failed = new AtomicBoolean(false);
     private final SingleValueErrorAwareCache<CreateInput, OutputColumns> cachedOutputColumns = new SingleValueErrorAwareCache<CreateInput, OutputColumns>() {
@@ -91,6 +102,22 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
         this.componentDisplayName = componentDisplayName;
     }
 
+    @Override
+    protected int getMaxBatchSize() {
+        return SystemProperties.getInt(SystemProperties.REMOTE_COMPONENTS_MAX_BATCH_SIZE, 200);
+    }
+
+    @Override
+    protected int getMaxInFlightBatches() {
+        return SystemProperties.getInt(SystemProperties.REMOTE_COMPONENTS_MAX_IN_FLIGHT, 4);
+    }
+
+    @Override
+    protected int getFlushIntervalMillis() {
+        // batches are flushed by the threads waiting for them, no timer needed
+        return 0;
+    }
+
     @Initialize
     public void initClient() throws RemoteComponentException {
         try {
@@ -106,7 +133,11 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
     @Close
     public void closeClient() {
         logger.debug("closing '{}' @{}", componentDisplayName, this.hashCode());
+        if (client != null) {
+            logger.info("Remote transformer '{}' done: {}", componentDisplayName, client.getStatistics());
+        }
         client = null;
+        serializedConfiguration = null;
     }
 
     @Validate
@@ -196,51 +227,17 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
         return columns;
     }
 
-    private void convertOutputRows(JsonNode rowSets, BatchSink<Collection<Object[]>> sink, int sinkSize) {
-        OutputColumns outCols = getOutputColumns();
-        if(rowSets == null || rowSets.size() < 1) { throw new RuntimeException("Expected exactly 1 row in response"); }
-
-        int rowI = 0;
-        for(JsonNode rowSet: rowSets) {
-            if(rowI >= sinkSize) {
-                throw new RuntimeException("Expected " + sinkSize + " rows, but got more");
-            }
-
-            List<Object[]> outRowSet = new ArrayList<>();
-
-            for(JsonNode row: rowSet) {
-                final List<Object> values = new ArrayList<>();
-                int i = 0;
-                for (JsonNode value : row) {
-                    // TODO: should JsonNode be the default?
-                    Class<?> cl = String.class;
-                    if (i < outCols.getColumnCount()) {
-                        cl = outCols.getColumnType(i);
-                    }
-                    values.add(convertOutputValue(value, cl));
-                    i++;
-                }
-                outRowSet.add(values.toArray(new Object[values.size()]));
-            }
-            sink.setOutput(rowI, outRowSet);
-            rowI++;
-        }
-        if(rowI < sinkSize) {
-            throw new RuntimeException("Expected " + sinkSize + " rows, but got only " + rowI);
-        }
-    }
-
-    private Object convertOutputValue(JsonNode value, Class<?> cl) {
+    private Object convertOutputValue(JsonParser parser, Class<?> cl) {
         try {
-            if(cl == JsonNode.class) {
-                return value;
+            if(parser.getCurrentToken() == JsonToken.VALUE_NULL && cl != JsonNode.class) {
+                return null;
             }
             if(cl == File.class) {
-                return StringConverter.simpleInstance().deserialize(value.asText(), cl);
+                return StringConverter.simpleInstance().deserialize(parser.getValueAsString(), cl);
             }
-            return mapper.readValue(value.traverse(), cl);
+            return mapper.readValue(parser, cl);
         } catch(Exception e) {
-            throw new RuntimeException("Cannot convert table value of type '" + cl + "': " + value.toString(), e);
+            throw new RuntimeException("Cannot convert table value of type '" + cl + "' at " + parser.getCurrentLocation(), e);
         }
     }
 
@@ -255,6 +252,7 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
         } else {
             configuredProperties.put(propertyName, value);
         }
+        serializedConfiguration = null;
     }
 
     public Object getPropertyValue(String propertyName) {
@@ -265,21 +263,6 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
     public void map(BatchSource<InputRow> source, BatchSink<Collection<Object[]>> sink) {
         List<InputColumn<?>> cols = getUsedInputColumns();
         int size = source.size();
-        Object[] rows = new Object[size];
-        for(int i = 0; i < size; i++) {
-            InputRow inputRow = source.getInput(i);
-            Object[] values = new Object[cols.size()];
-            int j = 0;
-            for(InputColumn<?> col: cols) {
-                values[j] = inputRow.getValue(col);
-                j++;
-            }
-            rows[i] = values;
-        }
-
-        ProcessStatelessInput input = new ProcessStatelessInput();
-        input.configuration = getConfiguration(cols);
-        input.data = mapper.valueToTree(rows);
 
         logger.debug("Processing remotely {} rows", size);
 
@@ -289,10 +272,36 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
             }
             throw new RuntimeException("Remote transformer's connection has already been closed. ");
         }
-        ProcessStatelessOutput out;
         try {
-            out = client.processStateless(componentDisplayName, input);
-        } catch (RuntimeException e) {
+            final byte[] configuration = getSerializedConfiguration(cols);
+            final int maxBatchBytes = SystemProperties.getInt(SystemProperties.REMOTE_COMPONENTS_MAX_BATCH_BYTES,
+                    1024 * 1024);
+
+            List<byte[]> requestRows = new ArrayList<>();
+            int requestBytes = configuration.length;
+            int requestOffset = 0;
+            for(int i = 0; i < size; i++) {
+                InputRow inputRow = source.getInput(i);
+                Object[] values = new Object[cols.size()];
+                int j = 0;
+                for(InputColumn<?> col: cols) {
+                    values[j] = inputRow.getValue(col);
+                    j++;
+                }
+                byte[] row = mapper.writeValueAsBytes(values);
+                if (!requestRows.isEmpty() && requestBytes + row.length > maxBatchBytes) {
+                    processRequest(configuration, requestRows, requestOffset, sink);
+                    requestOffset += requestRows.size();
+                    requestRows = new ArrayList<>();
+                    requestBytes = configuration.length;
+                }
+                requestRows.add(row);
+                requestBytes += row.length + 1;
+            }
+            if (!requestRows.isEmpty()) {
+                processRequest(configuration, requestRows, requestOffset, sink);
+            }
+        } catch (RuntimeException | JsonProcessingException e) {
             boolean alreadyFailed = failed.getAndSet(true);
             if (!alreadyFailed) {
                 throw new RuntimeException("Remote transformer failed: " + e.getMessage(), e);
@@ -300,7 +309,46 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
                 throw new PreviousErrorsExistException();
             }
         }
-        convertOutputRows(out.rows, sink, size);
+    }
+
+    private void processRequest(byte[] configuration, List<byte[]> rows, final int offset,
+            final BatchSink<Collection<Object[]>> sink) {
+        final int rowCount = rows.size();
+        final OutputColumns outCols = getOutputColumns();
+        final byte[] requestBody = Serializator.processStatelessInput(configuration, rows);
+
+        int rowSets = client.processStateless(componentDisplayName, requestBody, rowCount,
+                new StatelessOutputHandler() {
+                    @Override
+                    public Object readValue(JsonParser parser, int columnIndex) throws IOException {
+                        // TODO: should JsonNode be the default?
+                        Class<?> cl = String.class;
+                        if (columnIndex < outCols.getColumnCount()) {
+                            cl = outCols.getColumnType(columnIndex);
+                        }
+                        return convertOutputValue(parser, cl);
+                    }
+
+                    @Override
+                    public void handleRowSet(int rowSetIndex, List<Object[]> outRowSet) {
+                        if(rowSetIndex >= rowCount) {
+                            throw new RuntimeException("Expected " + rowCount + " rows, but got more");
+                        }
+                        sink.setOutput(offset + rowSetIndex, outRowSet);
+                    }
+                });
+        if(rowSets < rowCount) {
+            throw new RuntimeException("Expected " + rowCount + " rows, but got only " + rowSets);
+        }
+    }
+
+    private byte[] getSerializedConfiguration(List<InputColumn<?>> cols) throws JsonProcessingException {
+        byte[] configuration = serializedConfiguration;
+        if (configuration == null) {
+            configuration = mapper.writeValueAsBytes(getConfiguration(cols));
+            serializedConfiguration = configuration;
+        }
+        return configuration;
     }
 
     private OutputColumns getOutputColumnsInternal(CreateInput createInput) throws Exception {
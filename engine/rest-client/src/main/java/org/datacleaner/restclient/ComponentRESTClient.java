@@ -20,6 +20,7 @@
 package org.datacleaner.restclient;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 import org.datacleaner.api.RestrictedFunctionalityException;
 
@@ -31,12 +32,16 @@ import com.fasterxml.jackson.databind.JsonNode;
 public class ComponentRESTClient {
 
     private final RESTClient restClient;
+    private final PooledHttpClient pooledHttpClient;
+    private final RemoteServerStatistics statistics;
     private final String url;
     private String tenantName;
 
     public ComponentRESTClient(String url, String username, String password, String dataCleanerVersion) {
         this.url = url;
         restClient = new RESTClientImpl(username, password, dataCleanerVersion);
+        pooledHttpClient = PooledHttpClient.get(username, password, dataCleanerVersion);
+        statistics = RemoteServerStatistics.forServer(url);
         getUserTenantName();
     }
 
@@ -47,6 +52,8 @@ public class ComponentRESTClient {
     public ComponentRESTClient(String url, String username, String password, String tenantName, String dataCleanerVersion) {
         this.url = url;
         restClient = new RESTClientImpl(username, password, dataCleanerVersion);
+        pooledHttpClient = PooledHttpClient.get(username, password, dataCleanerVersion);
+        statistics = RemoteServerStatistics.forServer(url);
         this.tenantName = tenantName;
     }
 
@@ -79,6 +86,46 @@ public class ComponentRESTClient {
         return Serializator.processStatelessOutput(response);
     }
 
+    /**
+     * Processes records with a stateless component, using a pooled persistent
+     * connection and streaming the response to a handler. This method is safe
+     * to call from several threads at the same time.
+     *
+     * @param componentName
+     * @param requestBody
+     *            the request, as created by
+     *            {@link Serializator#processStatelessInput(byte[], java.util.List)}
+     * @param rowCount
+     *            the number of records in the request
+     * @param handler
+     * @return the number of row sets in the response
+     */
+    public int processStateless(String componentName, byte[] requestBody, int rowCount,
+            StatelessOutputHandler handler) {
+        componentName = urlify(componentName);
+        final long startNanos = statistics.requestStarted();
+        boolean success = false;
+        try {
+            final int rowSets = pooledHttpClient.put(getURL(componentName), requestBody,
+                    in -> Serializator.processStatelessOutput(in, handler));
+            success = true;
+            return rowSets;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            statistics.requestFinished(startNanos, rowCount, requestBody.length, success);
+        }
+    }
+
+    /**
+     * Gets the latency and throughput statistics of the server of this client.
+     *
+     * @return
+     */
+    public RemoteServerStatistics getStatistics() {
+        return statistics;
+    }
+
     public String createComponent(String componentName, final String timeout, final CreateInput config) {
         componentName = urlify(componentName);
         String configuration = Serializator.stringCreateInput(config);
@@ -0,0 +1,144 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.restclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * HTTP client used for the high volume calls to remote components. Unlike the
+ * Jersey based {@link RESTClientImpl} it keeps a pool of persistent connections
+ * per server, so that several requests can be in flight at the same time
+ * without paying for a new connection (and TLS handshake) for each of them.
+ * Clients are shared between all {@link ComponentRESTClient}s using the same
+ * credentials.
+ */
+class PooledHttpClient {
+
+    /**
+     * Reads a successful response body.
+     */
+    interface ResponseReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 50;
+    private static final int MAX_CONNECTIONS_TOTAL = 200;
+    private static final long IDLE_CONNECTION_TIMEOUT_SECONDS = 30;
+    private static final int CONNECT_TIMEOUT_MILLIS = 30000;
+
+    private static final Map<String, PooledHttpClient> clientCache = new ConcurrentHashMap<>();
+
+    private final CloseableHttpClient httpClient;
+    private final String authorization;
+    private final String dataCleanerVersion;
+
+    private PooledHttpClient(String username, String password, String dataCleanerVersion) {
+        this.dataCleanerVersion = dataCleanerVersion;
+        if (password == null) {
+            authorization = null;
+        } else {
+            final String credentials = (username == null ? "" : username) + ":" + password;
+            authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+        }
+
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        connectionManager.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+
+        final RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(CONNECT_TIMEOUT_MILLIS).build();
+
+        httpClient = HttpClients.custom().setConnectionManager(connectionManager).setDefaultRequestConfig(
+                requestConfig).evictIdleConnections(IDLE_CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS).build();
+    }
+
+    public static PooledHttpClient get(String username, String password, String dataCleanerVersion) {
+        final String cacheKey = username + "\u0000" + password + "\u0000" + dataCleanerVersion;
+        return clientCache.computeIfAbsent(cacheKey, key -> new PooledHttpClient(username, password,
+                dataCleanerVersion));
+    }
+
+    /**
+     * Sends a PUT request and streams the response to a reader. The connection
+     * is returned to the pool when the response has been read.
+     *
+     * @param url
+     * @param requestBody
+     *            the JSON request body
+     * @param responseReader
+     * @return the result of the response reader
+     * @throws RESTClientException
+     *             if the server responded with an error
+     * @throws IOException
+     */
+    public <T> T put(String url, byte[] requestBody, ResponseReader<T> responseReader) throws IOException {
+        final HttpPut request = new HttpPut(url);
+        request.setHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON);
+        request.setHeader(RESTClient.HEADER_DC_VERSION, dataCleanerVersion);
+        if (authorization != null) {
+            request.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        request.setEntity(new ByteArrayEntity(requestBody, ContentType.APPLICATION_JSON));
+
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            final int status = response.getStatusLine().getStatusCode();
+            final HttpEntity entity = response.getEntity();
+            if (status != 200 && status != 201) {
+                String output = null;
+                String contentType = null;
+                if (entity != null) {
+                    output = EntityUtils.toString(entity, StandardCharsets.UTF_8);
+                    contentType = entity.getContentType() == null ? null : entity.getContentType().getValue();
+                }
+                String msg = RESTClientImpl.getErrorMessage(contentType, output);
+                if (msg.isEmpty()) {
+                    msg = response.getStatusLine().getReasonPhrase();
+                }
+                throw new RESTClientException(status, msg);
+            }
+
+            if (entity == null) {
+                throw new IOException("Response from " + url + " did not contain a body");
+            }
+            try (InputStream in = entity.getContent()) {
+                return responseReader.read(in);
+            }
+        }
+    }
+}
@@ -112,24 +112,13 @@ public class RESTClientImpl implements RESTClient {
         }
 
         if (response.getStatus() != ClientResponse.Status.OK.getStatusCode() && response.getStatus() != ClientResponse.Status.CREATED.getStatusCode()) {
-            String msg = "";
-
+            String output = null;
             try {
-                String output = response.getEntity(String.class);
-                String contentType = response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
-                if(contentType != null && contentType.contains("json") && output != null && !output.isEmpty()) {
-                    JsonNode respJson = Serializator.getJacksonObjectMapper().readValue(output, JsonNode.class);
-                    JsonNode error = respJson.get("error");
-                    if(error != null) {
-                        JsonNode msgNode = error.get("message");
-                        if(msgNode != null) {
-                            msg = msgNode.asText();
-                        }
-                    }
-                }
+                output = response.getEntity(String.class);
             } catch(Exception e) {
                 // DO NOTHING
             }
+            String msg = getErrorMessage(response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE), output);
             if(msg.isEmpty()) {
                 msg = response.getClientResponseStatus().getReasonPhrase();
             }
@@ -142,4 +131,33 @@ public class RESTClientImpl implements RESTClient {
 
         return output;
     }
+
+    /**
+     * Gets the error message of an error response of the DataCleaner server.
+     *
+     * @param contentType
+     * @param output
+     * @return the message, or an empty string if the response did not contain
+     *         one
+     */
+    static String getErrorMessage(String contentType, String output) {
+        String msg = "";
+
+        try {
+            if(contentType != null && contentType.contains("json") && output != null && !output.isEmpty()) {
+                JsonNode respJson = Serializator.getJacksonObjectMapper().readValue(output, JsonNode.class);
+                JsonNode error = respJson.get("error");
+                if(error != null) {
+                    JsonNode msgNode = error.get("message");
+                    if(msgNode != null) {
+                        msg = msgNode.asText();
+                    }
+                }
+            }
+        } catch(Exception e) {
+            // DO NOTHING
+        }
+
+        return msg;
+    }
 }
@@ -0,0 +1,186 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.restclient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and throughput counters of the requests made to a single remote
+ * DataCleaner server. Statistics are kept for the lifetime of the JVM and can
+ * be retrieved using {@link #forServer(String)} and {@link #getAll()}.
+ */
+public final class RemoteServerStatistics {
+
+    private static final Map<String, RemoteServerStatistics> statistics = new ConcurrentHashMap<>();
+
+    private final String serverUrl;
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder rowCount = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final AtomicInteger maxInFlightRequests = new AtomicInteger();
+    private final AtomicLong firstRequestNanos = new AtomicLong();
+    private final AtomicLong lastResponseNanos = new AtomicLong();
+
+    private RemoteServerStatistics(String serverUrl) {
+        this.serverUrl = serverUrl;
+    }
+
+    /**
+     * Gets the statistics of a particular server.
+     *
+     * @param serverUrl
+     * @return
+     */
+    public static RemoteServerStatistics forServer(String serverUrl) {
+        return statistics.computeIfAbsent(serverUrl, RemoteServerStatistics::new);
+    }
+
+    /**
+     * Gets the statistics of all servers that requests have been made to.
+     *
+     * @return
+     */
+    public static Collection<RemoteServerStatistics> getAll() {
+        return new ArrayList<>(statistics.values());
+    }
+
+    /**
+     * Registers the start of a request.
+     *
+     * @return the start time, to pass on to
+     *         {@link #requestFinished(long, int, long, boolean)}
+     */
+    public long requestStarted() {
+        final long startNanos = System.nanoTime();
+        firstRequestNanos.compareAndSet(0, startNanos);
+        final int inFlight = inFlightRequests.incrementAndGet();
+        maxInFlightRequests.accumulateAndGet(inFlight, Math::max);
+        return startNanos;
+    }
+
+    /**
+     * Registers the completion of a request.
+     *
+     * @param startNanos
+     *            the start time of the request, as returned by
+     *            {@link #requestStarted()}
+     * @param rows
+     *            the number of records sent in the request
+     * @param bytes
+     *            the size of the request body
+     * @param success
+     *            whether or not the request succeeded
+     */
+    public void requestFinished(long startNanos, int rows, long bytes, boolean success) {
+        final long endNanos = System.nanoTime();
+        final long latency = endNanos - startNanos;
+        inFlightRequests.decrementAndGet();
+        requestCount.increment();
+        if (success) {
+            rowCount.add(rows);
+        } else {
+            errorCount.increment();
+        }
+        bytesSent.add(bytes);
+        totalLatencyNanos.add(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        lastResponseNanos.accumulateAndGet(endNanos, Math::max);
+    }
+
+    public String getServerUrl() {
+        return serverUrl;
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /**
+     * Gets the number of records that were successfully processed by the
+     * server.
+     *
+     * @return
+     */
+    public long getRowCount() {
+        return rowCount.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    public int getMaxInFlightRequests() {
+        return maxInFlightRequests.get();
+    }
+
+    public double getAverageLatencyMillis() {
+        final long requests = getRequestCount();
+        if (requests == 0) {
+            return 0;
+        }
+        return totalLatencyNanos.sum() / 1000000d / requests;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1000000d;
+    }
+
+    /**
+     * Gets the throughput of the server, measured as the number of processed
+     * records per second between the first request and the latest response.
+     *
+     * @return
+     */
+    public double getRowsPerSecond() {
+        final long first = firstRequestNanos.get();
+        final long last = lastResponseNanos.get();
+        if (first == 0 || last <= first) {
+            return 0;
+        }
+        return getRowCount() * 1000000000d / (last - first);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "RemoteServerStatistics[server=%s,requests=%d,errors=%d,rows=%d,bytesSent=%d,avgLatency=%.1fms,"
+                        + "maxLatency=%.1fms,maxInFlight=%d,rowsPerSecond=%.1f]", serverUrl, getRequestCount(),
+                getErrorCount(), getRowCount(), getBytesSent(), getAverageLatencyMillis(), getMaxLatencyMillis(),
+                getMaxInFlightRequests(), getRowsPerSecond());
+    }
+}
@@ -19,9 +19,14 @@
  */
 package org.datacleaner.restclient;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.metamodel.util.HasName;
@@ -33,6 +38,7 @@ import org.datacleaner.util.HasAliases;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.Version;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
@@ -104,6 +110,87 @@ public class Serializator {
         return (ProcessStatelessOutput) Serializator.fromString(response, ProcessStatelessOutput.class);
     }
 
+    /**
+     * Creates the body of a stateless processing request out of an already
+     * serialized configuration and already serialized input records. This
+     * avoids building a JSON tree of the whole request.
+     *
+     * @param configuration
+     *            the serialized {@link ComponentConfiguration}
+     * @param rows
+     *            the serialized input records
+     * @return
+     */
+    public static byte[] processStatelessInput(byte[] configuration, List<byte[]> rows) {
+        int size = configuration.length + 32;
+        for (byte[] row : rows) {
+            size += row.length + 1;
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        out.write('{');
+        writeAscii(out, "\"configuration\":");
+        out.write(configuration, 0, configuration.length);
+        writeAscii(out, ",\"data\":[");
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            final byte[] row = rows.get(i);
+            out.write(row, 0, row.length);
+        }
+        writeAscii(out, "]}");
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the output of a stateless processing request while it is being
+     * streamed from the server. Only the output rows are read, other parts of
+     * the response are skipped.
+     *
+     * @param in
+     * @param handler
+     * @return the number of row sets (one per input record) that was read
+     * @throws IOException
+     */
+    public static int processStatelessOutput(InputStream in, StatelessOutputHandler handler) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected JSON object in response, but got " + parser.getCurrentToken());
+            }
+            int rowSetCount = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                if ("rows".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_ARRAY) {
+                        handler.handleRowSet(rowSetCount, readRowSet(parser, handler));
+                        rowSetCount++;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return rowSetCount;
+        }
+    }
+
+    private static List<Object[]> readRowSet(JsonParser parser, StatelessOutputHandler handler) throws IOException {
+        final List<Object[]> rows = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            final List<Object> values = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                values.add(handler.readValue(parser, values.size()));
+            }
+            rows.add(values.toArray(new Object[values.size()]));
+        }
+        return rows;
+    }
+
+    private static void writeAscii(ByteArrayOutputStream out, String str) {
+        final byte[] bytes = str.getBytes(StandardCharsets.US_ASCII);
+        out.write(bytes, 0, bytes.length);
+    }
+
     public static String stringCreateInput(CreateInput createInput) {
         return Serializator.intoString(createInput);
     }
@@ -0,0 +1,55 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.restclient;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Callback for consuming the output of a stateless component invocation while
+ * it is being streamed from the server, without building an intermediate JSON
+ * tree of the whole response.
+ */
+public interface StatelessOutputHandler {
+
+    /**
+     * Reads a single output value. The parser is positioned at the first token
+     * of the value, and must be left at the last token of the value.
+     *
+     * @param parser
+     * @param columnIndex
+     *            the index of the output column of the value
+     * @return the value to put in the output row
+     * @throws IOException
+     */
+    Object readValue(JsonParser parser, int columnIndex) throws IOException;
+
+    /**
+     * Handles the output rows produced for a single input record.
+     *
+     * @param rowSetIndex
+     *            the index of the input record in the request
+     * @param rows
+     *            the output rows
+     */
+    void handleRowSet(int rowSetIndex, List<Object[]> rows);
+}
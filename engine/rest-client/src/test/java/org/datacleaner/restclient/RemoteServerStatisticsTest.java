@@ -0,0 +1,50 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.restclient;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RemoteServerStatisticsTest {
+
+    @Test
+    public void testCounters() throws Exception {
+        RemoteServerStatistics statistics = RemoteServerStatistics.forServer("http://statistics-test");
+        Assert.assertSame(statistics, RemoteServerStatistics.forServer("http://statistics-test"));
+        Assert.assertTrue(RemoteServerStatistics.getAll().contains(statistics));
+
+        long start1 = statistics.requestStarted();
+        long start2 = statistics.requestStarted();
+        Assert.assertEquals(2, statistics.getInFlightRequests());
+        Thread.sleep(2);
+        statistics.requestFinished(start1, 10, 100, true);
+        statistics.requestFinished(start2, 5, 50, false);
+
+        Assert.assertEquals(0, statistics.getInFlightRequests());
+        Assert.assertEquals(2, statistics.getMaxInFlightRequests());
+        Assert.assertEquals(2, statistics.getRequestCount());
+        Assert.assertEquals(1, statistics.getErrorCount());
+        Assert.assertEquals(10, statistics.getRowCount());
+        Assert.assertEquals(150, statistics.getBytesSent());
+        Assert.assertTrue(statistics.getAverageLatencyMillis() >= 2);
+        Assert.assertTrue(statistics.getMaxLatencyMillis() >= statistics.getAverageLatencyMillis());
+        Assert.assertTrue(statistics.getRowsPerSecond() > 0);
+    }
+}
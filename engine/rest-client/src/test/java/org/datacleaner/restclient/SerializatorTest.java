@@ -19,13 +19,19 @@
  */
 package org.datacleaner.restclient;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -176,4 +182,47 @@ public class SerializatorTest {
         Assert.assertTrue(serialization != null);
         Assert.assertTrue(serialization.equals(serialization2));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testProcessStatelessInputFromBytes() throws Exception {
+        byte[] configuration = objectMapper.writeValueAsBytes(getComponentConfiguration());
+        List<byte[]> rows = new ArrayList<>();
+        rows.add(objectMapper.writeValueAsBytes(new Object[] { "foo", 1 }));
+        rows.add(objectMapper.writeValueAsBytes(new Object[] { null, 2 }));
+
+        byte[] request = Serializator.processStatelessInput(configuration, rows);
+
+        ProcessStatelessInput input = objectMapper.readValue(request, ProcessStatelessInput.class);
+        Assert.assertTrue(input.configuration.getProperties().containsKey("propertyKey"));
+        Assert.assertEquals("[[\"foo\",1],[null,2]]", input.data.toString());
+    }
+
+    @Test
+    public void testProcessStatelessOutputFromStream() throws Exception {
+        String response = "{\"columns\":[{\"name\":\"a\"}],\"rows\":[[[\"foo\",1]],[],[[\"bar\",2],[null,3]]],"
+                + "\"result\":{\"x\":[1,2]}}";
+        List<List<Object[]>> rowSets = new ArrayList<>();
+
+        int count = Serializator.processStatelessOutput(new ByteArrayInputStream(response.getBytes(
+                StandardCharsets.UTF_8)), new StatelessOutputHandler() {
+                    @Override
+                    public Object readValue(JsonParser parser, int columnIndex) throws IOException {
+                        Class<?> cl = columnIndex == 0 ? String.class : Integer.class;
+                        return objectMapper.readValue(parser, cl);
+                    }
+
+                    @Override
+                    public void handleRowSet(int rowSetIndex, List<Object[]> rows) {
+                        Assert.assertEquals(rowSets.size(), rowSetIndex);
+                        rowSets.add(rows);
+                    }
+                });
+
+        Assert.assertEquals(3, count);
+        Assert.assertEquals(1, rowSets.get(0).size());
+        Assert.assertEquals("[foo, 1]", Arrays.toString(rowSets.get(0).get(0)));
+        Assert.assertEquals(0, rowSets.get(1).size());
+        Assert.assertEquals("[bar, 2]", Arrays.toString(rowSets.get(2).get(0)));
+        Assert.assertEquals("[null, 3]", Arrays.toString(rowSets.get(2).get(1)));
+    }
+}
@@ -33,11 +33,14 @@ import org.datacleaner.result.DataSetResult;
 import org.datacleaner.result.ListResult;
 import org.datacleaner.result.NumberResult;
 import org.datacleaner.result.SimpleAnalysisResult;
+import org.datacleaner.result.save.BinaryAnalysisResultReader;
 import org.datacleaner.util.ChangeAwareObjectInputStream;
 import org.datacleaner.monitor.job.JobContext;
 import org.datacleaner.repository.RepositoryFile;
+import org.datacleaner.repository.RepositoryFileResource;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.Resource;
 import java.util.function.Function;
 
 /**
@@ -55,6 +58,12 @@ public class DefaultResultContext implements ResultContext {
 
     @Override
     public AnalysisResult getAnalysisResult() throws IllegalStateException {
+        final Resource resource = new RepositoryFileResource(_repositoryFile);
+        if (BinaryAnalysisResultReader.isBinaryFormat(resource)) {
+            // only the requested analyzer results are deserialized
+            return new BinaryAnalysisResultReader(resource).getAnalysisResult();
+        }
+
         final Object deserializedObject = _repositoryFile.readFile(new Function<InputStream, Object>() {
             @Override
             public Object apply(InputStream in) {
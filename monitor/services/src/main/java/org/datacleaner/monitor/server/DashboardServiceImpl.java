@@ -233,7 +233,9 @@ public class DashboardServiceImpl implements DashboardService {
     @Override
     public TimelineIdentifier updateTimelineDefinition(final TenantIdentifier tenant,
             final TimelineIdentifier timelineIdentifier, final TimelineDefinition timelineDefinition) {
-        return _timelineDao.updateTimeline(timelineIdentifier, timelineDefinition);
+        final TimelineIdentifier result = _timelineDao.updateTimeline(timelineIdentifier, timelineDefinition);
+        cacheMetricValues(tenant, timelineDefinition);
+        return result;
     }
 
     @Override
@@ -254,10 +256,27 @@ public class DashboardServiceImpl implements DashboardService {
 
         final RepositoryFile file = folder.createFile(fileName, new WriteTimelineAction(timelineDefinition));
         logger.info("Created timeline definition in file: {}", file);
+        cacheMetricValues(tenant, timelineDefinition);
 
         return new TimelineIdentifier(timelineIdentifier.getName(), file.getQualifiedPath(), group);
     }
 
+    /**
+     * Backfills the metric values of a (new or changed) timeline for the
+     * existing results of the job, if the metric values are cached.
+     * 
+     * @param tenant
+     * @param timeline
+     */
+    private void cacheMetricValues(final TenantIdentifier tenant, final TimelineDefinition timeline) {
+        final JobIdentifier jobIdentifier = timeline.getJobIdentifier();
+        if (_metricValueProducer instanceof MetricValueCache && jobIdentifier != null) {
+            final List<RepositoryFile> resultFiles = _resultDao.getResultsForJob(tenant, jobIdentifier);
+            ((MetricValueCache) _metricValueProducer).cacheMetricValues(timeline.getMetrics(), resultFiles, tenant,
+                    jobIdentifier);
+        }
+    }
+
     @Override
     public Boolean removeTimeline(TenantIdentifier tenant, TimelineIdentifier timeline) {
         return _timelineDao.removeTimeline(timeline);
@@ -0,0 +1,316 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.metamodel.util.Action;
+import org.datacleaner.monitor.job.MetricValues;
+import org.datacleaner.monitor.shared.model.MetricIdentifier;
+import org.datacleaner.repository.RepositoryFile;
+import org.datacleaner.repository.RepositoryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only store of the metric values of the results of a single job. The
+ * values are kept in memory per metric (one column per metric, with a value per
+ * result file) and persisted as a log of records in the repository, so that
+ * every metric value only has to be extracted from a result file once.
+ */
+public class MetricIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricIndex.class);
+
+    private static final int VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_INTEGER = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_DOUBLE = 3;
+
+    private static final class ResultEntry {
+        final long lastModified;
+        final Date metricDate;
+
+        ResultEntry(final long lastModified, final Date metricDate) {
+            this.lastModified = lastModified;
+            this.metricDate = metricDate;
+        }
+    }
+
+    private final RepositoryFolder _folder;
+    private final String _filename;
+    private final Map<String, ResultEntry> _results;
+    private final Map<String, Map<String, Number>> _columns;
+    private boolean _loaded;
+
+    public MetricIndex(final RepositoryFolder folder, final String filename) {
+        _folder = folder;
+        _filename = filename;
+        _results = new HashMap<>();
+        _columns = new HashMap<>();
+        _loaded = false;
+    }
+
+    /**
+     * Gets the metric values of a result file, if all of them are in the index.
+     *
+     * @param resultFile
+     * @param metricIdentifiers
+     * @return the metric values, or null if the result file is not (completely)
+     *         indexed
+     */
+    public synchronized MetricValues getMetricValues(final RepositoryFile resultFile,
+            final List<MetricIdentifier> metricIdentifiers) {
+        load();
+        final String resultName = resultFile.getName();
+        final ResultEntry entry = _results.get(resultName);
+        if (entry == null || entry.lastModified != resultFile.getLastModified()) {
+            return null;
+        }
+
+        final List<Number> values = new ArrayList<>(metricIdentifiers.size());
+        for (final MetricIdentifier metricIdentifier : metricIdentifiers) {
+            final Map<String, Number> column = _columns.get(metricIdentifier.getId());
+            if (column == null || !column.containsKey(resultName)) {
+                return null;
+            }
+            values.add(column.get(resultName));
+        }
+        return new SimpleMetricValues(entry.metricDate, values);
+    }
+
+    /**
+     * Adds the metric values of a result file to the index.
+     *
+     * @param resultFile
+     * @param metricIdentifiers
+     * @param metricValues
+     *            the values of the metrics, in the same order as the metric
+     *            identifiers
+     */
+    public synchronized void addMetricValues(final RepositoryFile resultFile,
+            final List<MetricIdentifier> metricIdentifiers, final MetricValues metricValues) {
+        load();
+        final String resultName = resultFile.getName();
+        final long lastModified = resultFile.getLastModified();
+        final Date metricDate = metricValues.getMetricDate();
+        final List<Number> values = metricValues.getValues();
+
+        final byte[] record;
+        try {
+            record = createRecord(resultName, lastModified, metricDate, metricIdentifiers, values);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        final Action<OutputStream> writeAction = out -> out.write(record);
+        final RepositoryFile file = _folder.getFile(_filename);
+        if (file == null) {
+            _folder.createFile(_filename, out -> {
+                new DataOutputStream(out).writeInt(VERSION);
+                out.write(record);
+            });
+        } else {
+            file.writeFile(writeAction, true);
+        }
+
+        add(resultName, lastModified, metricDate);
+        for (int i = 0; i < metricIdentifiers.size(); i++) {
+            put(metricIdentifiers.get(i).getId(), resultName, values.get(i));
+        }
+    }
+
+    private void add(final String resultName, final long lastModified, final Date metricDate) {
+        final ResultEntry existing = _results.get(resultName);
+        if (existing != null && existing.lastModified != lastModified) {
+            // the result file has been replaced, forget the old values
+            for (final Map<String, Number> column : _columns.values()) {
+                column.remove(resultName);
+            }
+        }
+        _results.put(resultName, new ResultEntry(lastModified, metricDate));
+    }
+
+    private void put(final String metricId, final String resultName, final Number value) {
+        Map<String, Number> column = _columns.get(metricId);
+        if (column == null) {
+            column = new HashMap<>();
+            _columns.put(metricId, column);
+        }
+        column.put(resultName, value);
+    }
+
+    private void load() {
+        if (_loaded) {
+            return;
+        }
+        _loaded = true;
+
+        final RepositoryFile file = _folder.getFile(_filename);
+        if (file == null) {
+            return;
+        }
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        file.readFile(in -> {
+            IOUtils.copy(in, content);
+        });
+        final byte[] bytes = content.toByteArray();
+
+        final int validLength;
+        try {
+            validLength = readIndex(bytes);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (validLength < bytes.length) {
+            // a record was only partially written. Cut it off, since records
+            // appended after it could otherwise not be read.
+            logger.warn("Discarding {} bytes of incomplete records at the end of metric index {}",
+                    bytes.length - validLength, file);
+            file.writeFile(out -> {
+                if (validLength == 0) {
+                    new DataOutputStream(out).writeInt(VERSION);
+                } else {
+                    out.write(bytes, 0, validLength);
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads the records of an index.
+     *
+     * @param bytes
+     * @return the number of bytes that make up the header and the complete
+     *         records
+     * @throws IOException
+     */
+    private int readIndex(final byte[] bytes) throws IOException {
+        if (bytes.length < 4) {
+            return 0;
+        }
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        final int version = in.readInt();
+        if (version != VERSION) {
+            logger.warn("Ignoring metric index {} of unsupported version {}", _filename, version);
+            return bytes.length;
+        }
+        int validLength = 4;
+        try {
+            while (validLength < bytes.length) {
+                validLength += readRecord(in);
+            }
+        } catch (final EOFException e) {
+            // a record that was only partially written
+        }
+        return validLength;
+    }
+
+    private byte[] createRecord(final String resultName, final long lastModified, final Date metricDate,
+            final List<MetricIdentifier> metricIdentifiers, final List<Number> values) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(body);
+        out.writeUTF(resultName);
+        out.writeLong(lastModified);
+        out.writeLong(metricDate == null ? -1 : metricDate.getTime());
+        out.writeInt(metricIdentifiers.size());
+        for (int i = 0; i < metricIdentifiers.size(); i++) {
+            out.writeUTF(metricIdentifiers.get(i).getId());
+            final Number value = values.get(i);
+            if (value == null) {
+                out.writeByte(TYPE_NULL);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                out.writeByte(TYPE_INTEGER);
+                out.writeInt(value.intValue());
+            } else if (value instanceof Long) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong(value.longValue());
+            } else {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble(value.doubleValue());
+            }
+        }
+        out.flush();
+
+        // prefix the record with its length, so that a partially written
+        // record can be detected when reading
+        final ByteArrayOutputStream record = new ByteArrayOutputStream(body.size() + 4);
+        new DataOutputStream(record).writeInt(body.size());
+        body.writeTo(record);
+        return record.toByteArray();
+    }
+
+    /**
+     * Reads a record.
+     *
+     * @param in
+     * @return the length of the record, in bytes
+     * @throws IOException
+     */
+    private int readRecord(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new EOFException("Incomplete record of length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        final DataInputStream record = new DataInputStream(new ByteArrayInputStream(bytes));
+        final String resultName = record.readUTF();
+        final long lastModified = record.readLong();
+        final long metricTime = record.readLong();
+        add(resultName, lastModified, metricTime == -1 ? null : new Date(metricTime));
+
+        final int count = record.readInt();
+        for (int i = 0; i < count; i++) {
+            final String metricId = record.readUTF();
+            final Number value;
+            switch (record.readByte()) {
+            case TYPE_INTEGER:
+                value = record.readInt();
+                break;
+            case TYPE_LONG:
+                value = record.readLong();
+                break;
+            case TYPE_DOUBLE:
+                value = record.readDouble();
+                break;
+            default:
+                value = null;
+            }
+            put(metricId, resultName, value);
+        }
+        return 4 + length;
+    }
+}
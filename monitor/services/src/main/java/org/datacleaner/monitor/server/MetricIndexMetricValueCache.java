@@ -0,0 +1,119 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.datacleaner.monitor.configuration.TenantContextFactory;
+import org.datacleaner.monitor.job.MetricValues;
+import org.datacleaner.monitor.shared.model.JobIdentifier;
+import org.datacleaner.monitor.shared.model.MetricIdentifier;
+import org.datacleaner.monitor.shared.model.TenantIdentifier;
+import org.datacleaner.repository.RepositoryFile;
+import org.datacleaner.repository.RepositoryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link MetricValueCache} which keeps a persistent {@link MetricIndex} per
+ * tenant and job in the result folder of the tenant. Metric values that are not
+ * yet in the index are produced by a delegate {@link MetricValueProducer} (and
+ * then added to the index).
+ */
+public class MetricIndexMetricValueCache implements MetricValueCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricIndexMetricValueCache.class);
+
+    public static final String INDEX_FOLDER_NAME = "metric-index";
+    public static final String INDEX_FILE_EXTENSION = ".metrics.idx";
+
+    private final MetricValueProducer _delegate;
+    private final TenantContextFactory _tenantContextFactory;
+    private final Map<String, MetricIndex> _indexes;
+    private final ExecutorService _executorService;
+
+    public MetricIndexMetricValueCache(MetricValueProducer delegate, TenantContextFactory tenantContextFactory) {
+        _delegate = delegate;
+        _tenantContextFactory = tenantContextFactory;
+        _indexes = new ConcurrentHashMap<>();
+        _executorService = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "DataCleaner-metric-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public MetricValues getMetricValues(List<MetricIdentifier> metricIdentifiers, RepositoryFile resultFile,
+            TenantIdentifier tenant, JobIdentifier jobIdentifier) {
+        final MetricIndex index = getIndex(tenant, jobIdentifier);
+        final MetricValues cachedValues = index.getMetricValues(resultFile, metricIdentifiers);
+        if (cachedValues != null) {
+            return cachedValues;
+        }
+
+        final MetricValues metricValues = _delegate.getMetricValues(metricIdentifiers, resultFile, tenant,
+                jobIdentifier);
+        if (metricValues != null) {
+            try {
+                index.addMetricValues(resultFile, metricIdentifiers, metricValues);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to add metric values of {} to index", resultFile, e);
+            }
+        }
+        return metricValues;
+    }
+
+    @Override
+    public void cacheMetricValues(final List<MetricIdentifier> metricIdentifiers,
+            final List<RepositoryFile> resultFiles, final TenantIdentifier tenant, final JobIdentifier jobIdentifier) {
+        if (metricIdentifiers == null || metricIdentifiers.isEmpty()) {
+            return;
+        }
+        final List<MetricIdentifier> metrics = new ArrayList<>(metricIdentifiers);
+        final List<RepositoryFile> files = new ArrayList<>(resultFiles);
+        _executorService.submit(() -> {
+            for (RepositoryFile resultFile : files) {
+                try {
+                    getMetricValues(metrics, resultFile, tenant, jobIdentifier);
+                } catch (Exception e) {
+                    logger.warn("Failed to index metric values of result file: {}", resultFile, e);
+                }
+            }
+            logger.debug("Indexed {} metrics of {} result files of job {}", metrics.size(), files.size(),
+                    jobIdentifier);
+        });
+    }
+
+    private MetricIndex getIndex(TenantIdentifier tenant, JobIdentifier jobIdentifier) {
+        final String jobName = jobIdentifier.getName();
+        final String key = tenant.getId() + '/' + jobName;
+        return _indexes.computeIfAbsent(key, k -> {
+            final RepositoryFolder resultFolder = _tenantContextFactory.getContext(tenant).getResultFolder();
+            final RepositoryFolder indexFolder = resultFolder.getOrCreateFolder(INDEX_FOLDER_NAME);
+            return new MetricIndex(indexFolder, jobName + INDEX_FILE_EXTENSION);
+        });
+    }
+}
@@ -19,6 +19,28 @@
  */
 package org.datacleaner.monitor.server;
 
-public interface MetricValueCache extends MetricValueProducer{
+import java.util.List;
 
+import org.datacleaner.monitor.shared.model.JobIdentifier;
+import org.datacleaner.monitor.shared.model.MetricIdentifier;
+import org.datacleaner.monitor.shared.model.TenantIdentifier;
+import org.datacleaner.repository.RepositoryFile;
+
+/**
+ * A {@link MetricValueProducer} that keeps the metric values it has produced,
+ * so that they do not have to be extracted from the result files again.
+ */
+public interface MetricValueCache extends MetricValueProducer {
+
+    /**
+     * Extracts the values of a set of metrics from a number of result files,
+     * unless they are already cached. The work is done in the background.
+     * 
+     * @param metricIdentifiers
+     * @param resultFiles
+     * @param tenant
+     * @param jobIdentifier
+     */
+    public void cacheMetricValues(List<MetricIdentifier> metricIdentifiers, List<RepositoryFile> resultFiles,
+            TenantIdentifier tenant, JobIdentifier jobIdentifier);
 }
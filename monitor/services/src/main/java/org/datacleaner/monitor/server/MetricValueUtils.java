@@ -36,6 +36,7 @@ import org.datacleaner.monitor.job.MetricJobEngine;
 import org.datacleaner.monitor.shared.model.MetricGroup;
 import org.datacleaner.monitor.shared.model.MetricIdentifier;
 import org.datacleaner.result.AnalysisResult;
+import org.datacleaner.result.save.HasMetricValues;
 import org.datacleaner.util.CollectionUtils2;
 import org.datacleaner.util.LabelUtils;
 import org.datacleaner.util.StringUtils;
@@ -263,6 +264,19 @@ public class MetricValueUtils {
 
         final ComponentDescriptor<?> componentDescriptor = componentJobToUse.getDescriptor();
 
+        if (componentDescriptor instanceof HasAnalyzerResultComponentDescriptor) {
+            // if the value of the metric is stored, the metric of the component
+            // is sufficient and the result does not need to be deserialized
+            final Map<String, Number> storedValues = getStoredMetricValues(analysisResult, componentJobToUse);
+            if (storedValues != null) {
+                final MetricDescriptor metric = ((HasAnalyzerResultComponentDescriptor<?>) componentDescriptor)
+                        .getResultMetric(metricIdentifier.getMetricDescriptorName());
+                if (metric != null && storedValues.containsKey(metric.getName())) {
+                    return metric;
+                }
+            }
+        }
+
         if (analysisResult != null) {
             final AnalyzerResult analyzerResult = analysisResult.getResult(componentJobToUse);
             if (analyzerResult != null) {
@@ -343,6 +357,13 @@ public class MetricValueUtils {
             MetricIdentifier metricIdentifier, MetricDescriptor metric, AnalysisJob analysisJob,
             ComponentJob componentJob, AnalysisResult analysisResult, MetricParameters parameters) {
 
+        if (!metricIdentifier.isFormulaBased() && metric != null) {
+            final Map<String, Number> storedValues = getStoredMetricValues(analysisResult, componentJob);
+            if (storedValues != null && storedValues.containsKey(metric.getName())) {
+                return storedValues.get(metric.getName());
+            }
+        }
+
         final AnalyzerResult analyzerResult;
 
         try {
@@ -392,6 +413,27 @@ public class MetricValueUtils {
         }
     }
 
+    /**
+     * Gets the metric values that are stored with an {@link AnalysisResult},
+     * which can be read without deserializing the {@link AnalyzerResult}.
+     *
+     * @param analysisResult
+     * @param componentJob
+     * @return the stored metric values, or null if not available
+     */
+    private Map<String, Number> getStoredMetricValues(final AnalysisResult analysisResult,
+            final ComponentJob componentJob) {
+        if (!(analysisResult instanceof HasMetricValues) || componentJob == null) {
+            return null;
+        }
+        try {
+            return ((HasMetricValues) analysisResult).getMetricValues(componentJob);
+        } catch (Exception e) {
+            logger.warn("An error occurred while retrieving the stored metric values of: " + componentJob, e);
+            return null;
+        }
+    }
+
     private String prepareVariableName(String variableName) {
         variableName = StringUtils.replaceWhitespaces(variableName, "");
         return variableName;
@@ -0,0 +1,109 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.server.listeners;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.datacleaner.monitor.configuration.TenantContext;
+import org.datacleaner.monitor.configuration.TenantContextFactory;
+import org.datacleaner.monitor.dashboard.model.TimelineDefinition;
+import org.datacleaner.monitor.events.JobExecutedEvent;
+import org.datacleaner.monitor.scheduling.model.AlertDefinition;
+import org.datacleaner.monitor.scheduling.model.ExecutionLog;
+import org.datacleaner.monitor.scheduling.model.ScheduleDefinition;
+import org.datacleaner.monitor.server.MetricValueCache;
+import org.datacleaner.monitor.server.MetricValueProducer;
+import org.datacleaner.monitor.server.dao.TimelineDao;
+import org.datacleaner.monitor.shared.model.JobIdentifier;
+import org.datacleaner.monitor.shared.model.MetricIdentifier;
+import org.datacleaner.monitor.shared.model.TenantIdentifier;
+import org.datacleaner.repository.RepositoryFile;
+import org.datacleaner.util.FileFilters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener that extracts the metrics used by the timelines and alerts of a job
+ * when a result of the job has been written, if the {@link MetricValueProducer}
+ * is a {@link MetricValueCache}. This way dashboards do not need to read the
+ * result file later on.
+ */
+@Component
+public class JobExecutedEventIndexMetricsListener implements ApplicationListener<JobExecutedEvent> {
+
+    @Autowired
+    MetricValueProducer _metricValueProducer;
+
+    @Autowired
+    TimelineDao _timelineDao;
+
+    @Autowired
+    TenantContextFactory _tenantContextFactory;
+
+    @Override
+    public void onApplicationEvent(JobExecutedEvent event) {
+        if (!(_metricValueProducer instanceof MetricValueCache)) {
+            return;
+        }
+        final ExecutionLog executionLog = event.getExecutionLog();
+        final ScheduleDefinition schedule = executionLog.getSchedule();
+        if (event.getResult() == null || !executionLog.isResultPersisted() || schedule == null) {
+            return;
+        }
+
+        final TenantIdentifier tenant = schedule.getTenant();
+        final JobIdentifier job = executionLog.getJob();
+
+        final List<MetricIdentifier> metrics = new ArrayList<>();
+        for (TimelineDefinition timeline : _timelineDao.getTimelinesForJob(tenant, job).values()) {
+            addMetrics(metrics, timeline.getMetrics());
+        }
+        for (AlertDefinition alert : schedule.getAlerts()) {
+            addMetrics(metrics, Collections.singletonList(alert.getMetricIdentifier()));
+        }
+        if (metrics.isEmpty()) {
+            return;
+        }
+
+        final TenantContext context = _tenantContextFactory.getContext(tenant);
+        final String resultFilename = executionLog.getResultId() + FileFilters.ANALYSIS_RESULT_SER.getExtension();
+        final RepositoryFile resultFile = context.getResultFolder().getFile(resultFilename);
+        if (resultFile == null) {
+            return;
+        }
+
+        ((MetricValueCache) _metricValueProducer).cacheMetricValues(metrics, Collections.singletonList(resultFile),
+                tenant, job);
+    }
+
+    private void addMetrics(List<MetricIdentifier> metrics, List<MetricIdentifier> candidates) {
+        if (candidates == null) {
+            return;
+        }
+        for (MetricIdentifier candidate : candidates) {
+            if (candidate != null && !metrics.contains(candidate)) {
+                metrics.add(candidate);
+            }
+        }
+    }
+}
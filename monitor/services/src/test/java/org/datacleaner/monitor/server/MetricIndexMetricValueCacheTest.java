@@ -0,0 +1,139 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.server;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.datacleaner.monitor.configuration.TenantContext;
+import org.datacleaner.monitor.configuration.TenantContextFactory;
+import org.datacleaner.monitor.job.MetricValues;
+import org.datacleaner.monitor.shared.model.JobIdentifier;
+import org.datacleaner.monitor.shared.model.MetricIdentifier;
+import org.datacleaner.monitor.shared.model.TenantIdentifier;
+import org.datacleaner.repository.RepositoryFile;
+import org.datacleaner.repository.file.FileRepository;
+import org.datacleaner.repository.file.FileRepositoryFile;
+import org.easymock.EasyMock;
+
+import junit.framework.TestCase;
+
+public class MetricIndexMetricValueCacheTest extends TestCase {
+
+    private final TenantIdentifier tenant = new TenantIdentifier("tenant1");
+    private final JobIdentifier job = new JobIdentifier("job1");
+    private final MetricIdentifier rowCount = createMetric("Row count");
+    private final MetricIdentifier nullCount = createMetric("Null count");
+
+    private final List<List<MetricIdentifier>> delegateCalls = new ArrayList<>();
+
+    private FileRepository repository;
+    private TenantContextFactory tenantContextFactory;
+    private RepositoryFile resultFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final File directory = new File("target/metric-index-cache-test/" + getName());
+        FileUtils.deleteQuietly(directory);
+        directory.mkdirs();
+        repository = new FileRepository(directory);
+
+        final TenantContext tenantContext = EasyMock.createMock(TenantContext.class);
+        EasyMock.expect(tenantContext.getResultFolder()).andReturn(repository).anyTimes();
+        tenantContextFactory = EasyMock.createMock(TenantContextFactory.class);
+        EasyMock.expect(tenantContextFactory.getContext(tenant)).andReturn(tenantContext).anyTimes();
+        EasyMock.replay(tenantContext, tenantContextFactory);
+
+        resultFile = repository.createFile("job1-1.analysis.result.dat", out -> out.write(new byte[] { 1, 2, 3 }));
+        ((FileRepositoryFile) resultFile).getFile().setLastModified(1000000L);
+    }
+
+    public void testSecondRequestIsServedFromIndex() throws Exception {
+        final List<MetricIdentifier> metrics = Arrays.asList(rowCount, nullCount);
+
+        final MetricValues values1 = createCache().getMetricValues(metrics, resultFile, tenant, job);
+        assertEquals(Arrays.asList(100, 10), values1.getValues());
+        assertEquals(1, delegateCalls.size());
+
+        final MetricValues values2 = createCache().getMetricValues(metrics, resultFile, tenant, job);
+        assertEquals(Arrays.asList(100, 10), values2.getValues());
+        assertEquals(values1.getMetricDate(), values2.getMetricDate());
+        assertEquals(1, delegateCalls.size());
+
+        assertNotNull(repository.getFolder(MetricIndexMetricValueCache.INDEX_FOLDER_NAME).getFile("job1"
+                + MetricIndexMetricValueCache.INDEX_FILE_EXTENSION));
+    }
+
+    public void testReplacedResultFileIsExtractedAgain() throws Exception {
+        final List<MetricIdentifier> metrics = Arrays.asList(rowCount);
+        final MetricIndexMetricValueCache cache = createCache();
+
+        cache.getMetricValues(metrics, resultFile, tenant, job);
+        cache.getMetricValues(metrics, resultFile, tenant, job);
+        assertEquals(1, delegateCalls.size());
+
+        ((FileRepositoryFile) resultFile).getFile().setLastModified(2000000L);
+
+        cache.getMetricValues(metrics, resultFile, tenant, job);
+        assertEquals(2, delegateCalls.size());
+        cache.getMetricValues(metrics, resultFile, tenant, job);
+        assertEquals(2, delegateCalls.size());
+    }
+
+    public void testMissingMetricFallsBackToDelegate() throws Exception {
+        final MetricIndexMetricValueCache cache = createCache();
+
+        cache.getMetricValues(Arrays.asList(rowCount), resultFile, tenant, job);
+        assertEquals(1, delegateCalls.size());
+
+        final MetricValues values = cache.getMetricValues(Arrays.asList(rowCount, nullCount), resultFile, tenant,
+                job);
+        assertEquals(Arrays.asList(100, 10), values.getValues());
+        assertEquals(2, delegateCalls.size());
+        assertEquals(Arrays.asList(rowCount, nullCount), delegateCalls.get(1));
+
+        // a subset of the indexed metrics does not need the delegate
+        assertEquals(Arrays.asList(10), cache.getMetricValues(Arrays.asList(nullCount), resultFile, tenant, job)
+                .getValues());
+        assertEquals(2, delegateCalls.size());
+    }
+
+    private MetricIndexMetricValueCache createCache() {
+        final MetricValueProducer delegate = (metricIdentifiers, file, tenantIdentifier, jobIdentifier) -> {
+            delegateCalls.add(metricIdentifiers);
+            final List<Number> values = new ArrayList<>();
+            for (final MetricIdentifier metricIdentifier : metricIdentifiers) {
+                values.add(metricIdentifier == rowCount ? 100 : 10);
+            }
+            return new SimpleMetricValues(new Date(1400000000000L), values);
+        };
+        return new MetricIndexMetricValueCache(delegate, tenantContextFactory);
+    }
+
+    private static MetricIdentifier createMetric(final String metricDescriptorName) {
+        return new MetricIdentifier(metricDescriptorName, "Number analyzer", null, "col", metricDescriptorName,
+                null, null, false, false);
+    }
+}
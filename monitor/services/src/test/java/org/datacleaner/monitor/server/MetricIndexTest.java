@@ -0,0 +1,138 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.server;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.datacleaner.monitor.job.MetricValues;
+import org.datacleaner.monitor.shared.model.MetricIdentifier;
+import org.datacleaner.repository.RepositoryFile;
+import org.datacleaner.repository.file.FileRepository;
+import org.datacleaner.repository.file.FileRepositoryFile;
+
+import junit.framework.TestCase;
+
+public class MetricIndexTest extends TestCase {
+
+    private static final String INDEX_FILENAME = "job.metrics.idx";
+
+    private final List<MetricIdentifier> metrics = Arrays.asList(createMetric("Row count"),
+            createMetric("Max"), createMetric("Mean"), createMetric("Min"));
+
+    private File directory;
+    private FileRepository repository;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = new File("target/metric-index-test/" + getName());
+        FileUtils.deleteQuietly(directory);
+        directory.mkdirs();
+        repository = new FileRepository(directory);
+    }
+
+    public void testRoundTripThroughRepository() throws Exception {
+        final RepositoryFile resultFile = createResultFile("result1.analysis.result.dat", 1000000L);
+        final Date date = new Date(1400000000000L);
+        final List<Number> values = Arrays.asList(42, (1L << 53) + 1, 1.5, null);
+
+        new MetricIndex(repository, INDEX_FILENAME).addMetricValues(resultFile, metrics,
+                new SimpleMetricValues(date, values));
+
+        final MetricValues metricValues = new MetricIndex(repository, INDEX_FILENAME).getMetricValues(
+                resultFile, metrics);
+        assertNotNull(metricValues);
+        assertEquals(date, metricValues.getMetricDate());
+        assertEquals(values, metricValues.getValues());
+        assertEquals(Integer.class, metricValues.getValues().get(0).getClass());
+        assertEquals(Long.class, metricValues.getValues().get(1).getClass());
+        assertEquals(Double.class, metricValues.getValues().get(2).getClass());
+    }
+
+    public void testReplacedResultFileIsNotServed() throws Exception {
+        final RepositoryFile resultFile = createResultFile("result1.analysis.result.dat", 1000000L);
+
+        final MetricIndex index = new MetricIndex(repository, INDEX_FILENAME);
+        index.addMetricValues(resultFile, metrics, new SimpleMetricValues(new Date(1000L), Arrays.asList(1, 2,
+                3, 4)));
+        assertNotNull(index.getMetricValues(resultFile, metrics));
+
+        ((FileRepositoryFile) resultFile).getFile().setLastModified(2000000L);
+
+        assertNull(index.getMetricValues(resultFile, metrics));
+        assertNull(new MetricIndex(repository, INDEX_FILENAME).getMetricValues(resultFile, metrics));
+
+        index.addMetricValues(resultFile, metrics, new SimpleMetricValues(new Date(2000L), Arrays.asList(5, 6,
+                7, 8)));
+
+        final MetricValues metricValues = new MetricIndex(repository, INDEX_FILENAME).getMetricValues(
+                resultFile, metrics);
+        assertNotNull(metricValues);
+        assertEquals(new Date(2000L), metricValues.getMetricDate());
+        assertEquals(Arrays.asList(5, 6, 7, 8), metricValues.getValues());
+    }
+
+    public void testTruncatedTrailingRecordIsIgnored() throws Exception {
+        final RepositoryFile resultFile1 = createResultFile("result1.analysis.result.dat", 1000000L);
+        final RepositoryFile resultFile2 = createResultFile("result2.analysis.result.dat", 2000000L);
+        final RepositoryFile resultFile3 = createResultFile("result3.analysis.result.dat", 3000000L);
+
+        final MetricIndex index = new MetricIndex(repository, INDEX_FILENAME);
+        index.addMetricValues(resultFile1, metrics, new SimpleMetricValues(null, Arrays.asList(1, 2, 3, 4)));
+        index.addMetricValues(resultFile2, metrics, new SimpleMetricValues(null, Arrays.asList(5, 6, 7, 8)));
+
+        // simulate a write of the second record that was interrupted
+        try (RandomAccessFile indexFile = new RandomAccessFile(new File(directory, INDEX_FILENAME), "rw")) {
+            indexFile.setLength(indexFile.length() - 5);
+        }
+
+        final MetricIndex reloadedIndex = new MetricIndex(repository, INDEX_FILENAME);
+        final MetricValues metricValues = reloadedIndex.getMetricValues(resultFile1, metrics);
+        assertNotNull(metricValues);
+        assertNull(metricValues.getMetricDate());
+        assertEquals(Arrays.asList(1, 2, 3, 4), metricValues.getValues());
+        assertNull(reloadedIndex.getMetricValues(resultFile2, metrics));
+
+        // records appended after the truncated one should be readable too
+        reloadedIndex.addMetricValues(resultFile3, metrics, new SimpleMetricValues(null, Arrays.asList(9, 10, 11,
+                12)));
+
+        final MetricIndex index3 = new MetricIndex(repository, INDEX_FILENAME);
+        assertEquals(Arrays.asList(1, 2, 3, 4), index3.getMetricValues(resultFile1, metrics).getValues());
+        assertNull(index3.getMetricValues(resultFile2, metrics));
+        assertEquals(Arrays.asList(9, 10, 11, 12), index3.getMetricValues(resultFile3, metrics).getValues());
+    }
+
+    private RepositoryFile createResultFile(final String name, final long lastModified) {
+        final RepositoryFile resultFile = repository.createFile(name, out -> out.write(new byte[] { 1, 2, 3 }));
+        ((FileRepositoryFile) resultFile).getFile().setLastModified(lastModified);
+        return resultFile;
+    }
+
+    private static MetricIdentifier createMetric(final String metricDescriptorName) {
+        return new MetricIdentifier(metricDescriptorName, "Number analyzer", null, "col", metricDescriptorName,
+                null, null, false, false);
+    }
+}
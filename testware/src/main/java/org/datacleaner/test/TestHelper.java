@@ -32,6 +32,12 @@ import org.junit.Assert;
 
 public class TestHelper {
 
+    /**
+     * System property that enables the benchmarks of the test suites, eg.
+     * -Ddatacleaner.benchmark=true
+     */
+    public static final String BENCHMARK_PROPERTY = "datacleaner.benchmark";
+
     public static DataSource createSampleDatabaseDataSource() {
         final BasicDataSource _dataSource = new BasicDataSource();
         _dataSource.setDriverClassName("org.hsqldb.jdbcDriver");
@@ -63,6 +69,16 @@ public class TestHelper {
         return xml.trim().replace("\r\n", "\n");
     }
 
+    /**
+     * Determines if benchmarks should be run. Benchmarks are opt-in, since they
+     * take a while and their timings only mean something on a quiet machine.
+     *
+     * @return
+     */
+    public static boolean isBenchmarkEnabled() {
+        return Boolean.getBoolean(BENCHMARK_PROPERTY);
+    }
+
     public static boolean isInternetConnected() {
         return isInternetConnected("google.com");
     }